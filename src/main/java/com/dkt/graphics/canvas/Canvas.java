@@ -568,6 +568,29 @@ public class Canvas extends JPanel implements ActionListener {
         return repaintDelay;
     }
 
+    /**
+     * Adds a listener that will be called on each frame, just before the
+     * canvas repaints itself automatically (for instance to pace a
+     * {@link com.dkt.graphics.extras.formula.AbstractTimer}). The listeners
+     * are called on the event dispatch thread.
+     *
+     * @param listener listener to add
+     * @see Canvas#setAutoRepaint(boolean)
+     * @see Canvas#setRepaintDelay(int)
+     */
+    public void addFrameListener(ActionListener listener){
+        repaintTimer.addActionListener(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link Canvas#addFrameListener}
+     *
+     * @param listener listener to remove
+     */
+    public void removeFrameListener(ActionListener listener){
+        repaintTimer.removeActionListener(listener);
+    }
+
     /**
      * Tells if the canvas is centering automatically the origin of coordinates.
      * <pre>
@@ -0,0 +1,301 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * This class represents a {@link Graphic} that was recorded into a display
+ * list, redrawing it doesn't walk the components nor sets the paint and
+ * stroke of each one of them, and consecutive lines with the same style are
+ * drawn as a single path.<br>
+ * The display list is recorded again when the source {@code Graphic} (or any
+ * of its nested {@code Graphic}s) is modified, changes on the elements
+ * themselves can't be detected, so {@link CompiledGraphic#invalidate()} must
+ * be called after them.<br>
+ * Optionally the display list can be rasterized (see
+ * {@link CompiledGraphic#setCached(boolean)}), in that case it will only be
+ * drawn again when the scale changes.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see Graphic#compile()
+ */
+public class CompiledGraphic extends GraphicE {
+    private static final int MAX_CACHE_SIZE = 4096 * 4096;
+    private static final int NOT_SCALE = AffineTransform.TYPE_GENERAL_ROTATION  |
+                                         AffineTransform.TYPE_QUADRANT_ROTATION |
+                                         AffineTransform.TYPE_GENERAL_TRANSFORM;
+    private final Graphic source;
+    private volatile DisplayList list;
+    private boolean cached;
+    private BufferedImage raster;
+    private DisplayList rasterList;
+    private double rsx;
+    private double rsy;
+    private int rx;
+    private int ry;
+    private int xOff;
+    private int yOff;
+
+    /**
+     * Copy constructor, the source {@link Graphic} and the display list are
+     * shared with the original
+     *
+     * @param e {@code CompiledGraphic} to copy
+     * @throws IllegalArgumentException if {@code e} is {@code null}
+     */
+    public CompiledGraphic(CompiledGraphic e) {
+        super(e);
+
+        source = e.source;
+        list   = e.list;
+        cached = e.cached;
+        xOff   = e.xOff;
+        yOff   = e.yOff;
+    }
+
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see CompiledGraphic#read(SceneReader)
+     */
+    private CompiledGraphic(SceneReader in) throws IOException {
+        super(in);
+
+        source = Graphic.read(in);
+        cached = in.getBoolean();
+        xOff   = in.getInt();
+        yOff   = in.getInt();
+        list   = DisplayList.record(source);
+    }
+
+    /**
+     * Reads a {@code CompiledGraphic} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static CompiledGraphic read(SceneReader in) throws IOException {
+        return new CompiledGraphic(in);
+    }
+
+    /**
+     * Creates a new {@code CompiledGraphic}
+     *
+     * @param source {@link Graphic} to record
+     * @throws IllegalArgumentException if {@code source} is {@code null}
+     */
+    public CompiledGraphic(Graphic source) {
+        if (source == null) {
+            throw new IllegalArgumentException("The graphic can't be null");
+        }
+
+        this.source = source;
+        list = DisplayList.record(source);
+    }
+
+    /**
+     * Retrieves the {@link Graphic} that's being recorded
+     *
+     * @return source graphic
+     */
+    public Graphic getSource() {
+        return source;
+    }
+
+    /**
+     * Tells the {@code CompiledGraphic} to record the source again on the next
+     * draw. This is only needed when the elements of the source are modified.
+     */
+    public void invalidate() {
+        list = null;
+    }
+
+    /**
+     * Tells the {@code CompiledGraphic} to draw the display list into an
+     * image and draw that image instead. The image is created again when the
+     * scale of the {@link Graphics2D} changes, and it's not used when the
+     * transform has rotations or the bounds of the graphic are unknown.<br>
+     * The default value is {@code false}.
+     *
+     * @param cached {@code true} to use an image and {@code false} otherwise
+     */
+    public synchronized void setCached(boolean cached) {
+        this.cached = cached;
+        raster = null;
+    }
+
+    /**
+     * Tells if this {@code CompiledGraphic} is being drawn from an image
+     *
+     * @return {@code true} if an image is used and {@code false} otherwise
+     * @see CompiledGraphic#setCached(boolean)
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Number of operations in the display list
+     *
+     * @return number of operations
+     */
+    public int getOperationCount() {
+        return getList().size();
+    }
+
+    /**
+     * Moves the graphic to a given location, this doesn't modify the source
+     *
+     * @param x new X coordinate
+     * @param y new Y coordinate
+     */
+    public void move(int x, int y) {
+        xOff = x;
+        yOff = y;
+    }
+
+    @Override
+    public void traslate(int x, int y) {
+        xOff += x;
+        yOff += y;
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        final DisplayList l = getList();
+        final AffineTransform at = g.getTransform();
+
+        g.translate(xOff, yOff);
+
+        final AffineTransform t = g.getTransform();
+        if (!cached || (t.getType() & NOT_SCALE) != 0 || !drawRaster(g, l, t)) {
+            l.play(g);
+        }
+
+        g.setTransform(at);
+    }
+
+    private DisplayList getList() {
+        DisplayList l = list;
+        if (l == null || !l.isValid()) {
+            synchronized (this) {
+                l = list;
+                if (l == null || !l.isValid()) {
+                    l = DisplayList.record(source);
+                    list = l;
+                }
+            }
+        }
+
+        return l;
+    }
+
+    private synchronized boolean drawRaster(Graphics2D g, DisplayList l, AffineTransform t) {
+        final double sx = t.getScaleX();
+        final double sy = t.getScaleY();
+
+        if (raster == null || rasterList != l || rsx != sx || rsy != sy) {
+            final Rectangle2D bounds = l.getBounds();
+            if (bounds == null) {
+                return false;
+            }
+
+            final AffineTransform scale = AffineTransform.getScaleInstance(sx, sy);
+            final Rectangle2D b = scale.createTransformedShape(bounds).getBounds2D();
+            final int x0 = (int)Math.floor(b.getMinX()) - 1;
+            final int y0 = (int)Math.floor(b.getMinY()) - 1;
+            final int w  = (int)Math.ceil (b.getMaxX()) + 1 - x0;
+            final int h  = (int)Math.ceil (b.getMaxY()) + 1 - y0;
+
+            if ((long)w * h > MAX_CACHE_SIZE) {
+                return false;
+            }
+
+            final BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D ig = img.createGraphics();
+            ig.setRenderingHints(g.getRenderingHints());
+            ig.translate(-x0, -y0);
+            ig.scale(sx, sy);
+            l.play(ig);
+            ig.dispose();
+
+            raster = img;
+            rasterList = l;
+            rsx = sx;
+            rsy = sy;
+            rx = x0;
+            ry = y0;
+        }
+
+        g.setTransform(AffineTransform.getTranslateInstance(
+                t.getTranslateX(),
+                t.getTranslateY()
+        ));
+        g.drawImage(raster, rx, ry, null);
+
+        return true;
+    }
+
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        source.write(out);
+        out.putBoolean(cached);
+        out.putInt(xOff);
+        out.putInt(yOff);
+    }
+
+    @Override
+    public CompiledGraphic clone() {
+        return new CompiledGraphic(this);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = super.hashCode();
+        hash = 53 * hash + System.identityHashCode(source);
+        hash = 53 * hash + xOff;
+        hash = 53 * hash + yOff;
+        hash = 53 * hash + (cached ? 1 : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) {
+            return false;
+        }
+
+        final CompiledGraphic other = (CompiledGraphic) obj;
+
+        return !(
+            source != other.source |
+            xOff   != other.xOff   |
+            yOff   != other.yOff   |
+            cached != other.cached
+        );
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * Immutable list of drawing operations recorded from a {@link Graphic}.<br>
+ * The state changes (paint, stroke, font, transform and clip) are only
+ * recorded when they actually change, and consecutive lines drawn with the
+ * same opaque style are merged into a single {@link Path2D}.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see CompiledGraphic
+ */
+final class DisplayList {
+    /**
+     * A single recorded operation
+     */
+    @FunctionalInterface
+    interface Op {
+        /**
+         * Plays this operation
+         *
+         * @param g where to draw
+         * @param base transform of {@code g} when the playback started
+         * @param clip clip of {@code g} when the playback started
+         */
+        void play(Graphics2D g, AffineTransform base, Shape clip);
+    }
+
+    private final Op[] ops;
+    private final Rectangle2D bounds;
+    private final Graphic[] graphics;
+    private final int[] counts;
+
+    private DisplayList(Builder b) {
+        ops = b.ops.toArray(new Op[b.ops.size()]);
+        bounds = b.bounded ? b.bounds : null;
+        graphics = b.graphics.toArray(new Graphic[b.graphics.size()]);
+        counts = new int[graphics.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = b.counts.get(i);
+        }
+    }
+
+    /**
+     * Records the given {@code Graphic}
+     *
+     * @param graphic {@code Graphic} to record
+     * @return a new display list
+     */
+    static DisplayList record(Graphic graphic) {
+        final Builder builder = new Builder();
+        final RecordingGraphics rec = new RecordingGraphics(builder);
+        try {
+            builder.record(graphic, rec);
+            builder.flushPath();
+        } finally {
+            rec.dispose();
+        }
+
+        return new DisplayList(builder);
+    }
+
+    /**
+     * Draws the recorded operations, the transform and clip of {@code g} are
+     * restored afterwards
+     *
+     * @param g where to draw
+     */
+    void play(Graphics2D g) {
+        final AffineTransform at = g.getTransform();
+        final Shape clip = g.getClip();
+
+        for (final Op op : ops) {
+            op.play(g, at, clip);
+        }
+
+        g.setClip(clip);
+        g.setTransform(at);
+    }
+
+    /**
+     * Tells if none of the recorded {@link Graphic}s have been modified
+     *
+     * @return {@code true} if the list is still valid and {@code false}
+     * otherwise
+     */
+    boolean isValid() {
+        for (int i = 0; i < graphics.length; i++) {
+            if (graphics[i].getModCount() != counts[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Retrieves the bounds of everything that was recorded
+     *
+     * @return bounds or {@code null} if they are unknown (this happens when
+     * an element couldn't be recorded)
+     */
+    Rectangle2D getBounds() {
+        return bounds == null ? null : (Rectangle2D)bounds.clone();
+    }
+
+    /**
+     * Number of recorded operations
+     *
+     * @return size
+     */
+    int size() {
+        return ops.length;
+    }
+
+    /**
+     * Receives the operations from a {@link RecordingGraphics} and turns them
+     * into {@link Op}s
+     */
+    static final class Builder {
+        private static final Object UNKNOWN = new Object();
+        private static final int STROKE = 0;
+        private static final int FILL   = 1;
+        private static final int PAINT  = 2;
+        private static final int HINT   = 3;
+
+        private final ArrayList<Op> ops = new ArrayList<>();
+        private final ArrayList<Graphic> graphics = new ArrayList<>();
+        private final ArrayList<Integer> counts = new ArrayList<>();
+        private final ArrayList<Event> events = new ArrayList<>();
+        private final Rectangle2D bounds = new Rectangle2D.Double();
+        private boolean bounded = true;
+        private boolean empty = true;
+
+        private Path2D.Float path;
+        private Object cPaint  = UNKNOWN;
+        private Object cStroke = UNKNOWN;
+        private Object cFont   = UNKNOWN;
+        private Object cComp   = UNKNOWN;
+        private Object cTx     = UNKNOWN;
+        private Object cClip   = UNKNOWN;
+
+        /**
+         * Records a {@code Graphic} the same way {@link Graphic#draw} would
+         * draw it
+         */
+        private void record(Graphic graphic, RecordingGraphics rec) {
+            graphics.add(graphic);
+            counts.add(graphic.getModCount());
+
+            if (!graphic.isVisible()) {
+                return;
+            }
+
+            final AffineTransform tx = rec.tx;
+            final Shape clip = rec.clip;
+
+            rec.translate(graphic.getXOffset(), graphic.getYOffset());
+
+            for (final GraphicE e : graphic) {
+                if (e instanceof Graphic) {
+                    record((Graphic)e, rec);
+                } else {
+                    record(e, rec);
+                }
+            }
+
+            rec.tx = tx;
+            rec.clip = clip;
+        }
+
+        private void record(GraphicE e, RecordingGraphics rec) {
+            final AffineTransform tx = rec.tx;
+            final Shape clip = rec.clip;
+            final Paint paint = rec.paint;
+            final Stroke stroke = rec.stroke;
+            final Font font = rec.font;
+            final Composite comp = rec.composite;
+
+            events.clear();
+            boolean recorded = true;
+            try {
+                e.draw(rec);
+            } catch (UnsupportedOperationException ex) {
+                recorded = false;
+                rec.tx = tx;
+                rec.clip = clip;
+                rec.paint = paint;
+                rec.stroke = stroke;
+                rec.font = font;
+                rec.composite = comp;
+            }
+
+            //GString checks the absolute transform in order to deal with
+            //inverted axes, so the recorded version might not be right
+            if (recorded && !(e instanceof GString)) {
+                commit();
+                return;
+            }
+
+            if (recorded) {
+                for (final Event ev : events) {
+                    include(ev, ev.bounds);
+                }
+            } else {
+                bounded = false;
+            }
+            events.clear();
+
+            flushPath();
+            sync(tx, clip, paint, stroke, font, comp);
+            ops.add((g, at, c) -> e.draw(g));
+            cPaint = cStroke = cFont = cComp = cTx = cClip = UNKNOWN;
+        }
+
+        void stroke(RecordingGraphics rec, Shape s, boolean owned) {
+            if (rec.stroke == null) {
+                throw new UnsupportedOperationException("Null stroke");
+            }
+
+            final Shape shape = owned ? s : new Path2D.Float(s);
+            final Rectangle2D b = rec.stroke.createStrokedShape(shape).getBounds2D();
+            events.add(new Event(STROKE, rec, shape, null, b));
+        }
+
+        void fill(RecordingGraphics rec, Shape s, boolean owned) {
+            final Shape shape = owned ? s : new Path2D.Float(s);
+            events.add(new Event(FILL, rec, shape, null, shape.getBounds2D()));
+        }
+
+        void paint(RecordingGraphics rec, Op op, Rectangle2D b, boolean font) {
+            final Event ev = new Event(PAINT, rec, null, op, b);
+            ev.usesFont = font;
+            events.add(ev);
+        }
+
+        void hint(Op op) {
+            events.add(new Event(HINT, null, null, op, null));
+        }
+
+        private void commit() {
+            for (final Event ev : events) {
+                switch (ev.type) {
+                    case STROKE:
+                        if (path != null && matches(ev)) {
+                            path.append(ev.shape, false);
+                        } else {
+                            flushPath();
+                            sync(ev.tx, ev.clip, ev.paint, ev.stroke, cFont, ev.comp);
+                            path = new Path2D.Float(ev.shape);
+                            if (!isOpaque(ev)) {
+                                flushPath();
+                            }
+                        }
+                        break;
+                    case FILL:
+                        flushPath();
+                        sync(ev.tx, ev.clip, ev.paint, ev.stroke, cFont, ev.comp);
+                        final Shape shape = ev.shape;
+                        ops.add((g, at, c) -> g.fill(shape));
+                        break;
+                    case PAINT:
+                        flushPath();
+                        sync(ev.tx, ev.clip, ev.paint, ev.stroke,
+                             ev.usesFont ? ev.font : cFont, ev.comp);
+                        ops.add(ev.op);
+                        break;
+                    default:
+                        flushPath();
+                        ops.add(ev.op);
+                }
+
+                include(ev, ev.bounds);
+            }
+
+            events.clear();
+        }
+
+        private void include(Event ev, Rectangle2D b) {
+            if (b == null) {
+                return;
+            }
+
+            Rectangle2D r = ev.tx.createTransformedShape(b).getBounds2D();
+            if (ev.clip != null) {
+                r = r.createIntersection(ev.clip.getBounds2D());
+            }
+
+            if (r.isEmpty()) {
+                return;
+            }
+
+            if (empty) {
+                bounds.setRect(r);
+                empty = false;
+            } else {
+                bounds.add(r);
+            }
+        }
+
+        private boolean matches(Event ev) {
+            return same(cPaint, ev.paint) && same(cStroke, ev.stroke) &&
+                   same(cComp , ev.comp ) && same(cTx    , ev.tx    ) &&
+                   cClip == ev.clip;
+        }
+
+        private static boolean same(Object current, Object value) {
+            return current == value ||
+                   current != UNKNOWN && Objects.equals(current, value);
+        }
+
+        private static boolean isOpaque(Event ev) {
+            return ev.paint instanceof Color &&
+                   ((Color)ev.paint).getAlpha() == 255 &&
+                   AlphaComposite.SrcOver.equals(ev.comp);
+        }
+
+        private void flushPath() {
+            if (path != null) {
+                final Path2D.Float p = path;
+                p.trimToSize();
+                ops.add((g, at, c) -> g.draw(p));
+                path = null;
+            }
+        }
+
+        /**
+         * Adds the state changes needed to reach the given state, the
+         * {@code c*} fields keep the last state that was set
+         */
+        private void sync(
+                AffineTransform tx,
+                Shape clip,
+                Paint paint,
+                Stroke stroke,
+                Object font,
+                Composite comp)
+        {
+            if (cClip != clip) {
+                cClip = clip;
+                cTx = UNKNOWN;
+                ops.add((g, at, c) -> {
+                    g.setTransform(at);
+                    g.setClip(c);
+                    if (clip != null) {
+                        g.clip(clip);
+                    }
+                });
+            }
+
+            if (!same(cTx, tx)) {
+                ops.add((g, at, c) -> {
+                    g.setTransform(at);
+                    g.transform(tx);
+                });
+                cTx = tx;
+            }
+
+            if (!same(cPaint, paint)) {
+                ops.add((g, at, c) -> g.setPaint(paint));
+                cPaint = paint;
+            }
+
+            if (!same(cStroke, stroke)) {
+                ops.add((g, at, c) -> g.setStroke(stroke));
+                cStroke = stroke;
+            }
+
+            if (!same(cFont, font)) {
+                final Font f = (Font)font;
+                ops.add((g, at, c) -> g.setFont(f));
+                cFont = font;
+            }
+
+            if (!same(cComp, comp)) {
+                ops.add((g, at, c) -> g.setComposite(comp));
+                cComp = comp;
+            }
+        }
+    }
+
+    /**
+     * A drawing operation and the state of the {@link RecordingGraphics}
+     * when it was made
+     */
+    private static final class Event {
+        final int type;
+        final Shape shape;
+        final Op op;
+        final Rectangle2D bounds;
+        final AffineTransform tx;
+        final Shape clip;
+        final Paint paint;
+        final Stroke stroke;
+        final Font font;
+        final Composite comp;
+        boolean usesFont;
+
+        Event(int type, RecordingGraphics rec, Shape shape, Op op, Rectangle2D bounds) {
+            this.type = type;
+            this.shape = shape;
+            this.op = op;
+            this.bounds = bounds;
+
+            if (rec != null) {
+                tx = rec.tx;
+                clip = rec.clip;
+                paint = rec.paint;
+                stroke = rec.stroke;
+                font = rec.font;
+                comp = rec.composite;
+            } else {
+                tx = null;
+                clip = null;
+                paint = null;
+                stroke = null;
+                font = null;
+                comp = null;
+            }
+        }
+    }
+}
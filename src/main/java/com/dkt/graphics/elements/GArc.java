@@ -21,6 +21,7 @@ package com.dkt.graphics.elements;
 import java.awt.Graphics2D;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Area;
+import java.io.IOException;
 
 /**
  *
@@ -47,6 +48,33 @@ public class GArc extends GFillableE {
         aa = e.aa;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GArc#read(SceneReader)
+     */
+    private GArc(SceneReader in) throws IOException {
+        super(in);
+
+        x  = in.getInt();
+        y  = in.getInt();
+        w  = in.getInt();
+        h  = in.getInt();
+        sa = in.getInt();
+        aa = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GArc} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GArc read(SceneReader in) throws IOException {
+        return new GArc(in);
+    }
+
     /**
      * Generates an arc of a circle
      *
@@ -126,6 +154,18 @@ public class GArc extends GFillableE {
         this.y = y - h / 2;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(w);
+        out.putInt(h);
+        out.putInt(sa);
+        out.putInt(aa);
+    }
+
     @Override
     public GArc clone() {
         return new GArc(this);
@@ -21,6 +21,7 @@ package com.dkt.graphics.elements;
 import java.awt.Graphics2D;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
+import java.io.IOException;
 
 /**
  *
@@ -47,6 +48,31 @@ public class GCircle extends GFillableE {
         this.y = e.y;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GCircle#read(SceneReader)
+     */
+    private GCircle(SceneReader in) throws IOException {
+        super(in);
+
+        x = in.getInt();
+        y = in.getInt();
+        d = in.getInt();
+        r = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GCircle} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GCircle read(SceneReader in) throws IOException {
+        return new GCircle(in);
+    }
+
     /**
      * @param x X coordinate of the center
      * @param y Y coordinate of the center
@@ -260,6 +286,16 @@ public class GCircle extends GFillableE {
         this.y = y;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(d);
+        out.putInt(r);
+    }
+
     @Override
     public GCircle clone() {
         return new GCircle(this);
@@ -18,8 +18,10 @@
  */
 package com.dkt.graphics.elements;
 
+import com.dkt.graphics.utils.StyleCache;
 import java.awt.Paint;
 import java.awt.geom.Area;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -44,6 +46,20 @@ public abstract class GFillableE extends GraphicE {
         fillPaint = e.fillPaint;
     }
 
+    /**
+     * Reads a {@code GFillableE} from a scene
+     *
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GraphicIO
+     */
+    GFillableE(SceneReader in) throws IOException {
+        super(in);
+
+        fill = in.getBoolean();
+        fillPaint = in.getPaint(true);
+    }
+
     protected GFillableE() {
 
     }
@@ -68,7 +84,7 @@ public abstract class GFillableE extends GraphicE {
             throw new IllegalArgumentException("Paint can't be null");
         }
 
-        fillPaint = paint;
+        fillPaint = StyleCache.intern(paint);
     }
 
     /**
@@ -102,6 +118,14 @@ public abstract class GFillableE extends GraphicE {
      */
     public abstract Area getShape();
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putBoolean(fill);
+        out.putPaint(fillPaint);
+    }
+
     @Override
     public abstract GFillableE clone();
 
@@ -59,6 +59,31 @@ public class GImage extends GraphicE implements Paint {
         original = e.original;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GImage#read(SceneReader)
+     */
+    private GImage(SceneReader in) throws IOException {
+        super(in);
+
+        original = in.getImage();
+        image = in.getBoolean() ? in.getImage() : original;
+        x = in.getInt();
+        y = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GImage} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GImage read(SceneReader in) throws IOException {
+        return new GImage(in);
+    }
+
     /**
      * Create a new {@code GImage} from a given path
      *
@@ -222,6 +247,19 @@ public class GImage extends GraphicE implements Paint {
         g.drawImage(image, x, y, null);
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putImage(original);
+        out.putBoolean(image != original);
+        if (image != original) {
+            out.putImage(image);
+        }
+        out.putInt(x);
+        out.putInt(y);
+    }
+
     @Override
     public GImage clone() {
         return new GImage(this);
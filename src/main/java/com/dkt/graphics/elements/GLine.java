@@ -19,6 +19,7 @@
 package com.dkt.graphics.elements;
 
 import java.awt.Graphics2D;
+import java.io.IOException;
 
 /**
  * This class represents a line segment
@@ -43,6 +44,31 @@ public class GLine extends GraphicE {
         y2 = e.y2;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GLine#read(SceneReader)
+     */
+    private GLine(SceneReader in) throws IOException {
+        super(in);
+
+        x1 = in.getInt();
+        y1 = in.getInt();
+        x2 = in.getInt();
+        y2 = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GLine} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GLine read(SceneReader in) throws IOException {
+        return new GLine(in);
+    }
+
     /**
      * Constructs a new line segment based on the end points
      *
@@ -241,6 +267,16 @@ public class GLine extends GraphicE {
         y2 += y;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x1);
+        out.putInt(y1);
+        out.putInt(x2);
+        out.putInt(y2);
+    }
+
     @Override
     public GLine clone() {
         return new GLine(this);
@@ -21,11 +21,13 @@ package com.dkt.graphics.elements;
 import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Polygon;
 import java.awt.geom.Area;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -62,6 +64,22 @@ public abstract class GMultiPoint extends GFillableE
         System.arraycopy(e.ys, 0, ys, 0, size);
     }
 
+    /**
+     * Reads a {@code GMultiPoint} from a scene
+     *
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GraphicIO
+     */
+    GMultiPoint(SceneReader in) throws IOException {
+        super(in);
+
+        final int n = in.getInt();
+        xs   = in.getInts(n);
+        ys   = in.getInts(n);
+        size = n;
+    }
+
     /**
      * @param initial initial reserved size
      * @throws NegativeArraySizeException if the size is less than zero
@@ -325,6 +343,49 @@ public abstract class GMultiPoint extends GFillableE
         }
     }
 
+    /**
+     * Appends several points to the path at once, the lock is taken only
+     * once (so a drawing thread sees either none or all of them). If the
+     * path has run out of space then its capacity will be (at least) doubled
+     *
+     * @param x X coordinates of the points
+     * @param y Y coordinates of the points
+     * @param off index of the first point on the arrays
+     * @param len number of points
+     * @throws IllegalArgumentException if either array is {@code null}
+     * @throws IndexOutOfBoundsException if {@code [off, off + len)} isn't a
+     * valid range of both arrays
+     * @see GMultiPoint#ensureCapacity(int)
+     */
+    public void append(final int[] x, final int[] y, final int off, final int len) {
+        if (x == null || y == null){
+            throw new IllegalArgumentException("The arrays can't be null");
+        }
+
+        Objects.checkFromIndexSize(off, len, x.length);
+        Objects.checkFromIndexSize(off, len, y.length);
+
+        if (len == 0){
+            return;
+        }
+
+        mutex.lock();
+        try{
+            if (size + len > xs.length){
+                ensureCapacity(Math.max(size + len, 2 * xs.length));
+            }
+
+            System.arraycopy(x, off, xs, size, len);
+            System.arraycopy(y, off, ys, size, len);
+
+            size += len;
+
+            modCount.incrementAndGet();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
     /**
      * Appends a new point to the path if and only if this point doesn't exist
      * within the array. If the path has run out of space then
@@ -528,6 +589,20 @@ public abstract class GMultiPoint extends GFillableE
         };
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        mutex.lock();
+        try {
+            out.putInt(size);
+            out.putInts(xs, size);
+            out.putInts(ys, size);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = super.hashCode();
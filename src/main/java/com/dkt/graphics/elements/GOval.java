@@ -22,6 +22,7 @@ import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
+import java.io.IOException;
 
 /**
  *
@@ -45,6 +46,31 @@ public class GOval extends GFillableE {
         w = e.w;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GOval#read(SceneReader)
+     */
+    private GOval(SceneReader in) throws IOException {
+        super(in);
+
+        x = in.getInt();
+        y = in.getInt();
+        w = in.getInt();
+        h = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GOval} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GOval read(SceneReader in) throws IOException {
+        return new GOval(in);
+    }
+
     /**
      * Constructs an oval inscribed in a given rectangle
      *
@@ -102,6 +128,16 @@ public class GOval extends GFillableE {
         this.y += y;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(w);
+        out.putInt(h);
+    }
+
     @Override
     public GOval clone() {
         return new GOval(this);
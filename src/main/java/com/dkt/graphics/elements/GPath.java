@@ -20,6 +20,7 @@ package com.dkt.graphics.elements;
 
 import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
+import java.io.IOException;
 
 /**
  *
@@ -36,6 +37,26 @@ public class GPath extends GMultiPoint {
         super(e);
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GPath#read(SceneReader)
+     */
+    private GPath(SceneReader in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * Reads a {@code GPath} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GPath read(SceneReader in) throws IOException {
+        return new GPath(in);
+    }
+
     /**
      * @param size initial reserved size
      * @throws NegativeArraySizeException if size is less than zero
@@ -19,6 +19,7 @@
 package com.dkt.graphics.elements;
 
 import java.awt.Graphics2D;
+import java.io.IOException;
 
 /**
  * This class represents a <b>mutable</b> point
@@ -45,6 +46,31 @@ public class GPoint extends GraphicE {
         drawCross = e.drawCross;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GPoint#read(SceneReader)
+     */
+    private GPoint(SceneReader in) throws IOException {
+        super(in);
+
+        x  = in.getInt();
+        y  = in.getInt();
+        cs = in.getInt();
+        drawCross = in.getBoolean();
+    }
+
+    /**
+     * Reads a {@code GPoint} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GPoint read(SceneReader in) throws IOException {
+        return new GPoint(in);
+    }
+
     /**
      * Creates a new {@code GPoint}
      *
@@ -181,6 +207,16 @@ public class GPoint extends GraphicE {
         return String.format("(%d, %d)", x, y);
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(cs);
+        out.putBoolean(drawCross);
+    }
+
     @Override
     public GPoint clone() {
         return new GPoint(this);
@@ -20,6 +20,7 @@ package com.dkt.graphics.elements;
 
 import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 
@@ -42,6 +43,28 @@ public class GPointArray extends GMultiPoint {
         cs = e.cs;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GPointArray#read(SceneReader)
+     */
+    private GPointArray(SceneReader in) throws IOException {
+        super(in);
+
+        cs = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GPointArray} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GPointArray read(SceneReader in) throws IOException {
+        return new GPointArray(in);
+    }
+
     /**
      * @param points {@link GPoint} array containing all the points
      * @throws IllegalArgumentException if the array is {@code null}
@@ -814,6 +837,13 @@ public class GPointArray extends GMultiPoint {
         }
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(cs);
+    }
+
     @Override
     public GPointArray clone() {
         return new GPointArray(this);
@@ -20,6 +20,7 @@ package com.dkt.graphics.elements;
 
 import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
+import java.io.IOException;
 
 /**
  * <a href="http://erich.realtimerendering.com/ptinpoly/">...</a>
@@ -37,6 +38,26 @@ public class GPoly extends GMultiPoint {
         super(e);
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GPoly#read(SceneReader)
+     */
+    GPoly(SceneReader in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * Reads a {@code GPoly} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GPoly read(SceneReader in) throws IOException {
+        return new GPoly(in);
+    }
+
     /**
      * Generates an empty polygon
      */
@@ -22,6 +22,7 @@ import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.io.IOException;
 
 /**
  *
@@ -52,6 +53,33 @@ public class GRectangle extends GFillableE {
         w = e.w;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GRectangle#read(SceneReader)
+     */
+    private GRectangle(SceneReader in) throws IOException {
+        super(in);
+
+        x  = in.getInt();
+        y  = in.getInt();
+        w  = in.getInt();
+        h  = in.getInt();
+        cx = in.getInt();
+        cy = in.getInt();
+    }
+
+    /**
+     * Reads a {@code GRectangle} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GRectangle read(SceneReader in) throws IOException {
+        return new GRectangle(in);
+    }
+
     /**
      * Creates a new rectangle (square) on with center in {@code (0, 0)}
      *
@@ -306,6 +334,18 @@ public class GRectangle extends GFillableE {
         g.drawRect(x, y, w, h);
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(w);
+        out.putInt(h);
+        out.putInt(cx);
+        out.putInt(cy);
+    }
+
     @Override
     public GRectangle clone() {
         return new GRectangle(this);
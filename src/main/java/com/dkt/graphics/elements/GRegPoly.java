@@ -18,6 +18,8 @@
  */
 package com.dkt.graphics.elements;
 
+import java.io.IOException;
+
 /**
  *
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
@@ -43,6 +45,32 @@ public class GRegPoly extends GPoly {
         a = e.a;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GRegPoly#read(SceneReader)
+     */
+    private GRegPoly(SceneReader in) throws IOException {
+        super(in);
+
+        x = in.getInt();
+        y = in.getInt();
+        r = in.getInt();
+        n = in.getInt();
+        a = in.getDouble();
+    }
+
+    /**
+     * Reads a {@code GRegPoly} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GRegPoly read(SceneReader in) throws IOException {
+        return new GRegPoly(in);
+    }
+
     /**
      * Constructs a regular polygon contained in a circle
      *
@@ -224,6 +252,17 @@ public class GRegPoly extends GPoly {
         this.y += y;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(r);
+        out.putInt(n);
+        out.putDouble(a);
+    }
+
     @Override
     public GRegPoly clone() {
         return new GRegPoly(this);
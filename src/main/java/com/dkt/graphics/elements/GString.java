@@ -22,6 +22,7 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -52,6 +53,32 @@ public class GString extends GraphicE {
         y = e.y;
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GString#read(SceneReader)
+     */
+    private GString(SceneReader in) throws IOException {
+        super(in);
+
+        string = in.getString();
+        font = in.getFont();
+        x = in.getInt();
+        y = in.getInt();
+        a = in.getDouble();
+    }
+
+    /**
+     * Reads a {@code GString} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GString read(SceneReader in) throws IOException {
+        return new GString(in);
+    }
+
     /**
      * GString constructor
      *
@@ -246,6 +273,17 @@ public class GString extends GraphicE {
         this.y = y;
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putString(string);
+        out.putFont(font);
+        out.putInt(x);
+        out.putInt(y);
+        out.putDouble(a);
+    }
+
     @Override
     public GString clone() {
         return new GString(this);
@@ -19,6 +19,7 @@
 package com.dkt.graphics.elements;
 
 import java.awt.Graphics2D;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -71,6 +72,35 @@ public class GVector extends GraphicE {
         System.arraycopy(e.ys, 0, ys, 0, ys.length);
     }
 
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GVector#read(SceneReader)
+     */
+    private GVector(SceneReader in) throws IOException {
+        super(in);
+
+        x1 = in.getInt();
+        y1 = in.getInt();
+        l  = in.getDouble();
+        a  = in.getDouble();
+        aw = in.getInt();
+        aa = in.getDouble();
+
+        calc();
+    }
+
+    /**
+     * Reads a {@code GVector} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static GVector read(SceneReader in) throws IOException {
+        return new GVector(in);
+    }
+
     /**
      * Basic Vector constructor
      *
@@ -485,6 +515,18 @@ public class GVector extends GraphicE {
         calc();
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putInt(x1);
+        out.putInt(y1);
+        out.putDouble(l);
+        out.putDouble(a);
+        out.putInt(aw);
+        out.putDouble(aa);
+    }
+
     @Override
     public GVector clone() {
         return new GVector(this);
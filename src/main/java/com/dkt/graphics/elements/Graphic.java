@@ -22,6 +22,9 @@ import com.dkt.graphics.exceptions.InvalidArgumentException;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Objects;
 
@@ -36,8 +39,9 @@ import java.util.Objects;
 public class Graphic extends GraphicE implements Iterable<GraphicE> {
     private final UnsafeList components;
     private boolean visible = true;
-    private int xOff;
-    private int yOff;
+    private volatile int xOff;
+    private volatile int yOff;
+    private volatile int modCount;
 
     public Graphic() {
         this(20);
@@ -60,13 +64,41 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
         yOff = e.yOff;
 
         components = new UnsafeList(e.components.size());
-        synchronized (e.components){
-            for (final GraphicE ge : e.components){
-                components.add(ge.clone());
-            }
+        for (final GraphicE ge : e.components){
+            components.add(ge.clone());
+        }
+    }
+
+    /**
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see Graphic#read(SceneReader)
+     */
+    private Graphic(SceneReader in) throws IOException {
+        super(in);
+
+        visible = in.getBoolean();
+        xOff = in.getInt();
+        yOff = in.getInt();
+
+        final int n = in.getInt();
+        components = new UnsafeList(Math.max(0, Math.min(n, 1024)));
+        for (int i = 0; i < n; i++) {
+            components.add(in.getElement());
         }
     }
 
+    /**
+     * Reads a {@code Graphic} from a scene
+     *
+     * @param in scene reader
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    static Graphic read(SceneReader in) throws IOException {
+        return new Graphic(in);
+    }
+
     /**
      * Retrieves the number of {@link GraphicE} components that compose this
      * {@code Graphic}. This method will not count recursively.
@@ -79,14 +111,14 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
 
     /**
      * Adds a new {@link GraphicE} to this Graphic<br>
-     * <i>Note:</i> all the elements that are added will be automatically
-     * traslated the same amount as the sum of the traslations up to this
-     * moment
+     * <i>Note:</i> the element itself isn't modified, it will be drawn
+     * traslated the same amount as the sum of the traslations of this
+     * {@code Graphic} (see {@link Graphic#traslate(int, int)})<br>
      * <i>Note 2:</i>This method doesn't check if the element is already
      * contained on the {@code Graphic}, this mean, that you can add elements
      * twice, the <i>downside</i> (or amazing feature, according to a couple of
      * comments) is that the elements that are added twice will be traslated
-     * twice as much as the other elements.
+     * twice as much as the other elements when flattening.
      *
      * @param e element to add
      * @throws IllegalArgumentException if {@code e} is {@code null}
@@ -104,7 +136,7 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
 
         synchronized (components){
             components.add(e);
-            e.traslate(xOff, yOff);
+            modCount++;
         }
     }
 
@@ -122,9 +154,7 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
             throw new IllegalArgumentException("The element can't be null");
         }
 
-        synchronized (components){
-            return components.contains(e);
-        }
+        return components.contains(e);
     }
 
     /**
@@ -142,7 +172,51 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
         }
 
         synchronized (components){
-            return components.remove(e);
+            final boolean removed = components.remove(e);
+            if (removed) {
+                modCount++;
+            }
+
+            return removed;
+        }
+    }
+
+    /**
+     * Replaces the components on the indexes {@code [from, to)} with a given
+     * set of elements, this is the same as removing those components and
+     * inserting the new ones on {@code from}.<br>
+     * The change is atomic, a thread that's drawing this {@code Graphic}
+     * will either draw the old components or the new ones, but never a mix
+     * of them.
+     *
+     * @param from index of the first component to replace
+     * @param to index after the last component to replace
+     * @param elements elements to insert
+     * @throws IllegalArgumentException if {@code elements} or any of the
+     * elements is {@code null}
+     * @throws InvalidArgumentException if any of the elements is this same
+     * object
+     * @throws IndexOutOfBoundsException if {@code [from, to)} isn't a valid
+     * range of indexes
+     */
+    public void replace(final int from, final int to, final GraphicE... elements) {
+        if (elements == null){
+            throw new IllegalArgumentException("The elements can't be null");
+        }
+
+        for (final GraphicE e : elements) {
+            if (e == null){
+                throw new IllegalArgumentException("The element can't be null");
+            }
+            if (e == this){
+                final String msg = "Graphics can't be added to themselves";
+                throw new InvalidArgumentException(msg);
+            }
+        }
+
+        synchronized (components){
+            components.replace(from, to, elements);
+            modCount++;
         }
     }
 
@@ -160,9 +234,7 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
             throw new IllegalArgumentException("The element can't be null");
         }
 
-        synchronized (components){
-            return components.indexOf(e);
-        }
+        return components.indexOf(e);
     }
 
     /**
@@ -171,6 +243,7 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
     public void removeAll() {
         synchronized (components){
             components.clear();
+            modCount++;
         }
     }
 
@@ -183,51 +256,144 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
         final AffineTransform at = g.getTransform();
         final Shape clip = g.getClip();
 
-        synchronized (components){
-            for (final GraphicE e : components){
-                e.draw(g);
-            }
+        g.translate(xOff, yOff);
+
+        //Drawing works on a snapshot of the components, so it never waits
+        //for (or blocks) the threads that are adding elements
+        for (final GraphicE e : components){
+            e.draw(g);
         }
 
         g.setClip(clip);
         g.setTransform(at);
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * <i>Note:</i> the components aren't modified, the traslation is kept as
+     * an offset that's applied once when drawing, so this method doesn't
+     * depend on the number of components. Use {@link Graphic#flatten()} if
+     * you need the offsets of nested {@code Graphic}s applied to the
+     * components themselves.
+     */
     @Override
     public void traslate(final int x, final int y) {
         synchronized (components){
-            for (final GraphicE e : components){
-                e.traslate(x, y);
-            }
-
             xOff += x;
+            yOff += y;
+            modCount++;
         }
     }
 
     /**
      * Moves all the elements to a given location.<br>
-     * This method tends to ruin graphics... use it with care.
+     * The location is relative to the original position of the components,
+     * that is, {@code move(0, 0)} will undo all the traslations.
      *
      * @param x new X coordinate
      * @param y new Y coordinate
      */
     public void move(final int x, final int y) {
         synchronized (components){
-            for (final GraphicE e : components){
-                e.traslate(-xOff, -yOff);
-                e.traslate(x, y);
-            }
-
             xOff = x;
             yOff = y;
+            modCount++;
+        }
+    }
+
+    /**
+     * Retrieves the horizontal offset of this {@code Graphic}, that is the sum
+     * of all the traslations
+     *
+     * @return horizontal offset
+     * @see Graphic#traslate(int, int)
+     */
+    public int getXOffset() {
+        return xOff;
+    }
+
+    /**
+     * Retrieves the vertical offset of this {@code Graphic}, that is the sum
+     * of all the traslations
+     *
+     * @return vertical offset
+     * @see Graphic#traslate(int, int)
+     */
+    public int getYOffset() {
+        return yOff;
+    }
+
+    /**
+     * Tells if a given point is contained in any of the components of this
+     * {@code Graphic}, the offsets of this and any nested {@code Graphic} are
+     * taken into account.<br>
+     * <i>Note:</i> only {@link GFillableE} components (and nested
+     * {@code Graphic}s) are considered, regardless of their visibility.
+     *
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return {@code true} if the point is contained and {@code false}
+     * otherwise
+     * @see Graphic#getShape()
+     */
+    public boolean contains(final int x, final int y) {
+        final int xx = x - xOff;
+        final int yy = y - yOff;
+
+        for (final GraphicE e : components) {
+            if (e instanceof Graphic) {
+                if (((Graphic)e).contains(xx, yy)) {
+                    return true;
+                }
+            } else if (e instanceof GFillableE) {
+                final Area area = ((GFillableE)e).getShape();
+                if (area != null && area.contains(xx, yy)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Retrieves the union of the shapes of the components of this
+     * {@code Graphic} as they would be drawn, that is, the offsets of this and
+     * any nested {@code Graphic} are applied. Use {@link Area#getBounds()} to
+     * get the bounds of the {@code Graphic}.<br>
+     * <i>Note:</i> only {@link GFillableE} components (and nested
+     * {@code Graphic}s) are considered, regardless of their visibility.
+     *
+     * @return a new {@link Area}, it will be empty if there are no shapes
+     * @see Graphic#contains(int, int)
+     */
+    public Area getShape() {
+        final Area area = new Area();
+
+        for (final GraphicE e : components) {
+            if (e instanceof Graphic) {
+                area.add(((Graphic)e).getShape());
+            } else if (e instanceof GFillableE) {
+                final Area shape = ((GFillableE)e).getShape();
+                if (shape != null) {
+                    area.add(shape);
+                }
+            }
         }
+
+        area.transform(AffineTransform.getTranslateInstance(xOff, yOff));
+        return area;
     }
 
     /**
      * This method adds all of the elements of a given set of {@code Graphic}
      * components into the current element.<br>
+     * <i>Note:</i> the elements are shared, so the offsets of the given
+     * graphics are not applied, they will be drawn with the offset of this
+     * {@code Graphic}
      *
      * @param graphics array of graphics to merge
+     * @see Graphic#addCopyOfAll(Graphic...)
      * @see Graphic#flatten()
      */
     public void addAll(final Graphic... graphics) {
@@ -235,12 +401,14 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
             for (final Graphic graph : graphics){
                 components.addAll(graph.components);
             }
+            modCount++;
         }
     }
 
     /**
-     * This method adds all of the elements of a given set of {@code Graphic}
-     * components into the current element.<br>
+     * This method adds a copy of all of the elements of a given set of
+     * {@code Graphic} components into the current element.<br>
+     * The offset of each graphic is applied to the copies of its elements.
      *
      * @param graphics array of graphics to merge
      * @see Graphic#flatten()
@@ -248,8 +416,13 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
     public void addCopyOfAll(final Graphic... graphics) {
         synchronized (components){
             for (final Graphic graph : graphics){
-                components.addAll(graph.clone().components);
+                final Graphic copy = graph.clone();
+                for (final GraphicE e : copy.components){
+                    e.traslate(copy.xOff, copy.yOff);
+                }
+                components.addAll(copy.components);
             }
+            modCount++;
         }
     }
 
@@ -269,7 +442,35 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
      * {@code flase} otherwise
      */
     public void setVisible(boolean v) {
-        visible = v;
+        synchronized (components){
+            visible = v;
+            modCount++;
+        }
+    }
+
+    /**
+     * Retrieves the number of structural changes made to this
+     * {@code Graphic}, that is adding or removing components, traslating it
+     * or changing its visibility. Changes on the components themselves are
+     * not counted.
+     *
+     * @return modification count
+     */
+    int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Records this {@code Graphic} into a {@link CompiledGraphic}, that is a
+     * display list that can be redrawn without walking the components.<br>
+     * This is meant for {@code Graphic}s that don't change after being
+     * created (axes, grids, labels, etc.)
+     *
+     * @return a new {@link CompiledGraphic} backed by this {@code Graphic}
+     * @see CompiledGraphic
+     */
+    public CompiledGraphic compile() {
+        return new CompiledGraphic(this);
     }
 
     /**
@@ -280,25 +481,32 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
      * combining several {@code Graphic}. Consider trying to search for a specific
      * element when having multiple {@code Graphic} objects... basically, you'll
      * never be able to find them if you need to enter each and every
-     * {@code Graphic} object to check.
+     * {@code Graphic} object to check.<br>
+     * The offsets of the nested {@code Graphic}s are applied to their
+     * components, the offset of this {@code Graphic} is kept.
      */
     public void flatten() {
         synchronized (components){
             Graphic foo = new Graphic(this.getCount());
-            flatten(this, foo);
+            flatten(this, foo, 0, 0);
             removeAll();
             components.addAll(foo.components);
             foo.removeAll();
+            modCount++;
         }
     }
 
-    private void flatten(Graphic src, Graphic dest) {
+    private void flatten(Graphic src, Graphic dest, int dx, int dy) {
         synchronized (src.components){
             for (GraphicE component : src.components) {
                 if (component instanceof Graphic) {
-                    flatten((Graphic)component, dest);
-                    ((Graphic)component).removeAll();
+                    final Graphic graph = (Graphic)component;
+                    flatten(graph, dest, dx + graph.xOff, dy + graph.yOff);
+                    graph.removeAll();
                 } else {
+                    if (dx != 0 | dy != 0) {
+                        component.traslate(dx, dy);
+                    }
                     dest.add(component);
                 }
             }
@@ -310,6 +518,23 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
         return components.iterator();
     }
 
+    @Override
+    void write(SceneWriter out) throws IOException {
+        super.write(out);
+
+        out.putBoolean(visible);
+        out.putInt(xOff);
+        out.putInt(yOff);
+
+        //The iterator works over a snapshot, so the count must match it
+        final ArrayList<GraphicE> elements = new ArrayList<>(components.size());
+        components.forEach(elements::add);
+        out.putInt(elements.size());
+        for (final GraphicE e : elements) {
+            out.putElement(e);
+        }
+    }
+
     @Override
     public Graphic clone() {
         return new Graphic(this);
@@ -318,8 +543,8 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
     @Override
     public int hashCode() {
         int hash = super.hashCode();
-        for (int i = 0; i < components.size(); i++) {
-            hash = 47 * hash + components.get(i).hashCode();
+        for (final GraphicE e : components) {
+            hash = 47 * hash + e.hashCode();
         }
         hash = 47 * hash + xOff;
         hash = 47 * hash + yOff;
@@ -334,9 +559,10 @@ public class Graphic extends GraphicE implements Iterable<GraphicE> {
         }
 
         final Graphic other = (Graphic) obj;
+        final Iterator<GraphicE> it = other.components.iterator();
 
-        for (int i = 0; i < components.size(); i++) {
-            if (!Objects.equals(components.get(i), other.components.get(i))) {
+        for (final GraphicE e : components) {
+            if (!Objects.equals(e, it.hasNext() ? it.next() : null)) {
                 return false;
             }
         }
@@ -18,11 +18,13 @@
  */
 package com.dkt.graphics.elements;
 
+import com.dkt.graphics.utils.StyleCache;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Paint;
 import java.awt.Stroke;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -54,6 +56,18 @@ public abstract class GraphicE implements Cloneable {
         stroke = e.stroke;
     }
 
+    /**
+     * Reads a {@code GraphicE} from a scene
+     *
+     * @param in scene reader
+     * @throws IOException if the scene can't be read
+     * @see GraphicIO
+     */
+    GraphicE(SceneReader in) throws IOException {
+        setPaint(in.getPaint(false));
+        setStroke(in.getStroke());
+    }
+
     protected GraphicE() {
         paint  = Color.BLACK;
         stroke = STROKE;
@@ -69,7 +83,10 @@ public abstract class GraphicE implements Cloneable {
     }
 
     /**
-     * Sets the {@link Paint} for this component
+     * Sets the {@link Paint} for this component.<br>
+     * Colors and gradients are replaced by their canonical instance (see
+     * {@link StyleCache}), so {@link GraphicE#getPaint()} may return an
+     * equal object instead of {@code paint} itself.
      *
      * @param paint the paint use to render this {@link GraphicE}
      * @throws IllegalArgumentException if paint is {@code null}
@@ -79,7 +96,7 @@ public abstract class GraphicE implements Cloneable {
             throw new IllegalArgumentException("Paint can't be null");
         }
 
-        this.paint = paint;
+        this.paint = StyleCache.intern(paint);
     }
 
     /**
@@ -92,7 +109,9 @@ public abstract class GraphicE implements Cloneable {
     }
 
     /**
-     * Sets a new {@link Stroke} for this component
+     * Sets a new {@link Stroke} for this component.<br>
+     * {@link BasicStroke}s are replaced by their canonical instance (see
+     * {@link StyleCache}).
      *
      * @param stroke the {@link Stroke} to use
      * @throws IllegalArgumentException if stroke is {@code null}
@@ -102,7 +121,7 @@ public abstract class GraphicE implements Cloneable {
             throw new IllegalArgumentException("The stroke can't be null");
         }
 
-        this.stroke = stroke;
+        this.stroke = StyleCache.intern(stroke);
     }
 
     /**
@@ -120,6 +139,19 @@ public abstract class GraphicE implements Cloneable {
      */
     public abstract void draw(final Graphics2D g);
 
+    /**
+     * Writes this element to a scene, subclasses that add state must call
+     * {@code super.write(out)} first
+     *
+     * @param out scene writer
+     * @throws IOException if there's a problem writing the scene
+     * @see GraphicIO
+     */
+    void write(SceneWriter out) throws IOException {
+        out.putPaint(paint);
+        out.putStroke(stroke);
+    }
+
     @Override
     public abstract GraphicE clone();
 
@@ -0,0 +1,360 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes {@link Graphic}s using a compact binary format.<br>
+ * A scene starts with an 8 byte header (the magic number {@code JDLS}, the
+ * version of the format and a set of flags), followed by the body, which can
+ * be compressed (deflate). The body holds a table with all the paints, one
+ * with all the strokes and one with all the fonts used by the elements
+ * (each one is written only once), and then the elements themselves, the
+ * coordinates of {@link GPath}, {@link GPoly} and {@link GPointArray} are
+ * written as raw blocks of ints.<br>
+ * All the values are little endian. Uncompressed files are mapped in memory
+ * when they are read, so the blocks of coordinates are copied straight from
+ * the file.<br>
+ * Only the elements of this package are supported, and only {@link
+ * java.awt.Color}, {@link java.awt.GradientPaint} paints and {@link
+ * java.awt.BasicStroke} strokes.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public final class GraphicIO {
+    private static final int MAGIC = 0x4A444C53;
+    private static final int VERSION = 1;
+    private static final int DEFLATE = 1;
+    private static final int HEADER = 8;
+
+    /**
+     * Reads an element of a given type.<br>
+     * Elements are read with static factories instead of visible
+     * constructors, so a {@code new GCircle(null)} on this package isn't
+     * ambiguous with the copy constructor.
+     */
+    @FunctionalInterface
+    private interface Factory {
+        GraphicE read(SceneReader in) throws IOException;
+    }
+
+    private record Type(Class<? extends GraphicE> type, Factory factory) {}
+
+    //The position of each type is its id on the scene, so new types must
+    //always be added at the end
+    private static final List<Type> TYPES = List.of(
+            new Type(Graphic.class,         Graphic::read),
+            new Type(GPoint.class,          GPoint::read),
+            new Type(GLine.class,           GLine::read),
+            new Type(GVector.class,         GVector::read),
+            new Type(GCircle.class,         GCircle::read),
+            new Type(GOval.class,           GOval::read),
+            new Type(GRectangle.class,      GRectangle::read),
+            new Type(GArc.class,            GArc::read),
+            new Type(GString.class,         GString::read),
+            new Type(GPath.class,           GPath::read),
+            new Type(GPoly.class,           GPoly::read),
+            new Type(GRegPoly.class,        GRegPoly::read),
+            new Type(GPointArray.class,     GPointArray::read),
+            new Type(GImage.class,          GImage::read),
+            new Type(CompiledGraphic.class, CompiledGraphic::read)
+    );
+
+    private static final IdentityHashMap<Class<?>, Integer> IDS = new IdentityHashMap<>();
+
+    static {
+        for (int i = 0; i < TYPES.size(); i++) {
+            IDS.put(TYPES.get(i).type(), i);
+        }
+    }
+
+    /**
+     * Don't let anyone initialize this class
+     */
+    private GraphicIO(){}
+
+    /**
+     * Retrieves the id of the type of an element (subclasses aren't
+     * supported, since they might have state that isn't written)
+     *
+     * @param e element
+     * @return id or {@code -1} if the element can't be written
+     */
+    static int type(GraphicE e) {
+        return IDS.getOrDefault(e.getClass(), -1);
+    }
+
+    /**
+     * Reads an element of a given type
+     *
+     * @param type id of the type
+     * @param in reader
+     * @return element
+     * @throws IOException if the type is unknown or the element can't be read
+     */
+    static GraphicE read(int type, SceneReader in) throws IOException {
+        if (type < 0 || type >= TYPES.size()) {
+            throw new IOException("Unknown element type " + type);
+        }
+
+        return TYPES.get(type).factory().read(in);
+    }
+
+    /**
+     * Writes a {@link Graphic} to a channel. The channel isn't closed, and
+     * the graphic shouldn't be modified while it's being written.
+     *
+     * @param graphic graphic to write
+     * @param channel destination
+     * @param compress {@code true} if the body must be compressed
+     * @throws IllegalArgumentException if either argument is {@code null}
+     * @throws com.dkt.graphics.exceptions.InvalidArgumentException if the
+     * graphic contains an element, paint or stroke that isn't supported (in
+     * that case nothing is written)
+     * @throws IOException if there's a problem writing the scene
+     */
+    public static void write(
+            final Graphic graphic,
+            final WritableByteChannel channel,
+            final boolean compress) throws IOException
+    {
+        if (graphic == null || channel == null) {
+            throw new IllegalArgumentException("Neither argument can be null");
+        }
+
+        final SceneWriter out = new SceneWriter();
+        out.collect(graphic);
+        write(out, graphic, channel, compress);
+    }
+
+    /**
+     * Writes a {@link Graphic} whose styles were already collected
+     *
+     * @param out writer
+     * @param graphic graphic to write
+     * @param channel destination
+     * @param compress {@code true} if the body must be compressed
+     * @throws IOException if there's a problem writing the scene
+     */
+    private static void write(
+            final SceneWriter out,
+            final Graphic graphic,
+            final WritableByteChannel channel,
+            final boolean compress) throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).put((byte)VERSION).put((byte)(compress ? DEFLATE : 0));
+        header.putShort((short)0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        if (!compress) {
+            out.open(channel);
+            body(out, graphic);
+            return;
+        }
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            final DeflaterOutputStream dos = new DeflaterOutputStream(
+                    Channels.newOutputStream(channel), deflater, 1 << 16
+            );
+            out.open(Channels.newChannel(dos));
+            body(out, graphic);
+            dos.finish();
+            dos.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void body(SceneWriter out, Graphic graphic) throws IOException {
+        out.putTables();
+        out.putElement(graphic);
+        out.flush();
+    }
+
+    /**
+     * Writes a {@link Graphic} to a file, if the file exists it's replaced
+     *
+     * @param graphic graphic to write
+     * @param path destination file
+     * @param compress {@code true} if the body must be compressed
+     * @throws IllegalArgumentException if either argument is {@code null}
+     * @throws com.dkt.graphics.exceptions.InvalidArgumentException if the
+     * graphic contains an element, paint or stroke that isn't supported
+     * @throws IOException if there's a problem writing the file
+     */
+    public static void write(
+            final Graphic graphic,
+            final Path path,
+            final boolean compress) throws IOException
+    {
+        if (graphic == null || path == null) {
+            throw new IllegalArgumentException("Neither argument can be null");
+        }
+
+        //Check before touching the file
+        final SceneWriter out = new SceneWriter();
+        out.collect(graphic);
+
+        try (FileChannel fc = FileChannel.open(path,
+                                               StandardOpenOption.CREATE,
+                                               StandardOpenOption.TRUNCATE_EXISTING,
+                                               StandardOpenOption.WRITE)) {
+            write(out, graphic, fc, compress);
+        }
+    }
+
+    /**
+     * Reads a {@link Graphic} from a channel. The channel isn't closed, and
+     * on compressed scenes it might be read past the end of the scene.
+     *
+     * @param channel source
+     * @return graphic
+     * @throws IllegalArgumentException if {@code channel} is {@code null}
+     * @throws IOException if the scene is malformed or there's a problem
+     * reading it
+     */
+    public static Graphic read(final ReadableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("The channel can't be null");
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) == -1) {
+                throw new EOFException();
+            }
+        }
+        header.flip();
+
+        if (flags(header) == DEFLATE) {
+            return inflate(channel);
+        }
+
+        return body(new SceneReader(channel));
+    }
+
+    /**
+     * Reads a {@link Graphic} from a file. Uncompressed files are mapped in
+     * memory.
+     *
+     * @param path source file
+     * @return graphic
+     * @throws IllegalArgumentException if {@code path} is {@code null}
+     * @throws IOException if the scene is malformed or there's a problem
+     * reading the file
+     */
+    public static Graphic read(final Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("The path can't be null");
+        }
+
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = fc.size();
+            if (size < HEADER || size - HEADER > Integer.MAX_VALUE) {
+                return read(fc);
+            }
+
+            final MappedByteBuffer map = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (flags(map) == DEFLATE) {
+                fc.position(HEADER);
+                return inflate(fc);
+            }
+
+            return body(new SceneReader(map.slice()));
+        }
+    }
+
+    /**
+     * Reads a compressed body. The stream isn't closed (that would close the
+     * channel), so the inflater is ended here to release its native memory.
+     *
+     * @param channel source, positioned after the header
+     * @return graphic
+     * @throws IOException if the body is malformed or there's a problem
+     * reading it
+     */
+    private static Graphic inflate(ReadableByteChannel channel) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            final InflaterInputStream iis = new InflaterInputStream(
+                    Channels.newInputStream(channel), inflater, 1 << 16
+            );
+            return body(new SceneReader(Channels.newChannel(iis)));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Checks the header of a scene
+     *
+     * @param header buffer positioned at the start of the header
+     * @return flags of the scene
+     * @throws IOException if the header isn't valid
+     */
+    private static int flags(ByteBuffer header) throws IOException {
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a jDrawingLib scene");
+        }
+
+        final int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported scene version " + version);
+        }
+
+        final int flags = header.get();
+        header.getShort();
+        if ((flags & ~DEFLATE) != 0) {
+            throw new IOException("Unknown scene flags " + flags);
+        }
+
+        return flags;
+    }
+
+    private static Graphic body(SceneReader in) throws IOException {
+        in.getTables();
+        if (!(in.getElement() instanceof Graphic g)) {
+            throw new IOException("The scene doesn't start with a Graphic");
+        }
+
+        return g;
+    }
+}
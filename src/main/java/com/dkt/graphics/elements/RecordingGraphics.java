@@ -0,0 +1,567 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ * {@link Graphics2D} that doesn't draw anything, it forwards every drawing
+ * operation (and the state in which it was made) to a
+ * {@link DisplayList.Builder}.<br>
+ * The state of this class ({@code tx}, {@code clip}, {@code paint}, etc.) is
+ * never modified in place, each change creates a new object, so the builder
+ * can keep references to it and compare them by identity.<br>
+ * Operations that can't be recorded throw an
+ * {@link UnsupportedOperationException}, in that case the element that's
+ * being recorded will be drawn directly.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class RecordingGraphics extends Graphics2D {
+    private final DisplayList.Builder builder;
+    private final Graphics2D scratch;
+    private final RenderingHints hints;
+    AffineTransform tx = new AffineTransform();
+    Shape clip;
+    Paint paint = Color.BLACK;
+    Stroke stroke = new BasicStroke();
+    Font font;
+    Composite composite = AlphaComposite.SrcOver;
+    private Color background = Color.WHITE;
+
+    RecordingGraphics(DisplayList.Builder builder) {
+        this.builder = builder;
+        //Only used for fonts and device related queries
+        scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        hints = new RenderingHints(null);
+        font  = scratch.getFont();
+    }
+
+    private static UnsupportedOperationException unsupported(String op) {
+        return new UnsupportedOperationException(op + " can't be recorded");
+    }
+
+    // Drawing operations
+
+    @Override
+    public void draw(Shape s) {
+        builder.stroke(this, s, false);
+    }
+
+    @Override
+    public void fill(Shape s) {
+        builder.fill(this, s, false);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        builder.stroke(this, new Line2D.Float(x1, y1, x2, y2), true);
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        if (width < 0 || height < 0) {
+            return;
+        }
+
+        builder.stroke(this, new Rectangle(x, y, width, height), true);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        builder.fill(this, new Rectangle(x, y, width, height), true);
+    }
+
+    @Override
+    public void clearRect(int x, int y, int width, int height) {
+        throw unsupported("clearRect");
+    }
+
+    @Override
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        builder.stroke(this, new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight), true);
+    }
+
+    @Override
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        builder.fill(this, new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight), true);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        builder.stroke(this, new Ellipse2D.Float(x, y, width, height), true);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        builder.fill(this, new Ellipse2D.Float(x, y, width, height), true);
+    }
+
+    @Override
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        builder.stroke(this, new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN), true);
+    }
+
+    @Override
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        builder.fill(this, new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.PIE), true);
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints < 2) {
+            return;
+        }
+
+        final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, nPoints);
+        path.moveTo(xPoints[0], yPoints[0]);
+        for (int i = 1; i < nPoints; i++) {
+            path.lineTo(xPoints[i], yPoints[i]);
+        }
+
+        builder.stroke(this, path, true);
+    }
+
+    @Override
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        builder.stroke(this, new Polygon(xPoints, yPoints, nPoints), true);
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        builder.fill(this, new Polygon(xPoints, yPoints, nPoints), true);
+    }
+
+    @Override
+    public void drawString(String str, int x, int y) {
+        drawString(str, (float)x, (float)y);
+    }
+
+    @Override
+    public void drawString(String str, float x, float y) {
+        if (str == null) {
+            throw new NullPointerException("String is null");
+        }
+
+        final Rectangle2D b = font.getStringBounds(str, getFontRenderContext());
+        b.setRect(b.getX() + x, b.getY() + y, b.getWidth(), b.getHeight());
+        builder.paint(this, (g, at, c) -> g.drawString(str, x, y), b, true);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        throw unsupported("drawString");
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        throw unsupported("drawString");
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        throw unsupported("drawGlyphVector");
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        return drawImage(img, x, y, -1, -1, null, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        return drawImage(img, x, y, -1, -1, bgcolor, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        return drawImage(img, x, y, width, height, null, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+        if (img == null) {
+            return true;
+        }
+
+        final int w = img.getWidth (null);
+        final int h = img.getHeight(null);
+        if (w < 0 || h < 0) {
+            throw unsupported("Images that aren't loaded");
+        }
+
+        final Rectangle2D b;
+        if (width < 0) {
+            b = new Rectangle2D.Float(x, y, w, h);
+            builder.paint(this, (g, at, c) -> g.drawImage(img, x, y, bgcolor, null), b, false);
+        } else {
+            b = new Rectangle2D.Float(x, y, width, height);
+            builder.paint(this, (g, at, c) -> g.drawImage(img, x, y, width, height, bgcolor, null), b, false);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+        return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+        if (img == null) {
+            return true;
+        }
+
+        final Rectangle2D b = new Rectangle2D.Float(
+                Math.min(dx1, dx2), Math.min(dy1, dy2),
+                Math.abs(dx2 - dx1), Math.abs(dy2 - dy1)
+        );
+
+        builder.paint(
+                this,
+                (g, at, c) -> g.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, bgcolor, null),
+                b,
+                false
+        );
+
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+        if (img == null) {
+            return true;
+        }
+
+        final int w = img.getWidth (null);
+        final int h = img.getHeight(null);
+        if (w < 0 || h < 0) {
+            throw unsupported("Images that aren't loaded");
+        }
+
+        final AffineTransform t = new AffineTransform(xform);
+        final Rectangle2D b = t.createTransformedShape(new Rectangle(w, h)).getBounds2D();
+        builder.paint(this, (g, at, c) -> g.drawImage(img, t, null), b, false);
+
+        return true;
+    }
+
+    @Override
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        throw unsupported("drawImage");
+    }
+
+    @Override
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        throw unsupported("drawRenderedImage");
+    }
+
+    @Override
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+        throw unsupported("drawRenderableImage");
+    }
+
+    @Override
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        throw unsupported("copyArea");
+    }
+
+    @Override
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        throw unsupported("hit");
+    }
+
+    // Transform
+
+    @Override
+    public void translate(int x, int y) {
+        translate((double)x, (double)y);
+    }
+
+    @Override
+    public void translate(double tx, double ty) {
+        if (tx == 0 & ty == 0) {
+            return;
+        }
+
+        final AffineTransform t = new AffineTransform(this.tx);
+        t.translate(tx, ty);
+        this.tx = t;
+    }
+
+    @Override
+    public void rotate(double theta) {
+        final AffineTransform t = new AffineTransform(tx);
+        t.rotate(theta);
+        tx = t;
+    }
+
+    @Override
+    public void rotate(double theta, double x, double y) {
+        final AffineTransform t = new AffineTransform(tx);
+        t.rotate(theta, x, y);
+        tx = t;
+    }
+
+    @Override
+    public void scale(double sx, double sy) {
+        final AffineTransform t = new AffineTransform(tx);
+        t.scale(sx, sy);
+        tx = t;
+    }
+
+    @Override
+    public void shear(double shx, double shy) {
+        final AffineTransform t = new AffineTransform(tx);
+        t.shear(shx, shy);
+        tx = t;
+    }
+
+    @Override
+    public void transform(AffineTransform tx) {
+        final AffineTransform t = new AffineTransform(this.tx);
+        t.concatenate(tx);
+        this.tx = t;
+    }
+
+    @Override
+    public void setTransform(AffineTransform tx) {
+        this.tx = new AffineTransform(tx);
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return new AffineTransform(tx);
+    }
+
+    // Clip, it's kept in the coordinates of the display list
+
+    @Override
+    public Shape getClip() {
+        if (clip == null) {
+            return null;
+        }
+
+        try {
+            return tx.createInverse().createTransformedShape(clip);
+        } catch (NoninvertibleTransformException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        final Shape c = getClip();
+        return c == null ? null : c.getBounds();
+    }
+
+    @Override
+    public void setClip(Shape clip) {
+        this.clip = clip == null ? null : tx.createTransformedShape(clip);
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        setClip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void clip(Shape s) {
+        if (s == null) {
+            throw unsupported("Clearing the clip with clip(null)");
+        }
+
+        if (clip == null) {
+            setClip(s);
+            return;
+        }
+
+        final Area area = new Area(clip);
+        area.intersect(new Area(tx.createTransformedShape(s)));
+        clip = area;
+    }
+
+    @Override
+    public void clipRect(int x, int y, int width, int height) {
+        clip(new Rectangle(x, y, width, height));
+    }
+
+    // Attributes
+
+    @Override
+    public Paint getPaint() {
+        return paint;
+    }
+
+    @Override
+    public void setPaint(Paint paint) {
+        if (paint != null) {
+            this.paint = paint;
+        }
+    }
+
+    @Override
+    public Color getColor() {
+        return paint instanceof Color ? (Color)paint : null;
+    }
+
+    @Override
+    public void setColor(Color c) {
+        setPaint(c);
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public void setStroke(Stroke s) {
+        stroke = s;
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public void setFont(Font font) {
+        if (font != null) {
+            this.font = font;
+        }
+    }
+
+    @Override
+    public Composite getComposite() {
+        return composite;
+    }
+
+    @Override
+    public void setComposite(Composite comp) {
+        composite = comp;
+    }
+
+    @Override
+    public void setPaintMode() {
+        setComposite(AlphaComposite.SrcOver);
+    }
+
+    @Override
+    public void setXORMode(Color c1) {
+        throw unsupported("setXORMode");
+    }
+
+    @Override
+    public Color getBackground() {
+        return background;
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        background = color;
+    }
+
+    @Override
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+        hints.put(hintKey, hintValue);
+        builder.hint((g, at, c) -> g.setRenderingHint(hintKey, hintValue));
+    }
+
+    @Override
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return hints.get(hintKey);
+    }
+
+    @Override
+    public void setRenderingHints(Map<?, ?> hints) {
+        throw unsupported("setRenderingHints");
+    }
+
+    @Override
+    public void addRenderingHints(Map<?, ?> hints) {
+        for (final Map.Entry<?, ?> e : hints.entrySet()) {
+            setRenderingHint((RenderingHints.Key)e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return (RenderingHints)hints.clone();
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font f) {
+        return scratch.getFontMetrics(f);
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return new FontRenderContext(tx, false, false);
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return scratch.getDeviceConfiguration();
+    }
+
+    @Override
+    public Graphics create() {
+        throw unsupported("create");
+    }
+
+    @Override
+    public void dispose() {
+        scratch.dispose();
+    }
+}
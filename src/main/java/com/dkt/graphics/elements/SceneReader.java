@@ -0,0 +1,310 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import com.dkt.graphics.utils.StyleCache;
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the body of a scene (see {@link GraphicIO}) either from a channel or
+ * from a buffer that holds the whole body (like a mapped file).<br>
+ * Malformed or truncated scenes are reported with an {@link IOException}.
+ * The arrays are grown as the data arrives, so a corrupt length can't make
+ * the reader allocate more memory than the size of the scene.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class SceneReader {
+    private static final int CHUNK = 1 << 16;
+    private static final int MAX_DEPTH = 1024;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private Paint[] paints;
+    private Stroke[] strokes;
+    private Font[] fonts;
+    private int depth;
+
+    /**
+     * Creates a new reader that reads from a channel
+     *
+     * @param channel source of the scene, it's not closed by this class
+     */
+    SceneReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+    }
+
+    /**
+     * Creates a new reader that reads from a buffer
+     *
+     * @param buffer buffer with the whole body of the scene
+     */
+    SceneReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads the tables of paints, strokes and fonts
+     *
+     * @throws IOException if the scene can't be read
+     */
+    void getTables() throws IOException {
+        paints = new Paint[length(getInt())];
+        for (int i = 0; i < paints.length; i++) {
+            switch (getByte()) {
+                case 0 -> paints[i] = StyleCache.color(getInt());
+                case 1 -> {
+                    final float x1 = getFloat();
+                    final float y1 = getFloat();
+                    final int c1 = getInt();
+                    final float x2 = getFloat();
+                    final float y2 = getFloat();
+                    final int c2 = getInt();
+                    paints[i] = StyleCache.intern(new GradientPaint(
+                            x1, y1, StyleCache.color(c1),
+                            x2, y2, StyleCache.color(c2), getBoolean()
+                    ));
+                }
+                default -> throw new IOException("Unknown paint type");
+            }
+        }
+
+        strokes = new Stroke[length(getInt())];
+        for (int i = 0; i < strokes.length; i++) {
+            final float width = getFloat();
+            final int cap = getByte();
+            final int join = getByte();
+            final float miter = getFloat();
+            final int n = getInt();
+            float[] dash = null;
+            if (n != -1) {
+                dash = new float[length(n)];
+                for (int j = 0; j < dash.length; j++) {
+                    dash[j] = getFloat();
+                }
+            }
+            final float phase = getFloat();
+
+            try {
+                strokes[i] = StyleCache.intern(
+                        new BasicStroke(width, cap, join, miter, dash, phase)
+                );
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid stroke", ex);
+            }
+        }
+
+        fonts = new Font[length(getInt())];
+        for (int i = 0; i < fonts.length; i++) {
+            final String name = getString();
+            final int style = getInt();
+            final float size = getFloat();
+            final Font f = new Font(name, style, Math.round(size));
+            fonts[i] = StyleCache.intern(size == f.getSize2D() ? f : f.deriveFont(size));
+        }
+    }
+
+    /**
+     * Reads an element, preceded by its type
+     *
+     * @return element
+     * @throws IOException if the scene can't be read
+     */
+    GraphicE getElement() throws IOException {
+        if (++depth > MAX_DEPTH) {
+            throw new IOException("The scene is nested too deep");
+        }
+
+        try {
+            return GraphicIO.read(getByte(), this);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid element", ex);
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Reads a paint from the paint table
+     *
+     * @param optional {@code true} if the paint can be {@code null}
+     * @return paint
+     * @throws IOException if the scene can't be read
+     */
+    Paint getPaint(boolean optional) throws IOException {
+        final int idx = getInt();
+        if (idx == -1 && optional) {
+            return null;
+        }
+
+        return get(paints, idx);
+    }
+
+    Stroke getStroke() throws IOException {
+        return get(strokes, getInt());
+    }
+
+    Font getFont() throws IOException {
+        return get(fonts, getInt());
+    }
+
+    private static <T> T get(T[] table, int idx) throws IOException {
+        if (idx < 0 || idx >= table.length) {
+            throw new IOException("Invalid table index " + idx);
+        }
+
+        return table[idx];
+    }
+
+    int getByte() throws IOException {
+        ensure(1);
+        return buffer.get();
+    }
+
+    boolean getBoolean() throws IOException {
+        return getByte() != 0;
+    }
+
+    int getInt() throws IOException {
+        ensure(4);
+        return buffer.getInt();
+    }
+
+    float getFloat() throws IOException {
+        ensure(4);
+        return buffer.getFloat();
+    }
+
+    double getDouble() throws IOException {
+        ensure(8);
+        return buffer.getDouble();
+    }
+
+    String getString() throws IOException {
+        final int len = length(getInt());
+        byte[] b = new byte[Math.min(len, CHUNK)];
+
+        for (int off = 0; off < len; ) {
+            ensure(1);
+            if (off == b.length) {
+                b = Arrays.copyOf(b, Math.min(len, b.length * 2));
+            }
+            final int n = Math.min(buffer.remaining(), b.length - off);
+            buffer.get(b, off, n);
+            off += n;
+        }
+
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a block of ints
+     *
+     * @param len number of values
+     * @return array with exactly {@code len} values
+     * @throws IOException if the scene can't be read
+     */
+    int[] getInts(int len) throws IOException {
+        length(len);
+        if (channel == null) {
+            //The whole block is already here, just copy it
+            if (buffer.remaining() / 4 < len) {
+                throw new EOFException();
+            }
+
+            final int[] data = new int[len];
+            buffer.asIntBuffer().get(data);
+            buffer.position(buffer.position() + 4 * len);
+            return data;
+        }
+
+        int[] data = new int[Math.min(len, CHUNK)];
+        for (int off = 0; off < len; ) {
+            ensure(4);
+            if (off == data.length) {
+                data = Arrays.copyOf(data, (int)Math.min(len, data.length * 2L));
+            }
+            final int n = Math.min(buffer.remaining() / 4, data.length - off);
+            buffer.asIntBuffer().get(data, off, n);
+            buffer.position(buffer.position() + 4 * n);
+            off += n;
+        }
+
+        return data;
+    }
+
+    /**
+     * Reads an image written as {@code ARGB} values
+     *
+     * @return image
+     * @throws IOException if the scene can't be read
+     */
+    BufferedImage getImage() throws IOException {
+        final int w = getInt();
+        final int h = getInt();
+        if (w <= 0 || h <= 0 || (long)w * h > Integer.MAX_VALUE) {
+            throw new IOException("Invalid image size");
+        }
+
+        final int[] argb = getInts(w * h);
+        final BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        img.getRaster().setDataElements(0, 0, w, h, argb);
+        return img;
+    }
+
+    private static int length(int len) throws IOException {
+        if (len < 0) {
+            throw new IOException("Invalid length " + len);
+        }
+
+        return len;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+
+        if (channel == null) {
+            throw new EOFException();
+        }
+
+        buffer.compact();
+        while (buffer.position() < n) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Writes the body of a scene (see {@link GraphicIO}) to a channel.<br>
+ * The paints, strokes and fonts of all the elements are collected first and
+ * written as tables, the elements only keep the index on those tables.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class SceneWriter {
+    private final ByteBuffer buffer;
+    private WritableByteChannel channel;
+    private final HashMap<Object, Integer> index = new HashMap<>();
+    private final ArrayList<Paint> paints = new ArrayList<>();
+    private final ArrayList<Stroke> strokes = new ArrayList<>();
+    private final ArrayList<Font> fonts = new ArrayList<>();
+
+    SceneWriter() {
+        buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Sets the destination of the scene, this must be called after
+     * collecting all the elements, and before writing anything
+     *
+     * @param channel destination of the scene, it's not closed by this class
+     */
+    void open(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Collects the paints, strokes and fonts of an element (and its
+     * components), and checks that all of them can be written
+     *
+     * @param e element
+     * @throws InvalidArgumentException if an element, paint or stroke isn't
+     * supported
+     */
+    void collect(GraphicE e) {
+        if (GraphicIO.type(e) == -1) {
+            final String msg = "%s can't be written to a scene";
+            throw new InvalidArgumentException(String.format(msg, e.getClass().getName()));
+        }
+
+        add(e.getPaint());
+        add(e.getStroke());
+
+        if (e instanceof GFillableE f && f.getFillPaint() != null) {
+            add(f.getFillPaint());
+        }
+
+        if (e instanceof GString s) {
+            add(s.getFont());
+        } else if (e instanceof Graphic g) {
+            for (final GraphicE c : g) {
+                collect(c);
+            }
+        } else if (e instanceof CompiledGraphic cg) {
+            collect(cg.getSource());
+        }
+    }
+
+    private void add(Object o) {
+        if (index.containsKey(o)) {
+            return;
+        }
+
+        if (o instanceof Color || o instanceof GradientPaint) {
+            index.put(o, paints.size());
+            paints.add((Paint)o);
+        } else if (o instanceof BasicStroke s) {
+            index.put(o, strokes.size());
+            strokes.add(s);
+        } else if (o instanceof Font f) {
+            index.put(o, fonts.size());
+            fonts.add(f);
+        } else {
+            final String msg = "%s can't be written to a scene";
+            throw new InvalidArgumentException(String.format(msg, o.getClass().getName()));
+        }
+    }
+
+    /**
+     * Writes the tables of paints, strokes and fonts, this must be called
+     * after collecting all the elements, and before writing them
+     *
+     * @throws IOException if there's a problem writing the scene
+     */
+    void putTables() throws IOException {
+        putInt(paints.size());
+        for (final Paint p : paints) {
+            if (p instanceof GradientPaint gp) {
+                putByte(1);
+                putPoint(gp.getPoint1());
+                putInt(gp.getColor1().getRGB());
+                putPoint(gp.getPoint2());
+                putInt(gp.getColor2().getRGB());
+                putBoolean(gp.isCyclic());
+            } else {
+                putByte(0);
+                putInt(((Color)p).getRGB());
+            }
+        }
+
+        putInt(strokes.size());
+        for (final Stroke s : strokes) {
+            final BasicStroke bs = (BasicStroke)s;
+            putFloat(bs.getLineWidth());
+            putByte(bs.getEndCap());
+            putByte(bs.getLineJoin());
+            putFloat(bs.getMiterLimit());
+            final float[] dash = bs.getDashArray();
+            putInt(dash == null ? -1 : dash.length);
+            if (dash != null) {
+                for (final float d : dash) {
+                    putFloat(d);
+                }
+            }
+            putFloat(bs.getDashPhase());
+        }
+
+        putInt(fonts.size());
+        for (final Font f : fonts) {
+            putString(f.getName());
+            putInt(f.getStyle());
+            putFloat(f.getSize2D());
+        }
+    }
+
+    private void putPoint(Point2D p) throws IOException {
+        putFloat((float)p.getX());
+        putFloat((float)p.getY());
+    }
+
+    /**
+     * Writes an element, preceded by its type
+     *
+     * @param e element
+     * @throws IOException if there's a problem writing the scene
+     */
+    void putElement(GraphicE e) throws IOException {
+        putByte(GraphicIO.type(e));
+        e.write(this);
+    }
+
+    void putPaint(Paint p) throws IOException {
+        putInt(p == null ? -1 : index.get(p));
+    }
+
+    void putStroke(Stroke s) throws IOException {
+        putInt(index.get(s));
+    }
+
+    void putFont(Font f) throws IOException {
+        putInt(index.get(f));
+    }
+
+    void putByte(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte)b);
+    }
+
+    void putBoolean(boolean b) throws IOException {
+        putByte(b ? 1 : 0);
+    }
+
+    void putInt(int i) throws IOException {
+        ensure(4);
+        buffer.putInt(i);
+    }
+
+    void putFloat(float f) throws IOException {
+        ensure(4);
+        buffer.putFloat(f);
+    }
+
+    void putDouble(double d) throws IOException {
+        ensure(8);
+        buffer.putDouble(d);
+    }
+
+    void putString(String s) throws IOException {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        putInt(b.length);
+
+        for (int off = 0; off < b.length; ) {
+            ensure(1);
+            final int n = Math.min(buffer.remaining(), b.length - off);
+            buffer.put(b, off, n);
+            off += n;
+        }
+    }
+
+    /**
+     * Writes a block of ints, without its length
+     *
+     * @param data array with the values
+     * @param len number of values to write (starting from 0)
+     * @throws IOException if there's a problem writing the scene
+     */
+    void putInts(int[] data, int len) throws IOException {
+        for (int off = 0; off < len; ) {
+            ensure(4);
+            final int n = Math.min(buffer.remaining() / 4, len - off);
+            buffer.asIntBuffer().put(data, off, n);
+            buffer.position(buffer.position() + 4 * n);
+            off += n;
+        }
+    }
+
+    /**
+     * Writes the pixels of an image, as {@code ARGB} values
+     *
+     * @param img image
+     * @throws IOException if there's a problem writing the scene
+     */
+    void putImage(BufferedImage img) throws IOException {
+        final int w = img.getWidth();
+        final int h = img.getHeight();
+        putInt(w);
+        putInt(h);
+        putInts(img.getRGB(0, 0, w, h, null, 0, w), w * h);
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered data to the channel
+     *
+     * @throws IOException if there's a problem writing the scene
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -20,34 +20,49 @@ package com.dkt.graphics.elements;
 
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * This class creates an unsafe list, actually the only thing this list is
  * unsafe against is {@code null} values and the {@link Iterator} doesn't check
  * anything. But at least it's thread safe.<br>
+ * Writers are serialized, but readers never lock: every modification
+ * publishes a {@link Block} (the backing array plus the number of used slots)
+ * and readers simply work on the last published one. Elements are only ever
+ * appended after the used slots of every block published on the same array,
+ * so a reader never sees an element that was added after its block. Removed
+ * elements are replaced by {@code null} in place (those empty slots are
+ * skipped, and compacted into a new array once they are more than half of the
+ * used slots), so a reader might or might not see an element that was removed
+ * after its block, but the backing array is never shifted under its feet.<br>
+ * The writers keep a Fenwick tree of the used slots, so removing by index
+ * takes {@code O(log n)} even when there are empty slots.<br>
  * <i>Note:</i> This class does not implement the {@link java.util.List}
  * interface.
  *
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  */
 class UnsafeList implements Iterable<GraphicE> {
+    private static final int MIN_CAPACITY = 8;
     private final Object mutex = new Object();
-    private GraphicE[] elements;
-    private int cursor;
+    private volatile Block block;
+    /** Fenwick tree of the live slots of {@code block.data}, guarded by mutex */
+    private int[] live;
 
     /**
      * Constructs a new {@code UnsafeList} of a given size
      *
      * @param size initial capacity of the list
+     * @throws NegativeArraySizeException if {@code size} is less than zero
      */
     public UnsafeList(int size) {
-        elements = new GraphicE[size];
+        set(new Block(new GraphicE[size], 0, 0));
     }
 
     /**
      * Adds a new element to the list.<br>
-     * If the list is full, it's internal size will be incremented by 10%
+     * If the list is full, it's internal size will be doubled
      *
      * @param elm {@link GraphicE} to add
      * @return {@code true} if the element was added, and {@code false} if the
@@ -59,8 +74,10 @@ class UnsafeList implements Iterable<GraphicE> {
         }
 
         synchronized(mutex) {
-            ensureCapacity((cursor + 1) * 110 / 100);
-            elements[cursor++] = elm;
+            final Block b = reserve(1);
+            b.data[b.count] = elm;
+            mark(b.count, 1);
+            block = new Block(b.data, b.count + 1, b.size + 1);
 
             return true;
         }
@@ -74,29 +91,35 @@ class UnsafeList implements Iterable<GraphicE> {
      */
     public void ensureCapacity(int capacity) {
         synchronized(mutex) {
-            if (capacity > elements.length) {
-                final GraphicE[] foo = new GraphicE[capacity];
-                System.arraycopy(elements, 0, foo, 0, elements.length);
-                elements = foo;
+            final Block b = block;
+            if (capacity > b.data.length) {
+                set(b.copy(capacity));
             }
         }
     }
 
     /**
      * Retrieves an element from a given index, it will return {@code null} if
-     * the index doesn't exist
+     * the index doesn't exist (or if the element is being removed).<br>
+     * If there are empty slots, the first call after a modification builds
+     * an index of the used slots, so the following ones are {@code O(1)}.
      *
      * @param idx Element index
      * @return element at a given index or {@code null} otherwise
      */
     public GraphicE get(int idx) {
-        synchronized(mutex) {
-            try {
-                return elements[idx];
-            } catch (Exception e){
-                return null;
-            }
+        final Block b = block;
+
+        if (idx < 0 || idx >= b.size) {
+            return null;
         }
+
+        if (b.count == b.size) {
+            return b.data[idx];
+        }
+
+        final int[] index = b.index();
+        return idx < index.length ? b.data[index[idx]] : null;
     }
 
     /**
@@ -105,7 +128,7 @@ class UnsafeList implements Iterable<GraphicE> {
      * @return number of elements
      */
     public int size() {
-        return cursor;
+        return block.size;
     }
 
     /**
@@ -114,7 +137,7 @@ class UnsafeList implements Iterable<GraphicE> {
      * @return {@code true} if the list is empty and {@code false} otherwise
      */
     public boolean isEmpty() {
-        return cursor == 0;
+        return block.size == 0;
     }
 
     /**
@@ -122,8 +145,7 @@ class UnsafeList implements Iterable<GraphicE> {
      */
     public void clear() {
         synchronized(mutex) {
-            Arrays.fill(elements, null);
-            cursor = 0;
+            set(new Block(new GraphicE[block.data.length], 0, 0));
         }
     }
 
@@ -134,15 +156,23 @@ class UnsafeList implements Iterable<GraphicE> {
      * @return index of the element or {@code -1} if the element wasn't found
      */
     public int indexOf(GraphicE elm) {
-        synchronized(mutex) {
-            for (int i = 0; i < cursor; i++) {
-                if (Objects.equals(elements[i], elm)) {
-                    return i;
-                }
+        final Block b = block;
+        final GraphicE[] data = b.data;
+
+        for (int i = 0, idx = 0; i < b.count; i++) {
+            final GraphicE e = data[i];
+            if (e == null) {
+                continue;
+            }
+
+            if (Objects.equals(e, elm)) {
+                return idx;
             }
 
-            return -1;
+            idx++;
         }
+
+        return -1;
     }
 
     /**
@@ -155,19 +185,16 @@ class UnsafeList implements Iterable<GraphicE> {
      */
     public GraphicE remove(int idx) {
         synchronized(mutex) {
-            final GraphicE elm = get(idx);
+            final Block b = block;
 
-            if (elm == null) {
+            if (idx < 0 || idx >= b.size) {
                 return null;
             }
 
-            final int numMoved = cursor - idx - 1;
-
-            if (numMoved > 0) {
-                System.arraycopy(elements, idx + 1, elements, idx, numMoved);
-            }
+            final int slot = b.count == b.size ? idx : find(idx);
+            final GraphicE elm = b.data[slot];
 
-            elements[--cursor] = null;
+            removeSlot(slot);
 
             return elm;
         }
@@ -182,9 +209,23 @@ class UnsafeList implements Iterable<GraphicE> {
      */
     public boolean remove(GraphicE e) {
         synchronized(mutex) {
-            boolean status = false;
-            while (remove(indexOf(e)) != null) status = true;
-            return status;
+            final Block b = block;
+            int removed = 0;
+
+            for (int i = 0; i < b.count; i++) {
+                if (b.data[i] != null && Objects.equals(b.data[i], e)) {
+                    b.data[i] = null;
+                    mark(i, -1);
+                    removed++;
+                }
+            }
+
+            if (removed == 0) {
+                return false;
+            }
+
+            publish(b, removed);
+            return true;
         }
     }
 
@@ -196,9 +237,7 @@ class UnsafeList implements Iterable<GraphicE> {
      * false} otherwise
      */
     public boolean contains(GraphicE e) {
-        synchronized(mutex) {
-            return indexOf(e) != -1;
-        }
+        return indexOf(e) != -1;
     }
 
     /**
@@ -211,18 +250,197 @@ class UnsafeList implements Iterable<GraphicE> {
             return;
         }
 
+        final Block o = elmts.block;
+
+        synchronized(mutex) {
+            final Block b = reserve(o.size);
+            int count = b.count;
+
+            for (int i = 0; i < o.count; i++) {
+                final GraphicE e = o.data[i];
+                if (e != null) {
+                    mark(count, 1);
+                    b.data[count++] = e;
+                }
+            }
+
+            block = new Block(b.data, count, b.size + count - b.count);
+        }
+    }
+
+    /**
+     * Replaces the elements on the indexes {@code [from, to)} with a given
+     * set of elements ({@code null} elements are omitted).<br>
+     * The result is published as a new backing array, so readers will either
+     * see the old elements or the new ones, but never a mix of them.
+     *
+     * @param from index of the first element to replace
+     * @param to index after the last element to replace
+     * @param elmts new elements
+     * @throws IndexOutOfBoundsException if the indexes aren't a valid range
+     */
+    public void replace(int from, int to, GraphicE[] elmts) {
         synchronized(mutex) {
-            ensureCapacity(elmts.size() + this.size());
-            System.arraycopy(elmts.elements, 0, elements, cursor, elmts.size());
-            cursor += elmts.size();
+            final Block b = block;
+            Objects.checkFromToIndex(from, to, b.size);
+
+            final int size = b.size - (to - from) + elmts.length;
+            final GraphicE[] nd = new GraphicE[Math.max(MIN_CAPACITY, size + size / 2)];
+            int n = 0;
+            int idx = 0;
+
+            for (int i = 0; i < b.count; i++) {
+                final GraphicE e = b.data[i];
+                if (e == null) {
+                    continue;
+                }
+
+                if (idx == from) {
+                    for (final GraphicE ne : elmts) {
+                        if (ne != null) {
+                            nd[n++] = ne;
+                        }
+                    }
+                }
+
+                if (idx < from || idx >= to) {
+                    nd[n++] = e;
+                }
+                idx++;
+            }
+
+            //Appending after the last element
+            if (idx == from) {
+                for (final GraphicE ne : elmts) {
+                    if (ne != null) {
+                        nd[n++] = ne;
+                    }
+                }
+            }
+
+            set(new Block(nd, n, n));
         }
     }
 
+    /**
+     * Removes the element on a given slot of the backing array, this is
+     * {@code O(log n)} (apart from the occasional compaction).<br>
+     * Must be called while holding {@code mutex}.
+     *
+     * @param slot slot of the element
+     */
+    private void removeSlot(int slot) {
+        final Block b = block;
+        b.data[slot] = null;
+        mark(slot, -1);
+        publish(b, 1);
+    }
+
+    /**
+     * Publishes a new block after {@code removed} slots of {@code b} were
+     * emptied, if too many slots are empty the block is compacted.<br>
+     * The used slots are never reduced (not even the trailing empty ones),
+     * since older blocks might still be reading them.<br>
+     * Must be called while holding {@code mutex}.
+     *
+     * @param b current block
+     * @param removed number of emptied slots
+     */
+    private void publish(Block b, int removed) {
+        final Block nb = new Block(b.data, b.count, b.size - removed);
+        set(nb.count - nb.size > nb.count / 2 ? nb.copy(nb.data.length) : nb);
+    }
+
+    /**
+     * Publishes a block, if it has a new backing array the Fenwick tree is
+     * rebuilt.<br>
+     * Must be called while holding {@code mutex} (or from the constructor).
+     *
+     * @param nb new block
+     */
+    private void set(Block nb) {
+        final Block b = block;
+        if (b == null || b.data != nb.data) {
+            final int[] tree = new int[nb.data.length + 1];
+            for (int i = 1; i < tree.length; i++) {
+                if (nb.data[i - 1] != null) {
+                    tree[i]++;
+                }
+
+                final int parent = i + (i & -i);
+                if (parent < tree.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+            live = tree;
+        }
+
+        block = nb;
+    }
+
+    /**
+     * Updates the Fenwick tree after a slot was filled or emptied.<br>
+     * Must be called while holding {@code mutex}.
+     *
+     * @param slot slot
+     * @param delta {@code 1} if the slot was filled and {@code -1} if it was
+     * emptied
+     */
+    private void mark(int slot, int delta) {
+        final int[] tree = live;
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Retrieves the slot that holds the element at a given index, using the
+     * Fenwick tree.<br>
+     * Must be called while holding {@code mutex}.
+     *
+     * @param idx index of the element (must be valid)
+     * @return slot of the element
+     */
+    private int find(int idx) {
+        final int[] tree = live;
+        int pos = 0;
+        int rem = idx + 1;
+
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            if (pos + step < tree.length && tree[pos + step] < rem) {
+                pos += step;
+                rem -= tree[pos];
+            }
+        }
+
+        return pos;
+    }
+
+    /**
+     * Makes sure that the current block has room for {@code n} more elements
+     * after its used slots.<br>
+     * Must be called while holding {@code mutex}.
+     *
+     * @param n number of elements
+     * @return a block with enough room
+     */
+    private Block reserve(int n) {
+        final Block b = block;
+
+        if (b.count + n <= b.data.length) {
+            return b;
+        }
+
+        final int capacity = Math.max(MIN_CAPACITY, (b.size + n) * 2);
+        set(b.copy(Math.max(capacity, b.data.length)));
+        return block;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
-        for (int i = 0; i < size(); i++) {
-            hash = 79 * hash + elements[i].hashCode(); 
+        for (final GraphicE e : this) {
+            hash = 79 * hash + e.hashCode();
         }
         return hash;
     }
@@ -232,46 +450,68 @@ class UnsafeList implements Iterable<GraphicE> {
         if (this == obj) {
             return true;
         }
-        
+
         if (obj == null) {
             return false;
         }
-        
+
         if (getClass() != obj.getClass()) {
             return false;
         }
-        
+
         final UnsafeList other = (UnsafeList) obj;
         if (size() != other.size()) {
             return false;
         }
-        
-        for (int i = 0; i < size(); i++) {
-            if (!Objects.equals(elements[i], other.elements[i])) {
+
+        final Iterator<GraphicE> it1 = iterator();
+        final Iterator<GraphicE> it2 = other.iterator();
+
+        while (it1.hasNext() & it2.hasNext()) {
+            if (!Objects.equals(it1.next(), it2.next())) {
                 return false;
             }
         }
-        
-        return true;
+
+        return it1.hasNext() == it2.hasNext();
     }
 
+    /**
+     * The iterator works over the elements that were present when it was
+     * created, elements added afterwards won't be visited, and elements
+     * removed in the meantime might or might not be visited.<br>
+     * The iterator never returns {@code null}: once {@link Iterator#hasNext()}
+     * returns {@code true} the next element is already taken, so removing it
+     * concurrently won't affect the iteration.
+     *
+     * @return iterator
+     */
     @Override
     public Iterator<GraphicE> iterator() {
+        final Block b = block;
+
         return new Iterator<>() {
-            private int idx = -1;
+            private int slot;
+            private GraphicE next;
 
             @Override
             public boolean hasNext() {
-                return idx != cursor - 1;
+                //Each slot is read only once, skipping the empty ones
+                while (next == null && slot < b.count) {
+                    next = b.data[slot++];
+                }
+                return next != null;
             }
 
             @Override
             public GraphicE next() {
-                try {
-                    return elements[++idx];
-                } catch (Exception e) {
-                    return null;
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
+
+                final GraphicE e = next;
+                next = null;
+                return e;
             }
 
             @Override
@@ -281,4 +521,72 @@ class UnsafeList implements Iterable<GraphicE> {
         };
     }
 
+    /**
+     * View of the list, {@code data} might be shared between blocks. The
+     * slots {@code [0, count)} are never moved nor reused, the only change
+     * they might see is an element being replaced by {@code null}.
+     */
+    private static final class Block {
+        private final GraphicE[] data;
+        private final int count;
+        private final int size;
+        /** Slots of the elements, built on demand by {@link Block#index()} */
+        private volatile int[] index;
+
+        Block(GraphicE[] data, int count, int size) {
+            this.data  = data;
+            this.count = count;
+            this.size  = size;
+        }
+
+        /**
+         * Retrieves the slots that hold the elements, in order. It's built
+         * the first time it's needed, so it might miss the elements that were
+         * removed after this block was published.
+         *
+         * @return slots of the elements
+         */
+        int[] index() {
+            int[] idx = index;
+
+            if (idx == null) {
+                idx = new int[size];
+                int n = 0;
+                for (int i = 0; i < count && n < idx.length; i++) {
+                    if (data[i] != null) {
+                        idx[n++] = i;
+                    }
+                }
+
+                idx = n == idx.length ? idx : Arrays.copyOf(idx, n);
+                index = idx;
+            }
+
+            return idx;
+        }
+
+        /**
+         * Creates a compacted copy of this block
+         *
+         * @param capacity capacity of the new block
+         * @return new block
+         */
+        Block copy(int capacity) {
+            final GraphicE[] nd = new GraphicE[capacity];
+            int n = 0;
+
+            if (count == size) {
+                System.arraycopy(data, 0, nd, 0, count);
+                n = count;
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (data[i] != null) {
+                        nd[n++] = data[i];
+                    }
+                }
+            }
+
+            return new Block(nd, n, n);
+        }
+    }
 }
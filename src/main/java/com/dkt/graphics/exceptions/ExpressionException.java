@@ -0,0 +1,61 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.exceptions;
+
+/**
+ * This exception is thrown when a formula can't be parsed
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class ExpressionException extends InvalidArgumentException {
+    private final String expression;
+    private final int position;
+
+    /**
+     * Generates a new Exception based on the formula and the position of the
+     * error
+     *
+     * @param msg The message you want to show
+     * @param expression The formula
+     * @param position The index of the character in which the error was found
+     */
+    public ExpressionException(String msg, String expression, int position){
+        super(String.format("%s at %d in '%s'", msg, position, expression));
+        this.expression = expression;
+        this.position = position;
+    }
+
+    /**
+     * Retrieves the formula that couldn't be parsed
+     *
+     * @return formula
+     */
+    public String getExpression(){
+        return expression;
+    }
+
+    /**
+     * Retrieves the index of the character in which the error was found
+     *
+     * @return index of the character
+     */
+    public int getPosition(){
+        return position;
+    }
+}
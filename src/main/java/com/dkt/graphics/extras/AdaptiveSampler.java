@@ -0,0 +1,272 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GPath;
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.extras.formula.Calculable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Adaptive sampling of a {@link Calculable} (used by
+ * {@link GFormula#calculateAdaptive(double, double, double, int)}).<br>
+ * The interval is first evaluated on a coarse grid, and then the segment
+ * with the sample that's the farthest (in pixels) from the straight line
+ * between its ends is split, over and over, until every segment is within
+ * the tolerance or the evaluations run out. Each segment is checked on two
+ * points (at a third and two thirds of it), a single midpoint can't see the
+ * error of a segment centered on an inflection point. So flat regions end up with a
+ * handful of samples, and the steep ones get as many as they need.<br>
+ * Values outside of the domain of the function (a {@link DomainException},
+ * {@code NaN} or an infinite value) are gaps in the curve: the segments on
+ * its borders are refined until they are less than half a pixel wide, and
+ * the curve is split in several paths. Segments whose ends and both inner
+ * points (at a third and two thirds) are all outside of the domain aren't
+ * refined, so parts of the domain narrower than a third of the initial grid
+ * might be missed.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class AdaptiveSampler {
+    /**
+     * Segments narrower than this (in pixels) are never split
+     */
+    private static final double MIN_WIDTH = 0.5;
+    private static final int MAX_GRID = 64;
+    private final Calculable formula;
+    private final double sx, sy, tolerance;
+    private final int budget;
+    private final PriorityQueue<Segment> queue = new PriorityQueue<>();
+    private int evaluations;
+
+    //Linked list of the samples (the arguments and the points in pixels),
+    //sorted by x
+    private double[] ts = new double[256];
+    private double[] px = new double[256];
+    private double[] py = new double[256];
+    private int[] next = new int[256];
+    private int size;
+
+    /**
+     * A segment of the curve between two consecutive samples, and the two
+     * points in which it was checked (which are not in the list yet)
+     */
+    private record Segment(int left, int right, double x1, double y1,
+                           double x2, double y2, double error)
+            implements Comparable<Segment>
+    {
+        @Override
+        public int compareTo(Segment o) {
+            return Double.compare(o.error, error);
+        }
+    }
+
+    /**
+     * @param formula function to sample
+     * @param tolerance maximum distance (in pixels) between the curve and
+     * the straight lines used to draw it
+     * @param budget maximum number of evaluations of the function
+     */
+    AdaptiveSampler(Calculable formula, double tolerance, int budget) {
+        this.formula = formula;
+        this.tolerance = tolerance;
+        this.budget = budget;
+        sx = formula.scaleX();
+        sy = formula.scaleY();
+    }
+
+    /**
+     * Samples the function on {@code [xs, xf]}
+     *
+     * @param xs The starting point of the interval
+     * @param xf The end point of the interval
+     * @return the paths of the curve, in order
+     */
+    List<GPath> sample(double xs, double xf) {
+        final int grid = Math.max(1, Math.min(MAX_GRID, (budget - 1) / 6));
+
+        int last = add(xs, eval(xs));
+        for (int i = 1; i <= grid; i++){
+            final double x = i == grid ? xf : xs + (xf - xs) * i / grid;
+            final int node = add(x, eval(x));
+            push(last, node);
+            last = node;
+        }
+
+        while (!queue.isEmpty()){
+            final Segment s = queue.poll();
+            if (s.error <= tolerance){
+                break;
+            }
+
+            final int p1 = add(s.x1, s.y1);
+            final int p2 = add(s.x2, s.y2);
+            push(s.left, p1);
+            push(p1, p2);
+            push(p2, s.right);
+        }
+
+        return paths();
+    }
+
+    /**
+     * Retrieves the number of times the function was evaluated
+     *
+     * @return number of evaluations
+     */
+    int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Evaluates the function
+     *
+     * @param x argument
+     * @return {@code f(x)} in pixels, or {@code NaN} if {@code x} is not
+     * part of the domain of the function
+     */
+    private double eval(double x) {
+        evaluations++;
+        try {
+            final double y = sy * formula.f(x);
+            return Double.isFinite(y) ? y : Double.NaN;
+        } catch (DomainException ex) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Adds a new sample to the list (it's not linked to the others)
+     *
+     * @param x argument
+     * @param y {@code f(x)} in pixels
+     * @return index of the sample
+     */
+    private int add(double x, double y) {
+        if (size == px.length){
+            ts   = Arrays.copyOf(ts,   size * 2);
+            px   = Arrays.copyOf(px,   size * 2);
+            py   = Arrays.copyOf(py,   size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+
+        ts[size] = x;
+        px[size] = sx * x;
+        py[size] = y;
+        next[size] = -1;
+        return size++;
+    }
+
+    /**
+     * Links two samples, and if the segment between them can still be
+     * split (and there are evaluations left) checks it and queues it
+     *
+     * @param left index of the first sample
+     * @param right index of the second sample
+     */
+    private void push(int left, int right) {
+        next[left] = right;
+
+        final double ta = ts[left];
+        final double tb = ts[right];
+        final double x1 = ta + (tb - ta) / 3;
+        final double x2 = tb - (tb - ta) / 3;
+        if (!(Math.abs(px[right] - px[left]) >= MIN_WIDTH) ||
+            !(ta < x1 & x1 < x2 & x2 < tb) || evaluations + 2 > budget){
+            return;
+        }
+
+        final double y1 = eval(x1);
+        final double y2 = eval(x2);
+        final double error = Math.max(
+                error(left, right, sx * x1, y1),
+                error(left, right, sx * x2, y2)
+        );
+        queue.add(new Segment(left, right, x1, y1, x2, y2, error));
+    }
+
+    /**
+     * Calculates the distance (in pixels) between a point of a segment and
+     * the straight line between its ends
+     *
+     * @param left index of the first sample
+     * @param right index of the second sample
+     * @param mx X coordinate of the point
+     * @param my Y coordinate of the point
+     * @return distance, it's infinite if the domain of the function ends
+     * on the segment and zero if the whole segment is outside of it
+     */
+    private double error(int left, int right, double mx, double my) {
+        final double ax = px[left];
+        final double ay = py[left];
+        final double bx = px[right];
+        final double by = py[right];
+
+        final boolean a = !Double.isNaN(ay);
+        final boolean b = !Double.isNaN(by);
+        final boolean m = !Double.isNaN(my);
+
+        if (a & b & m){
+            final double dx = bx - ax;
+            final double dy = by - ay;
+            return Math.abs(dx * (my - ay) - dy * (mx - ax)) / Math.hypot(dx, dy);
+        }
+
+        return a | b | m ? Double.POSITIVE_INFINITY : 0;
+    }
+
+    /**
+     * Converts the list of samples to paths, consecutive samples that fall
+     * on the same pixel are omitted
+     *
+     * @return paths
+     */
+    private List<GPath> paths() {
+        final List<GPath> paths = new ArrayList<>();
+        GPath path = null;
+        int lx = Integer.MAX_VALUE;
+        int ly = Integer.MAX_VALUE;
+
+        for (int i = 0; i != -1; i = next[i]){
+            if (Double.isNaN(py[i])){
+                path = null;
+                continue;
+            }
+
+            final int x = (int)px[i];
+            final int y = (int)py[i];
+
+            if (path == null){
+                path = new GPath(16);
+                paths.add(path);
+            } else if (x == lx & y == ly){
+                continue;
+            }
+
+            path.append(x, y);
+            lx = x;
+            ly = y;
+        }
+
+        return paths;
+    }
+}
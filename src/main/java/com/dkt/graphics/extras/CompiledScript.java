@@ -0,0 +1,85 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import java.util.Map;
+
+/**
+ * A {@link GraphicCreator} script that was already read and split in
+ * statements, and whose loop bodies were already compiled.<br>
+ * Scripts that are drawn over and over again can be compiled once with
+ * {@link GraphicCreator#compile(String)} and executed as many times as
+ * needed, each execution creates a new {@link Graphic}.<br>
+ * This class is immutable, so the same script can be executed concurrently
+ * from different threads.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GraphicCreator#parse(CompiledScript)
+ */
+public final class CompiledScript {
+    private final String[][] statements;
+    private final int[] positions;
+    private final Map<String, LoopTemplate> loops;
+
+    CompiledScript(String[][] statements, int[] positions,
+                   Map<String, LoopTemplate> loops) {
+        this.statements = statements;
+        this.positions = positions;
+        this.loops = loops;
+    }
+
+    /**
+     * Executes the script with a new {@link GraphicCreator}, only the built
+     * in commands are available, use
+     * {@link GraphicCreator#parse(CompiledScript)} to execute it with custom
+     * commands or to check the number of errors.
+     *
+     * @return a new {@link Graphic}
+     */
+    public Graphic execute() {
+        return new GraphicCreator().parse(this);
+    }
+
+    /**
+     * Number of statements of the script, this includes the comments that
+     * are counted as lines by {@link GraphicCreator#getTotalLineCount()}
+     *
+     * @return number of statements
+     */
+    public int size() {
+        return statements.length;
+    }
+
+    String[][] statements() {
+        return statements;
+    }
+
+    int line(int statement) {
+        return positions[2 * statement];
+    }
+
+    int column(int statement) {
+        return positions[2 * statement + 1];
+    }
+
+    LoopTemplate loop(String body) {
+        return loops.get(body);
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.exceptions.IntervalException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import javax.imageio.ImageIO;
+
+/**
+ * A texture atlas is a single image that contains all the frames of an
+ * animation laid out as a grid of equally sized cells.<br>
+ * Since the atlas is immutable it can be shared by any number of
+ * {@link GAtlasSprite}s, and drawing a frame is just a sub-image blit.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GAtlasSprite
+ */
+public final class GAtlas {
+    private final BufferedImage image;
+    private final int fw;
+    private final int fh;
+    private final int[] fx;
+    private final int[] fy;
+
+    /**
+     * Creates a new {@code GAtlas} using all the cells of the grid as frames
+     *
+     * @param image the image that contains the frames
+     * @param frameWidth width of each frame in px
+     * @param frameHeight height of each frame in px
+     * @throws IllegalArgumentException if {@code image} is {@code null}
+     * @throws InvalidArgumentException if the frame size is not positive or if
+     * the image can't hold a single frame
+     * @see GAtlas#GAtlas(BufferedImage, int, int, int)
+     */
+    public GAtlas(
+            BufferedImage image,
+            int frameWidth,
+            int frameHeight) throws IllegalArgumentException,
+                                    InvalidArgumentException
+    {
+        this(image, frameWidth, frameHeight, 0);
+    }
+
+    /**
+     * Creates a new {@code GAtlas}. The frames are read from the grid in
+     * row-major order (left to right, top to bottom).
+     *
+     * @param image the image that contains the frames
+     * @param frameWidth width of each frame in px
+     * @param frameHeight height of each frame in px
+     * @param frames number of frames in the grid, if the value is {@code 0}
+     * then all the cells will be used (this is useful when the last row of
+     * the grid isn't complete)
+     * @throws IllegalArgumentException if {@code image} is {@code null}
+     * @throws InvalidArgumentException if the frame size is not positive, if
+     * {@code frames} is negative or if the grid can't hold that many frames
+     */
+    public GAtlas(
+            BufferedImage image,
+            int frameWidth,
+            int frameHeight,
+            int frames) throws IllegalArgumentException,
+                               InvalidArgumentException
+    {
+        if (image == null) {
+            throw new IllegalArgumentException("The image can't be null");
+        }
+
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            final String msg = "The frame size must be bigger than zero";
+            throw new InvalidArgumentException(msg);
+        }
+
+        final int cols = image.getWidth () / frameWidth;
+        final int rows = image.getHeight() / frameHeight;
+        final int cells = cols * rows;
+
+        if (frames < 0 || frames > cells || cells == 0) {
+            final String msg = "The grid can't hold %d frames of %dx%d px";
+            throw new InvalidArgumentException(
+                    String.format(msg, frames, frameWidth, frameHeight)
+            );
+        }
+
+        final int n = frames == 0 ? cells : frames;
+
+        this.image = image;
+        this.fw = frameWidth;
+        this.fh = frameHeight;
+        this.fx = new int[n];
+        this.fy = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            fx[i] = (i % cols) * frameWidth;
+            fy[i] = (i / cols) * frameHeight;
+        }
+    }
+
+    /**
+     * Loads a {@code GAtlas} from an image file
+     *
+     * @param file image file
+     * @param frameWidth width of each frame in px
+     * @param frameHeight height of each frame in px
+     * @param frames number of frames in the grid, or {@code 0} to use all
+     * the cells
+     * @return a new {@code GAtlas}
+     * @throws IOException if something goes wrong when reading the file
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @see GAtlas#GAtlas(BufferedImage, int, int, int)
+     */
+    public static GAtlas load(
+            File file,
+            int frameWidth,
+            int frameHeight,
+            int frames) throws IOException,
+                               IllegalArgumentException
+    {
+        if (file == null) {
+            throw new IllegalArgumentException("The file can't be null");
+        }
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            return load(fis, frameWidth, frameHeight, frames);
+        }
+    }
+
+    /**
+     * Loads a {@code GAtlas} from an {@link InputStream} containing an image
+     *
+     * @param is stream of the image
+     * @param frameWidth width of each frame in px
+     * @param frameHeight height of each frame in px
+     * @param frames number of frames in the grid, or {@code 0} to use all
+     * the cells
+     * @return a new {@code GAtlas}
+     * @throws IOException if something goes wrong when reading the stream, or
+     * if the format of the image is unknown
+     * @throws IllegalArgumentException if {@code is} is {@code null}
+     * @see GAtlas#GAtlas(BufferedImage, int, int, int)
+     */
+    public static GAtlas load(
+            InputStream is,
+            int frameWidth,
+            int frameHeight,
+            int frames) throws IOException,
+                               IllegalArgumentException
+    {
+        if (is == null) {
+            throw new IllegalArgumentException("The stream can't be null");
+        }
+
+        final BufferedImage img = ImageIO.read(is);
+        if (img == null) {
+            throw new IOException("Unknown image format");
+        }
+
+        return new GAtlas(img, frameWidth, frameHeight, frames);
+    }
+
+    /**
+     * Packs a set of {@link GPixMap} into a single atlas, using one image px
+     * per pixmap pixel. Since {@link GSprite} is {@code Iterable<GPixMap>} this
+     * can be used to convert a sprite directly.
+     *
+     * @param maps pixmaps to pack
+     * @return a new {@code GAtlas}
+     * @throws IllegalArgumentException if {@code maps} is {@code null} or
+     * contains {@code null} elements
+     * @throws InvalidArgumentException if there are no pixmaps or if they
+     * don't have the same size
+     */
+    public static GAtlas pack(Iterable<GPixMap> maps) throws IllegalArgumentException,
+                                                             InvalidArgumentException
+    {
+        if (maps == null) {
+            throw new IllegalArgumentException("The pixmaps can't be null");
+        }
+
+        final ArrayList<GPixMap> list = new ArrayList<>();
+        for (final GPixMap map : maps) {
+            if (map == null) {
+                throw new IllegalArgumentException("The pixmap can't be null");
+            }
+
+            if (!list.isEmpty() && (
+                map.getXSize() != list.get(0).getXSize() |
+                map.getYSize() != list.get(0).getYSize())) {
+                final String msg = "The pixmaps must have the same size";
+                throw new InvalidArgumentException(msg);
+            }
+
+            list.add(map);
+        }
+
+        if (list.isEmpty()) {
+            throw new InvalidArgumentException("There must be at least one pixmap");
+        }
+
+        final int n  = list.size();
+        final int w  = list.get(0).getXSize();
+        final int h  = list.get(0).getYSize();
+        final int cols = (int)Math.ceil(Math.sqrt(n));
+        final int rows = (n + cols - 1) / cols;
+
+        final BufferedImage img = new BufferedImage(
+                cols * w,
+                rows * h,
+                BufferedImage.TYPE_INT_ARGB
+        );
+
+        for (int k = 0; k < n; k++) {
+            final int[][] data = list.get(k).getData();
+            final int ox = (k % cols) * w;
+            final int oy = (k / cols) * h;
+
+            for (int i = 0; i < h; i++) {
+                img.setRGB(ox, oy + i, w, 1, data[i], 0, w);
+            }
+        }
+
+        return new GAtlas(img, w, h, n);
+    }
+
+    /**
+     * Retrieves the number of frames in this atlas
+     *
+     * @return number of frames
+     */
+    public int getFrameCount() {
+        return fx.length;
+    }
+
+    /**
+     * Retrieves the width of each frame
+     *
+     * @return width in px
+     */
+    public int getFrameWidth() {
+        return fw;
+    }
+
+    /**
+     * Retrieves the height of each frame
+     *
+     * @return height in px
+     */
+    public int getFrameHeight() {
+        return fh;
+    }
+
+    /**
+     * Retrieves the horizontal offset of a frame within the atlas image
+     *
+     * @param frame frame index
+     * @return offset in px
+     * @throws IntervalException if {@code frame} is out of range
+     */
+    public int getFrameX(int frame) throws IntervalException {
+        checkFrame(frame);
+        return fx[frame];
+    }
+
+    /**
+     * Retrieves the vertical offset of a frame within the atlas image
+     *
+     * @param frame frame index
+     * @return offset in px
+     * @throws IntervalException if {@code frame} is out of range
+     */
+    public int getFrameY(int frame) throws IntervalException {
+        checkFrame(frame);
+        return fy[frame];
+    }
+
+    /**
+     * Retrieves the atlas image.<br>
+     * <i>Note:</i> the image is shared by every element that uses this atlas,
+     * so it must not be modified.
+     *
+     * @return atlas image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Draws a given frame with its upper left corner in {@code (x, y)}
+     *
+     * @param g where to draw
+     * @param frame frame index (this value is not checked)
+     * @param x horizontal coordinate
+     * @param y vertical coordinate
+     * @param ps pixel size, each atlas px will be drawn as a {@code ps x ps}
+     * square
+     */
+    void drawFrame(Graphics2D g, int frame, int x, int y, int ps) {
+        final int sx = fx[frame];
+        final int sy = fy[frame];
+
+        g.drawImage(
+                image,
+                x, y, x + fw * ps, y + fh * ps,
+                sx, sy, sx + fw, sy + fh,
+                null
+        );
+    }
+
+    private void checkFrame(int frame) throws IntervalException {
+        if (frame < 0 || frame >= fx.length) {
+            final String msg = "The frame must be contained in the interval";
+            throw new IntervalException(msg, 0, fx.length, frame);
+        }
+    }
+}
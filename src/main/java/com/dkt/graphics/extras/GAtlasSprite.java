@@ -0,0 +1,362 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GRectangle;
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import java.awt.Graphics2D;
+
+/**
+ * Creates a sprite backed by a {@link GAtlas}.<br>
+ * As opposed to {@link GSprite} this class doesn't keep a copy of each frame,
+ * all the frames share a single position and bounds, so moving the sprite or
+ * changing the current frame doesn't depend on the number of frames.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GAtlas
+ * @see GSprite
+ */
+public class GAtlasSprite extends GraphicE {
+    private final GAtlas atlas;
+    private GRectangle bounds;
+    private boolean cyclic = true;
+    private int cursor = 0;
+    private int skips  = 1;
+    private int skipCount = 0;
+    private int pixelSize = 1;
+    private boolean drawGrid;
+    private boolean visible = true;
+    private int x;
+    private int y;
+
+    /**
+     * Copy constructor, the {@link GAtlas} is shared with the original
+     *
+     * @param e {@code GAtlasSprite} to copy
+     * @throws IllegalArgumentException if {@code e} is {@code null}
+     */
+    public GAtlasSprite(GAtlasSprite e) {
+        super(e);
+
+        atlas = e.atlas;
+        bounds = e.bounds.clone();
+        cyclic = e.cyclic;
+        cursor = e.cursor;
+        skips  = e.skips;
+        skipCount = e.skipCount;
+        pixelSize = e.pixelSize;
+        drawGrid  = e.drawGrid;
+        visible   = e.visible;
+        x = e.x;
+        y = e.y;
+    }
+
+    /**
+     * Creates a new sprite with its upper left corner in {@code (0, 0)}
+     *
+     * @param atlas atlas that contains the frames
+     * @throws IllegalArgumentException if {@code atlas} is {@code null}
+     */
+    public GAtlasSprite(GAtlas atlas) {
+        if (atlas == null) {
+            throw new IllegalArgumentException("The atlas can't be null");
+        }
+
+        this.atlas = atlas;
+        updateBounds();
+    }
+
+    /**
+     * Retrieves the atlas used by this sprite
+     *
+     * @return atlas
+     */
+    public GAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Retrieves the current cursor position
+     *
+     * @return cursor position
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the first frame as the current one.
+     */
+    public void first() {
+        cursor = 0;
+        skipCount = 0;
+    }
+
+    /**
+     * Passes to the previous frame.<br>
+     * This method depends on the number of skips set, that is: if skips is 3,
+     * then this method must be called 3 times in order to make an actual
+     * change, apart from it, it also depends on {@link GAtlasSprite#isCyclic()}.
+     *
+     * @return {@code true} the frame changed and {@code false} otherwise.
+     * @see GAtlasSprite#setSkips(int)
+     * @see GAtlasSprite#skips()
+     * @see GAtlasSprite#isCyclic()
+     */
+    public boolean prev() {
+        if (!isCyclic() && cursor - 1 < 0) {
+            return false;
+        }
+
+        if (++skipCount % skips == 0) {
+            if (--cursor < 0) {
+                cursor = atlas.getFrameCount() - 1;
+            }
+
+            skipCount = 0;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Passes to the next frame.<br>
+     * This method depends on the number of skips set, that is: if skips is 3,
+     * then this method must be called 3 times in order to make an actual
+     * change, apart from it, it also depends on {@link GAtlasSprite#isCyclic()}.
+     *
+     * @return {@code true} the frame changed and {@code false} otherwise.
+     * @see GAtlasSprite#setSkips(int)
+     * @see GAtlasSprite#skips()
+     * @see GAtlasSprite#isCyclic()
+     */
+    public boolean next() {
+        if (!isCyclic() && cursor + 1 >= atlas.getFrameCount()) {
+            return false;
+        }
+
+        if (++skipCount % skips == 0) {
+            if (++cursor >= atlas.getFrameCount()) {
+                cursor = 0;
+            }
+
+            skipCount = 0;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Sets the last frame as the current one.
+     */
+    public void last() {
+        cursor = atlas.getFrameCount() - 1;
+        skipCount = 0;
+    }
+
+    /**
+     * Tells if the {@code GAtlasSprite} should behave as a circular list.<br>
+     * The default value is {@code true}.
+     *
+     * @return {@code true} if the {@code GAtlasSprite} is circular, and
+     * {@code false} otherwise.
+     * @see GAtlasSprite#setCyclic(boolean)
+     */
+    public boolean isCyclic() {
+        return cyclic;
+    }
+
+    /**
+     * Tells the {@code GAtlasSprite} to act as if the list of frames is
+     * circular (cyclic), that means that when the last frame is reached, then
+     * it will continue with the first one, and viceversa.<br>
+     * The default value is {@code true}.
+     *
+     * @param cyclic {@code true} if the {@code GAtlasSprite} should act as
+     * circular, and {@code false} otherwise.
+     * @see GAtlasSprite#isCyclic()
+     */
+    public void setCyclic(boolean cyclic) {
+        this.cyclic = cyclic;
+    }
+
+    /**
+     * Sets the number of skips, this means how many times should the
+     * {@link GAtlasSprite#next()} and {@link GAtlasSprite#prev()} should be
+     * called in order to actually work<br>
+     * The default value is 1
+     *
+     * @param s new number of skips
+     * @throws InvalidArgumentException if {@code s} is less than 1
+     */
+    public void setSkips(int s) throws InvalidArgumentException {
+        if (s < 1) {
+            final String msg = "The number of skips must be bigger than zero";
+            throw new InvalidArgumentException(msg);
+        }
+
+        skips = s;
+    }
+
+    /**
+     * Retrieves the number of skips that are necessary in order for the
+     * {@link GAtlasSprite#next()} and {@link GAtlasSprite#prev()} methods to
+     * make an actual change.
+     *
+     * @return number of skips
+     */
+    public int skips() {
+        return skips;
+    }
+
+    /**
+     * Sets a new pixel size, each px of the atlas will be drawn as a square of
+     * this size
+     *
+     * @param px new pixel size
+     * @throws InvalidArgumentException if the {@code size <= 0}
+     */
+    public void setPixelSize(int px) throws InvalidArgumentException {
+        if (px < 1) {
+            final String msg = "The pixel size must be bigger than 1";
+            throw new InvalidArgumentException(msg);
+        }
+
+        pixelSize = px;
+        updateBounds();
+    }
+
+    /**
+     * Retrieves the pixel size of the {@code GAtlasSprite}
+     *
+     * @return pixel size
+     */
+    public int getPixelSize() {
+        return pixelSize;
+    }
+
+    /**
+     * Tells the {@code GAtlasSprite} to draw the inner/outer lines
+     *
+     * @param grid {@code true} to draw the lines and {@code false} otherwise
+     */
+    public void setDrawGrid(boolean grid) {
+        drawGrid = grid;
+    }
+
+    /**
+     * Tells if the {@code GAtlasSprite} will draw the inner lines or not
+     *
+     * @return {@code true} if the {@code GAtlasSprite} is drawing the inner
+     * lines and {@code false} otherwise
+     */
+    public boolean drawGrid() {
+        return drawGrid;
+    }
+
+    /**
+     * Retrieves the current bounds of this {@code GAtlasSprite}
+     *
+     * @return bounds of this GAtlasSprite
+     */
+    public GRectangle getBounds() {
+        return new GRectangle(bounds);
+    }
+
+    /**
+     * Tells the {@code GAtlasSprite} if it should draw itself
+     *
+     * @param visible {@code true} if the {@code GAtlasSprite} should be drawn
+     * and {@code false} otherwise
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * Tells if the {@code GAtlasSprite} is visible
+     *
+     * @return {@code true} if the {@code GAtlasSprite} is visible and
+     * {@code false} otherwise
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Moves the upper left corner of the sprite to the given coordinates
+     *
+     * @param x new X coordinate
+     * @param y new Y coordinate
+     */
+    public void move(int x, int y) {
+        this.x = x;
+        this.y = y;
+        updateBounds();
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        if (!visible) {
+            return;
+        }
+
+        atlas.drawFrame(g, cursor, x, y, pixelSize);
+
+        if (drawGrid) {
+            final int w = atlas.getFrameWidth () * pixelSize;
+            final int h = atlas.getFrameHeight() * pixelSize;
+
+            g.setStroke(getStroke());
+            g.setPaint(getPaint());
+
+            for (int xx = x; xx <= x + w; xx += pixelSize) {
+                g.drawLine(xx, y, xx, y + h);
+            }
+
+            for (int yy = y; yy <= y + h; yy += pixelSize) {
+                g.drawLine(x, yy, x + w, yy);
+            }
+        }
+    }
+
+    @Override
+    public GAtlasSprite clone() {
+        return new GAtlasSprite(this);
+    }
+
+    @Override
+    public void traslate(int x, int y) {
+        this.x += x;
+        this.y += y;
+        bounds.traslate(x, y);
+    }
+
+    private void updateBounds() {
+        final int w = atlas.getFrameWidth () * pixelSize;
+        final int h = atlas.getFrameHeight() * pixelSize;
+
+        bounds = new GRectangle(x + w / 2, y + h / 2, w, h);
+    }
+}
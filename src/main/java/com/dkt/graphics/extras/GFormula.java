@@ -24,9 +24,14 @@ import com.dkt.graphics.elements.GPoly;
 import com.dkt.graphics.elements.GRegPoly;
 import com.dkt.graphics.elements.Graphic;
 import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.exceptions.DomainException;
 import com.dkt.graphics.exceptions.IntervalException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
 import com.dkt.graphics.extras.formula.Calculable;
 import java.awt.Paint;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class represents a basic Formula.<br>
@@ -35,9 +40,17 @@ import java.awt.Paint;
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  */
 public class GFormula extends Graphic {
+    /**
+     * Intervals with less samples than this are always evaluated
+     * sequentially
+     */
+    private static final long PARALLEL_THRESHOLD = 1 << 16;
+    private static final long PARALLEL_CHUNK = 1 << 14;
     private final Calculable formula;
 
     private Paint area;
+    private ForkJoinPool pool;
+    private SampleCache cache;
 
     /**
      * Creates a new {@code GFormula} for the given {@link Calculable} object
@@ -75,27 +88,11 @@ public class GFormula extends Graphic {
 
         removeAll();
 
-        final double sx = formula.scaleX();
-        final double sy = formula.scaleY();
         final int size  = getSize(xs, xf, step);
 
         final GPointArray array = new GPointArray(size);
 
-        int i   = 0;
-        int lx  = Integer.MAX_VALUE;
-        int lfx = Integer.MAX_VALUE;
-
-        for (double xx = xs; xx < xf; xx = xs + i * sx, i++){
-            final int x  = (int)(sx * xx);
-            final int fx = (int)(sy * formula.f(xx));
-
-            //if the distance between points is 0px then don't append it
-            if (lx != x | lfx != fx){
-                array.append(x, fx);
-                lfx = fx;
-                lx  = x;
-            }
-        }
+        sample(xs, xf, step, array::append);
 
         array.setPaint(getPaint());
 
@@ -138,26 +135,11 @@ public class GFormula extends Graphic {
 
         removeAll();
 
-        final double sx = formula.scaleX();
-        final double sy = formula.scaleY();
-
-        int i   = 0;
-        int lx  = Integer.MAX_VALUE;
-        int lfx = Integer.MAX_VALUE;
-
-        for (double xx = xs; xx < xf; xx = xs + i * step, i++){
-            final int x  = (int)(sx * xx);
-            final int fx = (int)(sy * formula.f(xx));
-
-            //if the distance between points is 0px then don't append it
-            if (lx != x | lfx != fx){
-                final GraphicE e = element.clone();
-                e.traslate(x, fx);
-                lfx = fx;
-                lx  = x;
-                add(e);
-            }
-        }
+        sample(xs, xf, step, (x, y) -> {
+            final GraphicE e = element.clone();
+            e.traslate(x, y);
+            add(e);
+        });
     }
 
     /**
@@ -183,33 +165,127 @@ public class GFormula extends Graphic {
 
         removeAll();
 
-        final double sx = formula.scaleX();
-        final double sy = formula.scaleY();
         final int size  = getSize(xs, xf, step);
 
         final GPath path = new GPath(size);
 
-        int i   = 0;
-        int lx  = Integer.MAX_VALUE;
-        int lfx = Integer.MAX_VALUE;
+        sample(xs, xf, step, path::append);
 
-        for (double xx = xs; xx < xf; xx = xs + i * step, i++){
-            final int x  = (int)(sx * xx);
-            final int fx = (int)(sy * formula.f(xx));
+        path.setPaint(getPaint());
+        path.setStroke(getStroke());
 
-            //if the distance between points is 0px then don't append it
-            if (lx != x | lfx != fx){
-                path.append(x, fx);
+        add(path);
+    }
 
-                lfx = fx;
-                lx  = x;
-            }
+    /**
+     * Calculates the formula using adaptive sampling, the drawing will be
+     * based on lines.<br>
+     * Instead of evaluating the formula every {@code step}, the interval is
+     * evaluated on a coarse grid that's refined only where the lines drawn
+     * between the samples are farther than {@code tolerance} pixels from the
+     * curve. So flat regions use very few evaluations, and steep regions
+     * and discontinuities get all the evaluations they need (up to
+     * {@code budget}, once the budget runs out the curve is drawn with the
+     * samples it has).<br>
+     * The values of {@code x} for which the formula throws a
+     * {@link DomainException} (or returns {@code NaN} or an infinite value)
+     * are gaps in the curve, so this method might add several
+     * {@link GPath}, one for each part of the curve.<br>
+     * <i>Note:</i> unlike the other methods, the interval is
+     * {@code [xs, xf]}, and it's always evaluated sequentially.
+     *
+     * @param xs The starting point of the interval
+     * @param xf The end point of the interval
+     * @param tolerance maximum distance (in pixels) between the curve and
+     * the drawing
+     * @param budget maximum number of evaluations of the formula
+     * @see GFormula#calculatePath(double, double, double)
+     * @throws IntervalException if {@code xs >= xf}
+     * @throws InvalidArgumentException if {@code tolerance} isn't positive or
+     * {@code budget < 3}
+     */
+    public void calculateAdaptive(
+            final double xs,
+            final double xf,
+            final double tolerance,
+            final int budget) throws IntervalException,
+                                     InvalidArgumentException
+    {
+        checkValues(xs, xf, xf - xs);
+
+        if (!(tolerance > 0)){
+            throw new InvalidArgumentException("The tolerance must be positive");
         }
 
-        path.setPaint(getPaint());
-        path.setStroke(getStroke());
+        if (budget < 3){
+            throw new InvalidArgumentException("The budget must be at least 3");
+        }
 
-        add(path);
+        removeAll();
+
+        final AdaptiveSampler sampler = new AdaptiveSampler(formula, tolerance, budget);
+        for (final GPath path : sampler.sample(xs, xf)){
+            path.setPaint(getPaint());
+            path.setStroke(getStroke());
+            add(path);
+        }
+    }
+
+    /**
+     * Sets the pool used to evaluate the formula in parallel, the interval
+     * is split in chunks that are evaluated independently and then joined
+     * in order, so the result is exactly the same as the sequential one
+     * (which is the default).<br>
+     * Intervals with less than 65536 samples are always evaluated
+     * sequentially. The formula must be thread safe to use this.
+     *
+     * @param pool pool in which the formula will be evaluated, or
+     * {@code null} to evaluate it on the caller thread
+     * @see ForkJoinPool#commonPool()
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Retrieves the pool used to evaluate the formula in parallel
+     *
+     * @return pool or {@code null} if the formula is evaluated on the caller
+     * thread
+     * @see GFormula#setPool(ForkJoinPool)
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the cache of samples used by this formula, the samples of the
+     * formula that are on the cache won't be evaluated again (even if the
+     * interval or the scale change), and the ones that are evaluated will be
+     * added to it.<br>
+     * <i>Note:</i> When there's a cache the samples are aligned to the step
+     * (the values of {@code x} are {@code k * step} for every integer
+     * {@code k} in the interval) so they can be shared between intervals,
+     * and the formula is always evaluated sequentially.
+     * {@link GFormula#calculateAdaptive(double, double, double, int)}
+     * doesn't use the cache.
+     *
+     * @param cache cache of samples, or {@code null} to evaluate every
+     * sample
+     * @see SampleCache
+     */
+    public void setSampleCache(SampleCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Retrieves the cache of samples used by this formula
+     *
+     * @return cache or {@code null} if there's none
+     * @see GFormula#setSampleCache(SampleCache)
+     */
+    public SampleCache getSampleCache() {
+        return cache;
     }
 
     /**
@@ -251,29 +327,13 @@ public class GFormula extends Graphic {
         removeAll();
 
         final double sx = formula.scaleX();
-        final double sy = formula.scaleY();
         final int size  = getSize(xs, xf, step);
 
         final GPoly poly = new GPoly(size + 2);
 
         poly.append((int)(sx * xs), 0);
 
-        int i   = 0;
-        int lx  = Integer.MAX_VALUE;
-        int lfx = Integer.MAX_VALUE;
-
-        for (double xx = xs; xx < xf; xx = xs + i * step, i++){
-            final int x  = (int)(sx * xx);
-            final int fx = (int)(sy * formula.f(xx));
-
-            //if the distance between points is 0px then don't append it
-            if (lx != x | lfx != fx){
-                poly.append(x, fx);
-
-                lfx = fx;
-                lx  = x;
-            }
-        }
+        final int lx = sample(xs, xf, step, poly::append);
 
         poly.append(lx, 0);
 
@@ -307,4 +367,295 @@ public class GFormula extends Graphic {
         return (int)((xf - xs) / step * 1.02);
     }
 
+    /**
+     * Evaluates the formula on an interval, sequentially or on the pool
+     *
+     * @param xs The starting point of the interval
+     * @param xf The end point of the interval
+     * @param inc distance between samples
+     * @param out destination of the points
+     * @return X coordinate of the last point, or {@code Integer.MAX_VALUE}
+     * if there were none
+     * @see Sampler
+     */
+    private int sample(double xs, double xf, double inc, Points out) {
+        final ForkJoinPool p = pool;
+        final SampleCache sc = cache;
+        final long count = p == null && sc == null ? -1 : count(xs, xf, inc);
+
+        if (sc != null && count >= 0 && Math.abs(xs / inc) < 1L << 52){
+            //The first multiple of the step that's in the interval
+            long k = (long)Math.ceil(xs / inc);
+            while (k * inc < xs){
+                k++;
+            }
+            while ((k - 1) * inc >= xs){
+                k--;
+            }
+
+            if (k * inc < xf){
+                return drain(new Sampler(formula, sc, xf, inc, k), out);
+            }
+        }
+
+        if (p == null || count < PARALLEL_THRESHOLD){
+            return drain(new Sampler(formula, xs, xf, inc, 0, Long.MAX_VALUE), out);
+        }
+
+        long leaf = Math.max(PARALLEL_CHUNK, count / (4L * p.getParallelism()) + 1);
+        leaf = Math.max(leaf, count / (1 << 16) + 1);
+        final Chunk[] chunks = new Chunk[(int)((count + leaf - 1) / leaf)];
+        p.invoke(new Evaluate(formula, xs, xf, inc, leaf, count, chunks, 0, chunks.length));
+
+        //Each chunk starts with its first point, which might be on the same
+        //pixel as the last point of the previous one
+        int lx = Integer.MAX_VALUE;
+        int ly = Integer.MAX_VALUE;
+        for (final Chunk c : chunks){
+            if (c.size == 0){
+                continue;
+            }
+
+            final int from = c.xs[0] == lx & c.ys[0] == ly ? 1 : 0;
+            for (int j = from; j < c.size; j++){
+                out.add(c.xs[j], c.ys[j]);
+            }
+
+            lx = c.xs[c.size - 1];
+            ly = c.ys[c.size - 1];
+        }
+
+        return lx;
+    }
+
+    /**
+     * Sends all the points of a sampler to a destination
+     *
+     * @param sampler sampler
+     * @param out destination of the points
+     * @return X coordinate of the last point, or {@code Integer.MAX_VALUE}
+     * if there were none
+     */
+    private static int drain(Sampler sampler, Points out) {
+        for (int n; (n = sampler.next()) >= 0;){
+            for (int j = 0; j < n; j++){
+                out.add(sampler.px[j], sampler.py[j]);
+            }
+        }
+        return sampler.lx;
+    }
+
+    /**
+     * Calculates the number of samples of an interval (see {@link Sampler})
+     *
+     * @param xs The starting point of the interval
+     * @param xf The end point of the interval
+     * @param inc distance between samples
+     * @return number of samples, or {@code -1} if it's too big (or if the
+     * interval never ends)
+     */
+    private static long count(double xs, double xf, double inc) {
+        final double estimate = Math.ceil((xf - xs) / inc);
+        if (!(inc > 0) || !(estimate < 1L << 52)){
+            return -1;
+        }
+
+        //The samples are monotonic, so we only need to fix the rounding
+        long m = (long)estimate;
+        while (m > 0 && !(xs + (m - 1) * inc < xf)){
+            m--;
+        }
+        while (xs + m * inc < xf){
+            m++;
+        }
+
+        return m + 1;
+    }
+
+    /**
+     * Destination of the points of the formula
+     */
+    @FunctionalInterface
+    private interface Points {
+        void add(int x, int y);
+    }
+
+    /**
+     * Points of a part of the interval
+     */
+    private static final class Chunk {
+        private int[] xs = new int[1024];
+        private int[] ys = new int[1024];
+        private int size;
+
+        void add(int x, int y) {
+            if (size == xs.length){
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+    }
+
+    /**
+     * Evaluates the chunks {@code [from, to)} of an interval, each one has
+     * {@code leaf} samples (except maybe the last one)
+     */
+    private static final class Evaluate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Calculable formula;
+        private final transient Chunk[] chunks;
+        private final double xs, xf, inc;
+        private final long leaf, count;
+        private final int from, to;
+
+        Evaluate(Calculable formula, double xs, double xf, double inc,
+                 long leaf, long count, Chunk[] chunks, int from, int to) {
+            this.formula = formula;
+            this.xs = xs;
+            this.xf = xf;
+            this.inc = inc;
+            this.leaf = leaf;
+            this.count = count;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1){
+                final int mid = (from + to) >>> 1;
+                invokeAll(
+                        new Evaluate(formula, xs, xf, inc, leaf, count, chunks, from, mid),
+                        new Evaluate(formula, xs, xf, inc, leaf, count, chunks, mid, to)
+                );
+                return;
+            }
+
+            final long start = from * leaf;
+            final Sampler sampler = new Sampler(
+                    formula, xs, xf, inc, start, Math.min(count, start + leaf)
+            );
+            final Chunk chunk = new Chunk();
+            drain(sampler, chunk::add);
+            chunks[from] = chunk;
+        }
+    }
+
+    /**
+     * Evaluates the formula on an interval in chunks (using
+     * {@link Calculable#f(double[], double[], int, int)}), and converts the
+     * results to pixels.<br>
+     * The values of {@code x} are {@code xs, xs, xs + inc, xs + 2 * inc...}
+     * (yes, the first one is repeated) while they are smaller than
+     * {@code xf}, and consecutive points that fall on the same pixel are
+     * omitted. A sampler can also evaluate just the samples
+     * {@code [from, to)} of the interval.<br>
+     * When using a {@link SampleCache} the values of {@code x} are
+     * {@code k * inc} instead, from a given {@code k} while they are
+     * smaller than {@code xf}.
+     */
+    private static final class Sampler {
+        private static final int CHUNK = 512;
+        private final double[] in  = new double[CHUNK];
+        private final double[] out = new double[CHUNK];
+        private final int[] px = new int[CHUNK];
+        private final int[] py = new int[CHUNK];
+        private final Calculable formula;
+        private final SampleCache cache;
+        private final double xs, xf, inc, sx, sy;
+        private int lx = Integer.MAX_VALUE;
+        private int ly = Integer.MAX_VALUE;
+        private final long to;
+        private long i;
+        private boolean done;
+
+        Sampler(Calculable formula, double xs, double xf, double inc,
+                long from, long to) {
+            this.formula = formula;
+            this.cache = null;
+            this.xs  = xs;
+            this.xf  = xf;
+            this.inc = inc;
+            this.to  = to;
+            i = from;
+            sx = formula.scaleX();
+            sy = formula.scaleY();
+        }
+
+        Sampler(Calculable formula, SampleCache cache, double xf, double inc,
+                long from) {
+            this.formula = formula;
+            this.cache = cache;
+            this.xs  = from * inc;
+            this.xf  = xf;
+            this.inc = inc;
+            this.to  = Long.MAX_VALUE;
+            i = from;
+            sx = formula.scaleX();
+            sy = formula.scaleY();
+        }
+
+        /**
+         * Evaluates the next chunk of the interval, the points are stored on
+         * {@code px} and {@code py}
+         *
+         * @return number of points (it might be zero if none of them moved a
+         * pixel), or {@code -1} if the interval is over
+         */
+        int next() {
+            if (done){
+                return -1;
+            }
+
+            final long from = i;
+            int n = 0;
+            while (n < CHUNK & i < to){
+                final double xx;
+                if (cache != null){
+                    xx = i * inc;
+                } else {
+                    xx = i == 0 ? xs : xs + (i - 1) * inc;
+                }
+
+                if (!(xx < xf)){
+                    done = true;
+                    break;
+                }
+                in[n++] = xx;
+                i++;
+            }
+
+            if (n == 0){
+                return -1;
+            }
+
+            if (cache != null){
+                cache.get(formula, inc, from, in, out, n);
+            } else {
+                formula.f(in, out, 0, n);
+            }
+
+            int m = 0;
+            for (int j = 0; j < n; j++){
+                final int x  = (int)(sx * in [j]);
+                final int fx = (int)(sy * out[j]);
+
+                //if the distance between points is 0px then don't append it
+                if (lx != x | ly != fx){
+                    px[m] = x;
+                    py[m] = fx;
+                    m++;
+                    lx = x;
+                    ly = fx;
+                }
+            }
+
+            return m;
+        }
+    }
+
 }
@@ -0,0 +1,781 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GImage;
+import com.dkt.graphics.elements.GPath;
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.formula.Calculable2D;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class draws a scalar field {@code F(x, y)}, either as implicit curves
+ * ({@code F(x, y) = c}) or as a heatmap.<br>
+ * The field is sampled on a grid of pixels: the sample {@code (i, j)} is
+ * the value of {@code F} on the pixel {@code (i * r, j * r)} (where
+ * {@code r} is the resolution), and the pixel {@code (px, py)} is the point
+ * {@code (px / scaleX, py / scaleY)}.<br>
+ * The grid is evaluated in tiles of 64x64 samples (in parallel if there's a
+ * pool), and the tiles are aligned to the grid (not to the drawn area) so
+ * they are kept on a cache, and panning only evaluates the tiles that
+ * weren't drawn before.<br>
+ * The values for which the formula throws a {@link DomainException} (or
+ * returns {@code NaN} or an infinite value) are holes in the field.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GFormula2D extends Graphic {
+    /** Number of samples of each side of a tile */
+    static final int TILE = 64;
+    private final Calculable2D formula;
+    private final LinkedHashMap<Long, double[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private int cacheSize = 256;
+    private long hits;
+    private long misses;
+
+    private double scaleX = 1;
+    private double scaleY = 1;
+    private int resolution = 1;
+    private int[] palette = palette(Color.BLUE, Color.WHITE, Color.RED);
+    private ForkJoinPool pool;
+
+    /**
+     * Creates a new {@code GFormula2D} for the given {@link Calculable2D}
+     *
+     * @param formula the field
+     * @throws IllegalArgumentException if formula is {@code null}
+     */
+    public GFormula2D(Calculable2D formula){
+        if (formula == null){
+            throw new IllegalArgumentException("Formula can't be null");
+        }
+
+        this.formula = formula;
+    }
+
+    /**
+     * Draws the curves {@code F(x, y) = level} for each level on a given
+     * area, each curve is drawn as one or more {@link GPath} (a curve is
+     * split where it leaves the area or the domain of the field).<br>
+     * The curves are extracted with marching squares, so curves that are
+     * closer than the resolution might be joined or lost.
+     *
+     * @param x X coordinate of the first pixel of the area
+     * @param y Y coordinate of the first pixel of the area
+     * @param width width of the area in pixels
+     * @param height height of the area in pixels
+     * @param levels levels of the curves (if there are none, then the curve
+     * {@code F(x, y) = 0} is drawn)
+     * @throws InvalidArgumentException if the area is empty
+     * @throws IllegalArgumentException if {@code levels} is {@code null}
+     */
+    public void calculateContours(
+            final int x,
+            final int y,
+            final int width,
+            final int height,
+            final double... levels)
+    {
+        checkArea(width, height);
+
+        if (levels == null){
+            throw new IllegalArgumentException("The levels can't be null");
+        }
+
+        removeAll();
+
+        final Area area = new Area(x, y, width, height, resolution);
+        final double[] values = samples(area);
+
+        for (final double level : levels.length == 0 ? new double[]{0} : levels){
+            final Contour contour = new Contour(values, area, level);
+            for (final GPath path : contour.paths()){
+                path.setPaint(getPaint());
+                path.setStroke(getStroke());
+                add(path);
+            }
+        }
+    }
+
+    /**
+     * Draws the field as a heatmap on a given area, the values are mapped to
+     * the palette (values below {@code min} or above {@code max} take the
+     * first or last color), and the holes of the field are transparent.<br>
+     * The pixels between samples are interpolated, and they are written
+     * directly into the raster of an ARGB image.
+     *
+     * @param x X coordinate of the first pixel of the area
+     * @param y Y coordinate of the first pixel of the area
+     * @param width width of the area in pixels
+     * @param height height of the area in pixels
+     * @param min value of the first color of the palette
+     * @param max value of the last color of the palette
+     * @throws InvalidArgumentException if the area is empty or if
+     * {@code min >= max}
+     * @see GFormula2D#setPalette(Color...)
+     */
+    public void calculateHeatmap(
+            final int x,
+            final int y,
+            final int width,
+            final int height,
+            final double min,
+            final double max)
+    {
+        checkArea(width, height);
+
+        if (!(min < max) || Double.isInfinite(max - min)){
+            throw new InvalidArgumentException("The range of the values must be finite and not empty");
+        }
+
+        removeAll();
+
+        final Area area = new Area(x, y, width, height, resolution);
+        final double[] v = samples(area);
+        final int r = area.r;
+        final int nx = area.nx;
+        final int[] lut = palette;
+        final int last = lut.length - 1;
+        final double scale = last / (max - min);
+
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] raster = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+
+        for (int j = 0; j < height; j++){
+            final int cj = Math.floorDiv(y + j, r) - area.gy;
+            final double fy = Math.floorMod(y + j, r) / (double)r;
+
+            for (int i = 0, k = j * width; i < width; i++, k++){
+                final int ci = Math.floorDiv(x + i, r) - area.gx;
+                final int s = cj * nx + ci;
+
+                double val = v[s];
+                //Only the samples that are needed are used, so the pixels
+                //on a sample next to a hole aren't lost
+                final double fx = Math.floorMod(x + i, r) / (double)r;
+                if (fx > 0){
+                    val += (v[s + 1] - val) * fx;
+                }
+                if (fy > 0){
+                    double top = v[s + nx];
+                    if (fx > 0){
+                        top += (v[s + nx + 1] - top) * fx;
+                    }
+                    val += (top - val) * fy;
+                }
+
+                if (val == val){
+                    final double t = (val - min) * scale;
+                    raster[k] = lut[t <= 0 ? 0 : t >= last ? last : (int)(t + 0.5)];
+                }
+            }
+        }
+
+        //The image is centered on the given point
+        add(new GImage(x + width / 2, y + height / 2, image));
+    }
+
+    /**
+     * Sets the colors of the heatmap, the values are mapped linearly to a
+     * gradient between the given colors
+     *
+     * @param colors colors of the gradient (from the minimum to the maximum)
+     * @throws IllegalArgumentException if {@code colors} or one of the colors
+     * is {@code null}
+     * @throws InvalidArgumentException if there are less than two colors
+     */
+    public void setPalette(Color... colors){
+        palette = palette(colors);
+    }
+
+    /**
+     * Creates a gradient of 256 colors
+     *
+     * @param colors colors of the gradient
+     * @return ARGB values of the gradient
+     */
+    private static int[] palette(Color... colors){
+        if (colors == null){
+            throw new IllegalArgumentException("The colors can't be null");
+        }
+
+        if (colors.length < 2){
+            throw new InvalidArgumentException("The palette needs at least two colors");
+        }
+
+        for (final Color c : colors){
+            if (c == null){
+                throw new IllegalArgumentException("The colors can't be null");
+            }
+        }
+
+        final int[] lut = new int[256];
+        for (int i = 0; i < lut.length; i++){
+            final double t = i * (colors.length - 1) / (lut.length - 1.0);
+            final int c = Math.min((int)t, colors.length - 2);
+            final double f = t - c;
+            final int a = colors[c].getRGB();
+            final int b = colors[c + 1].getRGB();
+
+            int argb = 0;
+            for (int shift = 0; shift < 32; shift += 8){
+                final int ca = a >>> shift & 0xFF;
+                final int cb = b >>> shift & 0xFF;
+                argb |= (int)Math.round(ca + (cb - ca) * f) << shift;
+            }
+            lut[i] = argb;
+        }
+
+        return lut;
+    }
+
+    /**
+     * Sets the scale of the field, the pixel {@code (px, py)} is the point
+     * {@code (px / sx, py / sy)}. Changing the scale clears the cache.
+     *
+     * @param sx horizontal scale (pixels per unit)
+     * @param sy vertical scale (pixels per unit)
+     * @throws InvalidArgumentException if either scale isn't a positive
+     * real
+     */
+    public void setScale(double sx, double sy){
+        if (!(sx > 0) || !(sy > 0) || Double.isInfinite(sx) || Double.isInfinite(sy)){
+            throw new InvalidArgumentException("The scale must be a positive real");
+        }
+
+        if (sx != scaleX || sy != scaleY){
+            scaleX = sx;
+            scaleY = sy;
+            invalidate();
+        }
+    }
+
+    /**
+     * Retrieves the horizontal scale of the field
+     *
+     * @return pixels per unit
+     */
+    public double getScaleX(){
+        return scaleX;
+    }
+
+    /**
+     * Retrieves the vertical scale of the field
+     *
+     * @return pixels per unit
+     */
+    public double getScaleY(){
+        return scaleY;
+    }
+
+    /**
+     * Sets the distance between samples, in pixels. Changing the resolution
+     * clears the cache.
+     *
+     * @param pixels distance between samples
+     * @throws InvalidArgumentException if {@code pixels} is less than one
+     */
+    public void setResolution(int pixels){
+        if (pixels < 1){
+            throw new InvalidArgumentException("The resolution must be at least one pixel");
+        }
+
+        if (pixels != resolution){
+            resolution = pixels;
+            invalidate();
+        }
+    }
+
+    /**
+     * Retrieves the distance between samples
+     *
+     * @return distance in pixels
+     */
+    public int getResolution(){
+        return resolution;
+    }
+
+    /**
+     * Sets the pool used to evaluate the tiles in parallel
+     *
+     * @param pool pool in which the field will be evaluated, or
+     * {@code null} to evaluate it on the caller thread (which is the default)
+     */
+    public void setPool(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Retrieves the pool used to evaluate the tiles in parallel
+     *
+     * @return pool or {@code null} if the field is evaluated on the caller
+     * thread
+     */
+    public ForkJoinPool getPool(){
+        return pool;
+    }
+
+    /**
+     * Sets the maximum number of tiles kept on the cache, each tile takes
+     * 32KB. When the cache is full the tile that was used least recently is
+     * evicted.
+     *
+     * @param tiles maximum number of tiles, or {@code 0} to disable the
+     * cache (the default is {@code 256})
+     * @throws InvalidArgumentException if {@code tiles} is negative
+     */
+    public void setCacheSize(int tiles){
+        if (tiles < 0){
+            throw new InvalidArgumentException("The size of the cache can't be negative");
+        }
+
+        synchronized (this.tiles){
+            cacheSize = tiles;
+            trim();
+        }
+    }
+
+    /**
+     * Retrieves the maximum number of tiles kept on the cache
+     *
+     * @return maximum number of tiles
+     */
+    public int getCacheSize(){
+        synchronized (tiles){
+            return cacheSize;
+        }
+    }
+
+    /**
+     * Retrieves the number of tiles that are on the cache
+     *
+     * @return number of tiles
+     */
+    public int getCachedTiles(){
+        synchronized (tiles){
+            return tiles.size();
+        }
+    }
+
+    /**
+     * Retrieves the number of tiles that were found on the cache
+     *
+     * @return number of hits
+     */
+    public long getCacheHits(){
+        synchronized (tiles){
+            return hits;
+        }
+    }
+
+    /**
+     * Retrieves the number of tiles that had to be evaluated
+     *
+     * @return number of misses
+     */
+    public long getCacheMisses(){
+        synchronized (tiles){
+            return misses;
+        }
+    }
+
+    /**
+     * Clears the cache, this must be called if the formula changes (because
+     * it has parameters, for instance)
+     */
+    public void invalidate(){
+        synchronized (tiles){
+            tiles.clear();
+        }
+    }
+
+    /**
+     * Removes the tiles that were used least recently until the cache has
+     * the right size.<br>
+     * Must be called while holding the lock of {@code tiles}.
+     */
+    private void trim(){
+        final Iterator<double[]> it = tiles.values().iterator();
+        while (tiles.size() > cacheSize){
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static void checkArea(int width, int height){
+        if (width <= 0 || height <= 0){
+            throw new InvalidArgumentException("The area can't be empty");
+        }
+    }
+
+    /**
+     * The samples that cover an area: {@code nx * ny} samples starting at
+     * the sample {@code (gx, gy)}, the last ones are after the area so every
+     * pixel is between samples
+     */
+    private static final class Area {
+        private final int gx, gy, nx, ny, r;
+
+        Area(int x, int y, int width, int height, int r){
+            this.r = r;
+            gx = Math.floorDiv(x, r);
+            gy = Math.floorDiv(y, r);
+            nx = Math.floorDiv(x + width  - 1, r) + 2 - gx;
+            ny = Math.floorDiv(y + height - 1, r) + 2 - gy;
+        }
+    }
+
+    /**
+     * What's needed to evaluate a tile, it's captured before evaluating the
+     * tiles so the setters don't change them midway
+     */
+    private record Grid(Calculable2D formula, int r, double sx, double sy){
+        /**
+         * Evaluates a tile
+         *
+         * @param tx horizontal index of the tile
+         * @param ty vertical index of the tile
+         * @return values of the tile, row by row
+         */
+        double[] tile(int tx, int ty){
+            final double[] values = new double[TILE * TILE];
+            final double[] xs = new double[TILE];
+            final double[] row = new double[TILE];
+
+            for (int i = 0; i < TILE; i++){
+                xs[i] = ((long)tx * TILE + i) * r / sx;
+            }
+
+            for (int j = 0; j < TILE; j++){
+                final double y = ((long)ty * TILE + j) * r / sy;
+
+                try {
+                    formula.f(xs, y, row, 0, TILE);
+                } catch (DomainException ex){
+                    //Only some of the values are outside of the domain
+                    for (int i = 0; i < TILE; i++){
+                        try {
+                            row[i] = formula.f(xs[i], y);
+                        } catch (DomainException ex2){
+                            row[i] = Double.NaN;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < TILE; i++){
+                    values[j * TILE + i] = Double.isFinite(row[i]) ? row[i] : Double.NaN;
+                }
+            }
+
+            return values;
+        }
+    }
+
+    /**
+     * Evaluates some tiles on a {@link ForkJoinPool}
+     */
+    private static final class Evaluate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Grid grid;
+        private final int[] txs;
+        private final int[] tys;
+        private final double[][] out;
+        private final int from;
+        private final int to;
+
+        Evaluate(Grid grid, int[] txs, int[] tys, double[][] out, int from, int to){
+            this.grid = grid;
+            this.txs = txs;
+            this.tys = tys;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from == 1){
+                out[from] = grid.tile(txs[from], tys[from]);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(
+                        new Evaluate(grid, txs, tys, out, from, mid),
+                        new Evaluate(grid, txs, tys, out, mid, to)
+                );
+            }
+        }
+    }
+
+    private static long key(int tx, int ty){
+        return (long)tx << 32 | ty & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Retrieves the samples of an area, the tiles that aren't on the cache
+     * are evaluated (in parallel if there's a pool)
+     *
+     * @param area area
+     * @return values of the samples, row by row
+     */
+    private double[] samples(Area area){
+        final int tx0 = Math.floorDiv(area.gx, TILE);
+        final int ty0 = Math.floorDiv(area.gy, TILE);
+        final int ntx = Math.floorDiv(area.gx + area.nx - 1, TILE) - tx0 + 1;
+        final int nty = Math.floorDiv(area.gy + area.ny - 1, TILE) - ty0 + 1;
+        final double[][] found = new double[ntx * nty][];
+
+        int missing = 0;
+        final int[] txs = new int[found.length];
+        final int[] tys = new int[found.length];
+        synchronized (tiles){
+            for (int j = 0; j < nty; j++){
+                for (int i = 0; i < ntx; i++){
+                    final double[] t = tiles.get(key(tx0 + i, ty0 + j));
+                    if (t != null){
+                        found[j * ntx + i] = t;
+                        hits++;
+                    } else {
+                        txs[missing] = tx0 + i;
+                        tys[missing] = ty0 + j;
+                        missing++;
+                        misses++;
+                    }
+                }
+            }
+        }
+
+        if (missing > 0){
+            final Grid grid = new Grid(formula, area.r, scaleX, scaleY);
+            final double[][] evaluated = new double[missing][];
+            final ForkJoinPool p = pool;
+
+            if (p == null || missing == 1){
+                for (int k = 0; k < missing; k++){
+                    evaluated[k] = grid.tile(txs[k], tys[k]);
+                }
+            } else {
+                p.invoke(new Evaluate(grid, txs, tys, evaluated, 0, missing));
+            }
+
+            synchronized (tiles){
+                for (int k = 0; k < missing; k++){
+                    found[(tys[k] - ty0) * ntx + txs[k] - tx0] = evaluated[k];
+                    if (cacheSize > 0){
+                        tiles.put(key(txs[k], tys[k]), evaluated[k]);
+                    }
+                }
+                trim();
+            }
+        }
+
+        //Copies the part of each tile that's on the area
+        final double[] values = new double[area.nx * area.ny];
+        for (int j = 0; j < area.ny; j++){
+            final int gy = area.gy + j;
+            final int ty = Math.floorDiv(gy, TILE) - ty0;
+            final int row = Math.floorMod(gy, TILE) * TILE;
+
+            for (int i = 0; i < area.nx;){
+                final int gx = area.gx + i;
+                final int tx = Math.floorDiv(gx, TILE) - tx0;
+                final int col = Math.floorMod(gx, TILE);
+                final int n = Math.min(TILE - col, area.nx - i);
+
+                System.arraycopy(found[ty * ntx + tx], row + col, values, j * area.nx + i, n);
+                i += n;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Extracts the curves {@code F(x, y) = level} from the samples of an
+     * area with marching squares.<br>
+     * Each segment goes between two edges of the grid, the edge
+     * {@code 2 * (j * nx + i)} goes from the sample {@code (i, j)} to the
+     * sample {@code (i + 1, j)} and the edge {@code 2 * (j * nx + i) + 1}
+     * goes from {@code (i, j)} to {@code (i, j + 1)}. Since each edge has at
+     * most two segments, the segments are joined by their edges.
+     */
+    private static final class Contour {
+        private final double[] v;
+        private final Area area;
+        private final double level;
+        private final HashMap<Long, long[]> links = new HashMap<>();
+
+        Contour(double[] v, Area area, double level){
+            this.v = v;
+            this.area = area;
+            this.level = level;
+
+            final int nx = area.nx;
+            for (int j = 0; j + 1 < area.ny; j++){
+                for (int i = 0; i + 1 < nx; i++){
+                    final int s = j * nx + i;
+                    final double a = v[s] - level;
+                    final double b = v[s + 1] - level;
+                    final double c = v[s + nx + 1] - level;
+                    final double d = v[s + nx] - level;
+
+                    //The cells with holes are skipped
+                    if (!(a == a & b == b & c == c & d == d)){
+                        continue;
+                    }
+
+                    final long bottom = 2L * s;
+                    final long left   = 2L * s + 1;
+                    final long right  = 2L * (s + 1) + 1;
+                    final long top    = 2L * (s + nx);
+                    final boolean center = a + b + c + d > 0;
+
+                    switch ((a > 0 ? 1 : 0) | (b > 0 ? 2 : 0) | (c > 0 ? 4 : 0) | (d > 0 ? 8 : 0)){
+                        case 1, 14 -> link(left, bottom);
+                        case 2, 13 -> link(bottom, right);
+                        case 3, 12 -> link(left, right);
+                        case 4, 11 -> link(right, top);
+                        case 6, 9  -> link(bottom, top);
+                        case 7, 8  -> link(left, top);
+                        case 5 -> {
+                            //Saddle, the center tells if a and c are joined
+                            link(center ? bottom : left, center ? right : bottom);
+                            link(center ? top : right, center ? left : top);
+                        }
+                        case 10 -> {
+                            link(center ? left : bottom, center ? bottom : right);
+                            link(center ? right : top, center ? top : left);
+                        }
+                        default -> {}
+                    }
+                }
+            }
+        }
+
+        private void link(long e1, long e2){
+            add(e1, e2);
+            add(e2, e1);
+        }
+
+        private void add(long edge, long other){
+            final long[] l = links.computeIfAbsent(edge, k -> new long[]{-1, -1});
+            l[l[0] == -1 ? 0 : 1] = other;
+        }
+
+        /**
+         * Calculates the pixel in which the curve crosses an edge
+         *
+         * @param edge edge
+         * @return X and Y coordinates of the pixel
+         */
+        private int[] point(long edge){
+            final int s = (int)(edge >>> 1);
+            final int i = s % area.nx;
+            final int j = s / area.nx;
+            final int t = (edge & 1) == 0 ? s + 1 : s + area.nx;
+            final double a = v[s] - level;
+            final double f = a / (a - (v[t] - level));
+
+            double px = area.gx + i;
+            double py = area.gy + j;
+            if ((edge & 1) == 0){
+                px += f;
+            } else {
+                py += f;
+            }
+
+            return new int[]{
+                (int)Math.round(px * area.r),
+                (int)Math.round(py * area.r)
+            };
+        }
+
+        /**
+         * Joins the segments into paths, first the ones that start on the
+         * border of the area (or of a hole) and then the closed ones
+         *
+         * @return paths
+         */
+        ArrayList<GPath> paths(){
+            final ArrayList<GPath> paths = new ArrayList<>();
+            final HashSet<Long> visited = new HashSet<>();
+
+            for (final Map.Entry<Long, long[]> e : links.entrySet()){
+                if (e.getValue()[1] == -1 && !visited.contains(e.getKey())){
+                    walk(e.getKey(), visited, paths);
+                }
+            }
+
+            for (final Long edge : links.keySet()){
+                if (!visited.contains(edge)){
+                    walk(edge, visited, paths);
+                }
+            }
+
+            return paths;
+        }
+
+        private void walk(long start, HashSet<Long> visited, ArrayList<GPath> paths){
+            final GPath path = new GPath(16);
+            int lx = Integer.MAX_VALUE;
+            int ly = Integer.MAX_VALUE;
+            long prev = -1;
+            long cur = start;
+
+            while (true){
+                visited.add(cur);
+                final int[] p = point(cur);
+                if (p[0] != lx | p[1] != ly){
+                    path.append(p[0], p[1]);
+                    lx = p[0];
+                    ly = p[1];
+                }
+
+                final long[] l = links.get(cur);
+                final long next = l[0] != prev ? l[0] : l[1];
+                if (next == -1 || visited.contains(next)){
+                    //Closes the loops
+                    if (next == start){
+                        final int[] s = point(start);
+                        path.append(s[0], s[1]);
+                    }
+                    break;
+                }
+
+                prev = cur;
+                cur = next;
+            }
+
+            if (path.size() > 1){
+                paths.add(path);
+            }
+        }
+    }
+}
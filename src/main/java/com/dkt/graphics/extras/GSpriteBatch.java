@@ -0,0 +1,495 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Draws a large number of sprites that share the same {@link GAtlas}.<br>
+ * Instead of having one {@link GSprite} per instance, this class keeps the
+ * position, current frame and visibility of each instance in primitive
+ * arrays. Instances that fall outside the clip aren't drawn at all, and the
+ * rest are drawn with a single blit each.<br>
+ * <i>Note:</i> Instances are referenced by index, and just like in
+ * {@link com.dkt.graphics.elements.GMultiPoint} removing an instance will
+ * shift the indexes of the ones after it.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GAtlas#pack(Iterable)
+ */
+public class GSpriteBatch extends GraphicE {
+    private final Lock mutex = new ReentrantLock();
+    private final GAtlas atlas;
+    private int size;
+    private int[] xs;
+    private int[] ys;
+    private int[] frames;
+    private boolean[] visible;
+    private boolean cyclic = true;
+    private int pixelSize = 1;
+
+    /**
+     * Copy constructor, the {@link GAtlas} is shared with the original
+     *
+     * @param e {@code GSpriteBatch} to copy
+     * @throws IllegalArgumentException if {@code e} is {@code null}
+     */
+    public GSpriteBatch(GSpriteBatch e) {
+        super(e);
+
+        atlas = e.atlas;
+        cyclic = e.cyclic;
+        pixelSize = e.pixelSize;
+
+        e.mutex.lock();
+        try {
+            size = e.size;
+            xs = e.xs.clone();
+            ys = e.ys.clone();
+            frames  = e.frames.clone();
+            visible = e.visible.clone();
+        } finally {
+            e.mutex.unlock();
+        }
+    }
+
+    /**
+     * Creates an empty batch
+     *
+     * @param atlas atlas shared by all the instances
+     * @throws IllegalArgumentException if {@code atlas} is {@code null}
+     */
+    public GSpriteBatch(GAtlas atlas) {
+        this(atlas, 16);
+    }
+
+    /**
+     * Creates an empty batch with the specified reserved space
+     *
+     * @param atlas atlas shared by all the instances
+     * @param initial reserved number of instances
+     * @throws IllegalArgumentException if {@code atlas} is {@code null}
+     * @throws NegativeArraySizeException if {@code initial} is less than zero
+     */
+    public GSpriteBatch(GAtlas atlas, int initial) {
+        if (atlas == null) {
+            throw new IllegalArgumentException("The atlas can't be null");
+        }
+
+        this.atlas = atlas;
+        xs = new int[initial];
+        ys = new int[initial];
+        frames  = new int[initial];
+        visible = new boolean[initial];
+    }
+
+    /**
+     * Retrieves the atlas used by this batch
+     *
+     * @return atlas
+     */
+    public GAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Adds a new visible instance on the first frame
+     *
+     * @param x X coordinate of the upper left corner
+     * @param y Y coordinate of the upper left corner
+     * @return index of the new instance
+     */
+    public int add(int x, int y) {
+        return add(x, y, 0);
+    }
+
+    /**
+     * Adds a new visible instance
+     *
+     * @param x X coordinate of the upper left corner
+     * @param y Y coordinate of the upper left corner
+     * @param frame initial frame of the instance
+     * @return index of the new instance
+     * @throws InvalidArgumentException if {@code frame} is not a valid frame
+     */
+    public int add(int x, int y, int frame) {
+        checkFrame(frame);
+
+        mutex.lock();
+        try {
+            if (size == xs.length) {
+                grow(Math.max(16, size * 2));
+            }
+
+            xs[size] = x;
+            ys[size] = y;
+            frames [size] = frame;
+            visible[size] = true;
+
+            return size++;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Removes the instance at the specified index
+     *
+     * @param idx index of the instance
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public void remove(int idx) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+
+            final int nm = size - idx - 1;
+            System.arraycopy(xs, idx + 1, xs, idx, nm);
+            System.arraycopy(ys, idx + 1, ys, idx, nm);
+            System.arraycopy(frames , idx + 1, frames , idx, nm);
+            System.arraycopy(visible, idx + 1, visible, idx, nm);
+
+            size--;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Removes all the instances
+     */
+    public void clear() {
+        mutex.lock();
+        try {
+            size = 0;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of instances
+     *
+     * @return number of instances
+     */
+    public int size() {
+        mutex.lock();
+        try {
+            return size;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Moves the upper left corner of an instance to the given coordinates
+     *
+     * @param idx index of the instance
+     * @param x new X coordinate
+     * @param y new Y coordinate
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public void move(int idx, int x, int y) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            xs[idx] = x;
+            ys[idx] = y;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the X coordinate of the upper left corner of an instance
+     *
+     * @param idx index of the instance
+     * @return X coordinate
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public int getX(int idx) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            return xs[idx];
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the Y coordinate of the upper left corner of an instance
+     *
+     * @param idx index of the instance
+     * @return Y coordinate
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public int getY(int idx) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            return ys[idx];
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Sets the current frame of an instance
+     *
+     * @param idx index of the instance
+     * @param frame new frame
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     * @throws InvalidArgumentException if {@code frame} is not a valid frame
+     */
+    public void setFrame(int idx, int frame) {
+        checkFrame(frame);
+
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            frames[idx] = frame;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the current frame of an instance
+     *
+     * @param idx index of the instance
+     * @return current frame
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public int getFrame(int idx) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            return frames[idx];
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Tells an instance if it should be drawn
+     *
+     * @param idx index of the instance
+     * @param v {@code true} if the instance should be drawn and {@code false}
+     * otherwise
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public void setVisible(int idx, boolean v) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            visible[idx] = v;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Tells if an instance is visible
+     *
+     * @param idx index of the instance
+     * @return {@code true} if the instance is visible and {@code false}
+     * otherwise
+     * @throws IndexOutOfBoundsException if {@code idx < 0 | idx >= size}
+     */
+    public boolean isVisible(int idx) {
+        mutex.lock();
+        try {
+            checkIndex(idx);
+            return visible[idx];
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Passes every instance to its next frame, this replaces calling
+     * {@link GSprite#next()} on each sprite.<br>
+     * If the batch isn't cyclic, then instances on the last frame will stay
+     * there.
+     *
+     * @see GSpriteBatch#setCyclic(boolean)
+     */
+    public void advanceAll() {
+        final int n = atlas.getFrameCount();
+
+        mutex.lock();
+        try {
+            if (cyclic) {
+                for (int i = 0; i < size; i++) {
+                    final int f = frames[i] + 1;
+                    frames[i] = f == n ? 0 : f;
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    frames[i] = Math.min(frames[i] + 1, n - 1);
+                }
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Tells if {@link GSpriteBatch#advanceAll()} goes back to the first frame
+     * after the last one.<br>
+     * The default value is {@code true}.
+     *
+     * @return {@code true} if the batch is circular, and {@code false}
+     * otherwise.
+     */
+    public boolean isCyclic() {
+        return cyclic;
+    }
+
+    /**
+     * Tells {@link GSpriteBatch#advanceAll()} to go back to the first frame
+     * after the last one.<br>
+     * The default value is {@code true}.
+     *
+     * @param cyclic {@code true} if the batch should act as circular, and
+     * {@code false} otherwise.
+     */
+    public void setCyclic(boolean cyclic) {
+        this.cyclic = cyclic;
+    }
+
+    /**
+     * Sets a new pixel size for all the instances, each px of the atlas will
+     * be drawn as a square of this size
+     *
+     * @param px new pixel size
+     * @throws InvalidArgumentException if the {@code size <= 0}
+     */
+    public void setPixelSize(int px) throws InvalidArgumentException {
+        if (px < 1) {
+            final String msg = "The pixel size must be bigger than 1";
+            throw new InvalidArgumentException(msg);
+        }
+
+        pixelSize = px;
+    }
+
+    /**
+     * Retrieves the pixel size of the instances
+     *
+     * @return pixel size
+     */
+    public int getPixelSize() {
+        return pixelSize;
+    }
+
+    @Override
+    public void traslate(int x, int y) {
+        mutex.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                xs[i] += x;
+                ys[i] += y;
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        final int w = atlas.getFrameWidth () * pixelSize;
+        final int h = atlas.getFrameHeight() * pixelSize;
+        final Rectangle clip = g.getClipBounds();
+
+        mutex.lock();
+        try {
+            if (clip == null) {
+                for (int i = 0; i < size; i++) {
+                    if (visible[i]) {
+                        atlas.drawFrame(g, frames[i], xs[i], ys[i], pixelSize);
+                    }
+                }
+                return;
+            }
+
+            final int cx1 = clip.x;
+            final int cy1 = clip.y;
+            final int cx2 = clip.x + clip.width;
+            final int cy2 = clip.y + clip.height;
+
+            for (int i = 0; i < size; i++) {
+                final int x = xs[i];
+                final int y = ys[i];
+
+                if (visible[i] &
+                    x < cx2 & x + w > cx1 &
+                    y < cy2 & y + h > cy1) {
+                    atlas.drawFrame(g, frames[i], x, y, pixelSize);
+                }
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public GSpriteBatch clone() {
+        return new GSpriteBatch(this);
+    }
+
+    private void grow(int capacity) {
+        final int[] fx = new int[capacity];
+        final int[] fy = new int[capacity];
+        final int[] ff = new int[capacity];
+        final boolean[] fv = new boolean[capacity];
+
+        System.arraycopy(xs, 0, fx, 0, size);
+        System.arraycopy(ys, 0, fy, 0, size);
+        System.arraycopy(frames , 0, ff, 0, size);
+        System.arraycopy(visible, 0, fv, 0, size);
+
+        xs = fx;
+        ys = fy;
+        frames  = ff;
+        visible = fv;
+    }
+
+    private void checkIndex(int idx) {
+        if (idx < 0 || idx >= size) {
+            String msg = "The index must be contained in [0, %d) current '%d'";
+            throw new IndexOutOfBoundsException(String.format(msg, size, idx));
+        }
+    }
+
+    private void checkFrame(int frame) {
+        if (frame < 0 || frame >= atlas.getFrameCount()) {
+            final String msg = "The frame must be contained in [0, %d) current '%d'";
+            throw new InvalidArgumentException(
+                    String.format(msg, atlas.getFrameCount(), frame)
+            );
+        }
+    }
+}
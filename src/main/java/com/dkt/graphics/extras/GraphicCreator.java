@@ -33,17 +33,32 @@ import com.dkt.graphics.elements.GVector;
 import com.dkt.graphics.elements.Graphic;
 import com.dkt.graphics.elements.GraphicE;
 import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.utils.StyleCache;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GradientPaint;
 import java.awt.Stroke;
 import java.awt.geom.NoninvertibleTransformException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class came as an exercise to create {@link Graphic} objects from text
@@ -52,32 +67,203 @@ import java.util.regex.Pattern;
  * This class is pretty handy to create simple drawing based GUIs, since
  * manipulating strings is orders of magnitude easier than using Graphics. This
  * is not meant to be a programming language, it's simply a way of creating
- * simple (and not so simple) graphics.
+ * simple (and not so simple) graphics.<br>
+ * Applications can add their own commands with
+ * {@link GraphicCreator#register(String, Command)}.
  *
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  */
 public class GraphicCreator {
-    private final Pattern linespl = Pattern.compile("\\s+");
-    private final Pattern comment = Pattern.compile("(?=[#])(.*\\n?)(?=\\n)");
-    private final Pattern initial = Pattern.compile("[\\n|;]+(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-
     private int errCount, lineCount;
+    private int line, column;
+    private ArrayList<Diagnostic> diagnostics;
+    private Diagnostic last;
+    private int maxDiagnostics = 100;
+    private boolean failFast;
     private GradientPaint paint = null;
     private Stroke stroke = null;
     private Color color   = null;
     private Color colorf  = null;
     private Font font     = null;
 
-    private static final Class<?> GCC = GraphicCreator.class;
-    private static final Class<?> SAC = String[].class;
+    private static final Map<String, Command> BUILTIN = Map.ofEntries(
+        Map.entry("stroke"   , GraphicCreator::stroke   ),
+        Map.entry("reset"    , GraphicCreator::reset    ),
+        Map.entry("font"     , GraphicCreator::font     ),
+        Map.entry("colorf"   , GraphicCreator::colorf   ),
+        Map.entry("color"    , GraphicCreator::color    ),
+        Map.entry("gradient" , GraphicCreator::gradient ),
+        Map.entry("gradient2", GraphicCreator::gradient2),
+        Map.entry("for1"     , GraphicCreator::for1     ),
+        Map.entry("for2"     , GraphicCreator::for2     ),
+        Map.entry("for3"     , GraphicCreator::for3     ),
+        Map.entry("for4"     , GraphicCreator::for4     ),
+        Map.entry("clipadd"  , GraphicCreator::clipadd  ),
+        Map.entry("clipsub"  , GraphicCreator::clipsub  ),
+        Map.entry("clipoff"  , GraphicCreator::clipoff  ),
+        Map.entry("scale"    , GraphicCreator::scale    ),
+        Map.entry("rotate"   , GraphicCreator::rotate   ),
+        Map.entry("traslate" , GraphicCreator::traslate ),
+        Map.entry("transoff" , GraphicCreator::transoff ),
+        Map.entry("point"    , GraphicCreator::point    ),
+        Map.entry("linec"    , GraphicCreator::linec    ),
+        Map.entry("linep"    , GraphicCreator::linep    ),
+        Map.entry("lpath"    , GraphicCreator::lpath    ),
+        Map.entry("rectf"    , GraphicCreator::rectf    ),
+        Map.entry("rectc"    , GraphicCreator::rectc    ),
+        Map.entry("circle"   , GraphicCreator::circle   ),
+        Map.entry("oval"     , GraphicCreator::oval     ),
+        Map.entry("polyp"    , GraphicCreator::polyp    ),
+        Map.entry("polyn"    , GraphicCreator::polyn    ),
+        Map.entry("vectc"    , GraphicCreator::vectc    ),
+        Map.entry("vectp"    , GraphicCreator::vectp    ),
+        Map.entry("arc"      , GraphicCreator::arc      ),
+        Map.entry("arcc"     , GraphicCreator::arcc     ),
+        Map.entry("string"   , GraphicCreator::string   ),
+        Map.entry("string2"  , GraphicCreator::string2  ),
+        Map.entry("grid"     , GraphicCreator::grid     )
+    );
+
+    private static final int MAX_LOOPS = 64;
+    private static final int CACHE_SIZE = 64;
+    private static final int MAX_CACHED_LENGTH = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 2048;
+    private static final int PARALLEL_CHUNK = 512;
+    /**
+     * Arguments of the built in commands, one string per valid form: 'i' is
+     * an int, 'd' a number, '*' any number of words, '+' at least one word
+     * and "p" any number of pairs of ints
+     */
+    private static final Map<String, String[]> SPECS = Map.ofEntries(
+        Map.entry("stroke"   , new String[]{"d*"}),
+        Map.entry("reset"    , new String[]{""}),
+        Map.entry("colorf"   , new String[]{"i", "iii", "iiii"}),
+        Map.entry("color"    , new String[]{"i", "iii", "iiii"}),
+        Map.entry("gradient" , new String[]{"iiii"}),
+        Map.entry("gradient2", new String[]{"iiii"}),
+        Map.entry("for1"     , new String[]{"iii*"}),
+        Map.entry("for2"     , new String[]{"iiiiii*"}),
+        Map.entry("for3"     , new String[]{"iiiiii*"}),
+        Map.entry("for4"     , new String[]{"iiiiiiiii*"}),
+        Map.entry("clipoff"  , new String[]{""}),
+        Map.entry("scale"    , new String[]{"dd"}),
+        Map.entry("rotate"   , new String[]{"iid"}),
+        Map.entry("traslate" , new String[]{"ii"}),
+        Map.entry("transoff" , new String[]{""}),
+        Map.entry("point"    , new String[]{"ii", "iii"}),
+        Map.entry("linec"    , new String[]{"iiii"}),
+        Map.entry("linep"    , new String[]{"iidd"}),
+        Map.entry("lpath"    , new String[]{"p"}),
+        Map.entry("rectf"    , new String[]{"iiii"}),
+        Map.entry("rectc"    , new String[]{"iiii"}),
+        Map.entry("circle"   , new String[]{"iii"}),
+        Map.entry("oval"     , new String[]{"iiii"}),
+        Map.entry("polyp"    , new String[]{"p"}),
+        Map.entry("polyn"    , new String[]{"iiii", "iiiii"}),
+        Map.entry("vectc"    , new String[]{"iiii"}),
+        Map.entry("vectp"    , new String[]{"iidd"}),
+        Map.entry("arc"      , new String[]{"iiiiii"}),
+        Map.entry("arcc"     , new String[]{"iiiii"}),
+        Map.entry("string"   , new String[]{"ii+"}),
+        Map.entry("string2"  , new String[]{"iid+"}),
+        Map.entry("grid"     , new String[]{"iiii", "iiiiii"})
+    );
+    /** Commands that only depend on the global configuration */
+    private static final Set<String> GEOMETRY = Set.of(
+        "point", "linec", "linep", "lpath", "rectf", "rectc", "circle", "oval",
+        "polyp", "polyn", "vectc", "vectp", "arc", "arcc", "string", "string2",
+        "grid"
+    );
+    private static final Map<String, CompiledScript> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> e) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    private Map<String, Command> commands;
+    private Map<String, LoopTemplate> loops;
+    private CompiledScript compiled;
     private GClip clip;
     private GTransform transf;
 
+    /**
+     * An error found while parsing a script.<br>
+     * The line and column are the position of the first character of the
+     * statement (starting at 1). Errors inside the body of a loop are
+     * reported with the line and column of the loop statement, and the name
+     * of the command of the body that failed.
+     *
+     * @param line line of the statement
+     * @param column column of the statement
+     * @param command name of the command
+     * @param reason description of the error
+     * @see GraphicCreator#getDiagnostics()
+     */
+    public record Diagnostic(int line, int column, String command, String reason) {
+        @Override
+        public String toString() {
+            return line + ":" + column + " " + command + ": " + reason;
+        }
+    }
+
+    /**
+     * A command that can be used on the scripts parsed by a
+     * {@link GraphicCreator}.<br>
+     * The returned value is treated the same way as the built in commands:
+     * {@link GraphicE}s are added to the {@link Graphic} (using the global
+     * color, fill color and stroke), {@link Color}, {@link Stroke},
+     * {@link Font} and {@link GradientPaint} set the global configurations,
+     * and anything else is ignored.
+     *
+     * @see GraphicCreator#register(String, Command)
+     */
+    @FunctionalInterface
+    public interface Command {
+        /**
+         * Executes the command
+         *
+         * @param gc the {@link GraphicCreator} that's parsing the script
+         * @param args the arguments of the command, {@code args[0]} is the
+         * name of the command
+         * @return the object created by this command or {@code null}
+         * @throws Exception if something goes wrong, this is counted as an
+         * error (see {@link GraphicCreator#getErrorCount()})
+         */
+        Object execute(GraphicCreator gc, String[] args) throws Exception;
+    }
+
+    /**
+     * A form of a built in geometry command whose arguments are all
+     * integers. The loop templates use them to create the elements straight
+     * from the values of the loop variables, without writing them as text.
+     *
+     * @see GraphicCreator#typed(String, int)
+     */
+    @FunctionalInterface
+    interface IntCommand {
+        /**
+         * Creates the element
+         *
+         * @param a arguments of the command (without the name)
+         * @return the element
+         * @throws Exception if the arguments aren't valid for the element
+         */
+        GraphicE create(int[] a) throws Exception;
+    }
+
     public GraphicCreator() {
 
     }
 
     private GraphicCreator(GraphicCreator gc) {
+        commands = gc.commands;
+        loops  = gc.loops;
+        compiled = gc.compiled;
+        failFast = gc.failFast;
+        maxDiagnostics = gc.maxDiagnostics;
+        line   = gc.line;
+        column = gc.column;
         transf = gc.transf;
         stroke = gc.stroke;
         colorf = gc.colorf;
@@ -97,103 +283,947 @@ public class GraphicCreator {
         clip   = null;
     }
 
-    public Graphic parse(String line) {
-        //Remove comments
-        String data    = comment.matcher(line).replaceAll("");
-        //Split avoiding what's between " "
-        String[] lines = initial.split(data);
-        return parse(lines);
+    /**
+     * Parses a script into a {@link Graphic}.<br>
+     * Statements are separated by new lines, {@code ;} or {@code |}, and
+     * {@code #} starts a comment that ends with the line. Separators and
+     * comments between double quotes are ignored.<br>
+     * The last scripts that were parsed (up to 64k characters) are kept
+     * compiled, so parsing the same text again doesn't need to read it.
+     *
+     * @param script String representation of the graphic
+     * @return {@code Graphic} object
+     * @see GraphicCreator#parse(Reader)
+     * @see GraphicCreator#compile(String)
+     */
+    public Graphic parse(String script) {
+        if (script.length() <= MAX_CACHED_LENGTH) {
+            return parse(cached(script));
+        }
+
+        try {
+            return parse(new StringReader(script));
+        } catch (IOException ex) {
+            //StringReader doesn't throw them
+            throw new UncheckedIOException(ex);
+        }
     }
 
     /**
-     * Parses a {@code String} (that respects the documentation) into a
-     * {@link Graphic}
+     * Executes a compiled script with this creator, this is the same as
+     * parsing the original script, but without reading it again.
      *
-     * @param lines String representation of the graphic
+     * @param script compiled script
      * @return {@code Graphic} object
+     * @throws IllegalArgumentException if {@code script} is {@code null}
+     * @see GraphicCreator#compile(String)
      */
-    public Graphic parse(String... lines) {
-        final Graphic graphic = new Graphic(lines.length + 10);
-        errCount = 0;
-        lineCount = lines.length;
+    public Graphic parse(CompiledScript script) {
+        if (script == null) {
+            throw new IllegalArgumentException("The script can't be null");
+        }
 
-        for (final String line : lines) {
-            final Object out = parseOne(line);
+        final String[][] statements = script.statements();
+        final Graphic graphic = new Graphic(statements.length + 10);
+        begin();
+        compiled = script;
 
-            if (out instanceof GraphicE ge) {
-                graphic.add(ge);
+        try {
+            for (int i = 0; i < statements.length && !stop(); i++) {
+                final String[] args = statements[i];
+                lineCount++;
+                line   = script.line(i);
+                column = script.column(i);
+                //Commands are free to modify their arguments
+                add(graphic, execute(args.clone()), args);
+            }
+        } finally {
+            compiled = null;
+        }
 
-                if (stroke != null) {
-                    ge.setStroke(stroke);
-                }
+        return graphic;
+    }
 
-                if (color != null) {
-                    ge.setPaint(color);
-                }
+    /**
+     * Same as {@link GraphicCreator#parse(String)}, but the elements are
+     * created in parallel using the common {@link ForkJoinPool}.
+     *
+     * @param script String representation of the graphic
+     * @return {@code Graphic} object
+     * @throws IllegalArgumentException if {@code script} is {@code null}
+     * @see GraphicCreator#parseParallel(CompiledScript, ForkJoinPool)
+     */
+    public Graphic parseParallel(String script) {
+        if (script == null) {
+            throw new IllegalArgumentException("The script can't be null");
+        }
+
+        final CompiledScript cs;
+        if (script.length() <= MAX_CACHED_LENGTH) {
+            cs = cached(script);
+        } else {
+            cs = compile(script);
+        }
+
+        return parseParallel(cs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Executes a compiled script creating the elements in parallel.<br>
+     * The only thing that's shared between statements is the global
+     * configuration (colors, stroke, font, gradient, clip and transform), so
+     * a first (cheap) pass executes every statement that changes it, or
+     * that depends on it in some other way, and remembers the configuration
+     * that each of the remaining statements will see. Those are then
+     * executed in chunks on the given pool. The result (including the line
+     * and error count) is the same as {@link GraphicCreator#parse(CompiledScript)}.
+     * <br>
+     * Scripts with less than 2048 statements are parsed sequentially.
+     *
+     * @param script compiled script
+     * @param pool pool in which the elements will be created
+     * @return {@code Graphic} object
+     * @throws IllegalArgumentException if {@code script} or {@code pool}
+     * are {@code null}
+     */
+    public Graphic parseParallel(CompiledScript script, ForkJoinPool pool) {
+        if (script == null) {
+            throw new IllegalArgumentException("The script can't be null");
+        }
+
+        if (pool == null) {
+            throw new IllegalArgumentException("The pool can't be null");
+        }
+
+        final String[][] statements = script.statements();
+        final int n = statements.length;
 
-                if (out instanceof GFillableE gf) {
-                    if (paint != null) {
-                        gf.setFillPaint(paint);
-                        gf.setFill(true);
-                        paint = null;
-                    } else if (colorf != null) {
-                        gf.setFillPaint(colorf);
-                        gf.setFill(true);
+        if (n < PARALLEL_THRESHOLD || failFast) {
+            return parse(script);
+        }
+
+        final Object[] out = new Object[n];
+        final Style[] styles = new Style[n];
+        begin();
+        compiled = script;
+
+        try {
+            Style current = null;
+            for (int i = 0; i < n; i++) {
+                final String[] args = statements[i];
+                lineCount++;
+                line   = script.line(i);
+                column = script.column(i);
+
+                //A pending gradient is consumed by the first element that
+                //is created, so we need to know if it fails
+                if (paint == null && GEOMETRY.contains(args[0])) {
+                    if (current == null) {
+                        current = new Style(stroke, color, colorf, font);
                     }
+                    styles[i] = current;
                 } else {
-                    if (paint != null) {
-                        ge.setPaint(paint);
-                        paint = null;
+                    out[i] = execute(args.clone());
+                    style(out[i], args);
+                    current = null;
+                }
+            }
+        } finally {
+            compiled = null;
+        }
+
+        final GraphicCreator workers = pool.invoke(new Build(this, script, styles, out, 0, n));
+        errCount += workers.errCount;
+        if (workers.diagnostics != null) {
+            if (diagnostics == null) {
+                diagnostics = new ArrayList<>();
+            }
+            diagnostics.addAll(workers.diagnostics);
+            diagnostics.sort(Comparator.comparingInt(Diagnostic::line)
+                                       .thenComparingInt(Diagnostic::column));
+            while (diagnostics.size() > maxDiagnostics) {
+                diagnostics.remove(diagnostics.size() - 1);
+            }
+        }
+
+        final Graphic graphic = new Graphic(n + 10);
+        for (final Object o : out) {
+            if (o instanceof GraphicE ge) {
+                graphic.add(ge);
+            }
+        }
+
+        return graphic;
+    }
+
+    /**
+     * Global configuration seen by a statement on a parallel parse
+     */
+    private record Style(Stroke stroke, Color color, Color colorf, Font font) {}
+
+    /**
+     * Creates the elements of a range of statements, returns a creator with
+     * the errors and diagnostics of the range
+     */
+    private static final class Build extends RecursiveTask<GraphicCreator> {
+        private static final long serialVersionUID = 1L;
+        private final transient GraphicCreator parent;
+        private final transient CompiledScript script;
+        private final transient Style[] styles;
+        private final transient Object[] out;
+        private final int from, to;
+
+        Build(GraphicCreator parent, CompiledScript script, Style[] styles,
+              Object[] out, int from, int to) {
+            this.parent = parent;
+            this.script = script;
+            this.styles = styles;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GraphicCreator compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                final String[][] statements = script.statements();
+                final GraphicCreator gc = new GraphicCreator();
+                gc.maxDiagnostics = parent.maxDiagnostics;
+
+                for (int i = from; i < to; i++) {
+                    final Style st = styles[i];
+                    if (st == null) {
+                        continue;
                     }
+
+                    gc.stroke = st.stroke();
+                    gc.color  = st.color();
+                    gc.colorf = st.colorf();
+                    gc.font   = st.font();
+                    gc.line   = script.line(i);
+                    gc.column = script.column(i);
+                    out[i] = gc.execute(statements[i].clone());
+                    gc.style(out[i], statements[i]);
                 }
-            } else if (out instanceof Color) {
-                if (line.contains("colorf")) {
-                    colorf = (Color)out;
+
+                return gc;
+            }
+
+            final int mid = (from + to) >>> 1;
+            final Build left = new Build(parent, script, styles, out, from, mid);
+            left.fork();
+            final GraphicCreator right = new Build(parent, script, styles, out, mid, to).compute();
+            final GraphicCreator gc = left.join();
+            gc.errCount += right.errCount;
+            if (right.diagnostics != null) {
+                if (gc.diagnostics == null) {
+                    gc.diagnostics = right.diagnostics;
                 } else {
-                    color  = (Color)out;
+                    gc.diagnostics.addAll(right.diagnostics);
+                }
+            }
+
+            return gc;
+        }
+    }
+
+    /**
+     * Compiles a script so it can be executed several times (even
+     * concurrently) without reading it again.<br>
+     * {@link GraphicCreator#parse(String)} already keeps the last scripts
+     * (up to 64k characters) compiled, this is meant for the scripts that
+     * are too big or for callers that want to keep them.
+     *
+     * @param script String representation of the graphic
+     * @return compiled script
+     * @throws IllegalArgumentException if {@code script} is {@code null}
+     * @see CompiledScript#execute()
+     * @see GraphicCreator#parse(CompiledScript)
+     */
+    public static CompiledScript compile(String script) {
+        if (script == null) {
+            throw new IllegalArgumentException("The script can't be null");
+        }
+
+        final ScriptLexer lexer = new ScriptLexer(new StringReader(script));
+        final ArrayList<String[]> statements = new ArrayList<>();
+        final HashMap<String, LoopTemplate> bodies = new HashMap<>();
+        int[] pos = new int[64];
+
+        try {
+            String[] args;
+            while ((args = lexer.next()) != null) {
+                final int i = statements.size();
+                if (2 * i == pos.length) {
+                    pos = Arrays.copyOf(pos, pos.length * 2);
+                }
+                pos[2 * i    ] = lexer.line();
+                pos[2 * i + 1] = lexer.column();
+                statements.add(args);
+
+                final int init = bodyIndex(args);
+                if (init != -1 && args.length > init) {
+                    final String txt = body(args, init);
+                    try {
+                        bodies.computeIfAbsent(txt, LoopTemplate::compile);
+                    } catch (IllegalArgumentException ex) {
+                        //Invalid body, it will fail when executed
+                    }
                 }
-            } else if (out instanceof Stroke) {
-                stroke = (Stroke)out;
-            } else if (out instanceof Font) {
-                font = (Font)out;
-            } else if (out instanceof GradientPaint) {
-                paint = (GradientPaint)out;
+            }
+        } catch (IOException ex) {
+            //StringReader doesn't throw them
+            throw new UncheckedIOException(ex);
+        }
+
+        return new CompiledScript(
+                statements.toArray(new String[0][]),
+                Arrays.copyOf(pos, 2 * statements.size()),
+                bodies
+        );
+    }
+
+    /**
+     * Removes all the compiled scripts kept by
+     * {@link GraphicCreator#parse(String)}
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static CompiledScript cached(String script) {
+        CompiledScript cs;
+        synchronized (CACHE) {
+            cs = CACHE.get(script);
+        }
+
+        if (cs == null) {
+            cs = compile(script);
+            synchronized (CACHE) {
+                CACHE.put(script, cs);
+            }
+        }
+
+        return cs;
+    }
+
+    /**
+     * Parses a script into a {@link Graphic}, the script is read as it's
+     * parsed, so it's never loaded completely in memory. The reader is not
+     * closed.
+     *
+     * @param reader source of the script
+     * @return {@code Graphic} object
+     * @throws IOException if there's a problem reading the script
+     * @throws IllegalArgumentException if {@code reader} is {@code null}
+     * @see GraphicCreator#parse(String)
+     */
+    public Graphic parse(Reader reader) throws IOException {
+        if (reader == null) {
+            throw new IllegalArgumentException("The reader can't be null");
+        }
+
+        final ScriptLexer lexer = new ScriptLexer(reader);
+        final Graphic graphic = new Graphic();
+        lexer.setPackPoints(true);
+        begin();
+
+        String[] args;
+        while (!stop() && (args = lexer.next()) != null) {
+            lineCount++;
+            line   = lexer.line();
+            column = lexer.column();
+
+            //Built in commands can't be replaced, so packed coordinates can
+            //skip the command table
+            final int[][] points = lexer.points();
+            if (points == null) {
+                add(graphic, execute(args), args);
+            } else if (args[0].equals("lpath")) {
+                add(graphic, new GPath(points[0], points[1]), args);
+            } else {
+                add(graphic, new GPoly(points[0], points[1]), args);
             }
         }
 
         return graphic;
     }
 
+    /**
+     * Parses a script encoded in UTF-8 into a {@link Graphic}. The stream is
+     * not closed.
+     *
+     * @param is source of the script
+     * @return {@code Graphic} object
+     * @throws IOException if there's a problem reading the script
+     * @throws IllegalArgumentException if {@code is} is {@code null}
+     * @see GraphicCreator#parse(Reader)
+     */
+    public Graphic parse(InputStream is) throws IOException {
+        if (is == null) {
+            throw new IllegalArgumentException("The stream can't be null");
+        }
+
+        return parse(new InputStreamReader(is, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a set of statements (that respect the documentation) into a
+     * {@link Graphic}, each {@code String} is a single statement.
+     *
+     * @param lines String representation of the graphic
+     * @return {@code Graphic} object
+     */
+    public Graphic parse(String... lines) {
+        final Graphic graphic = new Graphic(lines.length + 10);
+        begin();
+        lineCount = lines.length;
+
+        for (int i = 0; i < lines.length && !stop(); i++) {
+            if (lines[i] != null) {
+                final String[] args = ScriptLexer.split(lines[i]);
+                line   = i + 1;
+                column = 1;
+                add(graphic, execute(args), args);
+            }
+        }
+
+        return graphic;
+    }
+
+    private void add(Graphic graphic, Object out, String[] args) {
+        if (out instanceof GraphicE ge) {
+            graphic.add(ge);
+        }
+
+        style(out, args);
+    }
+
+    private void style(Object out, String[] args) {
+        if (out instanceof GraphicE ge) {
+            if (stroke != null) {
+                ge.setStroke(stroke);
+            }
+
+            if (color != null) {
+                ge.setPaint(color);
+            }
+
+            if (out instanceof GFillableE gf) {
+                if (paint != null) {
+                    gf.setFillPaint(paint);
+                    gf.setFill(true);
+                    paint = null;
+                } else if (colorf != null) {
+                    gf.setFillPaint(colorf);
+                    gf.setFill(true);
+                }
+            } else {
+                if (paint != null) {
+                    ge.setPaint(paint);
+                    paint = null;
+                }
+            }
+        } else if (out instanceof Color) {
+            if ("colorf".equals(args[0])) {
+                colorf = (Color)out;
+            } else {
+                color  = (Color)out;
+            }
+        } else if (out instanceof Stroke) {
+            stroke = (Stroke)out;
+        } else if (out instanceof Font) {
+            font = (Font)out;
+        } else if (out instanceof GradientPaint) {
+            paint = (GradientPaint)out;
+        }
+    }
+
+    /**
+     * Executes a statement and adds the result to the graphic
+     *
+     * @param graphic destination graphic
+     * @param args words of the statement
+     */
+    void execute(Graphic graphic, String[] args) {
+        add(graphic, execute(args), args);
+    }
+
+    /**
+     * Global configuration seen by a statement on an incremental parse
+     */
+    record State(Stroke stroke, Color color, Color colorf,
+                 GradientPaint paint, Font font) {}
+
+    /**
+     * Starts an incremental parse, the creator starts from a clean
+     * configuration (as a new creator would)
+     *
+     * @see IncrementalScript
+     */
+    void start() {
+        begin();
+        clear();
+    }
+
+    /**
+     * Retrieves the current global configuration
+     *
+     * @return configuration
+     */
+    State state() {
+        return new State(stroke, color, colorf, paint, font);
+    }
+
+    /**
+     * Tells if the current global configuration is the same as a given one,
+     * this is the same as {@code state().equals(st)} without creating a new
+     * state
+     *
+     * @param st configuration to compare
+     * @return {@code true} if the configurations are equal
+     */
+    boolean hasState(State st) {
+        return paint == st.paint()                    &&
+               Objects.equals(stroke, st.stroke())    &&
+               Objects.equals(color , st.color())     &&
+               Objects.equals(colorf, st.colorf())    &&
+               Objects.equals(font  , st.font());
+    }
+
+    /**
+     * Tells if the result of a statement only depends on its words and the
+     * global configuration, so it can be reused if neither changes. The clip
+     * and the transformation are modified by later statements, so loops can
+     * only be reused when there's neither, and loops that call custom
+     * commands are never reused.
+     *
+     * @param args words of the statement
+     * @return {@code true} if the result can be reused
+     */
+    boolean reusable(String[] args) {
+        if (args.length == 0) {
+            return false;
+        }
+
+        if (GEOMETRY.contains(args[0])) {
+            return true;
+        }
+
+        return bodyIndex(args) != -1 && clip == null && transf == null &&
+               (commands == null || commands.isEmpty());
+    }
+
+    /**
+     * Executes a statement on an incremental parse, the result is not added
+     * to any graphic, but the configuration is updated
+     *
+     * @param args words of the statement
+     * @param line line of the statement
+     * @param column column of the statement
+     * @return the object created by the statement
+     */
+    Object run(String[] args, int line, int column) {
+        lineCount++;
+        this.line   = line;
+        this.column = column;
+        //Commands are free to modify their arguments
+        final Object out = execute(args.clone());
+        style(out, args);
+        return out;
+    }
+
+    /**
+     * Replays a statement that was executed on a previous incremental parse
+     * with the same global configuration, its errors are reported on the new
+     * position
+     *
+     * @param out object created by the statement
+     * @param lines number of lines that the statement counted
+     * @param error error of the statement or {@code null}
+     * @param line line of the statement
+     * @param column column of the statement
+     */
+    void replay(Object out, int lines, Diagnostic error, int line, int column) {
+        lineCount += lines;
+
+        if (error != null) {
+            this.line   = line;
+            this.column = column;
+            error(error.command(), error.reason());
+        }
+
+        //Only elements are replayed, and they already have the configuration
+        if (out != null) {
+            paint = null;
+        }
+    }
+
+    /**
+     * Retrieves the last error reported by this creator
+     *
+     * @return last error, or {@code null} if there were no errors since
+     * {@link GraphicCreator#start()}
+     */
+    Diagnostic lastError() {
+        return last;
+    }
+
     private Object parseOne(String line) {
         if (line == null) {
             return null;
         }
 
-        String lline = line.trim();
+        return execute(ScriptLexer.split(line));
+    }
+
+    private Object execute(String[] args) {
+        if (args.length == 0 ||
+            args[0].charAt(0) == '#' ||
+            args[0].charAt(0) == '!') {
+            return null;
+        }
+
+        final Command command = getCommand(args[0]);
+
+        if (command == null) {
+            error(args[0], "unknown command");
+            return null;
+        }
+
+        //Most errors are found here without creating any exception
+        final String reason = validate(args);
+        if (reason != null) {
+            error(args[0], reason);
+            return null;
+        }
 
         try {
-            if (lline.isEmpty() ||
-                lline.charAt(0) == '#' ||
-                lline.charAt(0) == '!') {
+            return command.execute(this, args);
+        } catch (Exception ex) {
+            fail(args[0], ex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Executes a statement of a loop template whose arguments are already
+     * integers and adds the result to the graphic. This is the same as
+     * executing the words of the statement, but without the command table,
+     * the validation and the parsing.
+     *
+     * @param graphic destination graphic
+     * @param head name of the command (as a one word statement)
+     * @param command typed form of the command
+     * @param args arguments of the command
+     * @see GraphicCreator#typed(String, int)
+     */
+    void execute(Graphic graphic, String[] head, IntCommand command, int[] args) {
+        Object out = null;
+        try {
+            out = command.create(args);
+        } catch (Exception ex) {
+            fail(head[0], ex);
+        }
+
+        add(graphic, out, head);
+    }
+
+    /**
+     * Retrieves the typed form of a built in geometry command for a given
+     * number of arguments, if all of its arguments are integers
+     *
+     * @param name name of the command
+     * @param n number of arguments
+     * @return typed form of the command or {@code null} if there's none
+     */
+    static IntCommand typed(String name, int n) {
+        return switch (name) {
+            case "point"  -> n == 2 ? a -> new GPoint(a[0], a[1]) :
+                             n == 3 ? a -> new GPoint(a[0], a[1], a[2]) : null;
+            case "linec"  -> n == 4 ? a -> new GLine(a[0], a[1], a[2], a[3]) : null;
+            case "rectf"  -> n == 4 ? a -> rect(a[0], a[1], a[2], a[3]) : null;
+            case "rectc"  -> n == 4 ? a -> new GRectangle(a[0], a[1], a[2], a[3]) : null;
+            case "circle" -> n == 3 ? a -> new GCircle(a[0], a[1], a[2]) : null;
+            case "oval"   -> n == 4 ? a -> new GOval(a[0], a[1], a[2], a[3]) : null;
+            case "polyn"  -> n == 4 ? a -> new GRegPoly(a[0], a[1], a[2], a[3], 0) :
+                             n == 5 ? a -> new GRegPoly(a[0], a[1], a[2], a[3], a[4]) : null;
+            case "vectc"  -> n == 4 ? a -> new GVector(a[0], a[1], a[2], a[3]) : null;
+            case "arc"    -> n == 6 ? a -> new GArc(a[0], a[1], a[2], a[3], a[4], a[5]) : null;
+            case "arcc"   -> n == 5 ? a -> new GArc(a[0], a[1], a[2], a[3], a[4]) : null;
+            case "grid"   -> n == 4 ? a -> new GGrid(a[0], a[1], a[2], a[3]) :
+                             n == 6 ? a -> new GGrid(a[0], a[1], a[2], a[3], a[4], a[5]) : null;
+            case "lpath"  -> (n & 1) == 0 ? a -> {
+                final int[][] points = pairs(a);
+                return new GPath(points[0], points[1]);
+            } : null;
+            case "polyp"  -> (n & 1) == 0 ? a -> {
+                final int[][] points = pairs(a);
+                return new GPoly(points[0], points[1]);
+            } : null;
+            default -> null;
+        };
+    }
+
+    private void fail(String command, Exception ex) {
+        final String msg = ex.getMessage();
+        error(command, msg == null ? ex.getClass().getSimpleName() : msg);
+    }
+
+    private void error(String command, String reason) {
+        errCount++;
+        last = new Diagnostic(line, column, command, reason);
+
+        if (diagnostics == null) {
+            diagnostics = new ArrayList<>();
+        }
+
+        if (diagnostics.size() < maxDiagnostics) {
+            diagnostics.add(last);
+        }
+    }
+
+    /**
+     * Adds the errors of the creator that executed the body of a loop to
+     * this one, the diagnostics already have the line and column of the loop
+     * statement (the child creator copies them)
+     *
+     * @param gc creator of the loop body
+     */
+    private void merge(GraphicCreator gc) {
+        if (gc.errCount == 0) {
+            return;
+        }
+
+        errCount += gc.errCount;
+        last = gc.last;
+
+        if (diagnostics == null) {
+            diagnostics = new ArrayList<>();
+        }
+
+        for (final Diagnostic d : gc.diagnostics) {
+            if (diagnostics.size() >= maxDiagnostics) {
+                break;
+            }
+            diagnostics.add(d);
+        }
+    }
+
+    private void begin() {
+        errCount = 0;
+        lineCount = 0;
+        diagnostics = null;
+        last = null;
+    }
+
+    boolean stop() {
+        return failFast && errCount != 0;
+    }
+
+    /**
+     * Checks the number and type of the arguments of the built in commands
+     * (and the configuration that some of them need)
+     *
+     * @param args words of the statement
+     * @return {@code null} if the statement can be executed, or the reason
+     * why it would fail
+     */
+    private String validate(String[] args) {
+        final String[] spec = SPECS.get(args[0]);
+        if (spec == null) {
+            return null;
+        }
+
+        final int n = args.length - 1;
+
+        switch (args[0]) {
+            case "colorf" -> {
+                if (n == 1 && "no".equals(args[1])) {
+                    return null;
+                }
+            }
+            case "transoff" -> {
+                if (transf == null) {
+                    return "there's no transformation to remove";
+                }
+            }
+            case "gradient", "gradient2" -> {
+                if (color == null || colorf == null) {
+                    return "color and colorf must be set before a gradient";
+                }
+            }
+            default -> { }
+        }
+
+        String reason = null;
+        for (final String alt : spec) {
+            if (!matches(alt, n)) {
+                continue;
+            }
+
+            final String r = checkTypes(alt, args);
+            if (r == null) {
                 return null;
             }
 
-            final String[] foo  = linespl.split(lline);
-            final Method method = GCC.getMethod(foo[0], SAC);
+            if (reason == null) {
+                reason = r;
+            }
+        }
+
+        if (reason != null) {
+            return reason;
+        }
+
+        final StringBuilder sb = new StringBuilder(64);
+        sb.append("wrong number of arguments (").append(n).append("), expected ");
+        for (int i = 0; i < spec.length; i++) {
+            if (i != 0) {
+                sb.append(" or ");
+            }
+            final String alt = spec[i];
+            if (alt.equals("p")) {
+                sb.append("an even number");
+            } else if (alt.endsWith("*")) {
+                sb.append("at least ").append(alt.length() - 1);
+            } else if (alt.endsWith("+")) {
+                sb.append("at least ").append(alt.length());
+            } else {
+                sb.append(alt.length());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static boolean matches(String alt, int n) {
+        final int len = alt.length();
+        if (alt.equals("p")) {
+            return (n & 1) == 0;
+        }
+
+        if (len != 0 && alt.charAt(len - 1) == '*') {
+            return n >= len - 1;
+        }
+
+        if (len != 0 && alt.charAt(len - 1) == '+') {
+            return n >= len;
+        }
 
-            return method.invoke(this, (Object)foo);
+        return n == len;
+    }
 
-        } catch (SecurityException |
-                 NoSuchMethodException |
-                 IllegalAccessException |
-                 InvalidArgumentException |
-                 InvocationTargetException ex) {
-            errCount++;
+    private static String checkTypes(String alt, String[] args) {
+        final boolean pairs = alt.equals("p");
+
+        for (int i = 1; i < args.length; i++) {
+            final char t = pairs ? 'i' : alt.charAt(Math.min(i, alt.length()) - 1);
+            if (t == 'i' && !isInt(args[i])) {
+                return "argument " + i + " ('" + args[i] + "') must be an integer";
+            }
+            if (t == 'd' && !isDouble(args[i])) {
+                return "argument " + i + " ('" + args[i] + "') must be a number";
+            }
+            if (t == '*' || t == '+') {
+                break;
+            }
         }
 
         return null;
     }
 
+    /**
+     * Same as {@link Integer#parseInt(String)} not throwing an exception
+     *
+     * @param s string to check
+     * @return {@code true} if {@code s} can be parsed as an {@code int}
+     */
+    static boolean isInt(String s) {
+        return ScriptNumbers.isInt(s, 0, s.length());
+    }
+
+    /**
+     * Same as {@link Double#parseDouble(String)} not throwing an exception
+     * (hexadecimal numbers still use {@code parseDouble})
+     *
+     * @param s string to check
+     * @return {@code true} if {@code s} can be parsed as a {@code double}
+     */
+    static boolean isDouble(String s) {
+        return ScriptNumbers.isDouble(s, 0, s.length());
+    }
+
+    private Command getCommand(String name) {
+        final Command command = BUILTIN.get(name);
+        if (command != null || commands == null) {
+            return command;
+        }
+
+        return commands.get(name);
+    }
+
+    /**
+     * Registers a new command on this {@code GraphicCreator}, the command
+     * will also be available on the scripts generated by the {@code for}
+     * loops.
+     *
+     * @param name name of the command (this is the first word of the line)
+     * @param command the command to execute
+     * @throws IllegalArgumentException if either argument is {@code null}
+     * @throws InvalidArgumentException if the name is empty, contains white
+     * spaces or if it's a built in command
+     * @see GraphicCreator#unregister(String)
+     */
+    public void register(String name, Command command) {
+        if (name == null || command == null) {
+            final String msg = "The name and the command can't be null";
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (name.isEmpty() || ScriptLexer.split(name).length != 1) {
+            final String msg = "'%s' isn't a valid command name";
+            throw new InvalidArgumentException(String.format(msg, name));
+        }
+
+        if (BUILTIN.containsKey(name)) {
+            final String msg = "'%s' is a built in command";
+            throw new InvalidArgumentException(String.format(msg, name));
+        }
+
+        if (commands == null) {
+            commands = new HashMap<>();
+        }
+
+        commands.put(name, command);
+    }
+
+    /**
+     * Removes a command registered with
+     * {@link GraphicCreator#register(String, Command)}
+     *
+     * @param name name of the command
+     * @return {@code true} if the command was registered and {@code false}
+     * otherwise
+     */
+    public boolean unregister(String name) {
+        return commands != null && commands.remove(name) != null;
+    }
+
+    /**
+     * Tells if there's a command with the given name, either built in or
+     * registered
+     *
+     * @param name name of the command
+     * @return {@code true} if the command exists and {@code false} otherwise
+     */
+    public boolean isCommand(String name) {
+        return name != null && getCommand(name) != null;
+    }
+
     /**
      * Retrieves the number of errors encountered during the parsing of a
      * given text.
@@ -204,6 +1234,70 @@ public class GraphicCreator {
         return errCount;
     }
 
+    /**
+     * Retrieves the errors found on the last parse, in the order in which
+     * they appear in the script. Only the first
+     * {@link GraphicCreator#getMaxDiagnostics()} errors are kept, the rest
+     * are only counted by {@link GraphicCreator#getErrorCount()}.
+     *
+     * @return unmodifiable list of errors
+     */
+    public List<Diagnostic> getDiagnostics() {
+        if (diagnostics == null) {
+            return List.of();
+        }
+
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Sets the maximum number of errors that are kept by
+     * {@link GraphicCreator#getDiagnostics()}.<br>
+     * The default value is 100.
+     *
+     * @param max maximum number of diagnostics, {@code 0} to only count
+     * the errors
+     * @throws InvalidArgumentException if {@code max} is negative
+     */
+    public void setMaxDiagnostics(int max) {
+        if (max < 0) {
+            throw new InvalidArgumentException("The maximum can't be negative");
+        }
+
+        maxDiagnostics = max;
+    }
+
+    /**
+     * Retrieves the maximum number of errors that are kept by
+     * {@link GraphicCreator#getDiagnostics()}
+     *
+     * @return maximum number of diagnostics
+     */
+    public int getMaxDiagnostics() {
+        return maxDiagnostics;
+    }
+
+    /**
+     * Tells the creator to stop parsing after the first error, the returned
+     * {@link Graphic} contains the elements created before it.<br>
+     * The default value is {@code false}.
+     *
+     * @param failFast {@code true} to stop on the first error
+     */
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Tells if the creator stops parsing after the first error
+     *
+     * @return {@code true} if the creator stops on the first error
+     * @see GraphicCreator#setFailFast(boolean)
+     */
+    public boolean isFailFast() {
+        return failFast;
+    }
+
     public int getTotalLineCount() {
         return lineCount;
     }
@@ -215,7 +1309,7 @@ public class GraphicCreator {
         int join = BasicStroke.JOIN_BEVEL;
 
         if (args.length <= 3) {
-            return new BasicStroke(w, cap, join);
+            return StyleCache.intern(new BasicStroke(w, cap, join));
         }
 
         float offset = 0;
@@ -246,7 +1340,7 @@ public class GraphicCreator {
             arr[i] = dashes.get(i);
         }
 
-        return new BasicStroke(w, cap, join, 0, arr, offset);
+        return StyleCache.intern(new BasicStroke(w, cap, join, 0, arr, offset));
     }
 
     /**
@@ -278,7 +1372,7 @@ public class GraphicCreator {
 
         String name = concatenate(args, 1);
 
-        return Font.decode(name);
+        return StyleCache.intern(Font.decode(name));
     }
 
     /**
@@ -327,20 +1421,20 @@ public class GraphicCreator {
         checkArgs(args, 1, 3, 4);
         switch (args.length - 1) {
             case 1 -> { //[argb]
-                return new Color(getInt(args[1]), true);
+                return StyleCache.color(getInt(args[1]));
             }
             case 3 -> { //[r, g, b]
                 final int r = getInt(args[1], 0, 255);
                 final int g = getInt(args[2], 0, 255);
                 final int b = getInt(args[3], 0, 255);
-                return new Color(r, g, b);
+                return StyleCache.color(r, g, b, 255);
             }
             case 4 -> { //[a, r, g, b]
                 final int a = getInt(args[1], 0, 255);
                 final int r = getInt(args[2], 0, 255);
                 final int g = getInt(args[3], 0, 255);
                 final int b = getInt(args[4], 0, 255);
-                return new Color(r, g, b, a);
+                return StyleCache.color(r, g, b, a);
             }
         }
         return null;
@@ -382,7 +1476,7 @@ public class GraphicCreator {
 
     private GradientPaint grad(String[] args, boolean cyclic) {
         checkArgs(args, 4);
-        return new GradientPaint(
+        return StyleCache.intern(new GradientPaint(
                 getInt(args[1]),
                 getInt(args[2]),
                 color,
@@ -390,7 +1484,7 @@ public class GraphicCreator {
                 getInt(args[4]),
                 colorf,
                 cyclic
-        );
+        ));
     }
 
     public Graphic for1(String[] args) {
@@ -402,22 +1496,25 @@ public class GraphicCreator {
             return new Graphic();
         }
 
-        String txt = concatenate(args, 4);
-        //Check the format before creating the arrays
-        String.format(txt, 0, 0, 0);
-        txt = txt.replace("\"", "");
-
-        StringBuilder foo = new StringBuilder(txt.length() * (f - i) / s * 2);
+        final LoopTemplate body = template(args, 4);
         final int[] inter = getInterval(i, s, f);
+        body.check(1, inter.length);
 
-        for (int ii : inter) {
-           foo.append(String.format(txt, ii)).append("\n");
-        }
+        final GraphicCreator gc = new GraphicCreator(this);
+        final Graphic graphic = new Graphic(inter.length + 10);
+        final int[] vars = new int[1];
 
-        String[] lines = foo.toString().split("\\n|;");
-        lineCount+= lines.length;
+        try {
+            for (int k = 0; k < inter.length && !gc.stop(); k++) {
+                vars[0] = inter[k];
+                body.run(gc, graphic, vars);
+            }
+        } finally {
+            merge(gc);
+        }
 
-        return new GraphicCreator(this).parse(lines);
+        lineCount += body.getLineCount(inter.length);
+        return graphic;
     }
 
     public Graphic for2(String[] args) {
@@ -432,25 +1529,28 @@ public class GraphicCreator {
             return new Graphic();
         }
 
-        String txt = concatenate(args, 7);
-        //Check the format before creating the arrays
-        String.format(txt, 0, 0, 0);
-        txt = txt.replace("\"", "");
-
+        final LoopTemplate body = template(args, 7);
         final int[] int1 = getInterval(i1, s1, f1);
         final int[] int2 = getInterval(i2, s2, f2);
+        final int n = Math.min(int1.length, int2.length);
+        body.check(2, n);
 
-        StringBuilder foo = new StringBuilder(txt.length() * (f1 - i1) / s1 * 2);
+        final GraphicCreator gc = new GraphicCreator(this);
+        final Graphic graphic = new Graphic(n + 10);
+        final int[] vars = new int[2];
 
-        final int n = Math.min(int1.length, int2.length);
-        for (int i = 0; i < n; i++) {
-           foo.append(String.format(txt, int1[i], int2[i])).append("\n");
+        try {
+            for (int i = 0; i < n && !gc.stop(); i++) {
+                vars[0] = int1[i];
+                vars[1] = int2[i];
+                body.run(gc, graphic, vars);
+            }
+        } finally {
+            merge(gc);
         }
 
-        String[] lines = foo.toString().split("\\n|;");
-        lineCount+= lines.length;
-
-        return new GraphicCreator(this).parse(lines);
+        lineCount += body.getLineCount(n);
+        return graphic;
     }
 
     public Graphic for3(String[] args) {
@@ -465,25 +1565,28 @@ public class GraphicCreator {
             return new Graphic();
         }
 
-        String txt = concatenate(args, 7).replace("\"", "");
-        //Check the format before creating the arrays
-        String.format(txt, 0, 0, 0);
-
-        StringBuilder foo = new StringBuilder(txt.length() * (f1 - i1) / s1 * 2);
-
+        final LoopTemplate body = template(args, 7);
         final int[] int1 = getInterval(i1, s1, f1);
         final int[] int2 = getInterval(i2, s2, f2);
+        final int n = int1.length * int2.length;
+        body.check(2, n);
+
+        final GraphicCreator gc = new GraphicCreator(this);
+        final Graphic graphic = new Graphic(n + 10);
+        final int[] vars = new int[2];
 
-        for (int i : int1) {
-            for (int j : int2) {
-                foo.append(String.format(txt, i, j)).append("\n");
+        try {
+            for (int k = 0; k < n && !gc.stop(); k++) {
+                vars[0] = int1[k / int2.length];
+                vars[1] = int2[k % int2.length];
+                body.run(gc, graphic, vars);
             }
+        } finally {
+            merge(gc);
         }
 
-        String[] lines = foo.toString().split("\\n|;");
-        lineCount+= lines.length;
-
-        return new GraphicCreator(this).parse(lines);
+        lineCount += body.getLineCount(n);
+        return graphic;
     }
 
     public Graphic for4(String[] args) {
@@ -501,29 +1604,68 @@ public class GraphicCreator {
             return new Graphic();
         }
 
-        String txt = concatenate(args, 10).replace("\"", "");
-        //Check the format before creating the arrays
-        String.format(txt, 0, 0, 0);
-
-        StringBuilder foo = new StringBuilder(txt.length() * (f1 - i1) / s1 * 2);
-
-
+        final LoopTemplate body = template(args, 10);
         final int[] int1 = getInterval(i1, s1, f1);
         final int[] int2 = getInterval(i2, s2, f2);
         final int[] int3 = getInterval(i3, s3, f3);
+        final int n = int1.length * int2.length * int3.length;
+        body.check(3, n);
 
-        for (int i : int1) {
-            for (int j : int2) {
-                for (int k : int3) {
-                    foo.append(String.format(txt, i, j, k)).append("\n");
-                }
+        final GraphicCreator gc = new GraphicCreator(this);
+        final Graphic graphic = new Graphic(n + 10);
+        final int[] vars = new int[3];
+
+        final int inner = int2.length * int3.length;
+        try {
+            for (int k = 0; k < n && !gc.stop(); k++) {
+                vars[0] = int1[k / inner];
+                vars[1] = int2[k % inner / int3.length];
+                vars[2] = int3[k % int3.length];
+                body.run(gc, graphic, vars);
+            }
+        } finally {
+            merge(gc);
+        }
+
+        lineCount += body.getLineCount(n);
+        return graphic;
+    }
+
+    /**
+     * Retrieves the compiled body of a loop, the bodies are cached (and
+     * shared with the creators of the nested loops) so a loop inside
+     * another loop is only compiled once.
+     *
+     * @param args loop arguments
+     * @param init index of the first word of the body
+     * @return compiled body
+     */
+    private LoopTemplate template(String[] args, int init) {
+        final String txt = body(args, init);
+
+        if (compiled != null) {
+            final LoopTemplate body = compiled.loop(txt);
+            if (body != null) {
+                return body;
             }
         }
 
-        String[] lines = foo.toString().split("\\n|;");
-        lineCount+= lines.length;
+        if (loops == null) {
+            loops = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LoopTemplate> e) {
+                    return size() > MAX_LOOPS;
+                }
+            };
+        }
+
+        LoopTemplate body = loops.get(txt);
+        if (body == null) {
+            body = LoopTemplate.compile(txt);
+            loops.put(txt, body);
+        }
 
-        return new GraphicCreator(this).parse(lines);
+        return body;
     }
 
     public GClip clipadd(String[] args) {
@@ -677,16 +1819,8 @@ public class GraphicCreator {
 
 //* lpath  [x1, y1, x2, y2, ..., xn, yn]
     public GPath lpath(String[] args) {
-        GPath path = new GPath(args.length / 2);
-
-        for (int i = 1; i < args.length; i += 2) {
-            final int x = getInt(args[i]);
-            final int y = getInt(args[i + 1]);
-
-            path.append(x, y);
-        }
-
-        return path;
+        final int[][] points = points(args);
+        return new GPath(points[0], points[1]);
     }
 
 //* rectf  [x1, y1, x2, y2]
@@ -698,6 +1832,10 @@ public class GraphicCreator {
         final int x2 = getInt(args[3]);
         final int y2 = getInt(args[4]);
 
+        return rect(x1, y1, x2, y2);
+    }
+
+    private static GRectangle rect(int x1, int y1, int x2, int y2) {
         final int w = Math.abs(x1 - x2);
         final int h = Math.abs(y1 - y2);
         final int x = Math.min(x1, x2) + w / 2;
@@ -743,17 +1881,8 @@ public class GraphicCreator {
 
 //* polyp  [x1, y1, x2, y2, ..., xn, yn]
     public GPoly polyp(String[] args) {
-        final GPoly poly = new GPoly(args.length / 2);
-        final int n = args.length;
-
-        for (int i = 1; i < n; i += 2) {
-            final int x = getInt(args[i]);
-            final int y = getInt(args[i + 1]);
-
-            poly.append(x, y);
-        }
-
-        return poly;
+        final int[][] points = points(args);
+        return new GPoly(points[0], points[1]);
     }
 
 //* polyn  [x, y, r, n] [x, y, r, n, a]
@@ -870,7 +1999,21 @@ public class GraphicCreator {
         }
     }
 
-    private String concatenate(String[] args, int init) {
+    private static int bodyIndex(String[] args) {
+        switch (args[0]) {
+            case "for1": return 4;
+            case "for2":
+            case "for3": return 7;
+            case "for4": return 10;
+            default    : return -1;
+        }
+    }
+
+    private static String body(String[] args, int init) {
+        return concatenate(args, init).replace("\"", "");
+    }
+
+    private static String concatenate(String[] args, int init) {
         final StringBuilder sb = new StringBuilder(64);
 
         for (int i = init; i < args.length; i++) {
@@ -881,16 +2024,55 @@ public class GraphicCreator {
         return sb.substring(0, sb.length() - 1);
     }
 
+    /**
+     * Reads the coordinates of {@code lpath} and {@code polyp}
+     *
+     * @param args words of the statement
+     * @return X coordinates and Y coordinates
+     * @throws NumberFormatException if a coordinate isn't an integer
+     */
+    private static int[][] points(String[] args) {
+        final int n = (args.length - 1) / 2;
+        final int[] xs = new int[n];
+        final int[] ys = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = getInt(args[2 * i + 1]);
+            ys[i] = getInt(args[2 * i + 2]);
+        }
+
+        return new int[][]{xs, ys};
+    }
+
+    /**
+     * Splits the coordinates of the typed {@code lpath} and {@code polyp}
+     *
+     * @param a coordinates, {@code x1, y1, x2, y2, ..., xn, yn}
+     * @return X coordinates and Y coordinates
+     */
+    private static int[][] pairs(int[] a) {
+        final int n = a.length / 2;
+        final int[] xs = new int[n];
+        final int[] ys = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = a[2 * i];
+            ys[i] = a[2 * i + 1];
+        }
+
+        return new int[][]{xs, ys};
+    }
+
     private static double getDouble(String ar) {
-        return Double.parseDouble(ar);
+        return ScriptNumbers.parseDouble(ar, 0, ar.length());
     }
 
     private static int getInt(String ar) {
-        return Integer.parseInt(ar);
+        return ScriptNumbers.parseInt(ar, 0, ar.length());
     }
 
     private static int getInt(String ar, int min, int max) {
-        int val = Integer.parseInt(ar);
+        int val = getInt(ar);
         val = Math.min(val, max);
         val = Math.max(val, min);
         return val;
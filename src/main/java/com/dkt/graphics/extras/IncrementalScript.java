@@ -0,0 +1,415 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.elements.GraphicE;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link GraphicCreator} script that's edited live (for instance on an
+ * editor that draws the script on every keystroke).<br>
+ * Each call to {@link IncrementalScript#update(String)} parses the new
+ * version of the script, but the elements created by the statements that
+ * didn't change (and whose global configuration didn't change either) are
+ * taken from the previous version instead of being created again. The
+ * {@link Graphic} is always the same object, it's patched in place, so only
+ * the components that changed are replaced.<br>
+ * The result of an update is the same as parsing the script with a new
+ * creator (with the same registered commands), including the error count,
+ * the diagnostics and the line count of the creator. Only the lines that
+ * changed are read again, and the statements are still replayed in order
+ * (so a change on the global configuration reaches the statements that
+ * follow it), but that's much cheaper than creating the elements.<br>
+ * Statements that change the clip or the transformation, and the custom
+ * commands, are always executed again (their results might depend on
+ * things that aren't visible on the statement).<br>
+ * <i>Note:</i> The elements of the graphic are reused, so they shouldn't be
+ * modified. This class isn't thread safe, but the graphic can be drawn from
+ * another thread while it's being updated.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GraphicCreator#parse(String)
+ */
+public final class IncrementalScript {
+    private static final Statement[] EMPTY = new Statement[0];
+    private final GraphicCreator creator;
+    private final Graphic graphic = new Graphic();
+    private String text = "";
+    private Statement[] statements = EMPTY;
+    private GraphicE[] elements = new GraphicE[0];
+    private int reused;
+
+    /**
+     * A statement of the current version of the script, and what it did
+     * the last time it was executed
+     */
+    private static final class Statement {
+        private final String[] words;
+        private final int column;
+        private final boolean clean;
+        private int line;
+        private int endLine;
+        private int end;
+        private GraphicCreator.State state;
+        private Entry entry;
+
+        Statement(String[] words, int line, int column, int end, int endLine,
+                  boolean clean) {
+            this.words = words;
+            this.line = line;
+            this.column = column;
+            this.end = end;
+            this.endLine = endLine;
+            this.clean = clean;
+        }
+    }
+
+    /**
+     * Words and global configuration of a statement
+     */
+    private record Key(List<String> words, GraphicCreator.State state) {}
+
+    /**
+     * What a statement did the last time it was executed
+     */
+    private record Entry(Object out, int lines, GraphicCreator.Diagnostic error) {}
+
+    /**
+     * Creates a new incremental script that uses a new
+     * {@link GraphicCreator}
+     */
+    public IncrementalScript() {
+        this(new GraphicCreator());
+    }
+
+    /**
+     * Creates a new incremental script that uses a given
+     * {@link GraphicCreator} (and it's registered commands). The global
+     * configuration of the creator is cleared on each update.
+     *
+     * @param creator creator used to parse the script
+     * @throws IllegalArgumentException if {@code creator} is {@code null}
+     */
+    public IncrementalScript(GraphicCreator creator) {
+        if (creator == null) {
+            throw new IllegalArgumentException("The creator can't be null");
+        }
+
+        this.creator = creator;
+    }
+
+    /**
+     * Parses a new version of the script, and patches the graphic
+     *
+     * @param script String representation of the graphic
+     * @return the graphic (always the same object)
+     * @throws IllegalArgumentException if {@code script} is {@code null}
+     * @see IncrementalScript#getGraphic()
+     */
+    public Graphic update(String script) {
+        if (script == null) {
+            throw new IllegalArgumentException("The script can't be null");
+        }
+
+        final Statement[] old = statements;
+        final ArrayList<Statement> now = new ArrayList<>(old.length + 16);
+        final List<Statement> removed = relex(script, old, now);
+        statements = now.toArray(EMPTY);
+        text = script;
+
+        //The results of the statements that were removed (or that moved) can
+        //still be reused by the new statements
+        Map<Key, ArrayDeque<Entry>> moved = null;
+        for (final Statement st : removed) {
+            if (st.entry != null) {
+                if (moved == null) {
+                    moved = new HashMap<>();
+                }
+                moved.computeIfAbsent(new Key(Arrays.asList(st.words), st.state),
+                                      k -> new ArrayDeque<>(1)).add(st.entry);
+            }
+        }
+
+        patch(execute(moved));
+        return graphic;
+    }
+
+    /**
+     * Reads the part of the new version of the script that changed, the
+     * statements before and after it are taken from the previous version
+     *
+     * @param script new version of the script
+     * @param old statements of the previous version
+     * @param now destination of the statements of the new version
+     * @return statements of the previous version that weren't kept
+     */
+    private List<Statement> relex(String script, Statement[] old, ArrayList<Statement> now) {
+        final String prev = text;
+        final int max = Math.min(prev.length(), script.length());
+
+        int prefix = 0;
+        while (prefix < max && prev.charAt(prefix) == script.charAt(prefix)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < max - prefix &&
+               prev.charAt(prev.length() - suffix - 1) ==
+               script.charAt(script.length() - suffix - 1)) {
+            suffix++;
+        }
+
+        //The lexer can only be restarted after a statement that ends a line
+        int keep = 0;
+        for (int i = 0; i < old.length && old[i].end <= prefix; i++) {
+            if (old[i].clean) {
+                keep = i + 1;
+            }
+        }
+
+        for (int i = 0; i < keep; i++) {
+            now.add(old[i]);
+        }
+
+        final int from = keep == 0 ? 0 : old[keep - 1].end;
+        final int line = keep == 0 ? 1 : old[keep - 1].endLine + 1;
+        final int delta = script.length() - prev.length();
+        final StringReader reader = new StringReader(script);
+
+        try {
+            reader.skip(from);
+            final ScriptLexer lexer = new ScriptLexer(reader, from, line);
+            String[] args;
+            while ((args = lexer.next()) != null) {
+                final Statement st = new Statement(
+                        args, lexer.line(), lexer.column(), lexer.offset(),
+                        lexer.endLine(), lexer.atLineStart()
+                );
+                now.add(st);
+
+                if (!st.clean || st.end < script.length() - suffix) {
+                    continue;
+                }
+
+                //Once both versions end a line on the same place of the
+                //common suffix, the rest of the statements are the same
+                final int j = find(old, keep, st.end - delta);
+                if (j != -1) {
+                    final int lines = st.endLine - old[j].endLine;
+                    for (int k = j + 1; k < old.length; k++) {
+                        final Statement o = old[k];
+                        o.line    += lines;
+                        o.endLine += lines;
+                        o.end     += delta;
+                        now.add(o);
+                    }
+                    return Arrays.asList(old).subList(keep, j + 1);
+                }
+            }
+        } catch (IOException ex) {
+            //StringReader doesn't throw them
+            throw new UncheckedIOException(ex);
+        }
+
+        return Arrays.asList(old).subList(keep, old.length);
+    }
+
+    /**
+     * Finds the statement that ends a line on a given offset
+     *
+     * @param old statements
+     * @param from index of the first statement to check
+     * @param end offset of the end of the statement
+     * @return index of the statement or {@code -1} if there's none
+     */
+    private static int find(Statement[] old, int from, int end) {
+        int lo = from;
+        int hi = old.length - 1;
+
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int e = old[mid].end;
+            if (e < end) {
+                lo = mid + 1;
+            } else if (e > end) {
+                hi = mid - 1;
+            } else {
+                return old[mid].clean ? mid : -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Executes the statements, reusing the results of the previous version
+     * whenever the statement and its global configuration didn't change
+     *
+     * @param moved results of the statements that were removed, or
+     * {@code null}
+     * @return elements of the graphic
+     */
+    private GraphicE[] execute(Map<Key, ArrayDeque<Entry>> moved) {
+        final ArrayList<GraphicE> out = new ArrayList<>(elements.length + 16);
+        final GraphicCreator gc = creator;
+        reused = 0;
+        gc.start();
+
+        for (int i = 0; i < statements.length && !gc.stop(); i++) {
+            final Statement st = statements[i];
+            final String[] args = st.words;
+
+            if (!gc.reusable(args)) {
+                st.state = null;
+                st.entry = null;
+                add(out, gc.run(args, st.line, st.column));
+                continue;
+            }
+
+            Entry entry = null;
+            if (st.entry != null && gc.hasState(st.state)) {
+                entry = st.entry;
+            } else if (moved != null) {
+                final Key key = new Key(Arrays.asList(args), gc.state());
+                final ArrayDeque<Entry> found = moved.get(key);
+                if (found != null && !found.isEmpty()) {
+                    entry = found.poll();
+                    st.state = key.state();
+                }
+            }
+
+            if (entry != null) {
+                gc.replay(entry.out(), entry.lines(), entry.error(), st.line, st.column);
+                reused++;
+            } else {
+                final GraphicCreator.State state = gc.state();
+                final int errors = gc.getErrorCount();
+                final int lines  = gc.getTotalLineCount();
+                final Object o = gc.run(args, st.line, st.column);
+                if (gc.getErrorCount() - errors > 1) {
+                    //Only one error can be replayed, so loops whose body
+                    //failed several times are executed again
+                    st.state = null;
+                    st.entry = null;
+                    add(out, o);
+                    continue;
+                }
+
+                entry = new Entry(
+                        o instanceof GraphicE ? o : null,
+                        gc.getTotalLineCount() - lines,
+                        gc.getErrorCount() == errors ? null : gc.lastError()
+                );
+                st.state = state;
+            }
+
+            st.entry = entry;
+            add(out, entry.out());
+        }
+
+        return out.toArray(new GraphicE[0]);
+    }
+
+    private static void add(ArrayList<GraphicE> out, Object o) {
+        if (o instanceof GraphicE ge) {
+            out.add(ge);
+        }
+    }
+
+    /**
+     * Replaces the components of the graphic that changed, the elements that
+     * were reused are compared by identity
+     *
+     * @param now new components
+     */
+    private void patch(GraphicE[] now) {
+        final GraphicE[] old = elements;
+        final int max = Math.min(old.length, now.length);
+
+        int prefix = 0;
+        while (prefix < max && old[prefix] == now[prefix]) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < max - prefix &&
+               old[old.length - suffix - 1] == now[now.length - suffix - 1]) {
+            suffix++;
+        }
+
+        if (prefix + suffix != old.length || prefix + suffix != now.length) {
+            graphic.replace(
+                    prefix, old.length - suffix,
+                    Arrays.copyOfRange(now, prefix, now.length - suffix)
+            );
+        }
+
+        elements = now;
+    }
+
+    /**
+     * Retrieves the graphic of the script, this is always the same object,
+     * and it's updated in place by {@link IncrementalScript#update(String)}
+     *
+     * @return graphic
+     */
+    public Graphic getGraphic() {
+        return graphic;
+    }
+
+    /**
+     * Retrieves the creator used to parse the script, its error count,
+     * diagnostics and line count are the ones of the last update
+     *
+     * @return creator
+     */
+    public GraphicCreator getCreator() {
+        return creator;
+    }
+
+    /**
+     * Retrieves the number of statements whose result was reused on the last
+     * update
+     *
+     * @return number of reused statements
+     */
+    public int getReusedCount() {
+        return reused;
+    }
+
+    /**
+     * Forgets the previous versions of the script and clears the graphic, so
+     * the next update will parse everything again
+     */
+    public void reset() {
+        text = "";
+        statements = EMPTY;
+        elements = new GraphicE[0];
+        graphic.removeAll();
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import java.util.ArrayList;
+import java.util.MissingFormatArgumentException;
+
+/**
+ * Compiled body of the {@link GraphicCreator} loops.<br>
+ * The body of a loop is a {@link String#format(String, Object...)} template
+ * that receives the loop variables. Instead of formatting and splitting the
+ * text on each iteration, the body is split once in statements and words,
+ * and the format specifiers are replaced by slots that point to the loop
+ * variables, so each iteration only has to fill those slots.<br>
+ * Statements of the built in geometry commands whose arguments are all
+ * integers (either literals or a whole {@code %d}) are compiled further,
+ * into an {@code int[]} of arguments plus the constructor of the element
+ * (see {@link GraphicCreator#typed(String, int)}), so they are created
+ * straight from the values of the loop variables. The other statements
+ * (and the custom commands) are filled as words and go through the command
+ * table.<br>
+ * The supported specifiers are {@code %d}, {@code %n$d}, {@code %<d} and
+ * {@code %%}, if the body uses anything else it's formatted on each
+ * iteration as before.<br>
+ * Templates are immutable, so the same template can be used by nested
+ * loops (and by different {@link GraphicCreator}s).
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class LoopTemplate {
+    /** The loops always checked the body with three arguments */
+    private static final int MAX_VARS = 3;
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final Word[][] statements;
+    private final Typed[] typed;
+    private final String format;
+    private final int pieces;
+    private final int trailing;
+    private final int vars;
+
+    private LoopTemplate(Word[][] statements, Typed[] typed, String format,
+                         int pieces, int trailing, int vars) {
+        this.statements = statements;
+        this.typed = typed;
+        this.format = format;
+        this.pieces = pieces;
+        this.trailing = trailing;
+        this.vars = vars;
+    }
+
+    /**
+     * Compiles the body of a loop, the double quotes must be already removed
+     *
+     * @param body body of the loop
+     * @return compiled template
+     * @throws java.util.IllegalFormatException if the body isn't a valid
+     * format for three integers
+     */
+    static LoopTemplate compile(String body) {
+        final String[] parts = body.split("\\n|;", -1);
+        int trailing = 0;
+        while (trailing < parts.length && parts[parts.length - 1 - trailing].isEmpty()) {
+            trailing++;
+        }
+
+        final Word[][] statements = new Word[parts.length][];
+        final Typed[] typed = new Typed[parts.length];
+        final int[] state = {0, 0, 0};//ordinary index, last index, max index
+        for (int i = 0; i < parts.length; i++) {
+            final String[] words = ScriptLexer.split(parts[i]);
+            statements[i] = new Word[words.length];
+            for (int j = 0; j < words.length; j++) {
+                final Word word = Word.compile(words[j], state);
+                if (word == null) {
+                    //Let the formatter validate it
+                    String.format(body, 0, 0, 0);
+                    return new LoopTemplate(null, null, body, parts.length, trailing, MAX_VARS);
+                }
+                statements[i][j] = word;
+            }
+            typed[i] = Typed.compile(statements[i]);
+        }
+
+        if (state[2] > MAX_VARS) {
+            throw new MissingFormatArgumentException("%" + state[2] + "$d");
+        }
+
+        return new LoopTemplate(statements, typed, null, parts.length, trailing, state[2]);
+    }
+
+    /**
+     * Checks that the template can be used with the given number of
+     * variables
+     *
+     * @param n number of loop variables
+     * @param iterations number of iterations
+     * @throws MissingFormatArgumentException if the body uses more variables
+     * than the loop has and there's at least one iteration
+     */
+    void check(int n, int iterations) {
+        if (format == null && vars > n && iterations > 0) {
+            throw new MissingFormatArgumentException("%" + vars + "$d");
+        }
+    }
+
+    /**
+     * Number of lines generated by a loop, this is the same number of lines
+     * that splitting the unrolled text would produce.
+     *
+     * @param iterations number of iterations
+     * @return number of lines
+     */
+    int getLineCount(int iterations) {
+        if (iterations == 0) {
+            return 1;
+        }
+
+        if (trailing == pieces) {
+            return 0;
+        }
+
+        return iterations * pieces - trailing;
+    }
+
+    /**
+     * Executes the body once
+     *
+     * @param gc creator that will execute the statements
+     * @param graphic graphic in which the elements will be added
+     * @param values current values of the loop variables
+     */
+    void run(GraphicCreator gc, Graphic graphic, int[] values) {
+        if (format != null) {
+            final Object[] args = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                args[i] = values[i];
+            }
+            for (String line : String.format(format, args).split("\\n|;")) {
+                if (gc.stop()) {
+                    return;
+                }
+                gc.execute(graphic, ScriptLexer.split(line));
+            }
+            return;
+        }
+
+        for (int s = 0; s < statements.length; s++) {
+            if (gc.stop()) {
+                return;
+            }
+
+            final Typed t = typed[s];
+            if (t != null) {
+                gc.execute(graphic, t.head, t.command, t.fill(values));
+                continue;
+            }
+
+            final Word[] statement = statements[s];
+            if (statement.length == 0) {
+                continue;
+            }
+
+            final String[] args = new String[statement.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = statement[i].fill(values);
+            }
+            gc.execute(graphic, args);
+        }
+    }
+
+    /**
+     * A statement of a built in geometry command whose arguments are all
+     * integers, the arguments are stored as constants and slots that point
+     * to the loop variables ({@code -1} for the constants)
+     */
+    private static final class Typed {
+        private final String[] head;
+        private final GraphicCreator.IntCommand command;
+        private final int[] constants;
+        private final int[] slots;
+
+        private Typed(String[] head, GraphicCreator.IntCommand command,
+                      int[] constants, int[] slots) {
+            this.head = head;
+            this.command = command;
+            this.constants = constants;
+            this.slots = slots;
+        }
+
+        /**
+         * Compiles a statement, if it has a typed form
+         *
+         * @param words words of the statement
+         * @return typed statement or {@code null} if the statement must be
+         * executed as words
+         */
+        private static Typed compile(Word[] words) {
+            if (words.length == 0 || words[0].slots.length != 0) {
+                return null;
+            }
+
+            final String name = words[0].parts[0];
+            final int n = words.length - 1;
+            final GraphicCreator.IntCommand command = GraphicCreator.typed(name, n);
+            if (command == null) {
+                return null;
+            }
+
+            final int[] constants = new int[n];
+            final int[] slots = new int[n];
+            for (int i = 0; i < n; i++) {
+                final Word w = words[i + 1];
+                if (w.slots.length == 0 && GraphicCreator.isInt(w.parts[0])) {
+                    constants[i] = ScriptNumbers.parseInt(w.parts[0], 0, w.parts[0].length());
+                    slots[i] = -1;
+                } else if (w.isSlot()) {
+                    slots[i] = w.slots[0];
+                } else {
+                    //Anything else might not be an integer
+                    return null;
+                }
+            }
+
+            return new Typed(new String[]{name}, command, constants, slots);
+        }
+
+        /**
+         * Creates the arguments of an iteration
+         *
+         * @param values current values of the loop variables
+         * @return arguments
+         */
+        private int[] fill(int[] values) {
+            final int[] args = constants.clone();
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] >= 0) {
+                    args[i] = values[slots[i]];
+                }
+            }
+            return args;
+        }
+    }
+
+    /**
+     * A word of a statement, it's stored as literal parts with slots between
+     * them, {@code parts.length == slots.length + 1}
+     */
+    private static final class Word {
+        private final String[] parts;
+        private final int[] slots;
+
+        private Word(String[] parts, int[] slots) {
+            this.parts = parts;
+            this.slots = slots;
+        }
+
+        private static Word compile(String word, int[] state) {
+            if (word.indexOf('%') == -1) {
+                return new Word(new String[]{word}, NO_SLOTS);
+            }
+
+            final ArrayList<String> parts = new ArrayList<>(2);
+            final ArrayList<Integer> slots = new ArrayList<>(1);
+            final StringBuilder sb = new StringBuilder(word.length());
+            final int n = word.length();
+
+            for (int i = 0; i < n; i++) {
+                final char c = word.charAt(i);
+                if (c != '%') {
+                    sb.append(c);
+                    continue;
+                }
+
+                if (++i == n) {
+                    return null;
+                }
+
+                int idx;
+                if (word.charAt(i) == '%') {
+                    sb.append('%');
+                    continue;
+                } else if (word.charAt(i) == '<') {
+                    idx = state[1];
+                    i++;
+                } else if (word.charAt(i) >= '1' && word.charAt(i) <= '9') {
+                    final int start = i;
+                    while (i < n && Character.isDigit(word.charAt(i))) {
+                        i++;
+                    }
+                    if (i == n || word.charAt(i) != '$' || i - start > 2) {
+                        return null;
+                    }
+                    idx = Integer.parseInt(word.substring(start, i));
+                    i++;
+                } else {
+                    idx = ++state[0];
+                }
+
+                if (idx == 0 || i == n || word.charAt(i) != 'd') {
+                    return null;
+                }
+
+                state[1] = idx;
+                state[2] = Math.max(state[2], idx);
+                parts.add(sb.toString());
+                slots.add(idx - 1);
+                sb.setLength(0);
+            }
+
+            parts.add(sb.toString());
+
+            final int[] s = new int[slots.size()];
+            for (int i = 0; i < s.length; i++) {
+                s[i] = slots.get(i);
+            }
+
+            return new Word(parts.toArray(new String[parts.size()]), s);
+        }
+
+        /**
+         * Tells if the word is a single {@code %d}, with nothing around it
+         *
+         * @return {@code true} if the word is just a slot
+         */
+        private boolean isSlot() {
+            return slots.length == 1 && parts[0].isEmpty() && parts[1].isEmpty();
+        }
+
+        private String fill(int[] values) {
+            if (slots.length == 0) {
+                return parts[0];
+            }
+
+            if (isSlot()) {
+                return Integer.toString(values[slots[0]]);
+            }
+
+            final StringBuilder sb = new StringBuilder(16);
+            for (int i = 0; i < slots.length; i++) {
+                sb.append(parts[i]).append(values[slots[i]]);
+            }
+
+            return sb.append(parts[slots.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.formula.Calculable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of evaluated samples of {@link Calculable} that can be shared
+ * between {@link GFormula}, so panning or zooming a plot only evaluates the
+ * part of the domain that wasn't evaluated before.<br>
+ * The samples are the values {@code f(k * step)} for every integer
+ * {@code k}, and they are stored in segments of 512 consecutive samples
+ * (4KB) of a given formula and step. The cache stores the values of the
+ * function (not pixels), so they are reused when the scale changes. Only the
+ * requested samples are evaluated, and when the cache is full the segment
+ * that was used least recently is evicted.<br>
+ * Formulas are compared by identity, if a formula changes (because it has
+ * parameters, for instance) then it must be invalidated.<br>
+ * This class is thread safe, but formulas are evaluated while holding its
+ * lock.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GFormula#setSampleCache(SampleCache)
+ */
+public final class SampleCache {
+    /** Number of samples per segment */
+    static final int SEGMENT = 512;
+    private final Map<Key, Segment> segments;
+    private long hits;
+    private long misses;
+
+    /**
+     * Segments are identified by their formula (by identity), the step
+     * and the index of the segment ({@code floor(k / SEGMENT)})
+     */
+    private static final class Key {
+        private final Calculable formula;
+        private final long step;
+        private final long index;
+
+        Key(Calculable formula, double step, long index) {
+            this.formula = formula;
+            this.step = Double.doubleToLongBits(step);
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(formula);
+            hash = 31 * hash + Long.hashCode(step);
+            hash = 31 * hash + Long.hashCode(index);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key o && formula == o.formula &&
+                   step == o.step && index == o.index;
+        }
+    }
+
+    /**
+     * Values of a segment, and which of them were already evaluated
+     */
+    private static final class Segment {
+        private final double[] values = new double[SEGMENT];
+        private final long[] known = new long[SEGMENT / 64];
+
+        boolean has(int i) {
+            return (known[i >>> 6] & 1L << i) != 0;
+        }
+
+        void set(int i, double value) {
+            values[i] = value;
+            known[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param segments maximum number of segments (of 512 samples) that will
+     * be kept
+     * @throws InvalidArgumentException if {@code segments} isn't positive
+     */
+    public SampleCache(final int segments) {
+        if (segments <= 0){
+            throw new InvalidArgumentException("The number of segments must be positive");
+        }
+
+        this.segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Segment> e) {
+                return size() > segments;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the values of {@code f(k * step)} for
+     * {@code k = from... from + len - 1}, the ones that aren't on the cache
+     * are evaluated (using {@link Calculable#f(double[], double[], int, int)})
+     *
+     * @param formula function
+     * @param step distance between samples
+     * @param from index of the first sample
+     * @param xs the arguments of the samples ({@code xs[i] == (from + i) * step})
+     * @param out destination of the values
+     * @param len number of samples
+     * @throws DomainException if one of the values is not part of the domain
+     * of the function (the samples that were evaluated before that one
+     * might not be cached)
+     */
+    synchronized void get(Calculable formula, double step, long from,
+                          double[] xs, double[] out, int len) throws DomainException
+    {
+        int j = 0;
+        while (j < len){
+            final long k = from + j;
+            final long index = Math.floorDiv(k, SEGMENT);
+            final int off = Math.floorMod(k, SEGMENT);
+            final int n = Math.min(len - j, SEGMENT - off);
+
+            final Key key = new Key(formula, step, index);
+            Segment s = segments.get(key);
+            if (s == null){
+                s = new Segment();
+                segments.put(key, s);
+            }
+
+            for (int i = 0; i < n;){
+                if (s.has(off + i)){
+                    out[j + i] = s.values[off + i];
+                    hits++;
+                    i++;
+                    continue;
+                }
+
+                //Evaluate the whole run of missing samples at once
+                int e = i + 1;
+                while (e < n && !s.has(off + e)){
+                    e++;
+                }
+
+                formula.f(xs, out, j + i, e - i);
+                for (int m = i; m < e; m++){
+                    s.set(off + m, out[j + m]);
+                }
+                misses += e - i;
+                i = e;
+            }
+
+            j += n;
+        }
+    }
+
+    /**
+     * Removes every sample of a given formula, this must be called if the
+     * formula changes
+     *
+     * @param formula formula to invalidate
+     */
+    public synchronized void invalidate(final Calculable formula) {
+        segments.keySet().removeIf(k -> k.formula == formula);
+    }
+
+    /**
+     * Removes every sample
+     */
+    public synchronized void clear() {
+        segments.clear();
+    }
+
+    /**
+     * Retrieves the number of segments in the cache
+     *
+     * @return number of segments
+     */
+    public synchronized int size() {
+        return segments.size();
+    }
+
+    /**
+     * Retrieves the number of samples that were taken from the cache
+     *
+     * @return number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of samples that had to be evaluated
+     *
+     * @return number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Single pass lexer for the {@link GraphicCreator} scripts.<br>
+ * The script is read in chunks, so it doesn't need to be loaded in memory,
+ * and each call to {@link ScriptLexer#next()} returns the words of the next
+ * statement. The rules are:
+ * <ul>
+ * <li>Statements are separated by new lines, {@code ;} or {@code |}</li>
+ * <li>Words are separated by white spaces</li>
+ * <li>{@code #} starts a comment that ends with the line (even between
+ * double quotes, so loops can have comments), a comment that starts a line
+ * is returned as a statement with a single {@code #} word (so it's counted
+ * as a line)</li>
+ * <li>Separators between double quotes are ignored, the quotes are kept in
+ * the words (white spaces between quotes still separate words)</li>
+ * <li>Empty statements are skipped</li>
+ * </ul>
+ * Optionally (see {@link ScriptLexer#setPackPoints(boolean)}) the
+ * coordinates of {@code lpath} and {@code polyp} statements are parsed
+ * while they are read, instead of creating a word for each one.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class ScriptLexer {
+    private static final String[] EMPTY = new String[0];
+    private static final String[] COMMENT = {"#"};
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder word = new StringBuilder(32);
+    private final ArrayList<String> words = new ArrayList<>();
+    private boolean pack;
+    private boolean packing;
+    private int[] packed = new int[0];
+    private int count;
+    private int[][] points;
+    private int base;
+    private int pos;
+    private int len;
+    private boolean lineStart = true;
+    private boolean newLine;
+    private int line = 1;
+    private int col;
+    private int startLine;
+    private int startCol;
+
+    /**
+     * Creates a new lexer, the reader is not closed by this class
+     *
+     * @param reader source of the script
+     */
+    ScriptLexer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Creates a new lexer that starts in the middle of a script, the
+     * reader must already be positioned on the first character of a line
+     * that's not between double quotes (for instance, the end of a statement
+     * for which {@link ScriptLexer#atLineStart()} was {@code true}).
+     *
+     * @param reader source of the script
+     * @param offset number of characters before the first one of the reader
+     * @param line line (starting at 1) of the first character of the reader
+     */
+    ScriptLexer(Reader reader, int offset, int line) {
+        this.reader = reader;
+        this.base = offset;
+        this.line = line;
+    }
+
+    /**
+     * Reads the next statement
+     *
+     * @return the words of the statement, or {@code null} if the end of the
+     * script was reached
+     * @throws IOException if there's a problem reading the script
+     */
+    String[] next() throws IOException {
+        words.clear();
+        word.setLength(0);
+        packing = false;
+        points = null;
+
+        boolean quoted = false;
+        int c;
+
+        while ((c = read()) != -1) {
+            if (quoted) {
+                if (c == '#') {
+                    skipComment();
+                    flush();
+                } else if (isSpace(c)) {
+                    flush();
+                } else {
+                    quoted = c != '"';
+                    word.append((char)c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '#':
+                    mark();
+                    skipComment();
+
+                    if (lineStart && words.isEmpty() && word.length() == 0) {
+                        return COMMENT.clone();
+                    }
+
+                    //The comment ends the statement
+                    lineStart = true;
+                    flush();
+                    if (!words.isEmpty()) {
+                        return statement();
+                    }
+                    break;
+                case '\n':
+                case ';':
+                case '|':
+                    lineStart = c == '\n';
+                    flush();
+                    if (!words.isEmpty()) {
+                        return statement();
+                    }
+                    break;
+                case '"':
+                    mark();
+                    quoted = true;
+                    lineStart = false;
+                    word.append('"');
+                    break;
+                default:
+                    if (isSpace(c)) {
+                        flush();
+                    } else {
+                        mark();
+                        lineStart = false;
+                        word.append((char)c);
+                    }
+            }
+        }
+
+        lineStart = true;
+        flush();
+        return words.isEmpty() ? null : statement();
+    }
+
+    private String[] statement() {
+        if (packing) {
+            if ((count & 1) == 0) {
+                final int n = count / 2;
+                final int[] xs = new int[n];
+                final int[] ys = new int[n];
+                for (int i = 0; i < n; i++) {
+                    xs[i] = packed[2 * i    ];
+                    ys[i] = packed[2 * i + 1];
+                }
+                points = new int[][]{xs, ys};
+            } else {
+                //Let the creator report the missing coordinate
+                unpack();
+            }
+        }
+
+        return words.toArray(EMPTY);
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != -1);
+    }
+
+    private int read() throws IOException {
+        if (pos == len) {
+            base += len;
+            len = reader.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return -1;
+            }
+        }
+
+        final char c = buffer[pos++];
+        if (newLine) {
+            line++;
+            col = 0;
+        }
+        col++;
+        newLine = c == '\n';
+        return c;
+    }
+
+    private void mark() {
+        if (words.isEmpty() && word.length() == 0) {
+            startLine = line;
+            startCol  = col;
+        }
+    }
+
+    /**
+     * Line (starting at 1) of the first character of the last statement
+     * returned by {@link ScriptLexer#next()}
+     *
+     * @return line number
+     */
+    int line() {
+        return startLine;
+    }
+
+    /**
+     * Column (starting at 1) of the first character of the last statement
+     * returned by {@link ScriptLexer#next()}
+     *
+     * @return column number
+     */
+    int column() {
+        return startCol;
+    }
+
+    /**
+     * Number of characters read so far (including the ones before the
+     * offset given on the constructor), after {@link ScriptLexer#next()} this
+     * is the offset of the character that follows the statement
+     *
+     * @return offset
+     */
+    int offset() {
+        return base + pos;
+    }
+
+    /**
+     * Line (starting at 1) of the last character read
+     *
+     * @return line number
+     */
+    int endLine() {
+        return line;
+    }
+
+    /**
+     * Tells if the last statement returned by {@link ScriptLexer#next()}
+     * ended with its line, so the lexer can be restarted on
+     * {@link ScriptLexer#offset()}
+     *
+     * @return {@code true} if the next character starts a line
+     */
+    boolean atLineStart() {
+        return newLine;
+    }
+
+    private void flush() {
+        final int n = word.length();
+        if (n == 0) {
+            return;
+        }
+
+        if (packing) {
+            final long val = ScriptNumbers.toInt(word, 0, n);
+            if (val != ScriptNumbers.NOT_INT) {
+                if (count == packed.length) {
+                    packed = Arrays.copyOf(packed, Math.max(64, count * 2));
+                }
+                packed[count++] = (int)val;
+                word.setLength(0);
+                return;
+            }
+            unpack();
+        }
+
+        words.add(word.toString());
+        word.setLength(0);
+
+        if (pack && words.size() == 1) {
+            final String cmd = words.get(0);
+            packing = cmd.equals("lpath") || cmd.equals("polyp");
+            count = 0;
+        }
+    }
+
+    /**
+     * Stops packing the current statement, the coordinates that were
+     * already parsed are added as words
+     */
+    private void unpack() {
+        for (int i = 0; i < count; i++) {
+            words.add(Integer.toString(packed[i]));
+        }
+        packing = false;
+    }
+
+    /**
+     * Tells the lexer to parse the coordinates of {@code lpath} and
+     * {@code polyp} statements as they are read. When the coordinates of one
+     * of those statements are all integers (and there's an even number of
+     * them), {@link ScriptLexer#next()} returns just the name of the command
+     * and the coordinates are available on {@link ScriptLexer#points()}.
+     * The default value is {@code false}.
+     *
+     * @param pack {@code true} to parse the coordinates and {@code false}
+     * otherwise
+     */
+    void setPackPoints(boolean pack) {
+        this.pack = pack;
+    }
+
+    /**
+     * Retrieves the coordinates of the last statement returned by
+     * {@link ScriptLexer#next()}, if they were packed
+     *
+     * @return X coordinates and Y coordinates, or {@code null} if the
+     * statement wasn't packed
+     * @see ScriptLexer#setPackPoints(boolean)
+     */
+    int[][] points() {
+        return points;
+    }
+
+    /**
+     * Splits a single statement in words, without looking for separators or
+     * comments
+     *
+     * @param line statement
+     * @return words of the statement, the array will be empty if there are
+     * no words
+     */
+    static String[] split(String line) {
+        final ArrayList<String> out = new ArrayList<>();
+        final int n = line.length();
+        int start = -1;
+
+        for (int i = 0; i < n; i++) {
+            if (isSpace(line.charAt(i))) {
+                if (start != -1) {
+                    out.add(line.substring(start, i));
+                    start = -1;
+                }
+            } else if (start == -1) {
+                start = i;
+            }
+        }
+
+        if (start != -1) {
+            out.add(line.substring(start));
+        }
+
+        return out.toArray(EMPTY);
+    }
+
+    /**
+     * Same as {@code \s} on regular expressions
+     *
+     * @param c character
+     * @return {@code true} if {@code c} is a white space
+     */
+    static boolean isSpace(int c) {
+        return c == ' '  || c == '\t' || c == '\n' ||
+               c == '\r' || c == '\f' || c == '\u000B';
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+/**
+ * Number parsing for the {@link GraphicCreator} scripts.<br>
+ * These methods work on a range of any {@link CharSequence} (like the word
+ * that the {@link ScriptLexer} is building) so numbers can be read without
+ * creating a {@link String} for each one. They accept exactly the same
+ * values as {@link Integer#parseInt(String)} and
+ * {@link Double#parseDouble(String)}, and return the same results: the
+ * common cases are handled here, and the rest (hexadecimal numbers, numbers
+ * with too many digits, etc.) are delegated to the JDK.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class ScriptNumbers {
+    /**
+     * Returned by {@link ScriptNumbers#toInt(CharSequence, int, int)} when
+     * the characters aren't an {@code int}
+     */
+    static final long NOT_INT = Long.MIN_VALUE;
+    private static final long MAX_EXACT = 1L << 53;
+    private static final double[] POW10 = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Don't let anyone initialize this class
+     */
+    private ScriptNumbers(){}
+
+    /**
+     * Parses an {@code int}
+     *
+     * @param s characters
+     * @param from index of the first character
+     * @param to index after the last character
+     * @return the value, or {@link ScriptNumbers#NOT_INT} if the range isn't
+     * an {@code int}
+     */
+    static long toInt(CharSequence s, int from, int to) {
+        if (from == to) {
+            return NOT_INT;
+        }
+
+        int i = from;
+        boolean neg = false;
+        final char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            if (to - from == 1) {
+                return NOT_INT;
+            }
+            neg = first == '-';
+            i++;
+        }
+
+        long val = 0;
+        for (; i < to; i++) {
+            final char c = s.charAt(i);
+            final int d = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+            if (d < 0) {
+                return NOT_INT;
+            }
+            val = val * 10 + d;
+            if (val > -(long)Integer.MIN_VALUE) {
+                return NOT_INT;
+            }
+        }
+
+        if (neg) {
+            return -val;
+        }
+
+        return val <= Integer.MAX_VALUE ? val : NOT_INT;
+    }
+
+    /**
+     * Same as {@link Integer#parseInt(String)} not throwing an exception
+     *
+     * @param s characters
+     * @param from index of the first character
+     * @param to index after the last character
+     * @return {@code true} if the range can be parsed as an {@code int}
+     */
+    static boolean isInt(CharSequence s, int from, int to) {
+        return toInt(s, from, to) != NOT_INT;
+    }
+
+    /**
+     * Same as {@link Integer#parseInt(String)} on a range of characters
+     *
+     * @param s characters
+     * @param from index of the first character
+     * @param to index after the last character
+     * @return value
+     * @throws NumberFormatException if the range isn't an {@code int}
+     */
+    static int parseInt(CharSequence s, int from, int to) {
+        final long val = toInt(s, from, to);
+        if (val == NOT_INT) {
+            //Let the JDK build the exception
+            return Integer.parseInt(s.subSequence(from, to).toString());
+        }
+
+        return (int)val;
+    }
+
+    /**
+     * Same as {@link Double#parseDouble(String)} not throwing an exception
+     *
+     * @param s characters
+     * @param from index of the first character
+     * @param to index after the last character
+     * @return {@code true} if the range can be parsed as a {@code double}
+     */
+    static boolean isDouble(CharSequence s, int from, int to) {
+        int i = from;
+
+        if (i != to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+
+        if (startsWith(s, i, to, "NaN") || startsWith(s, i, to, "Infinity")) {
+            return to == i + (s.charAt(i) == 'N' ? 3 : 8);
+        }
+
+        int digits = 0;
+        while (i < to && isDigit(s.charAt(i))) {
+            i++;
+            digits++;
+        }
+
+        if (i < to && s.charAt(i) == '.') {
+            i++;
+            while (i < to && isDigit(s.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
+            return slowDouble(s, from, to);
+        }
+
+        if (i < to && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                i++;
+            }
+            int exp = 0;
+            while (i < to && isDigit(s.charAt(i))) {
+                i++;
+                exp++;
+            }
+            if (exp == 0) {
+                return false;
+            }
+        }
+
+        if (i < to && "fFdD".indexOf(s.charAt(i)) != -1) {
+            i++;
+        }
+
+        return i == to || slowDouble(s, from, to);
+    }
+
+    /**
+     * Same as {@link Double#parseDouble(String)} on a range of characters.
+     * <br>Decimal numbers with up to 19 significant digits whose value can be
+     * computed with a single correctly rounded operation (the mantissa fits
+     * in 53 bits and the power of ten is exact) are parsed here, everything
+     * else is delegated to the JDK.
+     *
+     * @param s characters
+     * @param from index of the first character
+     * @param to index after the last character
+     * @return value
+     * @throws NumberFormatException if the range isn't a {@code double}
+     */
+    static double parseDouble(CharSequence s, int from, int to) {
+        int i = from;
+        boolean neg = false;
+
+        if (i != to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            neg = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+
+        for (; i < to; i++) {
+            final char c = s.charAt(i);
+            if (isDigit(c)) {
+                digits++;
+                if (mantissa != 0 || c != '0') {
+                    if (++significant > 19) {
+                        return slowParse(s, from, to);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (dot) {
+                    scale--;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+
+        if (digits == 0) {
+            return slowParse(s, from, to);
+        }
+
+        if (i < to && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean eneg = false;
+            if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                eneg = s.charAt(i) == '-';
+                i++;
+            }
+
+            int exp = 0;
+            int edigits = 0;
+            for (; i < to && isDigit(s.charAt(i)); i++, edigits++) {
+                if (edigits == 4) {
+                    return slowParse(s, from, to);
+                }
+                exp = exp * 10 + (s.charAt(i) - '0');
+            }
+
+            if (edigits == 0) {
+                return slowParse(s, from, to);
+            }
+            scale += eneg ? -exp : exp;
+        }
+
+        if (i < to && "fFdD".indexOf(s.charAt(i)) != -1) {
+            i++;
+        }
+
+        if (i != to) {
+            return slowParse(s, from, to);
+        }
+
+        if (mantissa == 0) {
+            return neg ? -0.0 : 0.0;
+        }
+
+        if (mantissa > MAX_EXACT || scale < -22 || scale > 22) {
+            return slowParse(s, from, to);
+        }
+
+        //Both operands are exact, so the result is correctly rounded
+        final double val = scale < 0 ? mantissa / POW10[-scale]
+                                     : mantissa * POW10[scale];
+        return neg ? -val : val;
+    }
+
+    private static double slowParse(CharSequence s, int from, int to) {
+        return Double.parseDouble(s.subSequence(from, to).toString());
+    }
+
+    private static boolean startsWith(CharSequence s, int from, int to, String prefix) {
+        final int n = prefix.length();
+        if (to - from < n) {
+            return false;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(from + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean slowDouble(CharSequence s, int from, int to) {
+        //Only hexadecimal numbers (and strings with control characters)
+        //get here without being errors
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
+            if (c == 'x' || c == 'X' || c <= ' ') {
+                try {
+                    slowParse(s, from, to);
+                    return true;
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+
+        return false;
+    }
+}
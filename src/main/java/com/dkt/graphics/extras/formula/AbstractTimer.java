@@ -23,9 +23,16 @@ import com.dkt.graphics.elements.GPointArray;
 import com.dkt.graphics.elements.Graphic;
 import com.dkt.graphics.elements.GraphicE;
 import com.dkt.graphics.exceptions.AlreadyRunningException;
+import com.dkt.graphics.exceptions.IntervalException;
 import com.dkt.graphics.exceptions.InvalidArgumentException;
-import com.dkt.graphics.utils.PThread;
+import com.dkt.graphics.utils.TicToc;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class implements an abstract timer mainly used to draw functions on
@@ -37,21 +44,53 @@ import java.util.ArrayList;
  * trivial... <i>Why don't we improve it? </i> well it's quite simple actually,
  * we use this classes to draw the functions as a <i>real time</i> drawing, and
  * in that case, the perceived speed of the application is somewhat more
- * important than the real speed.
+ * important than the real speed.<br>
+ * The samples of the interval ({@code start + k * step}) are split in chunks
+ * of {@link AbstractTimer#getChunkSize()} samples, and the threads take them
+ * from a shared queue (so a thread that gets the cheap parts of the function
+ * simply takes more chunks, instead of waiting for the others).<br>
+ * By default each worker has its own thread, but they can also be executed
+ * by an {@link Executor} (see {@link AbstractTimer#setExecutor(Executor)}),
+ * so many timers can share a bounded pool, or run on virtual threads.<br>
+ * By default the workers evaluate the interval as fast as they can, but the
+ * timer can also be paced (see {@link AbstractTimer#setRate(double)} and
+ * {@link AbstractTimer#setDuration(long)}), in that case the samples are
+ * released on each frame (see {@link AbstractTimer#tick()}) and the workers
+ * draw all the samples of a frame at once.
  *
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  * @param <T> The {@link AbstractCalculable} instance that will be used
  */
 public abstract class AbstractTimer<T extends AbstractCalculable> extends GraphicE {
-    private final ArrayList<PThread> threads = new ArrayList<>(1);
+    private final ArrayList<Worker> threads = new ArrayList<>(1);
     private final GPointArray pointArray = new GPointArray();
     private final T calculable;
     private volatile boolean isRunning;
     private volatile boolean isPaused;
+    private final AtomicLong nextChunk = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private volatile long samples;
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();
+    private volatile double pace;
+    private volatile long paceStart;
+    private long pausedAt;
+    private double rate;
+    private long duration;
     private int numberOfThreads = 1;
+    private int chunkSize = 1024;
     private boolean drawAsPath;
     private boolean drawPen;
     private Action action;
+    private Executor executor;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+
+    /**
+     * Time a paced worker waits for a frame before releasing the samples by
+     * itself (so paced timers work even if nobody calls {@link #tick()})
+     */
+    private static final long FRAME = TimeUnit.MILLISECONDS.toNanos(100);
     
     /**
      * This interface contains all the methods that will be executed
@@ -81,6 +120,51 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
          * timer's instance
          */
         void stop();
+        /**
+         * This method will be executed each time a chunk of the interval is
+         * completed, it's called from the timer threads.
+         *
+         * @param fraction completed fraction of the interval (between
+         * {@code 0} and {@code 1})
+         */
+        default void progress(double fraction) {}
+    }
+
+    /**
+     * Statistics of a worker, they are reported when the worker ends
+     *
+     * @param name name of the worker
+     * @param samples number of samples evaluated by the worker
+     * @param points number of points drawn by the worker
+     * @param skipped number of samples that weren't drawn since they fell on
+     * the same pixel as the previous sample
+     * @param evaluationNanos time spent evaluating the samples in ns
+     * @param totalNanos time the worker was running in ns (including the time
+     * it was paused or waiting for frames)
+     */
+    public record WorkerStats(String name, long samples, long points,
+                              long skipped, long evaluationNanos, long totalNanos) {}
+
+    /**
+     * This interface receives the events of the workers of a timer, its
+     * methods are called from the worker threads.
+     *
+     * @see AbstractTimer#addListener(Listener)
+     */
+    public interface Listener {
+        /**
+         * This method will be executed when a worker starts
+         *
+         * @param name name of the worker
+         */
+        default void workerStarted(String name) {}
+        /**
+         * This method will be executed when a worker ends (even if it was
+         * stopped or failed)
+         *
+         * @param stats statistics of the worker
+         */
+        default void workerEnded(WorkerStats stats) {}
     }
 
     /**
@@ -122,6 +206,455 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
         numberOfThreads = n;
     }
 
+    /**
+     * A worker of the timer, it can be executed on its own thread or by an
+     * {@link Executor}. Pausing or stopping a worker doesn't interrupt its
+     * thread (which might not belong to the timer), the workers simply check
+     * a couple of volatile flags on each sample, and park while the timer is
+     * paused.
+     */
+    protected abstract class Worker implements Runnable {
+        private final String name;
+        private final TicToc evaluation = new TicToc();
+        private volatile boolean stopped;
+        private volatile Thread thread;
+        private long samples;
+        private long points;
+
+        /**
+         * @param name name of the worker, it's used as the thread name when
+         * the worker has its own thread
+         */
+        protected Worker(String name){
+            this.name = name;
+        }
+
+        /**
+         * Retrieves the name of the worker
+         *
+         * @return name
+         */
+        public String getName(){
+            return name;
+        }
+
+        @Override
+        public final void run(){
+            thread = Thread.currentThread();
+            final long begin = System.nanoTime();
+            try {
+                for (final Listener listener : listeners){
+                    listener.workerStarted(name);
+                }
+
+                if (!stopped){
+                    work();
+                }
+            } catch (RuntimeException ex){
+                //The failure is reported through the completion future, so
+                //it isn't thrown to the executor (or the default handler)
+                completion.completeExceptionally(ex);
+                stop();
+            } catch (Error err){
+                completion.completeExceptionally(err);
+                stop();
+                throw err;
+            } finally {
+                thread = null;
+                try {
+                    final WorkerStats stats = new WorkerStats(
+                            name, samples, points, samples - points,
+                            evaluation.getTotalNanoTime(),
+                            System.nanoTime() - begin
+                    );
+                    for (final Listener listener : listeners){
+                        listener.workerEnded(stats);
+                    }
+                } finally {
+                    removeWorker(this);
+                }
+            }
+        }
+
+        /**
+         * Must be called just before evaluating some samples
+         *
+         * @see Worker#evaluated(int)
+         */
+        protected final void evaluating(){
+            evaluation.tic();
+        }
+
+        /**
+         * Must be called just after evaluating some samples
+         *
+         * @param n number of samples
+         * @see Worker#evaluating()
+         */
+        protected final void evaluated(int n){
+            evaluation.toc();
+            samples += n;
+        }
+
+        /**
+         * Counts the points drawn by the worker
+         *
+         * @param n number of points
+         */
+        protected final void drawn(int n){
+            points += n;
+        }
+
+        /**
+         * The main loop of the worker, it should take the samples with
+         * {@link Worker#acquire(int)} (or call {@link Worker#checkPause()}
+         * for each sample), and end as soon as it returns {@code 0} (or
+         * {@code false})
+         */
+        protected abstract void work();
+
+        /**
+         * Blocks the worker while the timer is paused. An example of a main
+         * loop could be:
+         * <pre>
+         *      protected void work() {
+         *          while (checkPause() &amp;&amp; condition){
+         *              //Loop code
+         *          }
+         *      }
+         * </pre>
+         *
+         * @return {@code true} if the worker must keep going, and
+         * {@code false} if it was stopped
+         */
+        protected final boolean checkPause(){
+            while (isPaused & !stopped){
+                LockSupport.park(this);
+            }
+            return !stopped;
+        }
+
+        /**
+         * Tells if the worker was stopped
+         *
+         * @return {@code true} if the worker must end
+         */
+        protected final boolean isStopped(){
+            return stopped;
+        }
+
+        /**
+         * Takes some samples to evaluate. If the timer isn't paced this
+         * simply checks if the worker was paused or stopped, otherwise the
+         * worker waits until the timer releases more samples (calling
+         * {@link Worker#waiting()} before each wait).
+         *
+         * @param max maximum number of samples to take
+         * @return number of samples taken (between {@code 1} and {@code max}),
+         * or {@code 0} if the worker was stopped
+         */
+        protected final int acquire(int max){
+            while (checkPause()){
+                if (pace == 0){
+                    return max;
+                }
+
+                final long t = taken.get();
+                final long n = Math.min(max, released.get() - t);
+                if (n > 0){
+                    if (taken.compareAndSet(t, t + n)){
+                        return (int)n;
+                    }
+                    continue;
+                }
+
+                waiting();
+                LockSupport.parkNanos(this, FRAME);
+                release();
+            }
+
+            return 0;
+        }
+
+        /**
+         * This method is called each time a paced worker has to wait for the
+         * next frame, it's the place to draw the samples evaluated on the
+         * current frame
+         */
+        protected void waiting(){}
+
+        /**
+         * Stops the worker (it will end on the next sample)
+         */
+        private void halt(){
+            stopped = true;
+            wake();
+        }
+
+        /**
+         * Wakes the worker up if it's parked
+         */
+        private void wake(){
+            final Thread t = thread;
+            if (t != null){
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    /**
+     * Sets the executor that will run the workers of the timer. Each worker
+     * runs until the interval ends (and parks while the timer is paused), so
+     * on a bounded pool the workers of a timer might have to wait for the
+     * workers of other timers to end.<br>
+     * On Java 21+ {@code Executors.newVirtualThreadPerTaskExecutor()} can be
+     * used to run hundreds of timers without an OS thread for each worker.
+     *
+     * @param executor executor, or {@code null} to give each worker its own
+     * thread (which is the default)
+     * @throws AlreadyRunningException if the Timer was already started
+     */
+    public void setExecutor(Executor executor){
+        checkRunning();
+
+        this.executor = executor;
+    }
+
+    /**
+     * Retrieves the executor that runs the workers of the timer
+     *
+     * @return executor or {@code null} if each worker has its own thread
+     * @see AbstractTimer#setExecutor(Executor)
+     */
+    public Executor getExecutor(){
+        return executor;
+    }
+
+    /**
+     * Adds a listener that will receive the events of the workers
+     *
+     * @param listener listener
+     * @throws IllegalArgumentException if {@code listener} is {@code null}
+     */
+    public void addListener(Listener listener){
+        if (listener == null){
+            throw new IllegalArgumentException("The listener can't be null");
+        }
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener
+     *
+     * @param listener listener
+     */
+    public void removeListener(Listener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Retrieves a future that completes when the current run of the timer
+     * ends (after {@link Action#stop()}). It's completed normally if the
+     * whole interval was drawn, it's cancelled if the timer was stopped
+     * before, and it's completed exceptionally if a worker failed (which
+     * stops the timer too, and only an {@link Error} is thrown further).<br>
+     * Each start creates a new future, before the first start the future is
+     * already completed.
+     *
+     * @return future of the current run
+     */
+    public CompletableFuture<Void> getCompletion(){
+        return completion;
+    }
+
+    /**
+     * Paces the timer to evaluate a given number of samples per second.<br>
+     * The samples are released on each frame, so the workers use very little
+     * CPU, and draw the samples of each frame at once.
+     *
+     * @param samplesPerSecond number of samples per second, or {@code 0} to
+     * evaluate the samples as fast as possible (which is the default)
+     * @throws InvalidArgumentException if {@code samplesPerSecond} is
+     * negative or isn't finite
+     * @throws AlreadyRunningException if the Timer was already started
+     * @see AbstractTimer#tick()
+     */
+    public void setRate(double samplesPerSecond){
+        checkRunning();
+
+        if (!(samplesPerSecond >= 0) || Double.isInfinite(samplesPerSecond)){
+            String msg = "The rate must be a positive real";
+            throw new InvalidArgumentException(msg);
+        }
+
+        rate = samplesPerSecond;
+        duration = 0;
+    }
+
+    /**
+     * Retrieves the number of samples per second of the timer
+     *
+     * @return number of samples per second, or {@code 0} if the timer isn't
+     * paced by rate
+     * @see AbstractTimer#setRate(double)
+     */
+    public double getRate(){
+        return rate;
+    }
+
+    /**
+     * Paces the timer to evaluate the whole interval on a given time (not
+     * counting the time it's paused).
+     *
+     * @param millis duration in milliseconds, or {@code 0} to evaluate the
+     * samples as fast as possible (which is the default)
+     * @throws InvalidArgumentException if {@code millis} is negative
+     * @throws AlreadyRunningException if the Timer was already started
+     * @see AbstractTimer#setRate(double)
+     */
+    public void setDuration(long millis){
+        checkRunning();
+
+        if (millis < 0){
+            String msg = "The duration can't be negative";
+            throw new InvalidArgumentException(msg);
+        }
+
+        duration = millis;
+        rate = 0;
+    }
+
+    /**
+     * Retrieves the time the timer takes to evaluate the whole interval
+     *
+     * @return duration in milliseconds, or {@code 0} if the timer isn't
+     * paced by duration
+     * @see AbstractTimer#setDuration(long)
+     */
+    public long getDuration(){
+        return duration;
+    }
+
+    /**
+     * Tells if the timer is paced
+     *
+     * @return {@code true} if the timer has a rate or a duration and
+     * {@code false} if it evaluates the samples as fast as possible
+     */
+    public boolean isPaced(){
+        return rate > 0 || duration > 0;
+    }
+
+    /**
+     * Releases the samples of a new frame and wakes up the workers of a
+     * paced timer (it does nothing if the timer isn't paced). This is meant
+     * to be called on each frame, for instance:
+     * <pre>
+     *      canvas.addFrameListener(e -&gt; timer.tick());
+     * </pre>
+     * If it isn't called, the workers release the samples by themselves
+     * every 100ms.
+     *
+     * @see com.dkt.graphics.canvas.Canvas#addFrameListener(java.awt.event.ActionListener)
+     */
+    public void tick(){
+        if (isRunning && pace > 0){
+            release();
+
+            synchronized (threads){
+                for (final Worker worker : threads){
+                    worker.wake();
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the samples that correspond to the time the timer has been
+     * running (this never goes back, and does nothing while paused)
+     */
+    private void release(){
+        if (!isPaused){
+            final double n = (System.nanoTime() - paceStart) * pace;
+            released.accumulateAndGet((long)Math.min(n, Long.MAX_VALUE), Math::max);
+        }
+    }
+
+    /**
+     * Sets the number of samples of each chunk of the interval, the threads
+     * take one chunk at a time
+     *
+     * @param size number of samples
+     * @throws InvalidArgumentException if {@code size} is less than one
+     * @throws AlreadyRunningException if the Timer was already started
+     */
+    public void setChunkSize(int size){
+        checkRunning();
+
+        if (size <= 0){
+            String msg = "The chunks must have at least one sample";
+            throw new InvalidArgumentException(msg);
+        }
+
+        chunkSize = size;
+    }
+
+    /**
+     * Retrieves the number of samples of each chunk of the interval
+     *
+     * @return number of samples
+     * @see AbstractTimer#setChunkSize(int)
+     */
+    public int getChunkSize(){
+        return chunkSize;
+    }
+
+    /**
+     * Retrieves the completed fraction of the interval
+     *
+     * @return a value between {@code 0} and {@code 1}
+     * @see Action#progress(double)
+     */
+    public double getProgress(){
+        final long n = samples;
+        return n == 0 ? 1 : (double)completed.get() / n;
+    }
+
+    /**
+     * Retrieves the number of samples of the interval, the samples are
+     * {@code start + k * step} for {@code 0 <= k < getSampleCount()}
+     *
+     * @return number of samples
+     */
+    protected long getSampleCount(){
+        return samples;
+    }
+
+    /**
+     * Takes the next chunk from the queue
+     *
+     * @return index of the first sample of the chunk, or {@code -1} if there
+     * are no more chunks
+     */
+    protected long nextChunk(){
+        final long k = nextChunk.getAndIncrement() * chunkSize;
+        return k < samples ? k : -1;
+    }
+
+    /**
+     * Reports that some samples were completed
+     *
+     * @param n number of samples
+     * @see Action#progress(double)
+     */
+    protected void completed(long n){
+        final long done = completed.addAndGet(n);
+        if (action != null){
+            action.progress((double)done / samples);
+        }
+    }
+
     /**
      * Tells if all the threads have finished their execution
      *
@@ -194,6 +727,8 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
      * {@link Graphic}
      *
      * @throws AlreadyRunningException if the Timer was already started
+     * @throws IntervalException if the step of the calculable isn't positive
+     * or the interval has too many samples
      * @see Action#start()
      */
     public void start(){
@@ -201,13 +736,47 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
 
         pointArray.clear();
 
+        samples = count(
+                calculable.startPoint(),
+                calculable.endPoint(),
+                calculable.step()
+        );
+        nextChunk.set(0);
+        completed.set(0);
+        released.set(0);
+        taken.set(0);
+
+        if (rate > 0){
+            pace = rate / TimeUnit.SECONDS.toNanos(1);
+        } else if (duration > 0){
+            pace = samples / (double)TimeUnit.MILLISECONDS.toNanos(duration);
+        } else {
+            pace = 0;
+        }
+        paceStart = System.nanoTime();
+
+        isPaused  = false;
         isRunning = true;
+        completion = new CompletableFuture<>();
 
         synchronized(threads){
             for (int i = 0; i < numberOfThreads; i++){
-                PThread thread = getThread(calculable, i, numberOfThreads, drawPen);
-                threads.add(thread);
-                thread.start();
+                threads.add(getWorker(calculable, i, numberOfThreads, drawPen));
+            }
+
+            try {
+                for (final Worker worker : new ArrayList<>(threads)){
+                    if (executor == null){
+                        final Thread thread = new Thread(worker, worker.getName());
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        thread.start();
+                    } else {
+                        executor.execute(worker);
+                    }
+                }
+            } catch (RuntimeException ex){
+                stop();
+                throw ex;
             }
 
             if (action != null){
@@ -224,12 +793,9 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
     public void pause() {
         if (!isPaused){
             synchronized (threads){
+                pausedAt = System.nanoTime();
                 isPaused = true;
 
-                for (PThread thread : threads){
-                    thread.pause();
-                }
-
                 if (action != null){
                     action.pause();
                 }
@@ -245,10 +811,12 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
     public void resume(){
         if (isPaused){
             synchronized (threads){
+                //The time it was paused doesn't count for the pace
+                paceStart += System.nanoTime() - pausedAt;
                 isPaused = false;
 
-                for (PThread thread : threads){
-                    thread.unpause();
+                for (final Worker worker : threads){
+                    worker.wake();
                 }
 
                 if (action != null){
@@ -265,11 +833,11 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
      */
     public void stop(){
         if (isRunning){
-            isRunning = true;
+            isRunning = false;
 
             synchronized(threads){
-                for (Thread thread : threads){
-                    thread.interrupt();
+                for (final Worker worker : threads){
+                    worker.halt();
                 }
 
                 threads.clear();
@@ -278,8 +846,14 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
             if (action != null){
                 action.stop();
             }
-        }
 
+            //If it was already completed (exceptionally) this does nothing
+            if (completed.get() == samples){
+                completion.complete(null);
+            } else {
+                completion.cancel(false);
+            }
+        }
     }
 
     /**
@@ -293,6 +867,38 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
         this.action = action;
     }
 
+    /**
+     * Calculates the number of samples of an interval
+     *
+     * @param start start point of the interval
+     * @param end end point of the interval
+     * @param step distance between samples
+     * @return number of samples
+     * @throws IntervalException if the interval has too many samples (or if
+     * the step isn't positive)
+     */
+    private static long count(double start, double end, double step){
+        if (!(start < end)){
+            return 0;
+        }
+
+        final double estimate = Math.ceil((end - start) / step);
+        if (!(step > 0) || !(estimate < 1L << 52)){
+            String msg = "The step must be a positive real that fits the interval";
+            throw new IntervalException(msg, start, end, step);
+        }
+
+        long n = (long)estimate;
+        while (n > 0 && !(start + (n - 1) * step < end)){
+            n--;
+        }
+        while (start + n * step < end){
+            n++;
+        }
+
+        return n;
+    }
+
     private void checkRunning() {
         if (isRunning){
             String msg = "The thread was already running";
@@ -300,17 +906,30 @@ public abstract class AbstractTimer<T extends AbstractCalculable> extends Graphi
         }
     }
 
-    protected void removeThread(PThread thread){
+    /**
+     * Removes a worker that ended, once all of them end the timer is stopped
+     *
+     * @param worker worker
+     */
+    private void removeWorker(Worker worker){
         synchronized(threads){
-            threads.remove(thread);
-            if (threadsEnded()){
+            if (threads.remove(worker) && threadsEnded()){
                 stop();
             }
         }
     }
 
-    protected abstract PThread getThread(T calculable,
-                                         int threadNumber,
-                                         int threadsTotal,
-                                         boolean drawPen);
+    /**
+     * Creates a worker for the timer
+     *
+     * @param calculable object that will be used on the calculations
+     * @param workerNumber number of the worker
+     * @param workersTotal total number of workers
+     * @param drawPen {@code true} if the pen must be drawn
+     * @return worker
+     */
+    protected abstract Worker getWorker(T calculable,
+                                        int workerNumber,
+                                        int workersTotal,
+                                        boolean drawPen);
 }
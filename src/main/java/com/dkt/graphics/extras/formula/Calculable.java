@@ -20,6 +20,7 @@ package com.dkt.graphics.extras.formula;
 
 import com.dkt.graphics.exceptions.DomainException;
 import com.dkt.graphics.extras.GFormula;
+import java.util.Objects;
 
 /**
  * This class is used within {@link GFormula} representing
@@ -41,4 +42,37 @@ public abstract class Calculable extends AbstractCalculable {
      * of the function
      */
     public abstract double f(double x) throws DomainException;
+
+    /**
+     * Evaluates the function on a block of values, this is the same as
+     * calling {@link Calculable#f(double)} for each one of them (and that's
+     * what the default implementation does).<br>
+     * {@link GFormula} always evaluates the function using this method, so
+     * functions that are expensive to evaluate point by point can override
+     * it with a tighter loop (unrolled, sharing intermediate results between
+     * consecutive values, etc).
+     *
+     * @param xs the input arguments
+     * @param out destination of {@code f(x)} for each argument, it might be
+     * the same array as {@code xs}
+     * @param off index of the first value on both arrays
+     * @param len number of values
+     * @throws DomainException if one of the values is not part of the domain
+     * of the function
+     * @throws IllegalArgumentException if either array is {@code null}
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of
+     * either array
+     */
+    public void f(double[] xs, double[] out, int off, int len) throws DomainException {
+        if (xs == null || out == null) {
+            throw new IllegalArgumentException("Neither array can be null");
+        }
+
+        Objects.checkFromIndexSize(off, len, xs.length);
+        Objects.checkFromIndexSize(off, len, out.length);
+
+        for (int i = off, n = off + len; i < n; i++) {
+            out[i] = f(xs[i]);
+        }
+    }
 }
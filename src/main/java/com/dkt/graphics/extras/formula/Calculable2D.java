@@ -0,0 +1,75 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras.formula;
+
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.extras.GFormula2D;
+import java.util.Objects;
+
+/**
+ * A scalar field {@code F(x, y)}, used to draw implicit curves
+ * ({@code F(x, y) = c}) and heatmaps.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ * @see GFormula2D
+ */
+public abstract class Calculable2D {
+    /**
+     * Calculates {@code F(x, y)}
+     *
+     * @param x value of {@code x}
+     * @param y value of {@code y}
+     * @return the value of {@code F(x, y)}
+     * @throws DomainException methods that implement this class should
+     * throw this exception (or return {@code NaN}) if {@code (x, y)} is not
+     * part of the domain of {@code F}
+     */
+    public abstract double f(double x, double y) throws DomainException;
+
+    /**
+     * Calculates {@code F(xs[i], y)} for {@code i = off... off + len - 1},
+     * the fields are evaluated one row at a time, so implementations can
+     * calculate the terms that only depend on {@code y} once per row.<br>
+     * The default implementation simply calls {@link #f(double, double)}
+     * for each value.
+     *
+     * @param xs values of {@code x}
+     * @param y value of {@code y}
+     * @param out destination of the values ({@code out[i] = F(xs[i], y)})
+     * @param off index of the first value
+     * @param len number of values
+     * @throws DomainException if one of the values is not part of the domain
+     * of {@code F}
+     * @throws IllegalArgumentException if either array is {@code null}
+     * @throws IndexOutOfBoundsException if {@code [off, off + len)} isn't a
+     * valid range of both arrays
+     */
+    public void f(double[] xs, double y, double[] out, int off, int len) throws DomainException {
+        if (xs == null || out == null) {
+            throw new IllegalArgumentException("Neither array can be null");
+        }
+
+        Objects.checkFromIndexSize(off, len, xs.length);
+        Objects.checkFromIndexSize(off, len, out.length);
+
+        for (int i = off, n = off + len; i < n; i++) {
+            out[i] = f(xs[i], y);
+        }
+    }
+}
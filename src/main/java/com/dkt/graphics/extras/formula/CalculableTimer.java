@@ -24,9 +24,8 @@ import com.dkt.graphics.elements.GPath;
 import com.dkt.graphics.elements.GPointArray;
 import com.dkt.graphics.elements.Graphic;
 import com.dkt.graphics.elements.GraphicE;
-import com.dkt.graphics.utils.PThread;
-import com.dkt.graphics.utils.TicToc;
 import java.awt.Graphics2D;
+import java.util.Arrays;
 
 /**
  *
@@ -40,73 +39,57 @@ public class CalculableTimer extends AbstractTimer<Calculable> {
     }
 
     @Override
-    protected PThread getThread(
+    protected Worker getWorker(
             Calculable calculable,
-            int threadNumber,
-            int threadsTotal,
+            int workerNumber,
+            int workersTotal,
             boolean drawPen)
     {
-        return new CalculatorThread(
+        return new CalculatorWorker(
                 calculable,
-                threadNumber,
-                threadsTotal,
+                workerNumber,
+                workersTotal,
                 drawPen
         );
     }
 
-    private class CalculatorThread extends PThread {
-        private final int threadNumber, threadsTotal;
+    /**
+     * Number of values evaluated (and drawn) at once by the workers, it's
+     * small since the curve is drawn while it's being evaluated
+     */
+    private static final int BLOCK = 64;
+
+    private class CalculatorWorker extends Worker {
         private final Calculable calculable;
-        private final GMultiPoint points;
         private final boolean drawPen;
         private final GCircle pen;
 
-        private final double sx, sy, end, step;
-        private int lx = Integer.MAX_VALUE;
-        private int ly = Integer.MAX_VALUE;
-        private double t;
+        private final double sx, sy, start, step;
+        private GMultiPoint points;
+        private long last = -1;
+        private int[] bx = new int[BLOCK];
+        private int[] by = new int[BLOCK];
+        private int bn;
 
-        public CalculatorThread (
+        public CalculatorWorker (
                 Calculable calculable,
-                int threadNumber,
-                int threadsTotal,
+                int workerNumber,
+                int workersTotal,
                 boolean drawPen)
         {
-            setPriority(Thread.MIN_PRIORITY);
-
-            this.threadNumber = threadNumber;
-            this.threadsTotal = threadsTotal;
+            super(String.format("%s: %d/%d",
+                    calculable.getName(),
+                    workerNumber + 1,
+                    workersTotal)
+            );
 
             this.calculable = calculable;
             this.drawPen    = drawPen;
 
-            final double pstart = calculable.startPoint();
-            final double pend   = calculable.endPoint();
-
-            if (threadsTotal != 1){
-                double interval = pend - pstart;
-                interval /= threadsTotal;
-                t   = pstart + interval * threadNumber;
-                end = pstart + interval * (threadNumber + 1);
-            } else {
-                t   = pstart;
-                end = pend;
-            }
-
+            start = calculable.startPoint();
+            step  = calculable.step();
             sx = calculable.scaleX();
             sy = calculable.scaleY();
-            step = calculable.step();
-
-            final int size = (int)((end - t) / step) + 100;
-
-            if (drawAsPath()) {
-                points = new GPath(size);
-            } else {
-                points = new GPointArray(size);
-            }
-
-            points.setPaint(getPaint());
-            graphic.add(points);
 
             if (drawPen){
                 pen = new GCircle(0, 0, 2);
@@ -117,41 +100,132 @@ public class CalculableTimer extends AbstractTimer<Calculable> {
             }
         }
 
+        /**
+         * Retrieves the element in which a chunk will be drawn, consecutive
+         * chunks taken by this thread share the same element
+         *
+         * @param from index of the first sample of the chunk
+         * @param size number of samples of the chunk
+         * @return element
+         */
+        private GMultiPoint points(long from, int size) {
+            if (from != last){
+                if (drawAsPath()) {
+                    points = new GPath(size);
+                } else {
+                    points = new GPointArray(size);
+                }
+
+                points.setPaint(getPaint());
+                graphic.add(points);
+            }
+
+            return points;
+        }
+
+        /**
+         * Adds a point to the batch that will be drawn on the next flush
+         *
+         * @param x X coordinate of the point
+         * @param y Y coordinate of the point
+         */
+        private void add(int x, int y) {
+            if (bn == bx.length){
+                bx = Arrays.copyOf(bx, 2 * bn);
+                by = Arrays.copyOf(by, 2 * bn);
+            }
+
+            bx[bn] = x;
+            by[bn] = y;
+            bn++;
+        }
+
+        /**
+         * Draws the current batch of points (with a single append)
+         */
+        private void flush() {
+            if (bn > 0){
+                points.append(bx, by, 0, bn);
+                drawn(bn);
+
+                if (drawPen){
+                    pen.move(bx[bn - 1], by[bn - 1]);
+                }
+
+                bn = 0;
+            }
+        }
+
         @Override
-        public void run() {
-            TicToc tt = new TicToc();
-            tt.tic();
+        protected void waiting() {
+            flush();
+        }
+
+        @Override
+        protected void work() {
+            final double[] ts = new double[BLOCK];
+            final double[] fs = new double[BLOCK];
+            final long total = getSampleCount();
+            int lx = Integer.MAX_VALUE;
+            int ly = Integer.MAX_VALUE;
+
+            for (long k0; !isStopped() && (k0 = nextChunk()) >= 0;){
+                final long k1 = Math.min(total, k0 + getChunkSize());
+                points(k0, (int)(k1 - k0) + 1);
+                if (k0 != last){
+                    lx = Integer.MAX_VALUE;
+                    ly = Integer.MAX_VALUE;
+                }
 
-            while(!interrupted() & t < end){
-                checkPause();
+                //The first sample of the next chunk is drawn too, so the
+                //chunks are joined even if they are drawn by other threads
+                final long end = k1 < total ? k1 + 1 : k1;
 
-                final int x = (int)(t * sx);
-                final int y = (int)(calculable.f(t) * sy);
+                for (long k = k0; k < end;){
+                    final int n = acquire((int)Math.min(BLOCK, end - k));
+                    if (n == 0){
+                        break;
+                    }
+
+                    for (int j = 0; j < n; j++){
+                        ts[j] = start + (k + j) * step;
+                    }
+
+                    evaluating();
+                    calculable.f(ts, fs, 0, n);
+                    evaluated(n);
+
+                    for (int j = 0; j < n; j++){
+                        final int x = (int)(ts[j] * sx);
+                        final int y = (int)(fs[j] * sy);
 
-                if (lx != x | ly != y){
-                    if (drawPen){
-                        pen.move(x, y);
+                        if (lx != x | ly != y){
+                            add(x, y);
+
+                            lx = x;
+                            ly = y;
+                        }
                     }
 
-                    points.append(x, y);
+                    //Paced workers draw once per frame
+                    if (!isPaced()){
+                        flush();
+                    }
 
-                    lx = x;
-                    ly = y;
+                    k += n;
                 }
 
-                t += step;
+                flush();
 
+                if (!isStopped()){
+                    last = k1;
+                    completed(k1 - k0);
+                }
             }
 
-            tt.toc();
-
             if (drawPen){
                 graphic.remove(pen);
             }
-
-            removeThread(this);
-            System.out.format("%s: %d/%d ended in %s%n",
-                    calculable.getName(), threadNumber + 1, threadsTotal, tt);
         }
     }
 
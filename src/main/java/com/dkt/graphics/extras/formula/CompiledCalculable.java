@@ -0,0 +1,90 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras.formula;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Objects;
+
+/**
+ * Template of the compiled formulas, this class is never loaded as it is.
+ * Its bytes are defined as a new hidden class for each formula (see
+ * {@link Expression#compile()}), with the {@link MethodHandle} of the
+ * formula as class data.<br>
+ * Since the handle is a {@code static final} field of a hidden class, the
+ * JIT treats it as a constant and inlines the whole formula, and since each
+ * formula has its own copy of the methods, the loop of the bulk evaluation
+ * never becomes megamorphic.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+final class CompiledCalculable extends Calculable {
+    private static final MethodHandle F = formula();
+
+    /**
+     * Retrieves the class data of the hidden class
+     *
+     * @return handle of the formula, with type {@code (double)double}
+     */
+    private static MethodHandle formula() {
+        try {
+            return MethodHandles.classData(
+                    MethodHandles.lookup(),
+                    ConstantDescs.DEFAULT_NAME,
+                    MethodHandle.class
+            );
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public double f(double x) {
+        try {
+            return (double)F.invokeExact(x);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            //The formulas only use methods that don't throw checked exceptions
+            throw new UndeclaredThrowableException(ex);
+        }
+    }
+
+    @Override
+    public void f(double[] xs, double[] out, int off, int len) {
+        if (xs == null || out == null) {
+            throw new IllegalArgumentException("Neither array can be null");
+        }
+
+        Objects.checkFromIndexSize(off, len, xs.length);
+        Objects.checkFromIndexSize(off, len, out.length);
+
+        try {
+            for (int i = off, n = off + len; i < n; i++) {
+                out[i] = (double)F.invokeExact(xs[i]);
+            }
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new UndeclaredThrowableException(ex);
+        }
+    }
+}
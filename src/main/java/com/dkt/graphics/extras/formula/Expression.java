@@ -0,0 +1,626 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras.formula;
+
+import com.dkt.graphics.exceptions.ExpressionException;
+import com.dkt.graphics.utils.MathUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A formula of {@code x} that's typed at runtime, like
+ * {@code sin(x)*exp(-x/10)}.<br>
+ * The formulas can use:
+ * <ul>
+ * <li>Numbers (like {@code 2}, {@code 0.5} or {@code 1e-3}) and the
+ * constants {@code pi} and {@code e}</li>
+ * <li>The operators {@code + - * / ^} with the usual precedence ({@code ^}
+ * is right associative, and binds tighter than the unary minus, so
+ * {@code -x^2} is {@code -(x^2)}) and parenthesis</li>
+ * <li>The functions {@code sin cos tan asin acos atan sinh cosh tanh exp
+ * log log10 sqrt cbrt abs floor ceil signum pow atan2 hypot min max} of
+ * {@link Math} ({@code log} is the natural logarithm), and {@code hs rect
+ * boxcar} of {@link MathUtils}</li>
+ * </ul>
+ * The values are the same as the ones of the equivalent Java code, so for
+ * instance {@code log(x)} is {@code NaN} for negative values.<br>
+ * An expression can be interpreted with {@link Expression#eval(double)},
+ * but formulas that are evaluated many times should be compiled with
+ * {@link Expression#compile()}.<br>
+ * This class is immutable.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public final class Expression {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType UNARY = MethodType.methodType(double.class, double.class);
+    private static final HashMap<String, Function> FUNCTIONS = new HashMap<>();
+    private static final Function NEG = unary(Expression.class, "neg", a -> -a);
+    private static final Function ADD = binary(Expression.class, "add", (a, b) -> a + b);
+    private static final Function SUB = binary(Expression.class, "sub", (a, b) -> a - b);
+    private static final Function MUL = binary(Expression.class, "mul", (a, b) -> a * b);
+    private static final Function DIV = binary(Expression.class, "div", (a, b) -> a / b);
+    private static final Function POW = binary(Math.class, "pow", Math::pow);
+    private final String text;
+    private final Node root;
+
+    static {
+        FUNCTIONS.put("sin",    unary(Math.class, "sin",    Math::sin));
+        FUNCTIONS.put("cos",    unary(Math.class, "cos",    Math::cos));
+        FUNCTIONS.put("tan",    unary(Math.class, "tan",    Math::tan));
+        FUNCTIONS.put("asin",   unary(Math.class, "asin",   Math::asin));
+        FUNCTIONS.put("acos",   unary(Math.class, "acos",   Math::acos));
+        FUNCTIONS.put("atan",   unary(Math.class, "atan",   Math::atan));
+        FUNCTIONS.put("sinh",   unary(Math.class, "sinh",   Math::sinh));
+        FUNCTIONS.put("cosh",   unary(Math.class, "cosh",   Math::cosh));
+        FUNCTIONS.put("tanh",   unary(Math.class, "tanh",   Math::tanh));
+        FUNCTIONS.put("exp",    unary(Math.class, "exp",    Math::exp));
+        FUNCTIONS.put("log",    unary(Math.class, "log",    Math::log));
+        FUNCTIONS.put("log10",  unary(Math.class, "log10",  Math::log10));
+        FUNCTIONS.put("sqrt",   unary(Math.class, "sqrt",   Math::sqrt));
+        FUNCTIONS.put("cbrt",   unary(Math.class, "cbrt",   Math::cbrt));
+        FUNCTIONS.put("abs",    unary(Math.class, "abs",    Math::abs));
+        FUNCTIONS.put("floor",  unary(Math.class, "floor",  Math::floor));
+        FUNCTIONS.put("ceil",   unary(Math.class, "ceil",   Math::ceil));
+        FUNCTIONS.put("signum", unary(Math.class, "signum", Math::signum));
+        FUNCTIONS.put("hs",     unary(MathUtils.class, "hs",   MathUtils::hs));
+        FUNCTIONS.put("rect",   unary(MathUtils.class, "rect", MathUtils::rect));
+        FUNCTIONS.put("pow",    POW);
+        FUNCTIONS.put("atan2",  binary(Math.class, "atan2", Math::atan2));
+        FUNCTIONS.put("hypot",  binary(Math.class, "hypot", Math::hypot));
+        FUNCTIONS.put("min",    binary(Math.class, "min",   Math::min));
+        FUNCTIONS.put("max",    binary(Math.class, "max",   Math::max));
+        FUNCTIONS.put("boxcar", new Function(
+                handle(MathUtils.class, "boxcar", 3),
+                (Ternary)MathUtils::boxcar
+        ));
+    }
+
+    private Expression(String text, Node root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /**
+     * Parses a formula of {@code x}
+     *
+     * @param text formula
+     * @return expression
+     * @throws IllegalArgumentException if {@code text} is {@code null}
+     * @throws ExpressionException if the formula isn't valid
+     */
+    public static Expression parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("The formula can't be null");
+        }
+
+        return new Expression(text, new Parser(text).parse());
+    }
+
+    /**
+     * Evaluates the expression by walking its tree, this is much slower than
+     * a compiled expression but it doesn't need to define a new class
+     *
+     * @param x value of {@code x}
+     * @return value of the formula
+     * @see Expression#compile()
+     */
+    public double eval(double x) {
+        return root.eval(x);
+    }
+
+    /**
+     * Tells if the expression doesn't depend on {@code x}
+     *
+     * @return {@code true} if the expression is constant
+     */
+    public boolean isConstant() {
+        return root instanceof Num;
+    }
+
+    /**
+     * Compiles the expression to a {@link Calculable} (whose name is the
+     * formula).<br>
+     * The formula is turned into a tree of {@link MethodHandle}s, and each
+     * compiled expression is a new hidden class that holds the tree as a
+     * constant, so the JIT can inline the whole formula. Each call defines a
+     * new class (that's unloaded once the calculable isn't used anymore), so
+     * it's better to compile a formula once and reuse the calculable.
+     *
+     * @return a new calculable
+     */
+    public Calculable compile() {
+        final Calculable calculable;
+        try {
+            final MethodHandles.Lookup hidden = LOOKUP.defineHiddenClassWithClassData(
+                    Template.BYTES, root.handle(), true
+            );
+            final MethodHandle ctor = hidden.findConstructor(
+                    hidden.lookupClass(), MethodType.methodType(void.class)
+            );
+            calculable = (Calculable)ctor.invoke();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("The formula couldn't be compiled", ex);
+        }
+
+        calculable.setName(text);
+        return calculable;
+    }
+
+    /**
+     * Retrieves the formula
+     *
+     * @return formula
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Bytes of {@link CompiledCalculable}, they are only read the first time
+     * an expression is compiled
+     */
+    private static final class Template {
+        private static final byte[] BYTES = read();
+
+        private static byte[] read() {
+            final String name = CompiledCalculable.class.getSimpleName() + ".class";
+            try (InputStream in = Expression.class.getResourceAsStream(name)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing " + name);
+                }
+                return in.readAllBytes();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    //The operators, as methods so they can be used as handles
+    private static double neg(double a) { return -a; }
+    private static double add(double a, double b) { return a + b; }
+    private static double sub(double a, double b) { return a - b; }
+    private static double mul(double a, double b) { return a * b; }
+    private static double div(double a, double b) { return a / b; }
+
+    /**
+     * A function of three arguments
+     */
+    private interface Ternary {
+        double apply(double a, double b, double c);
+    }
+
+    /**
+     * A function (or operator) of the formulas
+     *
+     * @param handle static method that calculates the function
+     * @param op the same function, used to interpret the expressions (it's
+     * either a {@link DoubleUnaryOperator}, a {@link DoubleBinaryOperator}
+     * or a {@link Ternary})
+     */
+    private record Function(MethodHandle handle, Object op) {
+        int arity() {
+            return handle.type().parameterCount();
+        }
+    }
+
+    private static Function unary(Class<?> owner, String name, DoubleUnaryOperator op) {
+        return new Function(handle(owner, name, 1), op);
+    }
+
+    private static Function binary(Class<?> owner, String name, DoubleBinaryOperator op) {
+        return new Function(handle(owner, name, 2), op);
+    }
+
+    /**
+     * Finds a static method that takes {@code arity} doubles and returns a
+     * double
+     *
+     * @param owner class of the method
+     * @param name name of the method
+     * @param arity number of arguments
+     * @return handle
+     */
+    private static MethodHandle handle(Class<?> owner, String name, int arity) {
+        final Class<?>[] params = new Class<?>[arity];
+        Arrays.fill(params, double.class);
+
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(double.class, params));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A node of the tree of the expression
+     */
+    private abstract static class Node {
+        /**
+         * Interprets the node
+         *
+         * @param x value of {@code x}
+         * @return value of the node
+         */
+        abstract double eval(double x);
+
+        /**
+         * Compiles the node
+         *
+         * @return handle of type {@code (double)double}
+         */
+        abstract MethodHandle handle();
+    }
+
+    /**
+     * A constant
+     */
+    private static final class Num extends Node {
+        private final double value;
+
+        Num(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double eval(double x) {
+            return value;
+        }
+
+        @Override
+        MethodHandle handle() {
+            return MethodHandles.dropArguments(
+                    MethodHandles.constant(double.class, value), 0, double.class
+            );
+        }
+    }
+
+    /**
+     * The variable {@code x}
+     */
+    private static final class Var extends Node {
+        @Override
+        double eval(double x) {
+            return x;
+        }
+
+        @Override
+        MethodHandle handle() {
+            return MethodHandles.identity(double.class);
+        }
+    }
+
+    /**
+     * A function applied to some nodes
+     */
+    private abstract static class Call extends Node {
+        protected final Function fn;
+        protected final Node[] args;
+
+        Call(Function fn, Node[] args) {
+            this.fn = fn;
+            this.args = args;
+        }
+
+        /**
+         * Creates a new call, if all the arguments are constants then the
+         * function is calculated right away
+         *
+         * @param fn function
+         * @param args arguments
+         * @return node
+         */
+        static Node of(Function fn, Node... args) {
+            final Node call = switch (args.length) {
+                case 1  -> new Call1(fn, args);
+                case 2  -> new Call2(fn, args);
+                default -> new Call3(fn, args);
+            };
+
+            for (final Node arg : args) {
+                if (!(arg instanceof Num)) {
+                    return call;
+                }
+            }
+
+            return new Num(call.eval(0));
+        }
+
+        @Override
+        MethodHandle handle() {
+            //The constants are bound to the function...
+            MethodHandle h = fn.handle();
+            for (int i = args.length - 1; i >= 0; i--) {
+                if (args[i] instanceof Num num) {
+                    h = MethodHandles.insertArguments(h, i, num.value);
+                }
+            }
+
+            //...and the rest of the arguments are functions of x
+            final ArrayList<MethodHandle> filters = new ArrayList<>(args.length);
+            for (final Node arg : args) {
+                if (arg instanceof Var) {
+                    filters.add(null);
+                } else if (!(arg instanceof Num)) {
+                    filters.add(arg.handle());
+                }
+            }
+
+            h = MethodHandles.filterArguments(h, 0, filters.toArray(new MethodHandle[0]));
+            if (filters.size() == 1) {
+                return h;
+            }
+
+            return MethodHandles.permuteArguments(h, UNARY, new int[filters.size()]);
+        }
+    }
+
+    private static final class Call1 extends Call {
+        private final DoubleUnaryOperator op;
+
+        Call1(Function fn, Node[] args) {
+            super(fn, args);
+            op = (DoubleUnaryOperator)fn.op();
+        }
+
+        @Override
+        double eval(double x) {
+            return op.applyAsDouble(args[0].eval(x));
+        }
+    }
+
+    private static final class Call2 extends Call {
+        private final DoubleBinaryOperator op;
+
+        Call2(Function fn, Node[] args) {
+            super(fn, args);
+            op = (DoubleBinaryOperator)fn.op();
+        }
+
+        @Override
+        double eval(double x) {
+            return op.applyAsDouble(args[0].eval(x), args[1].eval(x));
+        }
+    }
+
+    private static final class Call3 extends Call {
+        private final Ternary op;
+
+        Call3(Function fn, Node[] args) {
+            super(fn, args);
+            op = (Ternary)fn.op();
+        }
+
+        @Override
+        double eval(double x) {
+            return op.apply(args[0].eval(x), args[1].eval(x), args[2].eval(x));
+        }
+    }
+
+    /**
+     * Recursive descent parser of the formulas
+     * <pre>
+     *      expr    := term (('+' | '-') term)*
+     *      term    := unary (('*' | '/') unary)*
+     *      unary   := ('-' | '+') unary | power
+     *      power   := primary ('^' unary)?
+     *      primary := number | name | name '(' expr (',' expr)* ')' | '(' expr ')'
+     * </pre>
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node parse() {
+            final Node node = expr();
+            skip();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private Node expr() {
+            Node node = term();
+            while (true) {
+                if (eat('+')) {
+                    node = Call.of(ADD, node, term());
+                } else if (eat('-')) {
+                    node = Call.of(SUB, node, term());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node term() {
+            Node node = unary();
+            while (true) {
+                if (eat('*')) {
+                    node = Call.of(MUL, node, unary());
+                } else if (eat('/')) {
+                    node = Call.of(DIV, node, unary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node unary() {
+            if (eat('-')) {
+                return Call.of(NEG, unary());
+            }
+            if (eat('+')) {
+                return unary();
+            }
+            return power();
+        }
+
+        private Node power() {
+            final Node base = primary();
+            return eat('^') ? Call.of(POW, base, unary()) : base;
+        }
+
+        private Node primary() {
+            skip();
+            if (pos == text.length()) {
+                throw error("Unexpected end of the formula");
+            }
+
+            final char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                final Node node = expr();
+                expect(')');
+                return node;
+            }
+
+            if (c >= '0' && c <= '9' || c == '.') {
+                return number();
+            }
+
+            if (Character.isLetter(c)) {
+                return name();
+            }
+
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private Node number() {
+            final int start = pos;
+            digits();
+            if (pos < text.length() && text.charAt(pos) == '.') {
+                pos++;
+                digits();
+            }
+
+            //The exponent, but only if there's one ('2e' is '2' and 'e')
+            if (pos < text.length() && (text.charAt(pos) | 0x20) == 'e') {
+                int i = pos + 1;
+                if (i < text.length() && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                    i++;
+                }
+                if (i < text.length() && Character.isDigit(text.charAt(i))) {
+                    pos = i;
+                    digits();
+                }
+            }
+
+            try {
+                return new Num(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException ex) {
+                pos = start;
+                throw error("Invalid number");
+            }
+        }
+
+        private void digits() {
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private Node name() {
+            final int start = pos;
+            while (pos < text.length() &&
+                   (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+
+            final String name = text.substring(start, pos);
+            if (!peek('(')) {
+                switch (name) {
+                    case "x":  return new Var();
+                    case "pi": return new Num(Math.PI);
+                    case "e":  return new Num(Math.E);
+                    default:
+                        pos = start;
+                        throw error("Unknown variable '" + name + "'");
+                }
+            }
+
+            final Function fn = FUNCTIONS.get(name);
+            if (fn == null) {
+                pos = start;
+                throw error("Unknown function '" + name + "'");
+            }
+
+            expect('(');
+            final ArrayList<Node> args = new ArrayList<>(fn.arity());
+            do {
+                args.add(expr());
+            } while (eat(','));
+
+            if (args.size() != fn.arity()) {
+                pos = start;
+                throw error(String.format("'%s' takes %d argument%s",
+                        name, fn.arity(), fn.arity() == 1 ? "" : "s"));
+            }
+            expect(')');
+
+            return Call.of(fn, args.toArray(new Node[0]));
+        }
+
+        private void skip() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean peek(char c) {
+            skip();
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private boolean eat(char c) {
+            if (peek(c)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!eat(c)) {
+                throw error(pos == text.length() ? "Missing '" + c + "'"
+                                                 : "Expected '" + c + "'");
+            }
+        }
+
+        private ExpressionException error(String msg) {
+            return new ExpressionException(msg, text, pos);
+        }
+    }
+}
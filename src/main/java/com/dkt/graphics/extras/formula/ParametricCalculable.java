@@ -19,6 +19,7 @@
 package com.dkt.graphics.extras.formula;
 
 import com.dkt.graphics.extras.GFormula;
+import java.util.Objects;
 
 /**
  * This class is used within {@link GFormula} representing
@@ -42,5 +43,38 @@ public abstract class ParametricCalculable extends AbstractCalculable {
      * @return y(t)
      */
     public abstract double y(double t);
-    
+
+    /**
+     * Evaluates the equation on a block of parameters, this is the same as
+     * calling {@link ParametricCalculable#x(double)} and
+     * {@link ParametricCalculable#y(double)} for each one of them (and
+     * that's what the default implementation does).<br>
+     * Equations whose components share intermediate results (like
+     * {@code r(t)} on polar curves) can override it to compute them once per
+     * parameter.
+     *
+     * @param ts the parameters
+     * @param xs destination of {@code x(t)} for each parameter
+     * @param ys destination of {@code y(t)} for each parameter
+     * @param off index of the first value on all the arrays
+     * @param len number of values
+     * @throws IllegalArgumentException if any array is {@code null}
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of
+     * any array
+     */
+    public void f(double[] ts, double[] xs, double[] ys, int off, int len) {
+        if (ts == null || xs == null || ys == null) {
+            throw new IllegalArgumentException("The arrays can't be null");
+        }
+
+        Objects.checkFromIndexSize(off, len, ts.length);
+        Objects.checkFromIndexSize(off, len, xs.length);
+        Objects.checkFromIndexSize(off, len, ys.length);
+
+        for (int i = off, n = off + len; i < n; i++) {
+            final double t = ts[i];
+            xs[i] = x(t);
+            ys[i] = y(t);
+        }
+    }
 }
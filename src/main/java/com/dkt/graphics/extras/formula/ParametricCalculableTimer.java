@@ -24,9 +24,8 @@ import com.dkt.graphics.elements.GPath;
 import com.dkt.graphics.elements.GPointArray;
 import com.dkt.graphics.elements.Graphic;
 import com.dkt.graphics.elements.GraphicE;
-import com.dkt.graphics.utils.PThread;
-import com.dkt.graphics.utils.TicToc;
 import java.awt.Graphics2D;
+import java.util.Arrays;
 
 /**
  *
@@ -40,74 +39,57 @@ public class ParametricCalculableTimer extends AbstractTimer<ParametricCalculabl
     }
 
     @Override
-    protected PThread getThread(
+    protected Worker getWorker(
             ParametricCalculable calculable,
-            int threadNumber,
-            int threadsTotal,
+            int workerNumber,
+            int workersTotal,
             boolean drawPen)
     {
-        return new CalculatorThread(
+        return new CalculatorWorker(
                 calculable,
-                threadNumber,
-                threadsTotal,
+                workerNumber,
+                workersTotal,
                 drawPen
         );
     }
 
-    private class CalculatorThread extends PThread {
+    /**
+     * Number of values evaluated (and drawn) at once by the workers, it's
+     * small since the curve is drawn while it's being evaluated
+     */
+    private static final int BLOCK = 64;
+
+    private class CalculatorWorker extends Worker {
         private final ParametricCalculable calculable;
-        private final GMultiPoint points;
         private final boolean drawPen;
         private final GCircle pen;
 
-        private final double sx, sy, end, step;
-        private int lx = Integer.MAX_VALUE;
-        private int ly = Integer.MAX_VALUE;
-        private double t;
+        private final double sx, sy, start, step;
+        private GMultiPoint points;
+        private long last = -1;
+        private int[] bx = new int[BLOCK];
+        private int[] by = new int[BLOCK];
+        private int bn;
 
-        public CalculatorThread (
+        public CalculatorWorker (
                 ParametricCalculable calculable,
-                int threadNumber,
-                int threadsTotal,
+                int workerNumber,
+                int workersTotal,
                 boolean drawPen)
         {
-            setPriority(Thread.MIN_PRIORITY);
-            setName(String.format("%s: %d/%d",
+            super(String.format("%s: %d/%d",
                     calculable.getName(),
-                    threadNumber + 1,
-                    threadsTotal)
+                    workerNumber + 1,
+                    workersTotal)
             );
 
             this.calculable = calculable;
             this.drawPen    = drawPen;
 
-            final double start = calculable.startPoint();
-            final double endpt = calculable.endPoint  ();
-
-            if (threadsTotal != 1){
-                double interval = endpt - start;
-                interval /= threadsTotal;
-                t   = start + interval *  threadNumber;
-                end = start + interval * (threadNumber + 1);
-            } else {
-                t   = start;
-                end = endpt;
-            }
-
+            start = calculable.startPoint();
+            step  = calculable.step();
             sx = calculable.scaleX();
             sy = calculable.scaleY();
-            step = calculable.step();
-
-            final int size = (int)((end - t) / step) + 100;
-
-            if (drawAsPath()) {
-                points = new GPath(size);
-            } else {
-                points = new GPointArray(size);
-            }
-
-            points.setPaint(getPaint());
-            graphic.add(points);
 
             if (drawPen){
                 pen = new GCircle(0, 0, 2);
@@ -118,40 +100,133 @@ public class ParametricCalculableTimer extends AbstractTimer<ParametricCalculabl
             }
         }
 
+        /**
+         * Retrieves the element in which a chunk will be drawn, consecutive
+         * chunks taken by this thread share the same element
+         *
+         * @param from index of the first sample of the chunk
+         * @param size number of samples of the chunk
+         * @return element
+         */
+        private GMultiPoint points(long from, int size) {
+            if (from != last){
+                if (drawAsPath()) {
+                    points = new GPath(size);
+                } else {
+                    points = new GPointArray(size);
+                }
+
+                points.setPaint(getPaint());
+                graphic.add(points);
+            }
+
+            return points;
+        }
+
+        /**
+         * Adds a point to the batch that will be drawn on the next flush
+         *
+         * @param x X coordinate of the point
+         * @param y Y coordinate of the point
+         */
+        private void add(int x, int y) {
+            if (bn == bx.length){
+                bx = Arrays.copyOf(bx, 2 * bn);
+                by = Arrays.copyOf(by, 2 * bn);
+            }
+
+            bx[bn] = x;
+            by[bn] = y;
+            bn++;
+        }
+
+        /**
+         * Draws the current batch of points (with a single append)
+         */
+        private void flush() {
+            if (bn > 0){
+                points.append(bx, by, 0, bn);
+                drawn(bn);
+
+                if (drawPen){
+                    pen.move(bx[bn - 1], by[bn - 1]);
+                }
+
+                bn = 0;
+            }
+        }
+
         @Override
-        public void run() {
-            TicToc tt = new TicToc();
-            tt.tic();
+        protected void waiting() {
+            flush();
+        }
 
-            while(!interrupted() & t < end){
-                checkPause();
+        @Override
+        protected void work() {
+            final double[] ts = new double[BLOCK];
+            final double[] xs = new double[BLOCK];
+            final double[] ys = new double[BLOCK];
+            final long total = getSampleCount();
+            int lx = Integer.MAX_VALUE;
+            int ly = Integer.MAX_VALUE;
+
+            for (long k0; !isStopped() && (k0 = nextChunk()) >= 0;){
+                final long k1 = Math.min(total, k0 + getChunkSize());
+                points(k0, (int)(k1 - k0) + 1);
+                if (k0 != last){
+                    lx = Integer.MAX_VALUE;
+                    ly = Integer.MAX_VALUE;
+                }
 
-                final int x = (int)(calculable.x(t) * sx);
-                final int y = (int)(calculable.y(t) * sy);
+                //The first sample of the next chunk is drawn too, so the
+                //chunks are joined even if they are drawn by other threads
+                final long end = k1 < total ? k1 + 1 : k1;
 
-                if (lx != x | ly != y){
-                    if (drawPen){
-                        pen.move(x, y);
+                for (long k = k0; k < end;){
+                    final int n = acquire((int)Math.min(BLOCK, end - k));
+                    if (n == 0){
+                        break;
                     }
 
-                    points.append(x, y);
+                    for (int j = 0; j < n; j++){
+                        ts[j] = start + (k + j) * step;
+                    }
+
+                    evaluating();
+                    calculable.f(ts, xs, ys, 0, n);
+                    evaluated(n);
+
+                    for (int j = 0; j < n; j++){
+                        final int x = (int)(xs[j] * sx);
+                        final int y = (int)(ys[j] * sy);
 
-                    lx = x;
-                    ly = y;
+                        if (lx != x | ly != y){
+                            add(x, y);
+
+                            lx = x;
+                            ly = y;
+                        }
+                    }
+
+                    //Paced workers draw once per frame
+                    if (!isPaced()){
+                        flush();
+                    }
+
+                    k += n;
                 }
 
-                t += step;
-            }
+                flush();
 
-            tt.toc();
+                if (!isStopped()){
+                    last = k1;
+                    completed(k1 - k0);
+                }
+            }
 
             if (drawPen){
                 graphic.remove(pen);
             }
-
-            removeThread(this);
-
-            System.out.format("%s ended in %s%n", getName(), tt);
         }
     }
 
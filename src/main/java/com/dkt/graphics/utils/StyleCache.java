@@ -0,0 +1,232 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.utils;
+
+import com.dkt.graphics.elements.GraphicE;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Paint;
+import java.awt.Stroke;
+import java.awt.geom.Point2D;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a single (canonical) instance of each {@link Color},
+ * {@link BasicStroke}, {@link Font} and {@link GradientPaint}.<br>
+ * All these classes are immutable, so elements that use equal styles can
+ * share the same instance, this saves memory and lets the renderers detect
+ * that the style didn't change with a simple {@code ==}.<br>
+ * Only those exact classes are interned (subclasses like
+ * {@link java.awt.SystemColor} are returned as they are), and once the
+ * cache holds 16384 instances of a given type, new styles are returned
+ * without being interned.<br>
+ * This class is thread safe.
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public final class StyleCache {
+    private static final int MAX_SIZE = 1 << 14;
+    private static final ConcurrentHashMap<Integer, Color> COLORS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Stroke, Stroke> STROKES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Font, Font> FONTS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<GradientKey, GradientPaint> GRADIENTS = new ConcurrentHashMap<>();
+
+    static {
+        seed();
+    }
+
+    /**
+     * Don't let anyone initialize this class
+     */
+    private StyleCache(){}
+
+    /**
+     * Retrieves the canonical instance of a color
+     *
+     * @param argb color components (alpha in the 8 most significant bits)
+     * @return canonical color
+     */
+    public static Color color(int argb) {
+        final Color c = COLORS.get(argb);
+        if (c != null) {
+            return c;
+        }
+
+        return intern(new Color(argb, true));
+    }
+
+    /**
+     * Retrieves the canonical instance of a color
+     *
+     * @param r red component [0, 255]
+     * @param g green component [0, 255]
+     * @param b blue component [0, 255]
+     * @param a alpha component [0, 255]
+     * @return canonical color
+     * @throws IllegalArgumentException if any of the components is out of
+     * range
+     */
+    public static Color color(int r, int g, int b, int a) {
+        if (((r | g | b | a) & ~0xFF) != 0) {
+            //Let Color complain
+            return new Color(r, g, b, a);
+        }
+
+        return color(a << 24 | r << 16 | g << 8 | b);
+    }
+
+    /**
+     * Retrieves the canonical instance of a color
+     *
+     * @param c color
+     * @return canonical instance, or {@code c} if it can't be interned
+     */
+    public static Color intern(Color c) {
+        if (c == null || c.getClass() != Color.class) {
+            return c;
+        }
+
+        return put(COLORS, c.getRGB(), c);
+    }
+
+    /**
+     * Retrieves the canonical instance of a stroke, only
+     * {@link BasicStroke}s are interned
+     *
+     * @param s stroke
+     * @return canonical instance, or {@code s} if it can't be interned
+     */
+    public static Stroke intern(Stroke s) {
+        if (s == null || s.getClass() != BasicStroke.class) {
+            return s;
+        }
+
+        return put(STROKES, s, s);
+    }
+
+    /**
+     * Retrieves the canonical instance of a font
+     *
+     * @param f font
+     * @return canonical instance, or {@code f} if it can't be interned
+     */
+    public static Font intern(Font f) {
+        if (f == null || f.getClass() != Font.class) {
+            return f;
+        }
+
+        return put(FONTS, f, f);
+    }
+
+    /**
+     * Retrieves the canonical instance of a gradient.<br>
+     * {@link GradientPaint} doesn't implement {@code equals}, two gradients
+     * are considered the same if they have the same points, colors and
+     * cyclic flag.
+     *
+     * @param p gradient
+     * @return canonical instance, or {@code p} if it can't be interned
+     */
+    public static GradientPaint intern(GradientPaint p) {
+        if (p == null || p.getClass() != GradientPaint.class) {
+            return p;
+        }
+
+        return put(GRADIENTS, new GradientKey(p), p);
+    }
+
+    /**
+     * Retrieves the canonical instance of a paint, only {@link Color}s and
+     * {@link GradientPaint}s are interned.
+     *
+     * @param p paint
+     * @return canonical instance, or {@code p} if it can't be interned
+     */
+    public static Paint intern(Paint p) {
+        if (p instanceof Color c) {
+            return intern(c);
+        }
+
+        if (p instanceof GradientPaint gp) {
+            return intern(gp);
+        }
+
+        return p;
+    }
+
+    /**
+     * Retrieves the number of interned styles
+     *
+     * @return number of styles
+     */
+    public static int size() {
+        return COLORS.size() + STROKES.size() + FONTS.size() + GRADIENTS.size();
+    }
+
+    /**
+     * Removes all the interned styles (except the {@link Color} constants
+     * and {@link GraphicE#STROKE}).<br>
+     * The instances that are already in use are still valid, but styles
+     * interned after calling this method may not be the same instances as
+     * the ones interned before.
+     */
+    public static void clear() {
+        COLORS.clear();
+        STROKES.clear();
+        FONTS.clear();
+        GRADIENTS.clear();
+        seed();
+    }
+
+    private static void seed() {
+        final Color[] constants = {
+            Color.BLACK, Color.BLUE, Color.CYAN, Color.DARK_GRAY, Color.GRAY,
+            Color.GREEN, Color.LIGHT_GRAY, Color.MAGENTA, Color.ORANGE,
+            Color.PINK, Color.RED, Color.WHITE, Color.YELLOW
+        };
+
+        for (Color c : constants) {
+            COLORS.putIfAbsent(c.getRGB(), c);
+        }
+
+        STROKES.putIfAbsent(GraphicE.STROKE, GraphicE.STROKE);
+    }
+
+    private static <K, V> V put(ConcurrentHashMap<K, V> map, K key, V value) {
+        final V old = map.get(key);
+        if (old != null) {
+            return old;
+        }
+
+        if (map.size() >= MAX_SIZE) {
+            return value;
+        }
+
+        final V prev = map.putIfAbsent(key, value);
+        return prev == null ? value : prev;
+    }
+
+    private record GradientKey(Point2D p1, Color c1, Point2D p2, Color c2, boolean cyclic) {
+        GradientKey(GradientPaint p) {
+            this(p.getPoint1(), p.getColor1(), p.getPoint2(), p.getColor2(), p.isCyclic());
+        }
+    }
+}
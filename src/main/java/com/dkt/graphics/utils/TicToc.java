@@ -62,6 +62,15 @@ public final class TicToc {
         return (double) total / iter;
     }
 
+    /**
+     * Retrieves the sum of the elapsed times of all the tic-toc pairs
+     *
+     * @return total elapsed time in ns
+     */
+    public long getTotalNanoTime(){
+        return total;
+    }
+
     /**
      * @return elapsed time in µs
      */
@@ -0,0 +1,112 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.benchmarks;
+
+import com.dkt.graphics.extras.formula.Calculable;
+import com.dkt.graphics.extras.formula.Expression;
+import com.dkt.graphics.utils.MathUtils;
+import com.dkt.graphics.utils.TicToc;
+
+/**
+ * Evaluates a few formulas written as Java code, compiled from a
+ * {@link String} with {@link Expression#compile()} and interpreted with
+ * {@link Expression#eval(double)}, and reports the average time per sample.
+ * <br>
+ * This isn't a unit test, run it with:
+ * <pre>
+ *      mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.dkt.graphics.benchmarks.ExpressionBenchmark
+ * </pre>
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class ExpressionBenchmark {
+    private static final int WARMUP  = 30;
+    private static final int PASSES  = 50;
+    private static final int SAMPLES = 1_000_000;
+
+    public static void main(String[] args) {
+        run("3*x^3 - 2*x^2 + x - 7", new Calculable() {
+            @Override
+            public double f(double x) {
+                return 3 * Math.pow(x, 3) - 2 * Math.pow(x, 2) + x - 7;
+            }
+        });
+
+        run("sin(x)*exp(-x/10)", new Calculable() {
+            @Override
+            public double f(double x) {
+                return Math.sin(x) * Math.exp(-x / 10);
+            }
+        });
+
+        run("boxcar(x, -5, 5)*x*x + hs(x - 2)*rect(x/4)", new Calculable() {
+            @Override
+            public double f(double x) {
+                return MathUtils.boxcar(x, -5, 5) * x * x
+                     + MathUtils.hs(x - 2) * MathUtils.rect(x / 4);
+            }
+        });
+    }
+
+    private static void run(String formula, Calculable java) {
+        final Expression expression = Expression.parse(formula);
+        final Calculable interpreted = new Calculable() {
+            @Override
+            public double f(double x) {
+                return expression.eval(x);
+            }
+        };
+
+        System.out.format("%s%n", formula);
+        System.out.format("    %-12s %s per sample%n", "java",        time(java));
+        System.out.format("    %-12s %s per sample%n", "compiled",    time(expression.compile()));
+        System.out.format("    %-12s %s per sample%n", "interpreted", time(interpreted));
+    }
+
+    private static String time(Calculable f) {
+        final double[] xs  = new double[SAMPLES];
+        final double[] out = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = -10 + 20.0 * i / SAMPLES;
+        }
+
+        final TicToc tt = new TicToc();
+        double sum = 0;
+        for (int i = 0; i < WARMUP + PASSES; i++) {
+            if (i >= WARMUP) {
+                tt.tic();
+            }
+
+            f.f(xs, out, 0, SAMPLES);
+
+            if (i >= WARMUP) {
+                tt.toc();
+            }
+            sum += out[i];
+        }
+
+        //So the JIT can't drop the evaluations
+        if (sum == 42) {
+            System.out.println();
+        }
+
+        return String.format("%6.2fns", tt.getNanoTime() / SAMPLES);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.benchmarks;
+
+import com.dkt.graphics.elements.GLine;
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.utils.TicToc;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Draws a {@link Graphic} over and over while several workers keep adding
+ * elements to it, and reports how many frames were drawn and how long the
+ * workers took.<br>
+ * This isn't a unit test, run it with:
+ * <pre>
+ *      mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.dkt.graphics.benchmarks.GraphicContentionBenchmark
+ * </pre>
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GraphicContentionBenchmark {
+    private static final int WORKERS  = 4;
+    private static final int ELEMENTS = 250_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            run();
+        }
+    }
+
+    private static void run() throws InterruptedException {
+        final Graphic graphic = new Graphic();
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(WORKERS);
+        final BufferedImage img = new BufferedImage(500, 500, BufferedImage.TYPE_INT_ARGB);
+        final TicToc tt = new TicToc();
+
+        final Thread drawer = new Thread(() -> {
+            final Graphics2D g = img.createGraphics();
+            int frames = 0;
+            while (!done.get()) {
+                graphic.draw(g);
+                frames++;
+            }
+            g.dispose();
+            System.out.format("  frames drawn: %d%n", frames);
+        });
+
+        tt.tic();
+        drawer.start();
+
+        for (int w = 0; w < WORKERS; w++) {
+            final int off = w;
+            new Thread(() -> {
+                for (int i = 0; i < ELEMENTS; i++) {
+                    graphic.add(new GLine(off, i % 500, 499 - off, i % 500));
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        latch.await();
+        tt.toc();
+        done.set(true);
+        drawer.join();
+
+        System.out.format("%d workers added %d elements in %s%n",
+                WORKERS, graphic.getCount(), tt);
+    }
+}
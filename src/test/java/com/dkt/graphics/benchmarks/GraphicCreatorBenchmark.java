@@ -0,0 +1,278 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.benchmarks;
+
+import com.dkt.graphics.extras.CompiledScript;
+import com.dkt.graphics.extras.GraphicCreator;
+import com.dkt.graphics.extras.IncrementalScript;
+import com.dkt.graphics.utils.TicToc;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Parses all the example scripts in the test resources and reports the
+ * average time per pass, both for the scripts themselves, for scripts made
+ * only of unknown commands or bad arguments (the error path), for a long
+ * script (parsed both from a {@code String} and from a stream), for paths
+ * with millions of coordinates (from a stream) and for big
+ * loops. The examples are also executed from {@link CompiledScript}s (the
+ * long script is too big for the cache, so it's always read), and a big
+ * generated script is executed both sequentially and in parallel. Finally a
+ * document that's edited on every pass is parsed from scratch and with an
+ * {@link IncrementalScript}.<br>
+ * This isn't a unit test, run it with:
+ * <pre>
+ *      mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.dkt.graphics.benchmarks.GraphicCreatorBenchmark
+ * </pre>
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GraphicCreatorBenchmark {
+    private static final int WARMUP = 50;
+    private static final int PASSES = 200;
+
+    public static void main(String[] args) throws IOException, URISyntaxException {
+        final ArrayList<String> scripts = new ArrayList<>();
+        //Any of the examples will do, we only need the folder
+        final Path dir = Paths.get(
+                GraphicCreatorBenchmark.class.getResource("/blueprint").toURI()
+        ).getParent();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>)files.sorted()::iterator) {
+                if (Files.isRegularFile(p)) {
+                    scripts.add(Files.readString(p, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        final StringBuilder unknown = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            unknown.append("foo ").append(i).append(" 1 2 3\n");
+        }
+
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            large.append("linec ").append(i % 500).append(" 0 0 ")
+                 .append(i % 300).append("; # line ").append(i).append('\n');
+        }
+
+        run("examples", scripts.toArray(new String[0]));
+        compiled("compiled", scripts.toArray(new String[0]));
+        run("unknown commands", unknown.toString());
+
+        final StringBuilder bad = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            bad.append("circle ").append(i).append(" x 3; linec 1 2 3\n");
+        }
+        run("bad arguments", bad.toString());
+        run("long script", large.toString());
+        stream("long stream", large.toString().getBytes(StandardCharsets.UTF_8));
+
+        final StringBuilder paths = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            paths.append(i % 2 == 0 ? "lpath" : "polyp");
+            for (int j = 0; j < 100_000; j++) {
+                paths.append(' ').append((i * 7 + j * 13) % 2000 - 1000);
+            }
+            paths.append('\n');
+        }
+        stream("big paths", paths.toString().getBytes(StandardCharsets.UTF_8));
+        run("loops",
+            "for1 0 1 100000 \"circle %d 0 5\"",
+            "for3 0 1 300 0 1 300 \"point %d %d; linec %1$d %2$d 0 0\""
+        );
+
+        final StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 400_000; i++) {
+            if (i % 100 == 0) {
+                big.append("color ").append(i % 255).append(" 0 0\n");
+            }
+            big.append("polyp 0 0 ").append(i % 500).append(' ').append(i % 300)
+               .append(" 10 10 20 5 ").append(i % 70).append(" 30\n");
+        }
+        final CompiledScript cs = GraphicCreator.compile(big.toString());
+        parallel("sequential", cs, false);
+        parallel("parallel", cs, true);
+
+        final StringBuilder doc = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            if (i % 100 == 0) {
+                doc.append("color ").append(i % 255).append(" 0 0\n");
+            }
+            doc.append("polyp 0 0 ").append(i % 500).append(' ').append(i % 300)
+               .append(" 10 10 20 5 ").append(i % 70).append(" 30\n");
+        }
+        incremental("full reparse", doc.toString(), false);
+        incremental("incremental", doc.toString(), true);
+    }
+
+    private static void incremental(String name, String script, boolean incremental) {
+        final TicToc tt = new TicToc();
+        final IncrementalScript inc = new IncrementalScript();
+        final int mid = script.indexOf('\n', script.length() / 2) + 1;
+        int lines = 0;
+
+        for (int i = 0; i < WARMUP + PASSES; i++) {
+            //A keystroke in the middle of the document
+            final String edit = script.substring(0, mid) + "circle " + i + " 0 5\n"
+                              + script.substring(mid);
+            if (i >= WARMUP) {
+                tt.tic();
+            }
+
+            if (incremental) {
+                inc.update(edit);
+                lines = inc.getCreator().getTotalLineCount();
+            } else {
+                final GraphicCreator gc = new GraphicCreator();
+                gc.parse(GraphicCreator.compile(edit));
+                lines = gc.getTotalLineCount();
+            }
+
+            if (i >= WARMUP) {
+                tt.toc();
+            }
+        }
+
+        System.out.format("%-16s %2d scripts %6d lines %5d errors: %s per pass%n",
+                name, 1, lines, 0, tt);
+    }
+
+    private static void parallel(String name, CompiledScript script, boolean parallel) {
+        final TicToc tt = new TicToc();
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        int lines = 0;
+        int errors = 0;
+
+        for (int i = 0; i < WARMUP / 5 + PASSES / 10; i++) {
+            if (i >= WARMUP / 5) {
+                tt.tic();
+            }
+
+            final GraphicCreator gc = new GraphicCreator();
+            if (parallel) {
+                gc.parseParallel(script, pool);
+            } else {
+                gc.parse(script);
+            }
+            lines  = gc.getTotalLineCount();
+            errors = gc.getErrorCount();
+
+            if (i >= WARMUP / 5) {
+                tt.toc();
+            }
+        }
+
+        System.out.format("%-16s %2d scripts %6d lines %5d errors: %s per pass (%d threads)%n",
+                name, 1, lines, errors, tt, parallel ? pool.getParallelism() : 1);
+    }
+
+    private static void stream(String name, byte[] script) throws IOException {
+        final TicToc tt = new TicToc();
+        int lines = 0;
+
+        for (int i = 0; i < WARMUP / 10 + PASSES / 10; i++) {
+            if (i >= WARMUP / 10) {
+                tt.tic();
+            }
+
+            final GraphicCreator gc = new GraphicCreator();
+            gc.parse(new ByteArrayInputStream(script));
+            lines = gc.getTotalLineCount();
+
+            if (i >= WARMUP / 10) {
+                tt.toc();
+            }
+        }
+
+        System.out.format("%-16s %2d scripts %6d lines %5d errors: %s per pass%n",
+                name, 1, lines, 0, tt);
+    }
+
+    private static void compiled(String name, String... scripts) {
+        final CompiledScript[] compiled = new CompiledScript[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            compiled[i] = GraphicCreator.compile(scripts[i]);
+        }
+
+        final TicToc tt = new TicToc();
+        int lines = 0;
+        int errors = 0;
+
+        for (int i = 0; i < WARMUP + PASSES; i++) {
+            if (i >= WARMUP) {
+                tt.tic();
+            }
+
+            lines = 0;
+            errors = 0;
+            for (CompiledScript script : compiled) {
+                final GraphicCreator gc = new GraphicCreator();
+                gc.parse(script);
+                lines  += gc.getTotalLineCount();
+                errors += gc.getErrorCount();
+            }
+
+            if (i >= WARMUP) {
+                tt.toc();
+            }
+        }
+
+        System.out.format("%-16s %2d scripts %6d lines %5d errors: %s per pass%n",
+                name, scripts.length, lines, errors, tt);
+    }
+
+    private static void run(String name, String... scripts) {
+        final TicToc tt = new TicToc();
+        int lines = 0;
+        int errors = 0;
+
+        for (int i = 0; i < WARMUP + PASSES; i++) {
+            if (i >= WARMUP) {
+                tt.tic();
+            }
+
+            lines = 0;
+            errors = 0;
+            for (String script : scripts) {
+                final GraphicCreator gc = new GraphicCreator();
+                gc.parse(script);
+                lines  += gc.getTotalLineCount();
+                errors += gc.getErrorCount();
+            }
+
+            if (i >= WARMUP) {
+                tt.toc();
+            }
+        }
+
+        System.out.format("%-16s %2d scripts %6d lines %5d errors: %s per pass%n",
+                name, scripts.length, lines, errors, tt);
+    }
+}
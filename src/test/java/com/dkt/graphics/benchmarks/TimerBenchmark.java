@@ -0,0 +1,111 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.benchmarks;
+
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.extras.formula.AbstractTimer;
+import com.dkt.graphics.extras.formula.Calculable;
+import com.dkt.graphics.extras.formula.CalculableTimer;
+import com.dkt.graphics.utils.TicToc;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs 500 {@link CalculableTimer} at the same time, each one with its own
+ * thread and on a shared pool, and reports how long they took. The last
+ * column pauses and resumes every timer each millisecond while they run.
+ * <br>
+ * This isn't a unit test, run it with:
+ * <pre>
+ *      mvn test-compile exec:java -Dexec.classpathScope=test \
+ *          -Dexec.mainClass=com.dkt.graphics.benchmarks.TimerBenchmark
+ * </pre>
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class TimerBenchmark {
+    private static final int TIMERS  = 500;
+    private static final int SAMPLES = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        final ExecutorService pool = Executors.newFixedThreadPool(cpus);
+
+        System.out.format("%-8s %12s %12s %12s%n", "run", "threads", "pool", "pool+pause");
+        for (int i = 0; i < 5; i++) {
+            System.out.format("%-8d %12s %12s %12s%n", i,
+                              run(null, false), run(pool, false), run(pool, true));
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private static TicToc run(ExecutorService pool, boolean pause)
+            throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(TIMERS);
+        final CalculableTimer[] timers = new CalculableTimer[TIMERS];
+
+        for (int i = 0; i < TIMERS; i++) {
+            final Calculable f = new Calculable() {
+                @Override
+                public double f(double x) throws DomainException {
+                    return 100 * Math.sin(x / 100);
+                }
+            };
+            f.startPoint(0);
+            f.endPoint(SAMPLES);
+            f.step(1);
+
+            timers[i] = new CalculableTimer(f);
+            timers[i].setExecutor(pool);
+            timers[i].setActions(new AbstractTimer.Action() {
+                @Override public void start() {}
+                @Override public void pause() {}
+                @Override public void resume() {}
+                @Override public void stop() {
+                    latch.countDown();
+                }
+            });
+        }
+
+        final TicToc tt = new TicToc();
+        tt.tic();
+        for (final CalculableTimer timer : timers) {
+            timer.start();
+        }
+
+        while (!latch.await(1, TimeUnit.MILLISECONDS)) {
+            if (pause) {
+                for (final CalculableTimer timer : timers) {
+                    timer.pause();
+                }
+                for (final CalculableTimer timer : timers) {
+                    timer.resume();
+                }
+            }
+        }
+        tt.toc();
+
+        return tt;
+    }
+}
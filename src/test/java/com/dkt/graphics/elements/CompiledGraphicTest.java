@@ -0,0 +1,198 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import com.dkt.graphics.extras.GraphicCreator;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class CompiledGraphicTest {
+    private static final String SCRIPT =
+            "color 128 128 128\n" +
+            "for2 0 10 145 140 10 0 \"linec  %1$d  150  150  %2$d\"\n" +
+            "for2 0 10 145 140 10 0 \"linec -%1$d -150 -150 -%2$d\"\n" +
+            "color 0 0 0\n" +
+            "clipadd circle 0 0 156\n" +
+            "fill true\n" +
+            "fillcolor 255 0 0\n" +
+            "rectc 0 0 20 20\n" +
+            "linec -150 -150  150  150\n" +
+            "linec -150  150  150 -150";
+
+    private static BufferedImage render(GraphicE e, double scale) {
+        BufferedImage img = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.translate(200, 200);
+        g.scale(scale, scale);
+        e.draw(g);
+        g.dispose();
+        return img;
+    }
+
+    private static int diff(BufferedImage a, BufferedImage b) {
+        int count = 0;
+        for (int i = 0; i < a.getWidth(); i++) {
+            for (int j = 0; j < a.getHeight(); j++) {
+                if (a.getRGB(i, j) != b.getRGB(i, j)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("Compiled graphics are drawn like the source")
+    public void testSameOutput() {
+        Graphic g = new GraphicCreator().parse(SCRIPT);
+        g.traslate(5, -5);
+        CompiledGraphic cg = g.compile();
+
+        assertEquals(0, diff(render(g, 1), render(cg, 1)));
+        assertEquals(0, diff(render(g, 2), render(cg, 2)));
+    }
+
+    @Test
+    @DisplayName("Lines with the same style are merged")
+    public void testMerge() {
+        Graphic g = new Graphic();
+        for (int i = 0; i < 1000; i++) {
+            GLine l = new GLine(0, i, 100, i);
+            l.setPaint(new Color(0, 0, 255));
+            g.add(l);
+        }
+        CompiledGraphic cg = g.compile();
+        //clip, transform, paint, stroke, composite and a single path
+        assertEquals(6, cg.getOperationCount());
+
+        GLine l = new GLine(0, 0, 100, 100);
+        l.setPaint(Color.RED);
+        g.add(l);
+        assertEquals(8, cg.getOperationCount());
+
+        //Translucent lines aren't merged
+        Graphic g2 = new Graphic();
+        for (int i = 0; i < 10; i++) {
+            GLine t = new GLine(0, i, 100, i);
+            t.setPaint(new Color(0, 0, 255, 128));
+            g2.add(t);
+        }
+        assertEquals(15, g2.compile().getOperationCount());
+    }
+
+    @Test
+    @DisplayName("Invalidation")
+    public void testInvalidate() {
+        Graphic g = new Graphic();
+        GRectangle r = new GRectangle(0, 0, 10, 10);
+        r.setFill(true);
+        r.setFillPaint(Color.RED);
+        r.setPaint(Color.RED);
+        g.add(r);
+
+        CompiledGraphic cg = g.compile();
+        assertEquals(Color.RED.getRGB(), render(cg, 1).getRGB(200, 200));
+
+        //Structural changes are detected
+        g.traslate(100, 0);
+        assertEquals(0, render(cg, 1).getRGB(200, 200));
+        assertEquals(Color.RED.getRGB(), render(cg, 1).getRGB(300, 200));
+
+        //Changes on elements aren't
+        r.traslate(-100, 0);
+        assertEquals(0, render(cg, 1).getRGB(200, 200));
+        cg.invalidate();
+        assertEquals(Color.RED.getRGB(), render(cg, 1).getRGB(200, 200));
+
+        //Nested graphics are also checked
+        Graphic inner = new Graphic();
+        g.add(inner);
+        cg.getOperationCount();
+        inner.add(r.clone());
+        inner.traslate(50, 50);
+        assertEquals(Color.RED.getRGB(), render(cg, 1).getRGB(250, 250));
+
+        g.setVisible(false);
+        assertEquals(0, cg.getOperationCount());
+    }
+
+    @Test
+    @DisplayName("Offset and clone")
+    public void testTraslate() {
+        Graphic g = new Graphic();
+        GRectangle r = new GRectangle(0, 0, 10, 10);
+        r.setFill(true);
+        r.setFillPaint(Color.RED);
+        r.setPaint(Color.RED);
+        g.add(r);
+
+        CompiledGraphic cg = g.compile();
+        CompiledGraphic c2 = cg.clone();
+        assertEquals(cg, c2);
+        assertEquals(cg.hashCode(), c2.hashCode());
+
+        c2.traslate(20, 20);
+        assertNotEquals(cg, c2);
+        assertEquals(0, g.getXOffset());
+        assertEquals(Color.RED.getRGB(), render(c2, 1).getRGB(220, 220));
+        c2.move(0, 0);
+        assertEquals(cg, c2);
+        assertThrows(IllegalArgumentException.class, () -> new CompiledGraphic((Graphic)null));
+    }
+
+    @Test
+    @DisplayName("Raster cache")
+    public void testCache() {
+        Graphic g = new GraphicCreator().parse(SCRIPT);
+        CompiledGraphic cg = g.compile();
+        CompiledGraphic cached = g.compile();
+        cached.setCached(true);
+        assertTrue(cached.isCached());
+
+        for (double scale : new double[]{1, 0.5, 1}) {
+            BufferedImage a = render(cg, scale);
+            BufferedImage b = render(cached, scale);
+            assertEquals(0, diff(a, b), "Scale " + scale);
+        }
+    }
+
+    @Test
+    @DisplayName("Strings are drawn directly")
+    public void testStrings() {
+        Graphic g = new Graphic();
+        GString s = new GString(0, 0, "Hello");
+        s.setFont(new Font(Font.MONOSPACED, Font.BOLD, 40));
+        g.add(s);
+        g.add(new GLine(0, 0, 10, 10));
+
+        CompiledGraphic cg = g.compile();
+        assertEquals(0, diff(render(g,  1), render(cg,  1)));
+        assertEquals(0, diff(render(g, -1), render(cg, -1)));
+    }
+}
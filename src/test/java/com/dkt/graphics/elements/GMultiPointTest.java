@@ -452,6 +452,31 @@ public class GMultiPointTest {
 
     }
 
+    @Test
+    @DisplayName("Append several points at once")
+    public void testAppend3() {
+        int[] XX = {0, 1, 2, 3, 4, 3};
+        int[] YY = {5, 6, 7, 8, 9, 8};
+        GMultiPoint mp = new GMPTest(1);
+        mp.append(7, 7);
+
+        mp.append(XX, YY, 1, 4);
+        assertEquals(5, mp.size());
+        assertEquals(new GPoint(7, 7), mp.getPointAt(0));
+        for (int i = 1; i < 5; i++) {
+            assertEquals(new GPoint(XX[i], YY[i]), mp.getPointAt(i));
+        }
+
+        mp.append(XX, YY, 6, 0);
+        assertEquals(5, mp.size());
+
+        assertThrows(IllegalArgumentException.class, () -> mp.append(null, YY, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> mp.append(XX, null, 0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> mp.append(XX, YY, 3, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> mp.append(XX, new int[2], 0, 3));
+        assertEquals(5, mp.size());
+    }
+
     @Test
     @DisplayName("AppendNR to empty")
     public void testAppendNR1() {
@@ -18,8 +18,28 @@
  */
 package com.dkt.graphics.elements;
 
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.CompiledScript;
 import com.dkt.graphics.extras.GraphicCreator;
+import com.dkt.graphics.utils.Utils;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Paint;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
@@ -269,4 +289,305 @@ public class GraphicCreatorTest {
         assertEquals(0, gc.getErrorCount());
         assertEquals(7, gc.getTotalLineCount());
     }
+
+    @Test
+    @DisplayName("All the public methods are commands")
+    public void testBuiltInCommands() {
+        GraphicCreator gc = new GraphicCreator();
+        for (Method m : GraphicCreator.class.getDeclaredMethods()) {
+            //parse(String...) was never meant to be used from scripts
+            if (Modifier.isPublic(m.getModifiers()) && !m.isVarArgs() &&
+                m.getParameterCount() == 1 &&
+                m.getParameterTypes()[0] == String[].class) {
+                assertTrue(gc.isCommand(m.getName()), m.getName());
+            }
+        }
+        assertFalse(gc.isCommand("parse"));
+        assertFalse(gc.isCommand(null));
+    }
+
+    @Test
+    @DisplayName("Unknown commands and errors")
+    public void testErrors() {
+        GraphicCreator gc = new GraphicCreator();
+        Graphic g = gc.parse(
+                "foo 1 2\n"
+              + "point a b\n"
+              + "linec 1 2 3\n"
+              + "transoff\n"
+              + "point 1 1"
+        );
+        assertEquals(1, g.getCount());
+        assertEquals(4, gc.getErrorCount());
+    }
+
+    @Test
+    @DisplayName("Registered commands")
+    public void testRegister() {
+        GraphicCreator gc = new GraphicCreator();
+        gc.register("square", (c, args) -> {
+            final int s = Integer.parseInt(args[1]);
+            return new GRectangle(0, 0, s, s);
+        });
+        gc.register("red", (c, args) -> c.color(new String[]{"color", "255", "0", "0"}));
+        assertTrue(gc.isCommand("square"));
+
+        Graphic g = gc.parse(
+                "red\n"
+              + "square 10\n"
+              + "square x\n"
+              + "for1 1 1 3 \"square %d\""
+        );
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(2, g.getCount());
+        GRectangle r = (GRectangle)g.iterator().next();
+        assertEquals(new GRectangle(0, 0, 10, 10), withoutStyle(r));
+        assertEquals(Color.RED, r.getPaint());
+        assertEquals(0, g.indexOf(r));
+        assertEquals(3, nth(g, 1).getCount());
+
+        assertTrue(gc.unregister("square"));
+        assertFalse(gc.unregister("square"));
+        gc.parse("square 10");
+        assertEquals(1, gc.getErrorCount());
+
+        assertThrows(InvalidArgumentException.class, () -> gc.register("point", (c, a) -> null));
+        assertThrows(InvalidArgumentException.class, () -> gc.register("a b", (c, a) -> null));
+        assertThrows(InvalidArgumentException.class, () -> gc.register("", (c, a) -> null));
+        assertThrows(IllegalArgumentException.class, () -> gc.register("foo", null));
+        assertThrows(IllegalArgumentException.class, () -> gc.register(null, (c, a) -> null));
+    }
+
+    private static GRectangle withoutStyle(GRectangle r) {
+        GRectangle copy = new GRectangle(r);
+        copy.setPaint(Color.BLACK);
+        return copy;
+    }
+
+    private static Graphic nth(Graphic g, int n) {
+        Iterator<GraphicE> it = g.iterator();
+        for (int i = 0; i < n; i++) {
+            it.next();
+        }
+        return (Graphic)it.next();
+    }
+
+    @Test
+    @DisplayName("Parse from a reader or a stream")
+    public void testStreams() throws IOException {
+        String script = "point 0 0 # first\n"
+                      + "for1 1 1 3 \"point %1$d 0; # comment\n"
+                      + "      point 0 %1$d\"\n"
+                      + "point 1 1 | point 2 2";
+        GraphicCreator gc = new GraphicCreator();
+        Graphic g1 = gc.parse(script);
+        Graphic g2 = gc.parse(new StringReader(script));
+        Graphic g3 = gc.parse(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, g1.getCount());
+        assertEquals(6, nth(g1, 1).getCount());
+        assertEquals(g1, g2);
+        assertEquals(g1, g3);
+        assertEquals(0, gc.getErrorCount());
+        assertThrows(IllegalArgumentException.class, () -> gc.parse((StringReader)null));
+    }
+
+    @Test
+    @DisplayName("Loop templates")
+    public void testLoops() {
+        GraphicCreator gc = new GraphicCreator();
+        Graphic g = gc.parse("for2 1 1 3 5 -1 0 \"linec %d %d %<d %1$d;circle %2$d %1$d 1;\"");
+        Graphic e = gc.parse(
+                "linec 1 5 5 1", "circle 5 1 1",
+                "linec 2 4 4 2", "circle 4 2 1",
+                "linec 3 3 3 3", "circle 3 3 1"
+        );
+        assertEquals(e, nth(g, 0));
+        assertEquals(0, gc.getErrorCount());
+
+        g = gc.parse("for1 1 1 3 \"point %d 0;point 0 %1$d;\"");
+        assertEquals(6, nth(g, 0).getCount());
+        assertEquals(9, gc.getTotalLineCount());
+
+        g = gc.parse("for1 0 1 1 \"for1 0 1 %1$d point %%d %1$d\"");
+        Graphic outer = nth(g, 0);
+        assertEquals(2, outer.getCount());
+        assertEquals(0, nth(outer, 0).getCount());
+        assertEquals(gc.parse("point 0 1", "point 1 1"), nth(outer, 1));
+
+        g = gc.parse("for3 0 1 1 0 1 2 \"point %2$d %d\"");
+        assertEquals(6, nth(g, 0).getCount());
+        g = gc.parse("for4 0 1 1 0 1 1 0 1 1 \"point %d %d;point %d 0\"");
+        assertEquals(16, nth(g, 0).getCount());
+
+        g = gc.parse("for1 1 1 2 \"point %+d 0\"");
+        assertEquals(gc.parse("point 1 0", "point 2 0"), nth(g, 0));
+
+        gc.parse("for1 1 1 2 \"point %2$d 0\"");
+        assertEquals(1, gc.getErrorCount());
+        gc.parse("for1 1 1 2 \"point %4$d 0\"");
+        assertEquals(1, gc.getErrorCount());
+        gc.parse("for1 1 1 2 \"point %q 0\"");
+        assertEquals(1, gc.getErrorCount());
+    }
+
+    @Test
+    @DisplayName("Loop templates with integer arguments")
+    public void testLoopsTyped() {
+        GraphicCreator gc = new GraphicCreator();
+        Graphic g = gc.parse("for1 1 1 2 \"rectf 0 0 %d %<d;polyn 5 5 %1$d 3;"
+                           + "polyn 0 0 2 %1$d 1;lpath 0 0 %1$d %<d 3 0;"
+                           + "polyp %1$d 0 0 %<d;grid 8 8 %1$d 4;point %1$d 2;"
+                           + "point %1$d 1 %<d;circle -%1$d 0 2;arcc 0 0 3 %1$d 90\"");
+        Graphic e = gc.parse(
+                "rectf 0 0 1 1", "polyn 5 5 1 3", "polyn 0 0 2 1 1",
+                "lpath 0 0 1 1 3 0", "polyp 1 0 0 1", "grid 8 8 1 4",
+                "point 1 2", "point 1 1 1", "circle -1 0 2", "arcc 0 0 3 1 90",
+                "rectf 0 0 2 2", "polyn 5 5 2 3", "polyn 0 0 2 2 1",
+                "lpath 0 0 2 2 3 0", "polyp 2 0 0 2", "grid 8 8 2 4",
+                "point 2 2", "point 2 1 2", "circle -2 0 2", "arcc 0 0 3 2 90"
+        );
+        assertEquals(e, nth(g, 0));
+                assertEquals(0, gc.getErrorCount());
+
+        //The statements that aren't only integers are executed as words
+        g = gc.parse("for1 1 1 2 \"linep 0 0 %d.5 0;point 1%<d 0\"");
+        e = gc.parse("linep 0 0 1.5 0", "point 11 0", "linep 0 0 2.5 0", "point 12 0");
+        assertEquals(e, nth(g, 0));
+
+        g = gc.parse("for1 -1 1 1 \"oval 0 0 %d 2;point %1$d 0\"");
+        assertEquals(5, nth(g, 0).getCount());
+        assertEquals(1, gc.getErrorCount());
+        assertEquals("oval", gc.getDiagnostics().get(0).command());
+        assertEquals(1, gc.getDiagnostics().get(0).line());
+    }
+
+    @Test
+    @DisplayName("Compiled scripts")
+    public void testCompiled() throws Exception {
+        String script = "color 255 0 0\n"
+                      + "# comment\n"
+                      + "for2 0 1 50 0 2 100 \"circle %d %d 5; linec 0 0 %1$d %2$d\"\n"
+                      + "colorf 0 0 255; rectf 0 0 10 10\n"
+                      + "square 10";
+        GraphicCreator gc = new GraphicCreator();
+        Graphic expected = gc.parse(script);
+        assertEquals(1, gc.getErrorCount());
+
+        CompiledScript cs = GraphicCreator.compile(script);
+        assertEquals(6, cs.size());
+        assertEquals(expected, cs.execute());
+        gc.clear();
+        assertEquals(expected, gc.parse(cs));
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(6 + 51 * 2, gc.getTotalLineCount());
+
+        gc.register("square", (c, args) -> new GRectangle(0, 0, 10, 10));
+        gc.clear();
+        assertEquals(expected.getCount() + 1, gc.parse(cs).getCount());
+        assertEquals(0, gc.getErrorCount());
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<Graphic>> out = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                out.add(pool.submit(cs::execute));
+            }
+            for (Future<Graphic> f : out) {
+                assertEquals(expected, f.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> GraphicCreator.compile(null));
+        assertThrows(IllegalArgumentException.class, () -> gc.parse((CompiledScript)null));
+    }
+
+    @Test
+    @DisplayName("Parallel parsing")
+    public void testParallel() {
+        final String[] lines = {
+            "point %d %d", "linec %d %d 1 1", "circle %d %d 5", "rectc %d %d 4 4",
+            "polyp 0 0 %d %d 5 5", "string %d %d hello", "arcc %d %d 5 0 90",
+            "color 255 %d 0", "colorf 0 %d 0", "stroke %d", "font Serif 0 %d",
+            "gradient 0 0 %d %d", "circle x %d %d", "foo %d %d", "# %d %d",
+            "for1 0 1 3 \"point %%d %d\"", "traslate %d %d", "transoff",
+            "clipadd rectc 0 0 %d %d", "clipoff"
+        };
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            //Mostly geometry, with some configuration changes here and there
+            String line = lines[rnd.nextInt(10) == 0 ? rnd.nextInt(lines.length) : rnd.nextInt(7)];
+            sb.append(String.format(line, rnd.nextInt(100) + 1, rnd.nextInt(100) + 1)).append('\n');
+        }
+        String script = sb.toString();
+
+        GraphicCreator gc = new GraphicCreator();
+        Graphic expected = gc.parse(script);
+        int errors = gc.getErrorCount();
+        int count  = gc.getTotalLineCount();
+        assertTrue(errors > 0);
+
+        //GradientPaint doesn't implement equals, so the graphics are compared
+        //element by element and drawn
+        gc.clear();
+        assertSameGraphic(expected, gc.parseParallel(script));
+        assertEquals(errors, gc.getErrorCount());
+        assertEquals(count, gc.getTotalLineCount());
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            gc.clear();
+            Graphic g = gc.parseParallel(GraphicCreator.compile(script), pool);
+            assertSameGraphic(expected, g);
+            assertEquals(errors, gc.getErrorCount());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> gc.parseParallel((String)null));
+        assertThrows(IllegalArgumentException.class,
+                () -> gc.parseParallel(GraphicCreator.compile("point 0 0"), null));
+    }
+
+    private static void assertSameGraphic(Graphic g1, Graphic g2) {
+        assertEquals(g1.getCount(), g2.getCount());
+        Iterator<GraphicE> it1 = g1.iterator();
+        Iterator<GraphicE> it2 = g2.iterator();
+        while (it1.hasNext()) {
+            GraphicE e1 = it1.next();
+            GraphicE e2 = it2.next();
+            assertEquals(e1.getClass(), e2.getClass());
+            assertEquals(e1.getStroke(), e2.getStroke());
+            assertEquals(describe(e1.getPaint()), describe(e2.getPaint()));
+            if (e1 instanceof GFillableE f1) {
+                GFillableE f2 = (GFillableE)e2;
+                assertEquals(f1.fill(), f2.fill());
+                assertEquals(describe(f1.getFillPaint()), describe(f2.getFillPaint()));
+            }
+            if (e1 instanceof Graphic) {
+                assertSameGraphic((Graphic)e1, (Graphic)e2);
+            }
+        }
+
+        BufferedImage i1 = Utils.draw(g1, 120, 120);
+        BufferedImage i2 = Utils.draw(g2, 120, 120);
+        for (int x = 0; x < 120; x++) {
+            for (int y = 0; y < 120; y++) {
+                assertEquals(i1.getRGB(x, y), i2.getRGB(x, y));
+            }
+        }
+    }
+
+    private static Object describe(Paint p) {
+        if (p instanceof GradientPaint gp) {
+            return Arrays.asList(
+                    gp.getPoint1(), gp.getColor1(),
+                    gp.getPoint2(), gp.getColor2(),
+                    gp.isCyclic()
+            );
+        }
+        return p;
+    }
 }
@@ -0,0 +1,296 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.elements;
+
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Rectangle;
+import java.awt.TexturePaint;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GraphicIOTest {
+    @TempDir
+    Path dir;
+
+    private static Graphic scene() {
+        Graphic g = new Graphic();
+        g.setStroke(new BasicStroke(2));
+
+        GPoint point = new GPoint(1, 2, 3);
+        point.setPaint(Color.RED);
+        g.add(point);
+        g.add(new GPoint(-5, 7));
+
+        GLine line = new GLine(0, 0, 10, 20);
+        line.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_ROUND,
+                                       BasicStroke.JOIN_BEVEL, 4,
+                                       new float[]{2, 3}, 1));
+        g.add(line);
+
+        GVector vector = new GVector(3, 4, 50, 33);
+        vector.setArrowWeight(7);
+        g.add(vector);
+
+        GCircle circle = new GCircle(10, 10, 7);
+        circle.setFill(true);
+        circle.setFillPaint(new GradientPaint(0, 0, Color.BLUE, 5, 5, Color.GREEN, true));
+        g.add(circle);
+
+        g.add(new GOval(1, 2, 30, 40));
+        GRectangle rect = new GRectangle(4, 5, 6, 7);
+        rect.setFill(true);
+        g.add(rect);
+        g.add(new GArc(0, 0, 10, 20, 45, 90));
+        g.add(new GString(5, 5, 30, "héllo wörld", new Font(Font.SERIF, Font.BOLD, 17)));
+        g.add(new GString(5, 5, "default font"));
+
+        g.add(new GPath(new int[]{1, 2, 3}, new int[]{4, 5, 6}));
+        GPoly poly = new GPoly(new int[]{1, 20, 3}, new int[]{4, 5, 60});
+        poly.setFill(true);
+        poly.setFillPaint(new Color(1, 2, 3, 4));
+        g.add(poly);
+        g.add(new GRegPoly(10, 10, 50, 6, 15));
+        g.add(new GPointArray(new int[]{1, 2}, new int[]{3, 4}, 5));
+        g.add(new GPath());
+
+        Graphic inner = new Graphic();
+        inner.add(new GCircle(0, 0, 3));
+        inner.traslate(5, 6);
+        inner.setVisible(false);
+        g.add(inner);
+
+        Graphic source = new Graphic();
+        source.add(new GLine(0, 0, 5, 5));
+        CompiledGraphic compiled = new CompiledGraphic(source);
+        compiled.setCached(true);
+        compiled.traslate(3, 3);
+        g.add(compiled);
+
+        return g;
+    }
+
+    private static byte[] write(Graphic g, boolean compress) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GraphicIO.write(g, Channels.newChannel(bos), compress);
+        return bos.toByteArray();
+    }
+
+    private static Graphic read(byte[] data) throws IOException {
+        return GraphicIO.read(Channels.newChannel(new ByteArrayInputStream(data)));
+    }
+
+    private static int[] pixels(GraphicE e) {
+        BufferedImage img = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        e.draw(img.createGraphics());
+        return img.getRGB(0, 0, 20, 20, null, 0, 20);
+    }
+
+    private static void assertSameScene(Graphic expected, Graphic actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getPaint(), actual.getPaint());
+        assertEquals(expected.getStroke(), actual.getStroke());
+        assertEquals(expected.getXOffset(), actual.getXOffset());
+        assertEquals(expected.getYOffset(), actual.getYOffset());
+
+        Iterator<GraphicE> it = actual.iterator();
+        for (GraphicE e : expected) {
+            GraphicE a = it.next();
+            if (e instanceof CompiledGraphic c) {
+                //Compiled graphics are only equal if they share the source
+                CompiledGraphic ca = (CompiledGraphic)a;
+                assertEquals(c.getSource(), ca.getSource());
+                assertEquals(c.isCached(), ca.isCached());
+                assertEquals(c.getPaint(), ca.getPaint());
+                assertArrayEquals(pixels(c), pixels(ca));
+            } else {
+                assertEquals(e, a);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Round trip through a channel")
+    public void testChannel() throws IOException {
+        Graphic g = scene();
+        for (boolean compress : new boolean[]{false, true}) {
+            Graphic r = read(write(g, compress));
+            assertSameScene(g, r);
+
+            //The styles are shared, and they are the canonical instances
+            Iterator<GraphicE> it = r.iterator();
+            assertSame(Color.RED, it.next().getPaint());
+            assertSame(r.getPaint(), it.next().getPaint());
+        }
+    }
+
+    @Test
+    @DisplayName("Round trip through a file")
+    public void testFile() throws IOException {
+        Graphic g = scene();
+
+        //Big enough to need several buffers
+        Random rnd = new Random(42);
+        int[] xs = new int[1 << 20];
+        int[] ys = new int[1 << 20];
+        Arrays.setAll(xs, i -> rnd.nextInt(1000));
+        Arrays.setAll(ys, i -> i % 640);
+        GPointArray big = new GPointArray(xs, ys, 2);
+        big.append(3, 4);
+        g.add(big);
+
+        for (boolean compress : new boolean[]{false, true}) {
+            Path file = dir.resolve("scene" + compress);
+            GraphicIO.write(g, file, compress);
+            Graphic r = GraphicIO.read(file);
+            assertSameScene(g, r);
+            assertArrayEquals(Files.readAllBytes(file), write(g, compress));
+        }
+
+        assertTrue(Files.size(dir.resolve("scenetrue")) < Files.size(dir.resolve("scenefalse")));
+    }
+
+    @Test
+    @DisplayName("Images")
+    public void testImage() throws IOException {
+        BufferedImage img = new BufferedImage(7, 5, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 5; j++) {
+                img.setRGB(i, j, i * 0x01020304 + j * 0x10203040);
+            }
+        }
+
+        GImage plain = new GImage(3, 4, img);
+        GImage scaled = new GImage(3, 4, img);
+        scaled.scale(2);
+        Graphic g = new Graphic();
+        g.add(plain);
+        g.add(scaled);
+
+        Iterator<GraphicE> it = read(write(g, true)).iterator();
+        GImage p = (GImage)it.next();
+        GImage s = (GImage)it.next();
+        assertEquals(7, p.getWidth());
+        assertEquals(5, p.getHeight());
+        assertEquals(scaled.getWidth(), s.getWidth());
+        assertEquals(scaled.getHeight(), s.getHeight());
+        assertEquals(7, s.getOriginalWidth());
+
+        BufferedImage expected = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage actual = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        g.draw(expected.createGraphics());
+        Graphic copy = new Graphic();
+        copy.add(p);
+        copy.add(s);
+        copy.draw(actual.createGraphics());
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed scenes")
+    public void testMalformed() throws IOException {
+        byte[] data = write(scene(), false);
+
+        for (int len : new int[]{0, 3, 8, 20, data.length / 2, data.length - 1}) {
+            byte[] cut = Arrays.copyOf(data, len);
+            assertThrows(IOException.class, () -> read(cut));
+            Path file = dir.resolve("cut" + len);
+            Files.write(file, cut);
+            assertThrows(IOException.class, () -> GraphicIO.read(file));
+        }
+
+        byte[] magic = data.clone();
+        magic[0]++;
+        assertThrows(IOException.class, () -> read(magic));
+
+        byte[] version = data.clone();
+        version[4] = 7;
+        assertThrows(IOException.class, () -> read(version));
+
+        //Random garbage must never hang or throw anything else
+        Random rnd = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            byte[] bad = data.clone();
+            bad[8 + rnd.nextInt(bad.length - 8)] = (byte)rnd.nextInt();
+            try {
+                read(bad);
+            } catch (IOException ex) {
+                //Expected
+            }
+        }
+
+        byte[] zip = write(scene(), true);
+        zip[zip.length / 2] ^= 0x55;
+        assertThrows(IOException.class, () -> read(zip));
+    }
+
+    @Test
+    @DisplayName("Unsupported elements and arguments")
+    public void testUnsupported() throws IOException {
+        Graphic g = new Graphic();
+        g.add(new GCircle(0, 0, 5) {});
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertThrows(InvalidArgumentException.class,
+                     () -> GraphicIO.write(g, Channels.newChannel(bos), false));
+        assertEquals(0, bos.size());
+
+        Graphic h = new Graphic();
+        GLine line = new GLine(0, 0, 1, 1);
+        line.setPaint(new TexturePaint(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB),
+                                       new Rectangle(1, 1)));
+        h.add(line);
+        Path file = dir.resolve("texture");
+        assertThrows(InvalidArgumentException.class, () -> GraphicIO.write(h, file, false));
+        assertFalse(Files.exists(file));
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> GraphicIO.write(null, Channels.newChannel(bos), false));
+        assertThrows(IllegalArgumentException.class,
+                     () -> GraphicIO.write(g, (Path)null, false));
+        assertThrows(IllegalArgumentException.class,
+                     () -> GraphicIO.read((Path)null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> GraphicIO.read((ReadableByteChannel)null));
+    }
+}
@@ -18,7 +18,12 @@
  */
 package com.dkt.graphics.elements;
 
+import com.dkt.graphics.exceptions.InvalidArgumentException;
 import com.dkt.graphics.extras.GraphicCreator;
+import com.dkt.graphics.utils.Utils;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -82,4 +87,115 @@ public class GraphicTest {
         assertEquals(g1.hashCode(), g2.hashCode());
     }
 
+    @Test
+    @DisplayName("Traslate doesn't modify the components")
+    public void testLazyTraslate() {
+        Graphic g = new Graphic();
+        GPoint p = new GPoint(1, 2);
+        g.add(p);
+        g.traslate(3, 4);
+        g.traslate(1, 1);
+        assertEquals(new GPoint(1, 2), p);
+        assertEquals(4, g.getXOffset());
+        assertEquals(5, g.getYOffset());
+
+        GPoint q = new GPoint(0, 0);
+        g.add(q);
+        assertEquals(new GPoint(0, 0), q);
+
+        g.move(-1, 7);
+        assertEquals(-1, g.getXOffset());
+        assertEquals( 7, g.getYOffset());
+        assertEquals(new GPoint(1, 2), p);
+    }
+
+    @Test
+    @DisplayName("Offset is applied when drawing")
+    public void testDrawOffset() {
+        Graphic g = new Graphic();
+        GRectangle r = new GRectangle(2, 2, 4, 4);
+        r.setFill(true);
+        r.setFillPaint(Color.RED);
+        r.setPaint(Color.RED);
+        g.add(r);
+
+        BufferedImage img = Utils.draw(g, 20, 20);
+        assertEquals(Color.RED.getRGB(), img.getRGB(2, 2));
+        assertEquals(0, img.getRGB(12, 12));
+
+        g.traslate(10, 10);
+        img = Utils.draw(g, 20, 20);
+        assertEquals(0, img.getRGB(2, 2));
+        assertEquals(Color.RED.getRGB(), img.getRGB(12, 12));
+    }
+
+    @Test
+    @DisplayName("Hit testing and bounds")
+    public void testContains() {
+        Graphic inner = new Graphic();
+        inner.add(new GRectangle(0, 0, 10, 10));
+        inner.traslate(100, 0);
+
+        Graphic g = new Graphic();
+        g.add(new GRectangle(0, 0, 10, 10));
+        g.add(inner);
+        g.traslate(0, 50);
+
+        assertTrue (g.contains(  0, 50));
+        assertTrue (g.contains(100, 50));
+        assertFalse(g.contains(  0,  0));
+        assertFalse(g.contains(100,  0));
+        assertFalse(g.contains( 50, 50));
+
+        Rectangle bounds = g.getShape().getBounds();
+        assertEquals(new Rectangle(-5, 45, 110, 10), bounds);
+        assertTrue(new Graphic().getShape().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Flatten applies nested offsets")
+    public void testFlattenOffsets() {
+        Graphic inner = new Graphic();
+        inner.add(new GPoint(1, 1));
+        inner.traslate(10, 20);
+
+        Graphic middle = new Graphic();
+        middle.add(inner);
+        middle.traslate(1, 2);
+
+        Graphic g = new Graphic();
+        g.add(middle);
+        g.traslate(5, 5);
+
+        g.flatten();
+        assertEquals(1, g.getCount());
+        assertEquals(new GPoint(12, 23), g.iterator().next());
+        assertEquals(5, g.getXOffset());
+        assertEquals(5, g.getYOffset());
+
+        Graphic copy = new Graphic();
+        copy.addCopyOfAll(g);
+        assertEquals(new GPoint(17, 28), copy.iterator().next());
+        assertEquals(new GPoint(12, 23), g.iterator().next());
+    }
+
+    @Test
+    @DisplayName("Replace components")
+    public void testReplace() {
+        Graphic g = new Graphic();
+        for (int i = 0; i < 5; i++) {
+            g.add(new GPoint(i, i));
+        }
+        g.replace(1, 3, new GCircle(0, 0, 1));
+        assertEquals(4, g.getCount());
+        assertEquals(1, g.indexOf(new GCircle(0, 0, 1)));
+        assertEquals(2, g.indexOf(new GPoint(3, 3)));
+        g.replace(4, 4, new GPoint(5, 5));
+        assertEquals(4, g.indexOf(new GPoint(5, 5)));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> g.replace(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> g.replace(0, 1, (GraphicE)null));
+        assertThrows(InvalidArgumentException.class, () -> g.replace(0, 1, g));
+        assertEquals(5, g.getCount());
+    }
 }
@@ -18,6 +18,9 @@
  */
 package com.dkt.graphics.elements;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -500,4 +503,151 @@ public class UnsafeListTest {
         assertEquals(10, i);
     }
 
+    @Test
+    @DisplayName("Remove in the middle and keep indexes")
+    public void testRemoveMiddle() {
+        UnsafeList list = new UnsafeList(0);
+        for (int i = 0; i < 100; i++) {
+            list.add(new GPoint(i, i));
+        }
+        for (int i = 10; i < 40; i++) {
+            assertTrue(list.remove(new GPoint(i, i)));
+        }
+        assertEquals(70, list.size());
+        assertEquals(new GPoint(9, 9), list.get(9));
+        assertEquals(new GPoint(40, 40), list.get(10));
+        assertEquals(10, list.indexOf(new GPoint(40, 40)));
+        assertEquals(new GPoint(41, 41), list.remove(11));
+        assertEquals(new GPoint(42, 42), list.get(11));
+        assertNull(list.get(69));
+
+        int n = 0;
+        for (GraphicE e : list) {
+            assertNotNull(e);
+            n++;
+        }
+        assertEquals(69, n);
+
+        for (int i = 0; i < 100; i++) {
+            list.remove(new GPoint(i, i));
+        }
+        assertTrue(list.isEmpty());
+        list.add(new GPoint(1, 1));
+        assertEquals(new GPoint(1, 1), list.get(0));
+    }
+
+    @Test
+    @DisplayName("Iterator works on a snapshot")
+    public void testIteratorSnapshot() {
+        UnsafeList list = new UnsafeList(1);
+        for (int i = 0; i < 10; i++) {
+            list.add(new GPoint(i, i));
+        }
+        int i = 0;
+        for (GraphicE e : list) {
+            list.add(new GPoint(-1, -1));
+            assertEquals(new GPoint(i, i), e);
+            i++;
+        }
+        assertEquals(10, i);
+        assertEquals(20, list.size());
+    }
+
+    @Test
+    @DisplayName("Iterator with removals")
+    public void testIteratorRemovals() {
+        UnsafeList list = new UnsafeList(10);
+        for (int i = 0; i < 10; i++) {
+            list.add(new GPoint(i, i));
+        }
+
+        //The element was taken by hasNext(), so removing it doesn't matter
+        Iterator<GraphicE> it = list.iterator();
+        assertTrue(it.hasNext());
+        list.remove(new GPoint(0, 0));
+        assertEquals(new GPoint(0, 0), it.next());
+
+        //The empty slots are skipped
+        list.remove(new GPoint(1, 1));
+        list.remove(new GPoint(2, 2));
+        assertTrue(it.hasNext());
+        assertEquals(new GPoint(3, 3), it.next());
+
+        while (it.hasNext()) {
+            assertNotNull(it.next());
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    @DisplayName("Removed slots aren't reused")
+    public void testSnapshotSlots() {
+        UnsafeList list = new UnsafeList(8);
+        for (int i = 0; i < 4; i++) {
+            list.add(new GPoint(i, i));
+        }
+
+        Iterator<GraphicE> it = list.iterator();
+        list.remove(3);
+        list.add(new GPoint(-1, -1));
+
+        int n = 0;
+        while (it.hasNext()) {
+            assertNotEquals(new GPoint(-1, -1), it.next());
+            n++;
+        }
+        assertEquals(3, n);
+        assertEquals(new GPoint(-1, -1), list.get(3));
+    }
+
+    @Test
+    @DisplayName("Remove by index with empty slots")
+    public void testRemoveWithHoles() {
+        UnsafeList list = new UnsafeList(0);
+        for (int i = 0; i < 100; i++) {
+            list.add(new GPoint(i, i));
+        }
+        for (int i = 0; i < 100; i += 3) {
+            list.remove(new GPoint(i, i));
+        }
+
+        //Removes the even indexes, checking against the expected order
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        for (int idx = 0; idx < expected.size(); idx++) {
+            int v = expected.remove(idx);
+            assertEquals(new GPoint(v, v), list.remove(idx));
+            assertEquals(expected.size(), list.size());
+        }
+        for (int idx = 0; idx < expected.size(); idx++) {
+            int v = expected.get(idx);
+            assertEquals(new GPoint(v, v), list.get(idx));
+        }
+    }
+
+    @Test
+    @DisplayName("Replace a range")
+    public void testReplace() {
+        UnsafeList list = new UnsafeList(0);
+        for (int i = 0; i < 10; i++) {
+            list.add(new GPoint(i, i));
+        }
+        list.remove(new GPoint(1, 1));
+        list.replace(2, 4, new GraphicE[]{new GPoint(-1, -1), null, new GPoint(-2, -2), new GPoint(-3, -3)});
+        assertEquals(10, list.size());
+        assertEquals(new GPoint(2, 2), list.get(1));
+        assertEquals(new GPoint(-1, -1), list.get(2));
+        assertEquals(new GPoint(-3, -3), list.get(4));
+        assertEquals(new GPoint(5, 5), list.get(5));
+
+        list.replace(10, 10, new GraphicE[]{new GPoint(10, 10)});
+        assertEquals(new GPoint(10, 10), list.get(10));
+        list.replace(0, 11, new GraphicE[0]);
+        assertTrue(list.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.replace(0, 1, new GraphicE[0]));
+    }
 }
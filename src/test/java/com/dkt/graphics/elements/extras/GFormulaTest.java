@@ -25,10 +25,13 @@ import com.dkt.graphics.elements.GPoly;
 import com.dkt.graphics.elements.GraphicE;
 import com.dkt.graphics.exceptions.DomainException;
 import com.dkt.graphics.exceptions.IntervalException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
 import com.dkt.graphics.extras.GFormula;
 import com.dkt.graphics.extras.formula.Calculable;
+import com.dkt.graphics.extras.formula.ParametricCalculable;
 import java.awt.Color;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -66,6 +69,25 @@ public class GFormulaTest {
         assertTrue(status);
     }
 
+    @Test
+    @DisplayName("Test calculate uses the step")
+    public void testFormulaStep() {
+        Calculable eye = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                return x;
+            }
+        };
+        GFormula formula = new GFormula(eye);
+        formula.calculate(-5, 5, 2);
+        GPointArray exp = new GPointArray();
+        for (int i = -5; i < 5; i += 2) {
+            exp.append(i, i);
+        }
+        assertEquals(1, formula.getCount());
+        assertEquals(exp, formula.iterator().next());
+    }
+
     @Test
     @DisplayName("Test calculate element")
     public void testFormula2() {
@@ -195,4 +217,302 @@ public class GFormulaTest {
         GFormula formula = new GFormula(eye);
         formula.setAreaPaint(Color.RED);
     }
+
+    @Test
+    @DisplayName("Test bulk evaluation")
+    public void testBulk() {
+        Calculable sq = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                return x * x;
+            }
+        };
+        double[] xs = {1, 2, 3, 4, 5};
+        double[] out = new double[5];
+        sq.f(xs, out, 1, 3);
+        assertArrayEquals(new double[]{0, 4, 9, 16, 0}, out);
+
+        //In place
+        sq.f(xs, xs, 0, 5);
+        assertArrayEquals(new double[]{1, 4, 9, 16, 25}, xs);
+
+        assertThrows(IllegalArgumentException.class, () -> sq.f(null, out, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> sq.f(out, null, 0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> sq.f(xs, out, 3, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> sq.f(xs, new double[2], 0, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> sq.f(xs, out, -1, 2));
+
+        ParametricCalculable circle = new ParametricCalculable() {
+            @Override
+            public double x(double t) {
+                return Math.cos(t);
+            }
+
+            @Override
+            public double y(double t) {
+                return Math.sin(t);
+            }
+        };
+        double[] ts = {0, 1, 2, 3};
+        double[] px = new double[4];
+        double[] py = new double[4];
+        circle.f(ts, px, py, 0, 4);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Math.cos(ts[i]), px[i]);
+            assertEquals(Math.sin(ts[i]), py[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> circle.f(ts, null, py, 0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> circle.f(ts, px, new double[1], 0, 2));
+    }
+
+    @Test
+    @DisplayName("Test chunked evaluation matches the point by point one")
+    public void testChunks() {
+        int[] calls = new int[2];
+        Calculable sin = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                calls[0]++;
+                return Math.sin(x) * 30;
+            }
+
+            @Override
+            public void f(double[] xs, double[] out, int off, int len) {
+                calls[1]++;
+                super.f(xs, out, off, len);
+            }
+        };
+        sin.setScaleX(3);
+        sin.setScaleY(2);
+
+        //Several chunks, with a scale that's not a divisor of the interval
+        final double xs = -40.3;
+        final double xf = 41.7;
+        final double step = 0.013;
+
+        GFormula formula = new GFormula(sin);
+        formula.calculatePath(xs, xf, step);
+        GPath path = (GPath)formula.iterator().next();
+        assertEquals((int)((xf - xs) / step) + 2, calls[0]);
+        assertTrue(calls[1] > 1 && calls[1] < calls[0] / 100);
+        GPath expPath = new GPath(10);
+        reference(sin, xs, xf, step, expPath::append);
+        assertEquals(expPath, path);
+        assertTrue(path.size() > 1000);
+
+        formula.calculateArea(xs, xf, step);
+        GPoly poly = (GPoly)formula.iterator().next();
+        GPoly expPoly = new GPoly(10);
+        expPoly.append((int)(3 * xs), 0);
+        int[] last = reference(sin, xs, xf, step, expPoly::append);
+        expPoly.append(last[0], 0);
+        assertArrayEquals(expPoly.getPoints(), poly.getPoints());
+
+        formula.calculate(xs, xf, step);
+        GPointArray array = (GPointArray)formula.iterator().next();
+        GPointArray expArray = new GPointArray(10);
+        reference(sin, xs, xf, step, expArray::append);
+        assertEquals(expArray, array);
+
+        formula.calculate(xs, xf, step, new GPoint(0, 0));
+        GPointArray points = new GPointArray(10);
+        formula.forEach(e -> points.append((GPoint)e));
+        assertEquals(expPath.size(), points.size());
+        assertArrayEquals(expPath.getPoints(), points.getPoints());
+    }
+
+    /**
+     * The original point by point implementation of {@link GFormula}
+     */
+    private static int[] reference(
+            Calculable f, double xs, double xf, double inc, IntBiConsumer out)
+    {
+        final double sx = f.scaleX();
+        final double sy = f.scaleY();
+        int i   = 0;
+        int lx  = Integer.MAX_VALUE;
+        int lfx = Integer.MAX_VALUE;
+
+        for (double xx = xs; xx < xf; xx = xs + i * inc, i++){
+            final int x  = (int)(sx * xx);
+            final int fx = (int)(sy * f.f(xx));
+            if (lx != x | lfx != fx){
+                out.accept(x, fx);
+                lfx = fx;
+                lx  = x;
+            }
+        }
+
+        return new int[]{lx, lfx};
+    }
+
+    private interface IntBiConsumer {
+        void accept(int x, int y);
+    }
+
+    @Test
+    @DisplayName("Test parallel evaluation matches the sequential one")
+    public void testParallel() {
+        Calculable[] functions = {
+            new Calculable() {
+                @Override
+                public double f(double x) throws DomainException {
+                    return Math.sin(x) * 100;
+                }
+            },
+            //Long runs of points on the same pixel, across the chunks
+            new Calculable() {
+                @Override
+                public double f(double x) throws DomainException {
+                    return Math.floor(x / 7);
+                }
+            },
+            new Calculable() {
+                @Override
+                public double f(double x) throws DomainException {
+                    return 3;
+                }
+            },
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Calculable f : functions) {
+                f.setScaleX(2);
+                f.setScaleY(5);
+                final double xs = -53.1;
+                final double xf = 47.9;
+                final double step = 0.0007;
+
+                GFormula seq = new GFormula(f);
+                GFormula par = new GFormula(f);
+                assertNull(par.getPool());
+                par.setPool(pool);
+                assertSame(pool, par.getPool());
+
+                seq.calculatePath(xs, xf, step);
+                par.calculatePath(xs, xf, step);
+                assertEquals(seq, par);
+
+                seq.calculateArea(xs, xf, step);
+                par.calculateArea(xs, xf, step);
+                assertEquals(seq, par);
+
+                seq.calculate(xs, xf, step, new GPoint(0, 0));
+                par.calculate(xs, xf, step, new GPoint(0, 0));
+                assertEquals(seq, par);
+
+                //The scale is used as step here, so this one is sequential
+                seq.calculate(xs, xf, step);
+                par.calculate(xs, xf, step);
+                assertEquals(seq, par);
+            }
+
+            //Errors are reported on the caller thread
+            GFormula formula = new GFormula(new Calculable() {
+                @Override
+                public double f(double x) throws DomainException {
+                    if (x > 10) {
+                        throw new DomainException("x", x);
+                    }
+                    return x;
+                }
+            });
+            formula.setPool(pool);
+            assertThrows(DomainException.class, () -> formula.calculatePath(0, 100, 0.0001));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test adaptive sampling")
+    public void testAdaptive() {
+        int[] calls = new int[1];
+        Calculable sin = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                calls[0]++;
+                return Math.sin(x) * 20;
+            }
+        };
+        sin.setScaleX(10);
+
+        GFormula formula = new GFormula(sin);
+        formula.calculateAdaptive(-50, 50, 0.5, 100_000);
+        assertEquals(1, formula.getCount());
+        GPath path = (GPath)formula.iterator().next();
+        int adaptive = calls[0];
+
+        calls[0] = 0;
+        formula.calculatePath(-50, 50, 0.01);
+        assertTrue(adaptive * 5 < calls[0], adaptive + " vs " + calls[0]);
+
+        //The drawing is close to the curve everywhere
+        GPoint[] points = path.getPoints();
+        assertEquals(-500, points[0].x());
+        assertEquals(500, points[points.length - 1].x());
+        for (int i = 1; i < points.length; i++) {
+            GPoint a = points[i - 1];
+            GPoint b = points[i];
+            assertTrue(a.x() < b.x());
+            for (double px = a.x() + 0.25; px < b.x(); px += 0.25) {
+                double t = (px - a.x()) / (b.x() - a.x());
+                double line = a.y() + t * (b.y() - a.y());
+                assertEquals(Math.sin(px / 10) * 20, line, 3, "At " + px);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test adaptive sampling with gaps")
+    public void testAdaptiveGaps() {
+        int[] calls = new int[1];
+        Calculable hole = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                calls[0]++;
+                if (Math.abs(x) < 3) {
+                    throw new DomainException("hole", x);
+                }
+                return x > 7 ? Double.NaN : x;
+            }
+        };
+        hole.setScaleX(10);
+        hole.setScaleY(10);
+
+        GFormula formula = new GFormula(hole);
+        formula.calculateAdaptive(-10, 10, 0.5, 1000);
+        assertEquals(2, formula.getCount());
+        Iterator<GraphicE> it = formula.iterator();
+        GPoint[] left  = ((GPath)it.next()).getPoints();
+        GPoint[] right = ((GPath)it.next()).getPoints();
+        assertEquals(new GPoint(-100, -100), left[0]);
+        assertEquals(-30, left[left.length - 1].x(), 1);
+        assertEquals(30, right[0].x(), 1);
+        assertEquals(70, right[right.length - 1].x(), 1);
+        assertTrue(calls[0] < 300, "" + calls[0]);
+
+        //The budget is respected, even when the tolerance can't be reached
+        Calculable wild = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                calls[0]++;
+                return Math.sin(1 / x) * 100;
+            }
+        };
+        for (int budget : new int[]{3, 4, 10, 137, 5000}) {
+            calls[0] = 0;
+            formula = new GFormula(wild);
+            formula.calculateAdaptive(-1, 1, 0.1, budget);
+            assertTrue(calls[0] <= budget, calls[0] + " > " + budget);
+            assertTrue(formula.getCount() >= 1);
+        }
+
+        GFormula f = new GFormula(wild);
+        assertThrows(IntervalException.class, () -> f.calculateAdaptive(1, 1, 1, 10));
+        assertThrows(InvalidArgumentException.class, () -> f.calculateAdaptive(0, 1, 0, 10));
+        assertThrows(InvalidArgumentException.class, () -> f.calculateAdaptive(0, 1, Double.NaN, 10));
+        assertThrows(InvalidArgumentException.class, () -> f.calculateAdaptive(0, 1, 1, 2));
+    }
 }
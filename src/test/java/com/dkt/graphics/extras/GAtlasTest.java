@@ -0,0 +1,152 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GRectangle;
+import com.dkt.graphics.exceptions.IntervalException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.utils.Utils;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GAtlasTest {
+    @Test
+    @DisplayName("Grid constructor")
+    public void testGrid() {
+        BufferedImage img = new BufferedImage(30, 20, BufferedImage.TYPE_INT_ARGB);
+        GAtlas atlas = new GAtlas(img, 10, 10);
+        assertEquals(6, atlas.getFrameCount());
+        assertEquals(10, atlas.getFrameWidth());
+        assertEquals(10, atlas.getFrameHeight());
+        assertEquals(20, atlas.getFrameX(2));
+        assertEquals( 0, atlas.getFrameY(2));
+        assertEquals( 0, atlas.getFrameX(3));
+        assertEquals(10, atlas.getFrameY(3));
+        assertThrows(IntervalException.class, () -> atlas.getFrameX(6));
+
+        assertEquals(4, new GAtlas(img, 10, 10, 4).getFrameCount());
+        assertThrows(InvalidArgumentException.class, () -> new GAtlas(img, 10, 10, 7));
+        assertThrows(InvalidArgumentException.class, () -> new GAtlas(img, 0, 10));
+        assertThrows(InvalidArgumentException.class, () -> new GAtlas(img, 40, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GAtlas(null, 10, 10));
+    }
+
+    @Test
+    @DisplayName("Pack pixmaps")
+    public void testPack() {
+        GPixMap m1 = new GPixMap(2, 2);
+        GPixMap m2 = new GPixMap(2, 2);
+        GPixMap m3 = new GPixMap(2, 2);
+        m1.setColorAt(0, 0, Color.RED);
+        m2.setColorAt(1, 0, Color.BLUE);
+        m3.setColorAt(1, 1, Color.GREEN);
+
+        GAtlas atlas = GAtlas.pack(Arrays.asList(m1, m2, m3));
+        assertEquals(3, atlas.getFrameCount());
+        BufferedImage img = atlas.getImage();
+        assertEquals(Color.RED  .getRGB(), img.getRGB(atlas.getFrameX(0)    , atlas.getFrameY(0)));
+        assertEquals(Color.BLUE .getRGB(), img.getRGB(atlas.getFrameX(1)    , atlas.getFrameY(1) + 1));
+        assertEquals(Color.GREEN.getRGB(), img.getRGB(atlas.getFrameX(2) + 1, atlas.getFrameY(2) + 1));
+        Color alpha = Utils.getColorWithAlpha(Color.WHITE, 0);
+        assertEquals(alpha.getRGB(), img.getRGB(atlas.getFrameX(2), atlas.getFrameY(2)));
+
+        assertThrows(InvalidArgumentException.class,
+                () -> GAtlas.pack(Arrays.asList(m1, new GPixMap(3, 2))));
+        assertThrows(InvalidArgumentException.class,
+                () -> GAtlas.pack(Arrays.asList()));
+        assertThrows(IllegalArgumentException.class, () -> GAtlas.pack(null));
+    }
+
+    @Test
+    @DisplayName("Sprite cursor")
+    public void testSpriteCursor() {
+        BufferedImage img = new BufferedImage(30, 10, BufferedImage.TYPE_INT_ARGB);
+        GAtlasSprite sprite = new GAtlasSprite(new GAtlas(img, 10, 10));
+        assertEquals(0, sprite.getCursor());
+        assertTrue(sprite.next());
+        assertTrue(sprite.next());
+        assertEquals(2, sprite.getCursor());
+        assertTrue(sprite.next());
+        assertEquals(0, sprite.getCursor());
+        assertTrue(sprite.prev());
+        assertEquals(2, sprite.getCursor());
+
+        sprite.setCyclic(false);
+        assertFalse(sprite.next());
+        sprite.first();
+        assertFalse(sprite.prev());
+
+        sprite.setSkips(2);
+        assertFalse(sprite.next());
+        assertTrue(sprite.next());
+        assertEquals(1, sprite.getCursor());
+        sprite.last();
+        assertEquals(2, sprite.getCursor());
+        assertThrows(InvalidArgumentException.class, () -> sprite.setSkips(0));
+    }
+
+    @Test
+    @DisplayName("Sprite bounds")
+    public void testSpriteBounds() {
+        BufferedImage img = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        GAtlasSprite sprite = new GAtlasSprite(new GAtlas(img, 10, 10));
+        assertEquals(new GRectangle(5, 5, 10, 10), sprite.getBounds());
+        sprite.setPixelSize(2);
+        assertEquals(new GRectangle(10, 10, 20, 20), sprite.getBounds());
+        sprite.traslate(5, -5);
+        assertEquals(new GRectangle(15, 5, 20, 20), sprite.getBounds());
+        sprite.move(0, 0);
+        assertEquals(new GRectangle(10, 10, 20, 20), sprite.getBounds());
+
+        GAtlasSprite clone = sprite.clone();
+        assertSame(sprite.getAtlas(), clone.getAtlas());
+        clone.traslate(1, 1);
+        assertEquals(new GRectangle(10, 10, 20, 20), sprite.getBounds());
+        assertThrows(InvalidArgumentException.class, () -> sprite.setPixelSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new GAtlasSprite((GAtlas)null));
+    }
+
+    @Test
+    @DisplayName("Sprite draw")
+    public void testSpriteDraw() {
+        BufferedImage img = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, Color.RED.getRGB());
+        img.setRGB(1, 0, Color.BLUE.getRGB());
+        GAtlasSprite sprite = new GAtlasSprite(new GAtlas(img, 1, 1));
+        sprite.setPixelSize(4);
+
+        BufferedImage out = Utils.draw(sprite, 4, 4);
+        assertEquals(Color.RED.getRGB(), out.getRGB(2, 2));
+        sprite.next();
+        out = Utils.draw(sprite, 4, 4);
+        assertEquals(Color.BLUE.getRGB(), out.getRGB(2, 2));
+        sprite.setVisible(false);
+        out = Utils.draw(sprite, 4, 4);
+        assertEquals(0, out.getRGB(2, 2));
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2018 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GImage;
+import com.dkt.graphics.elements.GPath;
+import com.dkt.graphics.elements.GPoint;
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.formula.Calculable2D;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GFormula2DTest {
+    /** Circle of radius 1 */
+    private static final Calculable2D CIRCLE = new Calculable2D() {
+        @Override
+        public double f(double x, double y) {
+            return x * x + y * y - 1;
+        }
+    };
+
+    private static ArrayList<GPath> paths(GFormula2D f) {
+        ArrayList<GPath> paths = new ArrayList<>();
+        for (GraphicE e : f) {
+            paths.add((GPath)e);
+        }
+        return paths;
+    }
+
+    private static BufferedImage draw(GFormula2D f, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        f.draw(g);
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    @DisplayName("Contour of a circle")
+    public void testCircle() {
+        GFormula2D f = new GFormula2D(CIRCLE);
+        f.setScale(100, 100);
+        f.calculateContours(-150, -150, 300, 300);
+
+        ArrayList<GPath> paths = paths(f);
+        assertEquals(1, paths.size());
+
+        GPath path = paths.get(0);
+        assertTrue(path.size() > 100);
+        assertEquals(path.getPointAt(0), path.getPointAt(path.size() - 1));
+        for (GPoint p : path.getPoints()) {
+            assertEquals(100, Math.hypot(p.x(), p.y()), 1.5);
+        }
+    }
+
+    @Test
+    @DisplayName("Contours clipped by the area")
+    public void testClipped() {
+        GFormula2D f = new GFormula2D(CIRCLE);
+        f.setScale(100, 100);
+        f.setResolution(4);
+        f.calculateContours(0, -150, 150, 300);
+
+        ArrayList<GPath> paths = paths(f);
+        assertEquals(1, paths.size());
+
+        GPath path = paths.get(0);
+        assertNotEquals(path.getPointAt(0), path.getPointAt(path.size() - 1));
+        for (GPoint p : path.getPoints()) {
+            assertTrue(p.x() >= 0);
+            assertEquals(100, Math.hypot(p.x(), p.y()), 4);
+        }
+    }
+
+    @Test
+    @DisplayName("Several levels")
+    public void testLevels() {
+        GFormula2D f = new GFormula2D(CIRCLE);
+        f.setScale(100, 100);
+        f.setResolution(2);
+        f.calculateContours(-250, -250, 500, 500, 0, 3, 100);
+
+        ArrayList<GPath> paths = paths(f);
+        assertEquals(2, paths.size());
+        assertEquals(100, Math.hypot(paths.get(0).getPointAt(0).x(), paths.get(0).getPointAt(0).y()), 3);
+        assertEquals(200, Math.hypot(paths.get(1).getPointAt(0).x(), paths.get(1).getPointAt(0).y()), 3);
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            f.calculateContours(0, 0, 10, 10, (double[])null);
+        });
+    }
+
+    @Test
+    @DisplayName("Holes in the domain")
+    public void testDomain() {
+        GFormula2D f = new GFormula2D(new Calculable2D() {
+            @Override
+            public double f(double x, double y) throws DomainException {
+                if (x > 0) {
+                    throw new DomainException("x > 0", x);
+                }
+                return y;
+            }
+        });
+        f.calculateContours(-50, -50, 100, 100);
+
+        ArrayList<GPath> paths = paths(f);
+        assertEquals(1, paths.size());
+        for (GPoint p : paths.get(0).getPoints()) {
+            assertEquals(0, p.y());
+            assertTrue(p.x() <= 0);
+        }
+
+        f.setPalette(Color.BLACK, Color.WHITE);
+        f.calculateHeatmap(-50, -50, 100, 100, -50, 50);
+        assertEquals(1, f.getCount());
+        assertTrue(f.iterator().next() instanceof GImage);
+    }
+
+    @Test
+    @DisplayName("Heatmap")
+    public void testHeatmap() {
+        GFormula2D f = new GFormula2D(new Calculable2D() {
+            @Override
+            public double f(double x, double y) {
+                return y < 10 ? x : Double.NaN;
+            }
+        });
+        f.setPalette(Color.BLACK, Color.WHITE);
+        f.setResolution(3);
+        f.calculateHeatmap(0, 0, 256, 20, 0, 255);
+
+        BufferedImage img = draw(f, 256, 20);
+        assertEquals(0xFF000000, img.getRGB(0, 0));
+        assertEquals(0xFF808080, img.getRGB(128, 5));
+        assertEquals(0xFFFFFFFF, img.getRGB(255, 0));
+        assertEquals(0, img.getRGB(100, 15));
+
+        f.setPalette(Color.RED, Color.GREEN, Color.BLUE);
+        f.calculateHeatmap(0, 0, 256, 20, 0, 255);
+        img = draw(f, 256, 20);
+        assertEquals(0xFFFF0000, img.getRGB(0, 0));
+        assertEquals(0xFF0000FF, img.getRGB(255, 0));
+
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.calculateHeatmap(0, 0, 10, 10, 1, 1);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.calculateHeatmap(0, 0, 10, 10, 0, Double.NaN);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setPalette(Color.RED);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            f.setPalette(Color.RED, null);
+        });
+    }
+
+    @Test
+    @DisplayName("Tile cache")
+    public void testCache() {
+        GFormula2D f = new GFormula2D(CIRCLE);
+        f.setScale(100, 100);
+        f.calculateContours(0, 0, 100, 100);
+        assertEquals(0, f.getCacheHits());
+        assertEquals(4, f.getCacheMisses());
+        assertEquals(4, f.getCachedTiles());
+
+        //Panning reuses the tiles that were already evaluated
+        f.calculateContours(60, 0, 100, 100);
+        assertEquals(4, f.getCacheHits());
+        assertEquals(6, f.getCacheMisses());
+        assertEquals(6, f.getCachedTiles());
+
+        f.setCacheSize(2);
+        assertEquals(2, f.getCachedTiles());
+
+        f.setScale(100, 100);
+        assertEquals(2, f.getCachedTiles());
+        f.setScale(50, 100);
+        assertEquals(0, f.getCachedTiles());
+
+        f.setCacheSize(0);
+        f.calculateContours(0, 0, 100, 100);
+        assertEquals(0, f.getCachedTiles());
+
+        f.setCacheSize(10);
+        f.calculateContours(0, 0, 100, 100);
+        f.setResolution(2);
+        assertEquals(0, f.getCachedTiles());
+        f.calculateContours(0, 0, 100, 100);
+        f.invalidate();
+        assertEquals(0, f.getCachedTiles());
+    }
+
+    @Test
+    @DisplayName("Pool")
+    public void testPool() {
+        GFormula2D seq = new GFormula2D(CIRCLE);
+        GFormula2D par = new GFormula2D(CIRCLE);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        par.setPool(pool);
+        assertSame(pool, par.getPool());
+
+        for (GFormula2D f : new GFormula2D[]{seq, par}) {
+            f.setScale(80, 60);
+            f.calculateContours(-500, -500, 1000, 1000, 0, 1, 2);
+        }
+
+        pool.shutdown();
+        assertEquals(seq, par);
+    }
+
+    @Test
+    @DisplayName("Arguments")
+    public void testArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new GFormula2D(null);
+        });
+
+        GFormula2D f = new GFormula2D(CIRCLE);
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setScale(0, 1);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setScale(1, Double.POSITIVE_INFINITY);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setScale(Double.NaN, 1);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setResolution(0);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.setCacheSize(-1);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.calculateContours(0, 0, 0, 10);
+        });
+        assertThrows(InvalidArgumentException.class, () -> {
+            f.calculateHeatmap(0, 0, 10, -1, 0, 1);
+        });
+
+        f.setScale(2, 3);
+        f.setResolution(5);
+        assertEquals(2, f.getScaleX());
+        assertEquals(3, f.getScaleY());
+        assertEquals(5, f.getResolution());
+        assertEquals(256, f.getCacheSize());
+        assertNull(f.getPool());
+    }
+}
@@ -24,8 +24,10 @@ import com.dkt.graphics.utils.Utils;
 import java.awt.Color;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +36,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  */
 public class GPixMapTest {
+    @TempDir
+    Path dir;
     private static final Color ALPHA_W = Utils.getColorWithAlpha(Color.WHITE, 0);
     @Test
     @DisplayName("Constructor")
@@ -287,17 +291,17 @@ public class GPixMapTest {
         };
         GPixMap pm1 = new GPixMap(data1, true);
         try {
-            GPixMap.exportMap(pm1, new File("map"));
+            GPixMap.exportMap(pm1, dir.resolve("map").toFile());
         } catch (Exception ex) {
             fail("Unable to export to " + "map");
         }
         try {
-            GPixMap pm2 = GPixMap.importMap(new File("map"));
+            GPixMap pm2 = GPixMap.importMap(dir.resolve("map").toFile());
             assertEquals(pm1, pm2);
         } catch (Exception ex) {
             fail("Unable to import to " + "map");
         }
-        assertThrows(IllegalArgumentException.class, () -> GPixMap.exportMap(null, new File("map"))
+        assertThrows(IllegalArgumentException.class, () -> GPixMap.exportMap(null, dir.resolve("map").toFile())
         );
         assertThrows(IllegalArgumentException.class, () -> GPixMap.exportMap(pm1, null)
         );
@@ -0,0 +1,103 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.utils.Utils;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GSpriteBatchTest {
+    private static GAtlas atlas() {
+        BufferedImage img = new BufferedImage(3, 1, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, Color.RED.getRGB());
+        img.setRGB(1, 0, Color.GREEN.getRGB());
+        img.setRGB(2, 0, Color.BLUE.getRGB());
+        return new GAtlas(img, 1, 1);
+    }
+
+    @Test
+    @DisplayName("Add and remove")
+    public void testAddRemove() {
+        GSpriteBatch batch = new GSpriteBatch(atlas(), 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, batch.add(i, -i, i % 3));
+        }
+        assertEquals(100, batch.size());
+        batch.remove(0);
+        assertEquals(99, batch.size());
+        assertEquals( 1, batch.getX(0));
+        assertEquals(-1, batch.getY(0));
+        assertEquals( 1, batch.getFrame(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.remove(99));
+        assertThrows(InvalidArgumentException.class, () -> batch.add(0, 0, 3));
+        assertThrows(InvalidArgumentException.class, () -> batch.setFrame(0, -1));
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    @DisplayName("Advance all")
+    public void testAdvanceAll() {
+        GSpriteBatch batch = new GSpriteBatch(atlas());
+        batch.add(0, 0, 0);
+        batch.add(0, 0, 2);
+        batch.advanceAll();
+        assertEquals(1, batch.getFrame(0));
+        assertEquals(0, batch.getFrame(1));
+        batch.setCyclic(false);
+        batch.advanceAll();
+        batch.advanceAll();
+        assertEquals(2, batch.getFrame(0));
+        assertEquals(2, batch.getFrame(1));
+    }
+
+    @Test
+    @DisplayName("Draw and cull")
+    public void testDraw() {
+        GSpriteBatch batch = new GSpriteBatch(atlas());
+        batch.setPixelSize(2);
+        batch.add(0, 0, 0);
+        batch.add(2, 0, 1);
+        batch.add(4, 0, 2);
+        batch.add(100, 100, 2);
+        batch.setVisible(2, false);
+
+        BufferedImage out = Utils.draw(batch, 6, 2);
+        assertEquals(Color.RED  .getRGB(), out.getRGB(1, 1));
+        assertEquals(Color.GREEN.getRGB(), out.getRGB(3, 1));
+        assertEquals(0, out.getRGB(5, 1));
+
+        GSpriteBatch clone = batch.clone();
+        clone.traslate(2, 0);
+        assertEquals(0, batch.getX(0));
+        assertEquals(2, clone.getX(0));
+        out = Utils.draw(clone, 6, 2);
+        assertEquals(0, out.getRGB(1, 1));
+        assertEquals(Color.RED.getRGB(), out.getRGB(3, 1));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.GraphicCreator.Diagnostic;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class GraphicCreatorDiagnosticsTest {
+    private static final String SCRIPT =
+            "point 0 0\n" +
+            "foo 1 2\n" +
+            "  circle 1 a 3; linec 1 2 3\n" +
+            "# comment\n" +
+            "transoff\n" +
+            "oval 0 0 -5 2\n" +
+            "vectp 0 0 1e3 .5f; linep 0 0 x 1\n" +
+            "point 1 1";
+
+    @Test
+    @DisplayName("Diagnostics")
+    public void testDiagnostics() {
+        GraphicCreator gc = new GraphicCreator();
+        Graphic g = gc.parse(SCRIPT);
+        assertEquals(3, g.getCount());
+        assertEquals(6, gc.getErrorCount());
+
+        List<Diagnostic> d = gc.getDiagnostics();
+        assertEquals(6, d.size());
+        assertEquals(new Diagnostic(2, 1, "foo", "unknown command"), d.get(0));
+        assertEquals(new Diagnostic(3, 3, "circle", "argument 2 ('a') must be an integer"), d.get(1));
+        assertEquals(3, d.get(2).line());
+        assertEquals(17, d.get(2).column());
+        assertEquals("linec", d.get(2).command());
+        assertEquals("wrong number of arguments (3), expected 4", d.get(2).reason());
+        assertEquals(new Diagnostic(5, 1, "transoff", "there's no transformation to remove"), d.get(3));
+        //Thrown by the constructor
+        assertEquals(new Diagnostic(6, 1, "oval", "The width and the height must be positive integers"), d.get(4));
+        assertEquals(new Diagnostic(7, 20, "linep", "argument 3 ('x') must be a number"), d.get(5));
+        assertEquals("7:20 linep: argument 3 ('x') must be a number", d.get(5).toString());
+        assertThrows(UnsupportedOperationException.class, () -> d.add(null));
+
+        assertEquals(d, gc.getDiagnostics());
+        gc.parse(GraphicCreator.compile(SCRIPT));
+        assertEquals(d, gc.getDiagnostics());
+        gc.parse("point 0 0");
+        assertTrue(gc.getDiagnostics().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Fail fast and maximum diagnostics")
+    public void testOptions() {
+        GraphicCreator gc = new GraphicCreator();
+        gc.setMaxDiagnostics(2);
+        assertEquals(2, gc.getMaxDiagnostics());
+        gc.parse(SCRIPT);
+        assertEquals(6, gc.getErrorCount());
+        assertEquals(2, gc.getDiagnostics().size());
+        gc.setMaxDiagnostics(0);
+        gc.parse(SCRIPT);
+        assertEquals(6, gc.getErrorCount());
+        assertTrue(gc.getDiagnostics().isEmpty());
+        assertThrows(InvalidArgumentException.class, () -> gc.setMaxDiagnostics(-1));
+
+        gc.setMaxDiagnostics(100);
+        gc.setFailFast(true);
+        assertTrue(gc.isFailFast());
+        Graphic g = gc.parse(SCRIPT);
+        assertEquals(1, g.getCount());
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(2, gc.getTotalLineCount());
+        assertEquals("foo", gc.getDiagnostics().get(0).command());
+
+        g = gc.parse(SCRIPT.split("\n"));
+        assertEquals(1, g.getCount());
+        assertEquals(1, gc.getErrorCount());
+    }
+
+    @Test
+    @DisplayName("Errors inside loops")
+    public void testLoops() {
+        String script = "for1 0 1 3 \"circle %d 0 x\"\ncircle 1 2\n" +
+                        "  for3 0 1 1 0 1 1 \"point %d %d; foo %2$d\"";
+        GraphicCreator gc = new GraphicCreator();
+        gc.parse(script);
+        assertEquals(9, gc.getErrorCount());
+
+        List<Diagnostic> d = gc.getDiagnostics();
+        assertEquals(9, d.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(new Diagnostic(1, 1, "circle", "argument 3 ('x') must be an integer"), d.get(i));
+        }
+        assertEquals(2, d.get(4).line());
+        for (int i = 5; i < 9; i++) {
+            assertEquals(new Diagnostic(3, 3, "foo", "unknown command"), d.get(i));
+        }
+
+        gc.setMaxDiagnostics(2);
+        gc.parse(script);
+        assertEquals(9, gc.getErrorCount());
+        assertEquals(d.subList(0, 2), gc.getDiagnostics());
+
+        //The loop stops on the first error of its body
+        gc.setMaxDiagnostics(100);
+        gc.setFailFast(true);
+        Graphic g = gc.parse("for1 0 1 3 \"point %d 0; circle %<d 0 x\"\npoint 0 0");
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(List.of(d.get(0)), gc.getDiagnostics());
+        assertEquals(1, g.getCount());
+        assertEquals(1, ((Graphic)g.iterator().next()).getCount());
+    }
+
+    @Test
+    @DisplayName("Parallel diagnostics")
+    public void testParallel() {
+        StringBuilder sb = new StringBuilder();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            switch (rnd.nextInt(20)) {
+                case 0  -> sb.append("circle 1 x 2\n");
+                case 1  -> sb.append("color 1 2\n");
+                case 2  -> sb.append("oval 0 0 -5 2; point 1 1\n");
+                default -> sb.append("point ").append(i).append(" 0\n");
+            }
+        }
+
+        GraphicCreator gc = new GraphicCreator();
+        gc.setMaxDiagnostics(Integer.MAX_VALUE);
+        gc.parse(sb.toString());
+        List<Diagnostic> expected = gc.getDiagnostics();
+        assertEquals(gc.getErrorCount(), expected.size());
+        gc.parseParallel(sb.toString());
+        assertEquals(expected, gc.getDiagnostics());
+
+        gc.setMaxDiagnostics(50);
+        gc.parseParallel(sb.toString());
+        assertEquals(expected.subList(0, 50), gc.getDiagnostics());
+    }
+
+    @Test
+    @DisplayName("Numbers are validated as the parser would")
+    public void testNumbers() {
+        String[] values = {
+            "0", "-0", "+1", "-", "+", "", "12a", "2147483647", "2147483648",
+            "-2147483648", "-2147483649", "99999999999", "007", "1.5", ".5",
+            "5.", ".", "1e3", "1e", "1e+", "1E-3", "1.5f", "2d", "1.5ff",
+            "NaN", "-Infinity", "Infinity1", "0x10", "0x1p3", "1_000", "٣"
+        };
+
+        for (String v : values) {
+            assertEquals(parses(() -> Integer.parseInt(v)), GraphicCreator.isInt(v), v);
+            assertEquals(parses(() -> Double.parseDouble(v)), GraphicCreator.isDouble(v), v);
+        }
+
+        Random rnd = new Random(1);
+        String chars = "0123456789+-.eEfdx";
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = rnd.nextInt(6) + 1; j > 0; j--) {
+                sb.append(chars.charAt(rnd.nextInt(chars.length())));
+            }
+            String v = sb.toString();
+            assertEquals(parses(() -> Integer.parseInt(v)), GraphicCreator.isInt(v), v);
+            assertEquals(parses(() -> Double.parseDouble(v)), GraphicCreator.isDouble(v), v);
+        }
+    }
+
+    private static boolean parses(Runnable r) {
+        try {
+            r.run();
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.utils.Utils;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class IncrementalScriptTest {
+    private static final String[] LINES = {
+        "point %d %d", "linec %d %d 1 1", "circle %d %d 5", "rectc %d %d 4 4",
+        "polyp 0 0 %d %d 5 5", "string %d %d hello", "arcc %d %d 5 0 90",
+        "color 255 %d 0", "colorf 0 %d 0", "stroke %d", "font Serif 0 %d",
+        "gradient 0 0 %d %d", "circle x %d %d", "foo %d %d", "# %d %d",
+        "for1 0 1 3 \"point %%d %d\"", "traslate %d %d", "transoff",
+        "clipadd rectc 0 0 %d %d", "clipoff", "colorf no", "reset",
+        "point %d 1; point %d 2 # comment", "for1 0 1 2 \"point %%d %d\n  circle 5 %d 3\""
+    };
+
+    private static String line(Random rnd) {
+        //Mostly geometry, with some configuration changes here and there
+        final int i = rnd.nextInt(10) == 0 ? rnd.nextInt(LINES.length) : rnd.nextInt(7);
+        return String.format(LINES[i], rnd.nextInt(100) + 1, rnd.nextInt(100) + 1);
+    }
+
+    @Test
+    @DisplayName("Same result as a full parse")
+    public void testRandomEdits() {
+        Random rnd = new Random(42);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lines.add(line(rnd));
+        }
+
+        IncrementalScript script = new IncrementalScript();
+        Graphic graphic = script.getGraphic();
+
+        for (int edit = 0; edit < 150; edit++) {
+            for (int j = rnd.nextInt(3) + 1; j > 0; j--) {
+                final int i = rnd.nextInt(lines.size());
+                switch (rnd.nextInt(4)) {
+                    case 0 -> lines.add(i, line(rnd));
+                    case 1 -> lines.remove(i);
+                    case 2 -> lines.set(i, line(rnd));
+                    default -> {
+                        //A single keystroke, that might even open a quote
+                        String l = lines.get(i);
+                        int at = rnd.nextInt(l.length() + 1);
+                        char c = "1 ;\"#\n".charAt(rnd.nextInt(6));
+                        lines.set(i, l.substring(0, at) + c + l.substring(at));
+                    }
+                }
+            }
+
+            String text = String.join("\n", lines);
+            assertSame(graphic, script.update(text));
+
+            GraphicCreator gc = new GraphicCreator();
+            Graphic expected = gc.parse(text);
+            assertSameGraphic(expected, graphic);
+            assertEquals(gc.getErrorCount(), script.getCreator().getErrorCount());
+            assertEquals(gc.getTotalLineCount(), script.getCreator().getTotalLineCount());
+            assertEquals(gc.getDiagnostics(), script.getCreator().getDiagnostics());
+            if (edit != 0) {
+                assertTrue(script.getReusedCount() > 0);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Only the edited statements are parsed")
+    public void testReuse() {
+        StringBuilder sb = new StringBuilder("color 255 0 0\n");
+        for (int i = 0; i < 100; i++) {
+            sb.append("circle ").append(i).append(" 0 5\n");
+        }
+        String text = sb.toString();
+
+        IncrementalScript script = new IncrementalScript();
+        Graphic graphic = script.update(text);
+        assertEquals(100, graphic.getCount());
+        assertEquals(0, script.getReusedCount());
+        List<GraphicE> before = elements(graphic);
+
+        script.update(text.replace("circle 50 0 5", "circle 50 0 7\ncircle 1 1 1"));
+        assertEquals(99, script.getReusedCount());
+        List<GraphicE> after = elements(graphic);
+        assertEquals(101, after.size());
+        assertSame(before.get(49), after.get(49));
+        assertNotSame(before.get(50), after.get(50));
+        Graphic expected = new GraphicCreator().parse("color 255 0 0\ncircle 50 0 7\ncircle 1 1 1");
+        assertEquals(elements(expected), after.subList(50, 52));
+        assertSame(before.get(51), after.get(52));
+
+        //The configuration changed for every element
+        script.update("color 0 255 0\n" + text.substring(text.indexOf('\n') + 1));
+        assertEquals(0, script.getReusedCount());
+        assertEquals(Color.GREEN, elements(graphic).get(99).getPaint());
+
+        //Statements with the same words are reused once each
+        script.update("circle 1 1 1\ncircle 1 1 1\ncircle 1 1 1");
+        script.update("circle 1 1 1\ncircle 1 1 1");
+        assertEquals(2, script.getReusedCount());
+        List<GraphicE> twice = elements(graphic);
+        assertNotSame(twice.get(0), twice.get(1));
+
+        script.reset();
+        assertEquals(0, graphic.getCount());
+        script.update("circle 1 1 1");
+        assertEquals(0, script.getReusedCount());
+    }
+
+    @Test
+    @DisplayName("Errors and loops")
+    public void testErrors() {
+        GraphicCreator gc = new GraphicCreator();
+        IncrementalScript script = new IncrementalScript(gc);
+        script.update("circle 0 x 5\nfor1 0 1 9 \"point %d 0\"");
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(12, gc.getTotalLineCount());
+        assertEquals(1, gc.getDiagnostics().get(0).line());
+
+        //Both statements are reused, the error moved
+        script.update("\n\ncircle 0 x 5\nfor1 0 1 9 \"point %d 0\"");
+        assertEquals(2, script.getReusedCount());
+        assertEquals(1, gc.getErrorCount());
+        assertEquals(12, gc.getTotalLineCount());
+        assertEquals(3, gc.getDiagnostics().get(0).line());
+        assertEquals(1, script.getGraphic().getCount());
+
+        //Loops can't be reused after a transformation
+        script.update("traslate 1 1\nfor1 0 1 9 \"point %d 0\"");
+        script.update("traslate 1 1\nfor1 0 1 9 \"point %d 0\"");
+        assertEquals(0, script.getReusedCount());
+
+        gc.setFailFast(true);
+        script.update("circle 0 0 5\ncircle 0 x 5\ncircle 1 1 5");
+        assertEquals(1, script.getGraphic().getCount());
+
+        assertThrows(IllegalArgumentException.class, () -> script.update(null));
+        assertThrows(IllegalArgumentException.class, () -> new IncrementalScript(null));
+    }
+
+    private static List<GraphicE> elements(Graphic graphic) {
+        List<GraphicE> list = new ArrayList<>();
+        graphic.forEach(list::add);
+        return list;
+    }
+
+    private static void assertSameGraphic(Graphic g1, Graphic g2) {
+        assertEquals(g1.getCount(), g2.getCount());
+        Iterator<GraphicE> it1 = g1.iterator();
+        Iterator<GraphicE> it2 = g2.iterator();
+        while (it1.hasNext()) {
+            GraphicE e1 = it1.next();
+            GraphicE e2 = it2.next();
+            assertEquals(e1.getClass(), e2.getClass());
+            assertEquals(e1.getStroke(), e2.getStroke());
+            assertEquals(e1.getPaint(), e2.getPaint());
+        }
+
+        BufferedImage i1 = Utils.draw(g1, 120, 120);
+        BufferedImage i2 = Utils.draw(g2, 120, 120);
+        for (int x = 0; x < 120; x++) {
+            for (int y = 0; y < 120; y++) {
+                assertEquals(i1.getRGB(x, y), i2.getRGB(x, y));
+            }
+        }
+    }
+}
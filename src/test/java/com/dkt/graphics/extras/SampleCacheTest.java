@@ -0,0 +1,176 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.GPath;
+import com.dkt.graphics.elements.GPoly;
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.extras.formula.Calculable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class SampleCacheTest {
+    private static final class Counted extends Calculable {
+        private int calls;
+
+        @Override
+        public double f(double x) throws DomainException {
+            calls++;
+            return Math.sin(x / 3) * 50;
+        }
+    }
+
+    private static GPath path(GFormula formula) {
+        return (GPath)formula.iterator().next();
+    }
+
+    /**
+     * The path of the formula on the samples {@code k * step}
+     */
+    private static GPath expected(Calculable f, double xs, double xf, double step) {
+        GPath path = new GPath(10);
+        int lx = Integer.MAX_VALUE;
+        int ly = Integer.MAX_VALUE;
+        for (long k = (long)Math.ceil(xs / step); k * step < xf; k++) {
+            int x = (int)(f.scaleX() * (k * step));
+            int y = (int)(f.scaleY() * f.f(k * step));
+            if (x != lx | y != ly) {
+                path.append(x, y);
+                lx = x;
+                ly = y;
+            }
+        }
+        return path;
+    }
+
+    @Test
+    @DisplayName("Pan and zoom only evaluate the new samples")
+    public void testPanZoom() {
+        Counted f = new Counted();
+        SampleCache cache = new SampleCache(1000);
+        GFormula formula = new GFormula(f);
+        assertNull(formula.getSampleCache());
+        formula.setSampleCache(cache);
+        assertSame(cache, formula.getSampleCache());
+
+        formula.calculatePath(0, 100, 0.01);
+        assertEquals(10000, f.calls);
+        assertEquals(10000, cache.getMisses());
+        assertEquals(0, cache.getHits());
+
+        //Pan
+        f.calls = 0;
+        formula.calculatePath(50.005, 150, 0.01);
+        assertEquals(5000, f.calls);
+        //[50.01, 99.99] were already there
+        assertEquals(4999, cache.getHits());
+        GPath pan = path(formula);
+        f.calls = 0;
+        assertEquals(expected(f, 50.005, 150, 0.01), pan);
+
+        //Zoom
+        f.setScaleX(3);
+        f.setScaleY(0.5);
+        f.calls = 0;
+        formula.calculatePath(20, 120, 0.01);
+        assertEquals(0, f.calls);
+        assertEquals(expected(f, 20, 120, 0.01), path(formula));
+
+        //Another step is another set of samples
+        f.calls = 0;
+        formula.calculatePath(0, 10, 0.02);
+        assertEquals(500, f.calls);
+
+        //Areas too
+        f.calls = 0;
+        formula.calculateArea(0, 10, 0.02);
+        assertEquals(0, f.calls);
+        GPoly poly = (GPoly)formula.iterator().next();
+        assertEquals(expected(f, 0, 10, 0.02).size() + 2, poly.size());
+    }
+
+    @Test
+    @DisplayName("Segments are evicted when the cache is full")
+    public void testEviction() {
+        Counted f = new Counted();
+        SampleCache cache = new SampleCache(2);
+        GFormula formula = new GFormula(f);
+        formula.setSampleCache(cache);
+
+        //Three segments of 512 samples
+        formula.calculatePath(0, 1536, 1);
+        assertEquals(2, cache.size());
+        f.calls = 0;
+        formula.calculatePath(1024, 1536, 1);
+        assertEquals(0, f.calls);
+        formula.calculatePath(0, 512, 1);
+        assertEquals(512, f.calls);
+        //[512, 1024) was the least recently used one
+        f.calls = 0;
+        formula.calculatePath(0, 512, 1);
+        formula.calculatePath(1024, 1536, 1);
+        assertEquals(0, f.calls);
+        formula.calculatePath(512, 1024, 1);
+        assertEquals(512, f.calls);
+
+        f.calls = 0;
+        cache.invalidate(new Counted());
+        formula.calculatePath(512, 1024, 1);
+        assertEquals(0, f.calls);
+        cache.invalidate(f);
+        assertEquals(0, cache.size());
+        formula.calculatePath(512, 1024, 1);
+        assertEquals(512, f.calls);
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        assertThrows(InvalidArgumentException.class, () -> new SampleCache(0));
+    }
+
+    @Test
+    @DisplayName("Only the requested samples are evaluated")
+    public void testDomain() {
+        Calculable f = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                if (x >= 10 & x < 20) {
+                    throw new DomainException("f", x);
+                }
+                return x;
+            }
+        };
+        SampleCache cache = new SampleCache(10);
+        GFormula formula = new GFormula(f);
+        formula.setSampleCache(cache);
+        formula.calculatePath(0, 10, 1);
+        formula.calculatePath(20, 30, 1);
+        formula.calculatePath(0, 10, 1);
+        assertEquals(20, cache.getMisses());
+        assertEquals(10, cache.getHits());
+        assertThrows(DomainException.class, () -> formula.calculatePath(0, 30, 1));
+        assertThrows(DomainException.class, () -> formula.calculatePath(0, 30, 1));
+    }
+}
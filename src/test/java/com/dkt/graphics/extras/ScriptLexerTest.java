@@ -0,0 +1,165 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import com.dkt.graphics.elements.Graphic;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class ScriptLexerTest {
+    private static ArrayList<String[]> lex(String script) throws IOException {
+        ScriptLexer lexer = new ScriptLexer(new StringReader(script));
+        ArrayList<String[]> out = new ArrayList<>();
+        String[] st;
+        while ((st = lexer.next()) != null) {
+            out.add(st);
+        }
+        return out;
+    }
+
+    @Test
+    @DisplayName("Separators and white spaces")
+    public void testSeparators() throws IOException {
+        ArrayList<String[]> st = lex("  point 0   0\n\n\r\nline\t1 2;;rect 3|circle 4 ");
+        assertEquals(4, st.size());
+        assertArrayEquals(new String[]{"point", "0", "0"}, st.get(0));
+        assertArrayEquals(new String[]{"line", "1", "2"}, st.get(1));
+        assertArrayEquals(new String[]{"rect", "3"}, st.get(2));
+        assertArrayEquals(new String[]{"circle", "4"}, st.get(3));
+        assertTrue(lex("").isEmpty());
+        assertTrue(lex(" ;\n| \n").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Quotes")
+    public void testQuotes() throws IOException {
+        ArrayList<String[]> st = lex("for1 0 1 2 \"\n  color 1;\n  point %d 0\n\"\npoint 1");
+        assertEquals(2, st.size());
+        assertArrayEquals(
+                new String[]{"for1", "0", "1", "2", "\"", "color", "1;", "point", "%d", "0", "\""},
+                st.get(0)
+        );
+        assertArrayEquals(new String[]{"point", "1"}, st.get(1));
+
+        st = lex("string 0 0 \"a|b\";point");
+        assertArrayEquals(new String[]{"string", "0", "0", "\"a|b\""}, st.get(0));
+        assertArrayEquals(new String[]{"point"}, st.get(1));
+    }
+
+    @Test
+    @DisplayName("Comments")
+    public void testComments() throws IOException {
+        ArrayList<String[]> st = lex(
+                "# comment\n" +
+                "point 0 0 # other\n" +
+                "point 1 \"a # b\n" +
+                "c\"\n" +
+                "point 2; # not a line\n" +
+                "#last"
+        );
+        assertEquals(5, st.size());
+        assertArrayEquals(new String[]{"#"}, st.get(0));
+        assertArrayEquals(new String[]{"point", "0", "0"}, st.get(1));
+        assertArrayEquals(new String[]{"point", "1", "\"a", "c\""}, st.get(2));
+        assertArrayEquals(new String[]{"point", "2"}, st.get(3));
+        assertArrayEquals(new String[]{"#"}, st.get(4));
+    }
+
+    @Test
+    @DisplayName("Long scripts")
+    public void testLong() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            sb.append("point ").append(i).append(" 0\n");
+        }
+        ArrayList<String[]> st = lex(sb.toString());
+        assertEquals(50_000, st.size());
+        assertEquals("49999", st.get(49_999)[1]);
+    }
+
+    @Test
+    @DisplayName("Packed coordinates")
+    public void testPackPoints() throws IOException {
+        String script = "lpath 1 -2 +3 4\npolyp 5 6 7;lpath 1 x\nlpath\n" +
+                        "polyp 1 \"2 3\" 4\npoint 1 2\nlpath 9 8 # c";
+        assertArrayEquals(new String[]{"lpath", "1", "-2", "+3", "4"}, lex(script).get(0));
+
+        ScriptLexer lexer = new ScriptLexer(new StringReader(script));
+        lexer.setPackPoints(true);
+
+        assertArrayEquals(new String[]{"lpath"}, lexer.next());
+        assertArrayEquals(new int[]{1, 3}, lexer.points()[0]);
+        assertArrayEquals(new int[]{-2, 4}, lexer.points()[1]);
+
+        //Odd number of coordinates, or words that aren't integers
+        assertArrayEquals(new String[]{"polyp", "5", "6", "7"}, lexer.next());
+        assertNull(lexer.points());
+        assertArrayEquals(new String[]{"lpath", "1", "x"}, lexer.next());
+        assertNull(lexer.points());
+
+        assertArrayEquals(new String[]{"lpath"}, lexer.next());
+        assertEquals(0, lexer.points()[0].length);
+
+        assertArrayEquals(new String[]{"polyp", "1", "\"2", "3\"", "4"}, lexer.next());
+        assertNull(lexer.points());
+        assertArrayEquals(new String[]{"point", "1", "2"}, lexer.next());
+        assertNull(lexer.points());
+
+        assertArrayEquals(new String[]{"lpath"}, lexer.next());
+        assertArrayEquals(new int[]{9}, lexer.points()[0]);
+        assertNull(lexer.next());
+    }
+
+    @Test
+    @DisplayName("Packed coordinates give the same graphic")
+    public void testPackedParse() throws IOException {
+        StringBuilder sb = new StringBuilder("color 255 0 0\nfill true\n");
+        for (int i = 0; i < 2_000; i++) {
+            sb.append(i % 2 == 0 ? "lpath" : "polyp");
+            for (int j = 0; j < 2 * (i % 7); j++) {
+                sb.append(' ').append((i * 31 + j * 17) % 500 - 250);
+            }
+            sb.append(i % 97 == 0 ? " x\n" : "\n");
+        }
+        String script = sb.toString();
+
+        GraphicCreator streamed = new GraphicCreator();
+        GraphicCreator compiled = new GraphicCreator();
+        Graphic expected = compiled.parse(GraphicCreator.compile(script));
+        assertEquals(expected, streamed.parse(new StringReader(script)));
+        assertEquals(compiled.getErrorCount(), streamed.getErrorCount());
+        assertEquals(compiled.getDiagnostics(), streamed.getDiagnostics());
+    }
+
+    @Test
+    @DisplayName("Split")
+    public void testSplit() {
+        assertArrayEquals(new String[]{"a", "b", "c"}, ScriptLexer.split("  a\tb  c "));
+        assertArrayEquals(new String[0], ScriptLexer.split("   "));
+    }
+}
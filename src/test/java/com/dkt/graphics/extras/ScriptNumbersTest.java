@@ -0,0 +1,115 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class ScriptNumbersTest {
+    private static final String[] VALUES = {
+        "0", "-0", "+1", "-", "+", "", "12a", "2147483647", "2147483648",
+        "-2147483648", "-2147483649", "99999999999", "007", "1.5", ".5",
+        "5.", ".", "1e3", "1e", "1e+", "1E-3", "1.5f", "2d", "1.5ff", "-0.0",
+        "NaN", "-Infinity", "Infinity1", "0x10", "0x1p3", "1_000", "٣", " 1",
+        "0.1", "0.3", "123456789012345678", "1234567890123456789012",
+        "9007199254740993", "1e22", "1e23", "1e-22", "4.9e-324", "1.7976931348623157e308",
+        "1e400", "1e-400", "2.2250738585072014E-308", "0.000000000000000000000001",
+        "1e00001", "1..2", "1.2.3", "12345.6789e-3"
+    };
+
+    @Test
+    @DisplayName("Same results as the JDK")
+    public void testValues() {
+        for (String v : VALUES) {
+            check(v);
+        }
+
+        Random rnd = new Random(5);
+        String chars = "0123456789+-.eE";
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = rnd.nextInt(12) + 1; j > 0; j--) {
+                sb.append(chars.charAt(rnd.nextInt(rnd.nextBoolean() ? 10 : chars.length())));
+            }
+            check(sb.toString());
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            check(Double.toString(rnd.nextDouble() * Math.pow(10, rnd.nextInt(40) - 20)));
+            check(Integer.toString(rnd.nextInt()));
+            check(String.format("%.3f", rnd.nextGaussian() * 1000));
+        }
+    }
+
+    @Test
+    @DisplayName("Ranges of a longer sequence")
+    public void testRanges() {
+        StringBuilder sb = new StringBuilder("lpath 12 -7 3.25 x");
+        assertEquals(12, ScriptNumbers.parseInt(sb, 6, 8));
+        assertEquals(-7, ScriptNumbers.parseInt(sb, 9, 11));
+        assertEquals(3.25, ScriptNumbers.parseDouble(sb, 12, 16));
+        assertFalse(ScriptNumbers.isInt(sb, 12, 16));
+        assertTrue(ScriptNumbers.isDouble(sb, 12, 16));
+        assertFalse(ScriptNumbers.isInt(sb, 17, 17));
+
+        NumberFormatException ex = assertThrows(NumberFormatException.class,
+                                                () -> ScriptNumbers.parseInt(sb, 17, 18));
+        assertEquals(assertThrows(NumberFormatException.class,
+                                  () -> Integer.parseInt("x")).getMessage(), ex.getMessage());
+    }
+
+    private static void check(String v) {
+        String padded = "#" + v + "#";
+        int to = v.length() + 1;
+
+        Integer i = null;
+        try {
+            i = Integer.parseInt(v);
+        } catch (NumberFormatException ex) {
+            //Not an int
+        }
+        assertEquals(i != null, ScriptNumbers.isInt(padded, 1, to), v);
+        if (i != null) {
+            assertEquals(i, ScriptNumbers.parseInt(padded, 1, to), v);
+        } else {
+            assertThrows(NumberFormatException.class, () -> ScriptNumbers.parseInt(padded, 1, to));
+        }
+
+        Double d = null;
+        try {
+            d = Double.parseDouble(v);
+        } catch (NumberFormatException ex) {
+            //Not a double
+        }
+        assertEquals(d != null, ScriptNumbers.isDouble(padded, 1, to), v);
+        if (d != null) {
+            assertEquals(Double.doubleToRawLongBits(d),
+                         Double.doubleToRawLongBits(ScriptNumbers.parseDouble(padded, 1, to)), v);
+        } else {
+            assertThrows(NumberFormatException.class, () -> ScriptNumbers.parseDouble(padded, 1, to));
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras.formula;
+
+import com.dkt.graphics.elements.GPointArray;
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.exceptions.AlreadyRunningException;
+import com.dkt.graphics.exceptions.DomainException;
+import com.dkt.graphics.exceptions.IntervalException;
+import com.dkt.graphics.exceptions.InvalidArgumentException;
+import com.dkt.graphics.utils.Utils;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class CalculableTimerTest {
+    /**
+     * Runs a timer until it ends
+     *
+     * @return maximum progress reported
+     */
+    private static double run(AbstractTimer<?> timer) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Double> max = new AtomicReference<>(0.0);
+        AtomicInteger calls = new AtomicInteger();
+        timer.setActions(new AbstractTimer.Action() {
+            @Override public void start() {}
+            @Override public void pause() {}
+            @Override public void resume() {}
+            @Override public void stop() {
+                latch.countDown();
+            }
+            @Override public void progress(double fraction) {
+                calls.incrementAndGet();
+                max.accumulateAndGet(fraction, Math::max);
+            }
+        });
+        timer.start();
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals((int)Math.ceil(timer.getSampleCount() / (double)timer.getChunkSize()), calls.get());
+        return max.get();
+    }
+
+    private static void assertSameImage(GraphicE e1, GraphicE e2) {
+        BufferedImage i1 = Utils.draw(e1, 220, 220);
+        BufferedImage i2 = Utils.draw(e2, 220, 220);
+        for (int x = 0; x < 220; x++) {
+            for (int y = 0; y < 220; y++) {
+                assertEquals(i1.getRGB(x, y), i2.getRGB(x, y), x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Chunks are shared between the threads")
+    public void testChunks() throws InterruptedException {
+        Calculable f = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                //The second half is much more expensive
+                if (x > 100) {
+                    long end = System.nanoTime() + 2_000;
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return 100 + 80 * Math.sin(x / 10);
+            }
+        };
+        f.startPoint(0);
+        f.endPoint(200);
+        f.step(0.01);
+
+        CalculableTimer timer = new CalculableTimer(f);
+        timer.setNumberOfThreads(3);
+        timer.setChunkSize(500);
+        assertEquals(500, timer.getChunkSize());
+        assertEquals(1.0, run(timer), 1e-12);
+        assertEquals(20000, timer.getSampleCount());
+        assertEquals(1.0, timer.getProgress(), 1e-12);
+
+        GPointArray expected = new GPointArray(20000);
+        for (int k = 0; k < 20000; k++) {
+            double t = k * 0.01;
+            expected.append((int)t, (int)f.f(t));
+        }
+        assertSameImage(expected, timer);
+
+        assertThrows(InvalidArgumentException.class, () -> new CalculableTimer(f).setChunkSize(0));
+        f.step(0);
+        assertThrows(IntervalException.class, () -> new CalculableTimer(f).start());
+    }
+
+    @Test
+    @DisplayName("Parametric timers use chunks too")
+    public void testParametric() throws InterruptedException {
+        ParametricCalculable circle = new ParametricCalculable() {
+            @Override
+            public double x(double t) {
+                return 100 + 90 * Math.cos(t);
+            }
+
+            @Override
+            public double y(double t) {
+                return 100 + 90 * Math.sin(t);
+            }
+        };
+        circle.startPoint(0);
+        circle.endPoint(2 * Math.PI);
+        circle.step(0.001);
+
+        ParametricCalculableTimer timer = new ParametricCalculableTimer(circle);
+        timer.setNumberOfThreads(4);
+        timer.setChunkSize(100);
+        assertEquals(1.0, run(timer), 1e-12);
+
+        GPointArray expected = new GPointArray(7000);
+        for (int k = 0; k < timer.getSampleCount(); k++) {
+            double t = k * 0.001;
+            expected.append((int)circle.x(t), (int)circle.y(t));
+        }
+        assertSameImage(expected, timer);
+    }
+
+    /**
+     * A slow sine, so the timers don't end before we can pause them
+     */
+    private static Calculable slow(double end) {
+        Calculable f = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                long stop = System.nanoTime() + 20_000;
+                while (System.nanoTime() < stop) {
+                    Thread.onSpinWait();
+                }
+                return 100 + 80 * Math.sin(x / 10);
+            }
+        };
+        f.startPoint(0);
+        f.endPoint(end);
+        f.step(0.1);
+        return f;
+    }
+
+    @Test
+    @DisplayName("Timers can share an executor")
+    public void testExecutor() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<CalculableTimer> timers = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                Calculable f = slow(20);
+                CalculableTimer timer = new CalculableTimer(f);
+                timer.setExecutor(pool);
+                assertSame(pool, timer.getExecutor());
+                timer.setNumberOfThreads(2);
+                timer.setChunkSize(16);
+                timer.setActions(new AbstractTimer.Action() {
+                    @Override public void start() {}
+                    @Override public void pause() {}
+                    @Override public void resume() {}
+                    @Override public void stop() {
+                        latch.countDown();
+                    }
+                });
+                timers.add(timer);
+            }
+
+            for (CalculableTimer timer : timers) {
+                timer.start();
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+            GPointArray expected = new GPointArray(200);
+            Calculable f = slow(20);
+            for (int k = 0; k < 200; k++) {
+                double t = k * 0.1;
+                expected.append((int)t, (int)f.f(t));
+            }
+            for (CalculableTimer timer : timers) {
+                assertFalse(timer.isRunning());
+                assertEquals(1.0, timer.getProgress(), 1e-12);
+                assertSameImage(expected, timer);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Pause, resume and stop")
+    public void testPause() throws InterruptedException {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            for (Executor executor : new Executor[]{null, pool}) {
+                CalculableTimer timer = new CalculableTimer(slow(1000));
+                timer.setExecutor(executor);
+                timer.setNumberOfThreads(3);
+                timer.setChunkSize(50);
+                timer.start();
+                assertThrows(AlreadyRunningException.class, () -> timer.setExecutor(null));
+
+                timer.pause();
+                assertTrue(timer.isPaused());
+                //Each worker might end the sample it was evaluating
+                Thread.sleep(50);
+                double progress = timer.getProgress();
+                Thread.sleep(100);
+                assertEquals(progress, timer.getProgress());
+                assertTrue(progress < 1);
+
+                timer.resume();
+                assertFalse(timer.isPaused());
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                while (timer.getProgress() == progress && System.nanoTime() < end) {
+                    Thread.sleep(1);
+                }
+                assertTrue(timer.getProgress() > progress);
+
+                //Stopping a paused timer works too
+                timer.pause();
+                timer.stop();
+                assertFalse(timer.isRunning());
+                Thread.sleep(50);
+                progress = timer.getProgress();
+                Thread.sleep(50);
+                assertEquals(progress, timer.getProgress());
+                assertTrue(progress < 1);
+
+                //And it can be started again
+                timer.start();
+                assertTrue(timer.isRunning());
+                assertFalse(timer.isPaused());
+                timer.stop();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Paced timers")
+    public void testPacing() throws InterruptedException {
+        Calculable f = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                return 100 + 80 * Math.sin(x / 10);
+            }
+        };
+        f.startPoint(0);
+        f.endPoint(200);
+        f.step(0.1);
+
+        CalculableTimer timer = new CalculableTimer(f);
+        assertFalse(timer.isPaced());
+        timer.setRate(1000);
+        assertTrue(timer.isPaced());
+        assertEquals(1000, timer.getRate());
+        timer.setDuration(300);
+        assertEquals(300, timer.getDuration());
+        assertEquals(0, timer.getRate());
+        timer.setNumberOfThreads(2);
+        timer.setChunkSize(100);
+
+        ScheduledExecutorService frames = Executors.newSingleThreadScheduledExecutor();
+        try {
+            frames.scheduleAtFixedRate(timer::tick, 10, 10, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            assertEquals(1.0, run(timer), 1e-12);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsed >= 250, elapsed + "ms");
+        } finally {
+            frames.shutdown();
+        }
+
+        GPointArray expected = new GPointArray(2000);
+        for (int k = 0; k < 2000; k++) {
+            double t = k * 0.1;
+            expected.append((int)t, (int)f.f(t));
+        }
+        assertSameImage(expected, timer);
+
+        //Without frames the workers release the samples by themselves
+        f.endPoint(10_000);
+        timer.setRate(1000);
+        timer.start();
+        Thread.sleep(300);
+        double progress = timer.getProgress();
+        assertTrue(progress < 0.1, "progress " + progress);
+        timer.stop();
+
+        assertThrows(InvalidArgumentException.class, () -> timer.setRate(-1));
+        assertThrows(InvalidArgumentException.class, () -> timer.setRate(Double.NaN));
+        assertThrows(InvalidArgumentException.class, () -> timer.setRate(Double.POSITIVE_INFINITY));
+        assertThrows(InvalidArgumentException.class, () -> timer.setDuration(-1));
+        timer.setDuration(0);
+        assertFalse(timer.isPaced());
+    }
+
+    @Test
+    @DisplayName("Listeners and completion")
+    public void testListeners() throws Exception {
+        Calculable f = new Calculable() {
+            @Override
+            public double f(double x) throws DomainException {
+                if (x > 150) {
+                    throw new DomainException("f", x);
+                }
+                return 100 + 80 * Math.sin(x / 10);
+            }
+        };
+        f.startPoint(0);
+        f.endPoint(100);
+        f.step(0.01);
+
+        List<String> started = new CopyOnWriteArrayList<>();
+        List<AbstractTimer.WorkerStats> ended = new CopyOnWriteArrayList<>();
+        AbstractTimer.Listener listener = new AbstractTimer.Listener() {
+            @Override
+            public void workerStarted(String name) {
+                started.add(name);
+            }
+
+            @Override
+            public void workerEnded(AbstractTimer.WorkerStats stats) {
+                ended.add(stats);
+            }
+        };
+
+        CalculableTimer timer = new CalculableTimer(f);
+        assertTrue(timer.getCompletion().isDone());
+        timer.addListener(listener);
+        timer.setNumberOfThreads(3);
+        timer.setChunkSize(500);
+        timer.start();
+        timer.getCompletion().get(30, TimeUnit.SECONDS);
+        assertFalse(timer.isRunning());
+
+        assertEquals(3, started.size());
+        assertEquals(3, ended.size());
+        long samples = 0;
+        for (AbstractTimer.WorkerStats stats : ended) {
+            assertTrue(started.contains(stats.name()));
+            assertEquals(stats.samples(), stats.points() + stats.skipped());
+            assertTrue(stats.evaluationNanos() <= stats.totalNanos());
+            samples += stats.samples();
+        }
+        //The first sample of each chunk (but the first one) is drawn twice
+        assertEquals(10000 + 19, samples);
+        //Many samples fall on the same pixel
+        assertTrue(ended.stream().mapToLong(AbstractTimer.WorkerStats::skipped).sum() > 5000);
+
+        //Timers can be chained
+        CalculableTimer next = new CalculableTimer(f);
+        CompletableFuture<Void> chain = new CompletableFuture<>();
+        timer.start();
+        timer.getCompletion().thenRun(() -> {
+            next.start();
+            next.getCompletion().thenRun(() -> chain.complete(null));
+        });
+        chain.get(30, TimeUnit.SECONDS);
+        assertEquals(1.0, next.getProgress(), 1e-12);
+
+        //Stopped timers cancel the future
+        timer.removeListener(listener);
+        f.endPoint(150);
+        f.step(1e-5);
+        timer.start();
+        CompletableFuture<Void> completion = timer.getCompletion();
+        timer.stop();
+        assertTrue(completion.isCancelled());
+        //The listener was removed before this run
+        assertEquals(6, started.size());
+
+        //Failures complete it exceptionally
+        f.endPoint(200);
+        f.step(0.01);
+        timer.start();
+        ExecutionException ex = assertThrows(
+                ExecutionException.class,
+                () -> timer.getCompletion().get(30, TimeUnit.SECONDS)
+        );
+        assertInstanceOf(DomainException.class, ex.getCause());
+        assertFalse(timer.isRunning());
+
+        assertThrows(IllegalArgumentException.class, () -> timer.addListener(null));
+    }
+}
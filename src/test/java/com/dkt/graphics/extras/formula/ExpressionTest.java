@@ -0,0 +1,133 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.extras.formula;
+
+import com.dkt.graphics.exceptions.ExpressionException;
+import com.dkt.graphics.utils.MathUtils;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class ExpressionTest {
+    private static final double[] XS = {-7.5, -2, -1, -0.5, 0, 0.25, 1, 3, 10.5};
+
+    private static void check(String formula, DoubleUnaryOperator java) {
+        Expression expression = Expression.parse(formula);
+        Calculable compiled = expression.compile();
+        assertEquals(formula, compiled.getName());
+        assertEquals(formula, expression.toString());
+
+        for (double x : XS) {
+            double expected = java.applyAsDouble(x);
+            assertEquals(expected, expression.eval(x), formula + " at " + x);
+            assertEquals(expected, compiled.f(x), formula + " at " + x);
+        }
+    }
+
+    @Test
+    @DisplayName("Same values as Java code")
+    public void testValues() {
+        check("sin(x)*exp(-x/10)", x -> Math.sin(x) * Math.exp(-x / 10));
+        check("3*x^3 - 2*x^2 + x - 7", x -> 3 * Math.pow(x, 3) - 2 * Math.pow(x, 2) + x - 7);
+        check("-x^2", x -> -Math.pow(x, 2));
+        check("2^3^x", x -> Math.pow(2, Math.pow(3, x)));
+        check("2^-x", x -> Math.pow(2, -x));
+        check("x - 2 - 3", x -> x - 2 - 3);
+        check("x / 2 / 4", x -> x / 2 / 4);
+        check("(x + 1) * (x - 1)", x -> (x + 1) * (x - 1));
+        check("+x * -x", x -> x * -x);
+        check("log(x) + sqrt(x)", x -> Math.log(x) + Math.sqrt(x));
+        check("1/x", x -> 1 / x);
+        check("hs(x) + rect(x) * boxcar(x, -1, 2)",
+              x -> MathUtils.hs(x) + MathUtils.rect(x) * MathUtils.boxcar(x, -1, 2));
+        check("boxcar(x, x - 1, 2 * x)", x -> MathUtils.boxcar(x, x - 1, 2 * x));
+        check("atan2(x, 2) + hypot(x, x) + min(x, 1) - max(1, x)",
+              x -> Math.atan2(x, 2) + Math.hypot(x, x) + Math.min(x, 1) - Math.max(1, x));
+        check("abs(x) + floor(x) + ceil(x) + signum(x) + cbrt(x) + log10(abs(x))",
+              x -> Math.abs(x) + Math.floor(x) + Math.ceil(x) + Math.signum(x)
+                 + Math.cbrt(x) + Math.log10(Math.abs(x)));
+        check("tanh(x) + cosh(x/10) + sinh(x/10) + atan(x) + tan(x) + cos(x)",
+              x -> Math.tanh(x) + Math.cosh(x / 10) + Math.sinh(x / 10)
+                 + Math.atan(x) + Math.tan(x) + Math.cos(x));
+        check("asin(x/20) + acos(x/20) + pow(x, 2)",
+              x -> Math.asin(x / 20) + Math.acos(x / 20) + Math.pow(x, 2));
+        check("x", x -> x);
+        check("2 * pi * e", x -> 2 * Math.PI * Math.E);
+        check("1.5e2 + .5 + 2E-1 + 3.", x -> 150.5 + 0.2 + 3);
+
+        assertTrue(Expression.parse("2 * pi + sin(1)").isConstant());
+        assertFalse(Expression.parse("x * 0").isConstant());
+    }
+
+    @Test
+    @DisplayName("Bulk evaluation")
+    public void testBulk() {
+        Calculable f = Expression.parse("x^2 - 1").compile();
+        double[] xs = {1, 2, 3, 4, 5};
+        double[] out = new double[5];
+        f.f(xs, out, 1, 3);
+        assertArrayEquals(new double[]{0, 3, 8, 15, 0}, out);
+
+        assertThrows(IllegalArgumentException.class, () -> f.f(null, out, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> f.f(xs, null, 0, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> f.f(xs, out, 3, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> f.f(xs, new double[2], 0, 3));
+
+        //Each compiled expression is independent
+        Calculable g = Expression.parse("x^2 - 1").compile();
+        assertNotSame(f.getClass(), g.getClass());
+        g.setName("g");
+        assertEquals("x^2 - 1", f.getName());
+    }
+
+    private static void error(String formula, int position, String msg) {
+        ExpressionException ex = assertThrows(
+                ExpressionException.class, () -> Expression.parse(formula)
+        );
+        assertEquals(position, ex.getPosition(), ex.getMessage());
+        assertEquals(formula, ex.getExpression());
+        assertTrue(ex.getMessage().startsWith(msg), ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Errors")
+    public void testErrors() {
+        error("", 0, "Unexpected end");
+        error("sin(x", 5, "Missing ')'");
+        error("(x + 1", 6, "Missing ')'");
+        error("sin(x y)", 6, "Expected ')'");
+        error("foo(x)", 0, "Unknown function 'foo'");
+        error("2 * y", 4, "Unknown variable 'y'");
+        error("2 ** x", 3, "Unexpected '*'");
+        error("1.2.3", 3, "Unexpected '.'");
+        error("2x", 1, "Unexpected 'x'");
+        error("boxcar(x, 1)", 0, "'boxcar' takes 3 arguments");
+        error("sin(x, 1)", 0, "'sin' takes 1 argument");
+        error("x + ", 4, "Unexpected end");
+        error("x # 1", 2, "Unexpected '#'");
+
+        assertThrows(IllegalArgumentException.class, () -> Expression.parse(null));
+    }
+}
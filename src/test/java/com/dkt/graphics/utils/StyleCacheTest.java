@@ -0,0 +1,97 @@
+/*
+ *                      ..::jDrawingLib::..
+ *
+ * Copyright (C) Federico Vera 2012 - 2023 <fede@riddler.com.ar>
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dkt.graphics.utils;
+
+import com.dkt.graphics.elements.GCircle;
+import com.dkt.graphics.elements.GraphicE;
+import com.dkt.graphics.elements.Graphic;
+import com.dkt.graphics.extras.GraphicCreator;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Stroke;
+import java.awt.SystemColor;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Federico Vera {@literal<fede@riddler.com.ar>}
+ */
+public class StyleCacheTest {
+    @Test
+    @DisplayName("Colors")
+    public void testColors() {
+        Color c = StyleCache.intern(new Color(12, 34, 56));
+        assertSame(c, StyleCache.intern(new Color(12, 34, 56)));
+        assertSame(c, StyleCache.color(12, 34, 56, 255));
+        assertSame(c, StyleCache.color(new Color(12, 34, 56).getRGB()));
+        assertNotSame(c, StyleCache.color(12, 34, 56, 254));
+        assertSame(Color.RED, StyleCache.intern(new Color(255, 0, 0)));
+        assertSame(SystemColor.desktop, StyleCache.intern(SystemColor.desktop));
+        assertNull(StyleCache.intern((Color)null));
+        assertThrows(IllegalArgumentException.class, () -> StyleCache.color(256, 0, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Strokes, fonts and gradients")
+    public void testOthers() {
+        Stroke s = StyleCache.intern(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL));
+        assertSame(s, StyleCache.intern(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL)));
+        assertSame(GraphicE.STROKE, StyleCache.intern(new BasicStroke()));
+
+        Font f = StyleCache.intern(Font.decode("Serif 0 17"));
+        assertSame(f, StyleCache.intern(Font.decode("Serif 0 17")));
+
+        GradientPaint g = StyleCache.intern(new GradientPaint(0, 0, Color.RED, 10, 10, Color.BLUE, true));
+        assertSame(g, StyleCache.intern(new GradientPaint(0, 0, Color.RED, 10, 10, Color.BLUE, true)));
+        assertNotSame(g, StyleCache.intern(new GradientPaint(0, 0, Color.RED, 10, 10, Color.BLUE, false)));
+    }
+
+    @Test
+    @DisplayName("Elements and scripts share styles")
+    public void testShared() {
+        GCircle c1 = new GCircle(0, 0, 1);
+        GCircle c2 = new GCircle(0, 0, 1);
+        c1.setPaint(new Color(1, 2, 3));
+        c2.setPaint(new Color(1, 2, 3));
+        c1.setFillPaint(new Color(4, 5, 6));
+        c2.setFillPaint(new Color(4, 5, 6));
+        assertSame(c1.getPaint(), c2.getPaint());
+        assertSame(c1.getFillPaint(), c2.getFillPaint());
+
+        Graphic g = new GraphicCreator().parse(
+                "color 1 2 3; stroke 2; circle 0 0 1\n" +
+                "color 1 2 3; stroke 2; circle 0 0 1\n" +
+                "color 0 1 2 3; circle 0 0 1"
+        );
+        Iterator<GraphicE> it = g.iterator();
+        GraphicE e1 = it.next();
+        GraphicE e2 = it.next();
+        GraphicE e3 = it.next();
+        assertSame(c1.getPaint(), e1.getPaint());
+        assertSame(e1.getPaint(), e2.getPaint());
+        assertSame(e1.getStroke(), e2.getStroke());
+        assertNotSame(e1.getPaint(), e3.getPaint());
+    }
+}
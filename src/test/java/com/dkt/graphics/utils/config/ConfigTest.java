@@ -22,8 +22,10 @@ import java.awt.Color;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +34,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Federico Vera {@literal<fede@riddler.com.ar>}
  */
 public class ConfigTest {
+    @TempDir
+    Path dir;
     private boolean statusNew = false;
     private boolean statusRem = false;
     private boolean statusUpd = false;
@@ -140,13 +144,13 @@ public class ConfigTest {
         Config.on("conf_1").put("k2", 123.3);
         Config.on("conf_1").put("k3", 100);
         Config.on("conf_1").put("k4", "Hello World");
-        try (FileOutputStream fos = new FileOutputStream("foo1")) {
+        try (FileOutputStream fos = new FileOutputStream(dir.resolve("foo1").toFile())) {
             Config.from("conf_1").save(fos);
         } catch (Exception e) {
             fail("Unable to write file foo1");
         }
         Config.remove("conf_1");
-        try (FileInputStream fis = new FileInputStream("foo1")) {
+        try (FileInputStream fis = new FileInputStream(dir.resolve("foo1").toFile())) {
             Config.read(fis, "conf_2");
         } catch (Exception e) {
             fail("Unable to read file foo1");
@@ -167,13 +171,13 @@ public class ConfigTest {
         Config.on("conf_1").put("k3", true);
         Config.on("conf_2").put("k3", 100);
         Config.on("conf_2").put("k4", "Hello World");
-        try (FileOutputStream fos = new FileOutputStream("foo2")) {
+        try (FileOutputStream fos = new FileOutputStream(dir.resolve("foo2").toFile())) {
             Config.saveAll(fos);
         } catch (Exception e) {
             fail("Unable to write file foo2");
         }
         Config.remove("conf_1");
-        try (FileInputStream fis = new FileInputStream("foo2")) {
+        try (FileInputStream fis = new FileInputStream(dir.resolve("foo2").toFile())) {
             Config.read(fis, null);
         } catch (Exception e) {
             fail("Unable to read file foo2");
@@ -184,7 +188,7 @@ public class ConfigTest {
         assertEquals(100, Config.from("conf_2").getInt("k3"));
         assertEquals("Hello World", Config.from("conf_2").getString("k4"));
 
-        try (FileOutputStream fos = new FileOutputStream("foo3");
+        try (FileOutputStream fos = new FileOutputStream(dir.resolve("foo3").toFile());
              ObjectOutputStream oos = new ObjectOutputStream(fos)) {
             oos.writeObject("This is not a config file");
         } catch (Exception e) {
@@ -193,13 +197,13 @@ public class ConfigTest {
         assertTrue(Config.configSet().contains("conf_1"));
         assertTrue(Config.configSet().contains("conf_2"));
         assertThrows(IllegalArgumentException.class, () -> {
-                try (FileInputStream fis = new FileInputStream("foo3")) {
+                try (FileInputStream fis = new FileInputStream(dir.resolve("foo3").toFile())) {
                     Config.read(fis, null);
                 }
             }
         );
         assertThrows(ClassCastException.class, () -> {
-                try (FileInputStream fis = new FileInputStream("foo3")) {
+                try (FileInputStream fis = new FileInputStream(dir.resolve("foo3").toFile())) {
                     Config.from("conf_2").getIcon("k4");
                 }
             }